@@ -0,0 +1,366 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.maven;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Compiles chain configuration resources into a
+ * {@code org.apache.commons.chain.config.CatalogInitializer} class.
+ *
+ * <p>The goal runs after the classes of the project have been compiled,
+ * resolves all configured classes and properties against the project
+ * classpath (see {@link ConfigCompiler}), and compiles the generated
+ * initializer into the output directory of the project. Configuration
+ * errors fail the build.</p>
+ *
+ * <p>{@code ChainListener} and {@code ChainServlet} apply the initializer
+ * if the context init parameter
+ * {@code org.apache.commons.chain.CONFIG_INITIALIZER} names its class (or
+ * is {@code true} for the class {@value #DEFAULT_INITIALIZER}). The
+ * configuration files located in a resource directory of the project or
+ * in the {@code webappDirectory} are recorded in the initializer under
+ * their runtime names and are not parsed again at startup; all other
+ * configuration resources still are.</p>
+ *
+ * @author Graff Stefan
+ * @since Chain 1.4
+ */
+@Mojo(name = "compile-config", defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+        requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME, threadSafe = true)
+public class CompileConfigMojo extends AbstractMojo {
+
+    // ------------------------------------------------------ Static Variables
+
+    /**
+     * The default fully qualified name of the generated initializer.
+     */
+    public static final String DEFAULT_INITIALIZER =
+        "org.apache.commons.chain.generated.ChainConfigInitializer";
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The current Maven project.
+     */
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    private MavenProject project;
+
+    /**
+     * The chain configuration files to compile, in the order in which
+     * they would be parsed.
+     */
+    @Parameter(required = true)
+    private File[] configFiles;
+
+    /**
+     * The fully qualified name of the generated initializer class.
+     */
+    @Parameter(defaultValue = DEFAULT_INITIALIZER)
+    private String initializerClass;
+
+    /**
+     * The directory of the web application sources, used to determine the
+     * runtime names of the configuration files.
+     */
+    @Parameter(defaultValue = "${basedir}/src/main/webapp")
+    private File webappDirectory;
+
+    /**
+     * The directory for the generated source.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/generated-sources/chain")
+    private File generatedSourcesDirectory;
+
+    /**
+     * The directory for the compiled initializer.
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}")
+    private File classesDirectory;
+
+    /**
+     * The Java release of the compiled initializer.
+     */
+    @Parameter(property = "maven.compiler.release")
+    private String release;
+
+    /**
+     * The fully qualified {@code Catalog} implementation class.
+     */
+    @Parameter(defaultValue = "org.apache.commons.chain.impl.CatalogBase")
+    private String catalogClass;
+
+    /**
+     * The fully qualified {@code Chain} implementation class.
+     */
+    @Parameter(defaultValue = "org.apache.commons.chain.impl.ChainBase")
+    private String chainClass;
+
+    /**
+     * The element name of a catalog element.
+     */
+    @Parameter(defaultValue = "catalog")
+    private String catalogElement;
+
+    /**
+     * The element name of a chain element.
+     */
+    @Parameter(defaultValue = "chain")
+    private String chainElement;
+
+    /**
+     * The element name of a command element.
+     */
+    @Parameter(defaultValue = "command")
+    private String commandElement;
+
+    /**
+     * The element name of a define element.
+     */
+    @Parameter(defaultValue = "define")
+    private String defineElement;
+
+    /**
+     * The attribute name of a class attribute.
+     */
+    @Parameter(defaultValue = "className")
+    private String classAttribute;
+
+    /**
+     * The attribute name of a name attribute.
+     */
+    @Parameter(defaultValue = "name")
+    private String nameAttribute;
+
+    /**
+     * Skip the execution of this goal.
+     */
+    @Parameter(property = "chain.skip", defaultValue = "false")
+    private boolean skip;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public CompileConfigMojo() {
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            getLog().info("Skipping compilation of chain configuration");
+            return;
+        }
+
+        final List<String> classpath = classpath();
+        final Path source;
+        try (URLClassLoader loader = new URLClassLoader(toUrls(classpath),
+                ClassLoader.getSystemClassLoader().getParent())) {
+
+            final ConfigCompiler compiler = new ConfigCompiler(loader);
+            compiler.setCatalogClass(catalogClass);
+            compiler.setChainClass(chainClass);
+            compiler.setCatalogElement(catalogElement);
+            compiler.setChainElement(chainElement);
+            compiler.setCommandElement(commandElement);
+            compiler.setDefineElement(defineElement);
+            compiler.setClassAttribute(classAttribute);
+            compiler.setNameAttribute(nameAttribute);
+
+            for (File file : configFiles) {
+                getLog().debug("Compiling " + file);
+                final String name = resourceName(file);
+                if (name == null) {
+                    getLog().warn(file + " is neither in a resource directory nor in "
+                            + webappDirectory + " and will also be parsed at runtime, if configured");
+                }
+                compiler.parse(file.toURI().toURL(), name);
+            }
+
+            if (!compiler.getErrors().isEmpty()) {
+                for (String error : compiler.getErrors()) {
+                    getLog().error(error);
+                }
+                throw new MojoFailureException("Chain configuration contains "
+                        + compiler.getErrors().size() + " errors");
+            }
+
+            source = generatedSourcesDirectory.toPath().resolve(initializerClass.replace('.', '/') + ".java");
+            Files.createDirectories(source.getParent());
+            try (Writer writer = Files.newBufferedWriter(source, StandardCharsets.UTF_8)) {
+                compiler.generate(initializerClass, writer);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Unable to compile chain configuration", e);
+        }
+
+        compile(source, classpath);
+        getLog().info("Compiled " + configFiles.length + " chain configuration files into " + initializerClass);
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Returns the classpath of the project including the output directory.
+     *
+     * @return the classpath elements
+     *
+     * @throws MojoExecutionException if the dependencies are not resolved
+     */
+    private List<String> classpath() throws MojoExecutionException {
+        final Set<String> ret = new LinkedHashSet<>();
+        ret.add(classesDirectory.getPath());
+        try {
+            ret.addAll(project.getCompileClasspathElements());
+            ret.addAll(project.getRuntimeClasspathElements());
+        } catch (DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException("Unable to resolve project classpath", e);
+        }
+        return new ArrayList<>(ret);
+    }
+
+    /**
+     * Returns the name of a configuration file at runtime: the path of a
+     * web application resource (starting with {@code /}) or the name of a
+     * class loader resource.
+     *
+     * @param file the configuration file
+     *
+     * @return the runtime name or {@code null} if unknown
+     */
+    private String resourceName(File file) {
+        final Path path = file.getAbsoluteFile().toPath().normalize();
+        final Path webapp = webappDirectory.getAbsoluteFile().toPath().normalize();
+        if (path.startsWith(webapp)) {
+            return "/" + toName(webapp.relativize(path));
+        }
+        for (Resource resource : project.getResources()) {
+            final Path dir = new File(resource.getDirectory()).getAbsoluteFile().toPath().normalize();
+            if (path.startsWith(dir)) {
+                final String name = toName(dir.relativize(path));
+                final String target = resource.getTargetPath() == null ? ""
+                        : resource.getTargetPath().trim().replace('\\', '/').replaceAll("^/+|/+$", "");
+                return target.isEmpty() ? name : target + "/" + name;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Convert a relative path to a resource name.
+     *
+     * @param path the relative path
+     *
+     * @return the resource name with {@code /} as separator
+     */
+    private static String toName(Path path) {
+        final StringBuilder sb = new StringBuilder();
+        for (Path element : path) {
+            if (sb.length() > 0) {
+                sb.append('/');
+            }
+            sb.append(element);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Convert the classpath elements to URLs.
+     *
+     * @param classpath the classpath elements
+     *
+     * @return the URLs
+     *
+     * @throws MalformedURLException if an element can't be converted
+     */
+    private static URL[] toUrls(List<String> classpath) throws MalformedURLException {
+        final URL[] ret = new URL[classpath.size()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = new File(classpath.get(i)).toURI().toURL();
+        }
+        return ret;
+    }
+
+    /**
+     * Compile the generated initializer into the classes directory.
+     *
+     * @param source the generated source file
+     * @param classpath the classpath of the project
+     *
+     * @throws MojoExecutionException if no compiler is available
+     * @throws MojoFailureException if the compilation fails
+     */
+    private void compile(Path source, List<String> classpath) throws MojoExecutionException, MojoFailureException {
+        final JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        if (javac == null) {
+            throw new MojoExecutionException("No Java compiler available, a JDK is required");
+        }
+
+        final List<String> args = new ArrayList<>();
+        if (release != null && !release.trim().isEmpty()) {
+            args.add("--release");
+            args.add(release.trim());
+        }
+        args.add("-encoding");
+        args.add("UTF-8");
+        args.add("-classpath");
+        args.add(String.join(File.pathSeparator, classpath));
+        args.add("-d");
+        args.add(classesDirectory.getPath());
+        args.add(source.toString());
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final int result = javac.run(null, output, output, args.toArray(new String[0]));
+        final String messages = new String(output.toByteArray(), StandardCharsets.UTF_8).trim();
+        if (result != 0) {
+            getLog().error(messages);
+            throw new MojoFailureException("Compilation of " + source + " failed");
+        } else if (!messages.isEmpty()) {
+            getLog().warn(messages);
+        }
+    }
+}
@@ -0,0 +1,1063 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.maven;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.commons.beanutils.ConvertUtilsBean;
+import org.apache.commons.chain.config.ConfigRuleSet;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Compiles chain configuration resources into the Java source of a
+ * {@code org.apache.commons.chain.config.CatalogInitializer}.
+ *
+ * <p>The resources are read with the same vocabulary as
+ * {@link ConfigRuleSet}, including {@code define} elements and
+ * {@code className} overrides. All classes and properties are resolved
+ * with the specified class loader at build time, so unknown classes,
+ * classes without a public zero-args constructor, unknown properties and
+ * unconvertible property values are reported as errors instead of failing
+ * at application startup. The generated initializer creates all objects
+ * with direct constructor and setter calls.</p>
+ *
+ * <p>Resources are parsed with {@link #parse(URL)}. Afterwards the
+ * collected errors are available with {@link #getErrors()} and the
+ * initializer is written with {@link #generate(String, Writer)}.
+ * Definitions made with {@code define} elements remain valid for all
+ * following resources, as they do for a single {@code ConfigParser}.</p>
+ *
+ * @author Graff Stefan
+ * @since Chain 1.4
+ */
+public class ConfigCompiler {
+
+    // ------------------------------------------------------ Static Variables
+
+    /**
+     * The name of the command interface.
+     */
+    private static final String COMMAND = "org.apache.commons.chain.Command";
+
+    /**
+     * The name of the chain interface.
+     */
+    private static final String CHAIN = "org.apache.commons.chain.Chain";
+
+    /**
+     * The name of the catalog interface.
+     */
+    private static final String CATALOG = "org.apache.commons.chain.Catalog";
+
+    /**
+     * The maximum number of statements of a generated method, which keeps
+     * the methods well below the code size limit of the JVM.
+     */
+    static final int MAX_STATEMENTS = 250;
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The class loader used to resolve the configured classes.
+     */
+    private final ClassLoader loader;
+
+    /**
+     * The strict converter used to check the property values.
+     */
+    private final ConvertUtilsBean converter = new ConvertUtilsBean();
+
+    /**
+     * The element names defined by {@code define} elements and their
+     * implementation classes.
+     */
+    private final Map<String, String> defines = new HashMap<>();
+
+    /**
+     * The generated method bodies, one per parsed resource. A body
+     * continues in further methods if it exceeds {@link #MAX_STATEMENTS}.
+     */
+    private final List<String> bodies = new ArrayList<>();
+
+    /**
+     * The parsed resources, one per method body.
+     */
+    private final List<URL> resources = new ArrayList<>();
+
+    /**
+     * The runtime names of the parsed resources, if known.
+     */
+    private final Set<String> resourceNames = new LinkedHashSet<>();
+
+    /**
+     * The collected error messages.
+     */
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * The counter used for unique variable names.
+     */
+    private int counter;
+
+    /**
+     * The fully qualified {@code Catalog} implementation class.
+     */
+    private String catalogClass = "org.apache.commons.chain.impl.CatalogBase";
+
+    /**
+     * The element name of a catalog element.
+     */
+    private String catalogElement = "catalog";
+
+    /**
+     * The fully qualified {@code Chain} implementation class.
+     */
+    private String chainClass = "org.apache.commons.chain.impl.ChainBase";
+
+    /**
+     * The element name of a chain element.
+     */
+    private String chainElement = "chain";
+
+    /**
+     * The attribute name of a class attribute.
+     */
+    private String classAttribute = "className";
+
+    /**
+     * The element name of a command element.
+     */
+    private String commandElement = "command";
+
+    /**
+     * The element name of a define element.
+     */
+    private String defineElement = "define";
+
+    /**
+     * The attribute name of a name attribute.
+     */
+    private String nameAttribute = "name";
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Construct a compiler which resolves the configured classes with the
+     * specified class loader.
+     *
+     * @param loader the class loader of the project to be compiled
+     */
+    public ConfigCompiler(ClassLoader loader) {
+        this.loader = loader;
+        converter.register(true, false, 0);
+    }
+
+    // ------------------------------------------------------------- Properties
+
+    /**
+     * Return the fully qualified {@code Catalog} implementation class.
+     *
+     * @return the catalog class
+     *
+     * @see ConfigRuleSet#getCatalogClass()
+     */
+    public String getCatalogClass() {
+        return this.catalogClass;
+    }
+
+    /**
+     * Set the fully qualified {@code Catalog} implementation class.
+     *
+     * @param catalogClass the new catalog class
+     *
+     * @see ConfigRuleSet#setCatalogClass(String)
+     */
+    public void setCatalogClass(String catalogClass) {
+        this.catalogClass = catalogClass;
+    }
+
+    /**
+     * Return the element name of a catalog element.
+     *
+     * @return the element name of a catalog element
+     *
+     * @see ConfigRuleSet#getCatalogElement()
+     */
+    public String getCatalogElement() {
+        return this.catalogElement;
+    }
+
+    /**
+     * Set the element name of a catalog element.
+     *
+     * @param catalogElement the new element name
+     *
+     * @see ConfigRuleSet#setCatalogElement(String)
+     */
+    public void setCatalogElement(String catalogElement) {
+        this.catalogElement = catalogElement;
+    }
+
+    /**
+     * Return the fully qualified {@code Chain} implementation class.
+     *
+     * @return the chain class
+     *
+     * @see ConfigRuleSet#getChainClass()
+     */
+    public String getChainClass() {
+        return this.chainClass;
+    }
+
+    /**
+     * Set the fully qualified {@code Chain} implementation class.
+     *
+     * @param chainClass the new chain class
+     *
+     * @see ConfigRuleSet#setChainClass(String)
+     */
+    public void setChainClass(String chainClass) {
+        this.chainClass = chainClass;
+    }
+
+    /**
+     * Return the element name of a chain element.
+     *
+     * @return the element name of a chain element
+     *
+     * @see ConfigRuleSet#getChainElement()
+     */
+    public String getChainElement() {
+        return this.chainElement;
+    }
+
+    /**
+     * Set the element name of a chain element.
+     *
+     * @param chainElement the new element name
+     *
+     * @see ConfigRuleSet#setChainElement(String)
+     */
+    public void setChainElement(String chainElement) {
+        this.chainElement = chainElement;
+    }
+
+    /**
+     * Return the attribute name of a class attribute.
+     *
+     * @return the attribute name of a class attribute
+     *
+     * @see ConfigRuleSet#getClassAttribute()
+     */
+    public String getClassAttribute() {
+        return this.classAttribute;
+    }
+
+    /**
+     * Set the attribute name of a class attribute.
+     *
+     * @param classAttribute the new attribute name
+     *
+     * @see ConfigRuleSet#setClassAttribute(String)
+     */
+    public void setClassAttribute(String classAttribute) {
+        this.classAttribute = classAttribute;
+    }
+
+    /**
+     * Return the element name of a command element.
+     *
+     * @return the element name of a command element
+     *
+     * @see ConfigRuleSet#getCommandElement()
+     */
+    public String getCommandElement() {
+        return this.commandElement;
+    }
+
+    /**
+     * Set the element name of a command element.
+     *
+     * @param commandElement the new element name
+     *
+     * @see ConfigRuleSet#setCommandElement(String)
+     */
+    public void setCommandElement(String commandElement) {
+        this.commandElement = commandElement;
+    }
+
+    /**
+     * Return the element name of a define element.
+     *
+     * @return the element name of a define element
+     *
+     * @see ConfigRuleSet#getDefineElement()
+     */
+    public String getDefineElement() {
+        return this.defineElement;
+    }
+
+    /**
+     * Set the element name of a define element.
+     *
+     * @param defineElement the new element name
+     *
+     * @see ConfigRuleSet#setDefineElement(String)
+     */
+    public void setDefineElement(String defineElement) {
+        this.defineElement = defineElement;
+    }
+
+    /**
+     * Return the attribute name of a name attribute.
+     *
+     * @return the attribute name of a name attribute
+     *
+     * @see ConfigRuleSet#getNameAttribute()
+     */
+    public String getNameAttribute() {
+        return this.nameAttribute;
+    }
+
+    /**
+     * Set the attribute name of a name attribute.
+     *
+     * @param nameAttribute the new attribute name
+     *
+     * @see ConfigRuleSet#setNameAttribute(String)
+     */
+    public void setNameAttribute(String nameAttribute) {
+        this.nameAttribute = nameAttribute;
+    }
+
+    /**
+     * Return the error messages collected while parsing.
+     *
+     * @return the unmodifiable list of error messages
+     */
+    public List<String> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Parse the specified configuration resource. Errors are collected
+     * and are available with {@link #getErrors()}.
+     *
+     * @param url the URL of the configuration resource
+     *
+     * @throws IOException if the resource could not be read
+     */
+    public void parse(URL url) throws IOException {
+        parse(url, null);
+    }
+
+    /**
+     * Parse the specified configuration resource, which is known at
+     * runtime under the specified name. The generated initializer returns
+     * the names of all parsed resources from {@code getResources()}, so
+     * that they are not parsed again at runtime. Errors are collected
+     * and are available with {@link #getErrors()}.
+     *
+     * @param url the URL of the configuration resource
+     * @param name the name of the class loader resource, the path of the
+     *        web application resource starting with {@code /}, or
+     *        {@code null} if unknown
+     *
+     * @throws IOException if the resource could not be read
+     */
+    public void parse(URL url, String name) throws IOException {
+        final Handler handler = new Handler(url, "resource" + bodies.size());
+        try (InputStream is = url.openStream()) {
+            final InputSource source = new InputSource(is);
+            source.setSystemId(url.toExternalForm());
+            newParser().parse(source, handler);
+        } catch (SAXException | ParserConfigurationException e) {
+            errors.add(handler.location() + e.getMessage());
+        }
+        bodies.add(handler.body.toString());
+        resources.add(url);
+        if (name != null) {
+            resourceNames.add(name);
+        }
+    }
+
+    /**
+     * Write the Java source of the initializer class.
+     *
+     * @param className the fully qualified name of the class
+     * @param out the writer for the source code
+     *
+     * @throws IllegalStateException if errors were collected
+     */
+    public void generate(String className, Writer out) {
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Configuration contains " + errors.size() + " errors");
+        }
+
+        final PrintWriter pw = new PrintWriter(out);
+        final int idx = className.lastIndexOf('.');
+        if (idx > 0) {
+            pw.println("package " + className.substring(0, idx) + ";");
+            pw.println();
+        }
+
+        pw.println("/**");
+        pw.println(" * Generated by " + getClass().getName() + " - do not edit.");
+        pw.println(" */");
+        pw.println("public final class " + className.substring(idx + 1)
+                + " implements org.apache.commons.chain.config.CatalogInitializer {");
+        pw.println();
+        pw.println("    @Override");
+        pw.println("    public void initialize(org.apache.commons.chain.CatalogFactory<org.apache.commons.chain.Context> factory) {");
+        for (int i = 0; i < bodies.size(); i++) {
+            pw.println("        resource" + i + "(factory);");
+        }
+        pw.println("    }");
+        pw.println();
+        pw.println("    @Override");
+        pw.println("    public java.util.Set<String> getResources() {");
+        if (resourceNames.isEmpty()) {
+            pw.println("        return java.util.Collections.emptySet();");
+        } else {
+            pw.println("        return java.util.Collections.unmodifiableSet(new java.util.HashSet<>(java.util.Arrays.asList(");
+            int n = 0;
+            for (String name : resourceNames) {
+                pw.println("            " + literal(name) + (++n < resourceNames.size() ? "," : ")));"));
+            }
+        }
+        pw.println("    }");
+
+        for (int i = 0; i < bodies.size(); i++) {
+            pw.println();
+            pw.println("    // " + resources.get(i).toExternalForm().replace('\n', ' ').replace('\r', ' '));
+            pw.println("    @SuppressWarnings({\"rawtypes\", \"unchecked\"})");
+            pw.println("    private static void resource" + i + "(");
+            pw.println("            org.apache.commons.chain.CatalogFactory<org.apache.commons.chain.Context> factory) {");
+            pw.print(bodies.get(i));
+            pw.println("    }");
+        }
+
+        pw.println();
+        pw.println("    @SuppressWarnings({\"rawtypes\", \"unchecked\"})");
+        pw.println("    private static org.apache.commons.chain.Catalog<org.apache.commons.chain.Context> catalog(");
+        pw.println("            org.apache.commons.chain.CatalogFactory<org.apache.commons.chain.Context> factory, String name) {");
+        pw.println("        org.apache.commons.chain.Catalog<org.apache.commons.chain.Context> catalog =");
+        pw.println("                name == null ? factory.getCatalog() : factory.getCatalog(name);");
+        pw.println("        if (catalog == null) {");
+        pw.println("            catalog = new " + catalogClass + "();");
+        pw.println("            if (name == null) {");
+        pw.println("                factory.setCatalog(catalog);");
+        pw.println("            } else {");
+        pw.println("                factory.addCatalog(name, catalog);");
+        pw.println("            }");
+        pw.println("        }");
+        pw.println("        return catalog;");
+        pw.println("    }");
+        pw.println();
+        pw.println("    @SuppressWarnings(\"unchecked\")");
+        pw.println("    private static org.apache.commons.chain.Command<org.apache.commons.chain.Context> command(");
+        pw.println("            org.apache.commons.chain.Command<?> command) {");
+        pw.println("        return (org.apache.commons.chain.Command<org.apache.commons.chain.Context>) command;");
+        pw.println("    }");
+        pw.println();
+        pw.println("    @SuppressWarnings(\"unchecked\")");
+        pw.println("    private static org.apache.commons.chain.Chain<org.apache.commons.chain.Context> chain(");
+        pw.println("            org.apache.commons.chain.Chain<?> chain) {");
+        pw.println("        return (org.apache.commons.chain.Chain<org.apache.commons.chain.Context>) chain;");
+        pw.println("    }");
+        pw.println("}");
+        pw.flush();
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Create a new non-validating SAX parser.
+     *
+     * @return the new parser
+     *
+     * @throws ParserConfigurationException if the parser can't be created
+     * @throws SAXException if the parser can't be created
+     */
+    private static SAXParser newParser() throws ParserConfigurationException, SAXException {
+        final SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(false);
+        factory.setValidating(false);
+        return factory.newSAXParser();
+    }
+
+    /**
+     * Load the class without initializing it.
+     *
+     * @param className the fully qualified class name
+     *
+     * @return the class or {@code null} if not found
+     */
+    private Class<?> loadClass(String className) {
+        try {
+            return Class.forName(className, false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the Java literal of a string.
+     *
+     * @param value the string or {@code null}
+     *
+     * @return the Java literal
+     */
+    private static String literal(String value) {
+        if (value == null) {
+            return "null";
+        }
+
+        final StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            sb.append(escape(c, '"'));
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Returns the escaped character for a Java literal.
+     *
+     * @param c the character
+     * @param quote the quote character of the literal
+     *
+     * @return the escaped character
+     */
+    private static String escape(char c, char quote) {
+        switch (c) {
+            case '\\':
+                return "\\\\";
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            case '\t':
+                return "\\t";
+            default:
+                if (c == quote) {
+                    return "\\" + c;
+                }
+                return c < ' ' || c > '~' ? String.format("\\u%04x", (int) c) : String.valueOf(c);
+        }
+    }
+
+    /**
+     * Returns the wrapper class of a primitive type.
+     *
+     * @param type the type
+     *
+     * @return the wrapper class or the type itself
+     */
+    private static Class<?> wrapper(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        } else if (type == Boolean.TYPE) {
+            return Boolean.class;
+        } else if (type == Byte.TYPE) {
+            return Byte.class;
+        } else if (type == Character.TYPE) {
+            return Character.class;
+        } else if (type == Short.TYPE) {
+            return Short.class;
+        } else if (type == Integer.TYPE) {
+            return Integer.class;
+        } else if (type == Long.TYPE) {
+            return Long.class;
+        } else if (type == Float.TYPE) {
+            return Float.class;
+        }
+        return Double.class;
+    }
+
+    /**
+     * Convert the property value at build time and return the Java
+     * expression of the converted value.
+     *
+     * @param type the type of the property
+     * @param value the property value
+     *
+     * @return the Java expression or {@code null} if the value can't be
+     *         converted
+     */
+    private String expression(Class<?> type, String value) {
+        if (type == String.class || type == Object.class) {
+            return literal(value);
+        }
+
+        final Class<?> target = wrapper(type);
+        final Object converted;
+        try {
+            converted = converter.convert(value, target);
+        } catch (RuntimeException e) {
+            return null;
+        }
+        if (converted == null || !target.isInstance(converted)) {
+            return null;
+        }
+
+        if (target == Boolean.class || target == Integer.class) {
+            return converted.toString();
+        } else if (target == Long.class) {
+            return converted + "L";
+        } else if (target == Byte.class) {
+            return "(byte) " + converted;
+        } else if (target == Short.class) {
+            return "(short) " + converted;
+        } else if (target == Character.class) {
+            return "'" + escape((Character) converted, '\'') + "'";
+        } else if (target == Float.class && !((Float) converted).isInfinite() && !((Float) converted).isNaN()) {
+            return converted + "F";
+        } else if (target == Double.class && !((Double) converted).isInfinite() && !((Double) converted).isNaN()) {
+            return converted + "D";
+        }
+
+        final String typeName = type.getCanonicalName();
+        if (typeName == null) {
+            return null;
+        }
+        return "(" + typeName + ") org.apache.commons.beanutils.ConvertUtils.convert("
+                + literal(value) + ", " + typeName + ".class)";
+    }
+
+    // --------------------------------------------------------- Inner Classes
+
+    /**
+     * An entry of the object stack, which mirrors the Digester stack of
+     * {@link ConfigRuleSet}.
+     */
+    private static final class Frame {
+
+        /**
+         * A frame of an element which does not push an object.
+         */
+        static final Frame NONE = new Frame(null, null, false);
+
+        /**
+         * A frame of an erroneous element.
+         */
+        static final Frame INVALID = new Frame(null, null, false);
+
+        /**
+         * The name of the variable which holds the object.
+         */
+        final String variable;
+
+        /**
+         * The type of the object.
+         */
+        final Class<?> type;
+
+        /**
+         * Is the object a catalog?
+         */
+        final boolean catalog;
+
+        /**
+         * Construct a new frame.
+         *
+         * @param variable the name of the variable
+         * @param type the type of the object
+         * @param catalog is the object a catalog?
+         */
+        Frame(String variable, Class<?> type, boolean catalog) {
+            this.variable = variable;
+            this.type = type;
+            this.catalog = catalog;
+        }
+    }
+
+    /**
+     * SAX-Handler which generates the method body for a single
+     * configuration resource.
+     */
+    private final class Handler extends DefaultHandler {
+
+        /**
+         * The parsed resource.
+         */
+        private final URL url;
+
+        /**
+         * The generated method body.
+         */
+        final StringBuilder body = new StringBuilder();
+
+        /**
+         * The object stack.
+         */
+        private final Deque<Frame> stack = new ArrayDeque<>();
+
+        /**
+         * The locator of the parser.
+         */
+        private Locator locator;
+
+        /**
+         * The name of the generated method of the resource.
+         */
+        private final String method;
+
+        /**
+         * The number of generated methods of the resource.
+         */
+        private int parts = 1;
+
+        /**
+         * The start of the current method in {@link #body}.
+         */
+        private int partStart = 0;
+
+        /**
+         * Construct a handler for the specified resource.
+         *
+         * @param url the parsed resource
+         * @param method the name of the generated method
+         */
+        Handler(URL url, String method) {
+            this.url = url;
+            this.method = method;
+        }
+
+        @Override
+        public void setDocumentLocator(Locator locator) {
+            this.locator = locator;
+        }
+
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) {
+            // external DTDs are not needed for a non-validating parser
+            return new InputSource(new StringReader(""));
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            splitIfFull();
+            final Frame frame;
+            if (qName.equals(catalogElement)) {
+                frame = createCatalog(attributes);
+            } else if (qName.equals(chainElement)) {
+                final String className = attributes.getValue(classAttribute);
+                frame = createCommand(className == null ? chainClass : className, attributes);
+            } else if (qName.equals(commandElement)) {
+                final String className = attributes.getValue(classAttribute);
+                if (className == null) {
+                    error("Missing attribute '" + classAttribute + "' of element '" + qName + "'");
+                    frame = Frame.INVALID;
+                } else {
+                    frame = createCommand(className, attributes);
+                }
+            } else if (qName.equals(defineElement)) {
+                final String name = attributes.getValue(nameAttribute);
+                final String className = attributes.getValue(classAttribute);
+                if (name == null || className == null) {
+                    error("Element '" + qName + "' requires the attributes '" + nameAttribute
+                            + "' and '" + classAttribute + "'");
+                } else {
+                    defines.put(name, className);
+                }
+                frame = Frame.NONE;
+            } else if (defines.containsKey(qName)) {
+                frame = createCommand(defines.get(qName), attributes);
+            } else {
+                frame = Frame.NONE;
+            }
+            stack.push(frame);
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            stack.pop();
+        }
+
+        /**
+         * Continue the generated code in a new method if the current
+         * method has reached {@link #MAX_STATEMENTS}. The objects of the
+         * enclosing elements, which are the only ones referenced by the
+         * following code, are passed as parameters.
+         */
+        private void splitIfFull() {
+            int statements = 0;
+            for (int i = partStart; i < body.length(); i++) {
+                if (body.charAt(i) == '\n') {
+                    statements++;
+                }
+            }
+            if (statements < MAX_STATEMENTS) {
+                return;
+            }
+
+            final List<Frame> live = new ArrayList<>();
+            for (Frame frame : stack) {
+                if (frame.variable != null) {
+                    live.add(0, frame);
+                }
+            }
+            final String next = method + "_" + parts++;
+            body.append("        ").append(next).append("(factory");
+            for (Frame frame : live) {
+                body.append(", ").append(frame.variable);
+            }
+            body.append(");\n")
+                .append("    }\n")
+                .append("\n")
+                .append("    @SuppressWarnings({\"rawtypes\", \"unchecked\"})\n")
+                .append("    private static void ").append(next).append("(\n")
+                .append("            org.apache.commons.chain.CatalogFactory<org.apache.commons.chain.Context> factory");
+            for (Frame frame : live) {
+                body.append(",\n            ")
+                    .append(frame.catalog
+                            ? "org.apache.commons.chain.Catalog<org.apache.commons.chain.Context>"
+                            : frame.type.getCanonicalName())
+                    .append(' ').append(frame.variable);
+            }
+            body.append(") {\n");
+            partStart = body.length();
+        }
+
+        /**
+         * Returns the current location for error messages.
+         *
+         * @return the current location
+         */
+        String location() {
+            final StringBuilder sb = new StringBuilder(url.toExternalForm());
+            if (locator != null) {
+                sb.append(':').append(locator.getLineNumber());
+            }
+            return sb.append(": ").toString();
+        }
+
+        /**
+         * Record an error at the current location.
+         *
+         * @param message the error message
+         */
+        private void error(String message) {
+            errors.add(location() + message);
+        }
+
+        /**
+         * Returns the nearest frame which holds an object.
+         *
+         * @return the parent frame or {@code null}
+         */
+        private Frame parent() {
+            for (Frame frame : stack) {
+                if (frame != Frame.NONE) {
+                    return frame;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Generate the lookup or creation of a catalog.
+         *
+         * @param attributes the attributes of the element
+         *
+         * @return the new frame
+         */
+        private Frame createCatalog(Attributes attributes) {
+            final Class<?> type = loadClass(catalogClass);
+            final Class<?> catalogType = loadClass(CATALOG);
+            if (type == null || catalogType == null || !catalogType.isAssignableFrom(type)) {
+                error("Catalog class '" + catalogClass + "' not found or not a Catalog");
+                return Frame.INVALID;
+            }
+
+            final String variable = "catalog" + ++counter;
+            body.append("        org.apache.commons.chain.Catalog<org.apache.commons.chain.Context> ")
+                .append(variable).append(" = catalog(factory, ")
+                .append(literal(attributes.getValue(nameAttribute))).append(");\n");
+
+            // properties can only be set on catalogs of the configured class
+            final StringBuilder properties = new StringBuilder();
+            final String typed = "((" + type.getCanonicalName() + ") " + variable + ")";
+            setProperties(typed, type, attributes, properties, "            ");
+            if (properties.length() > 0) {
+                body.append("        if (").append(variable).append(" instanceof ")
+                    .append(type.getCanonicalName()).append(") {\n")
+                    .append(properties)
+                    .append("        }\n");
+            }
+
+            return new Frame(variable, type, true);
+        }
+
+        /**
+         * Generate the creation and registration of a command or chain.
+         *
+         * @param className the implementation class
+         * @param attributes the attributes of the element
+         *
+         * @return the new frame
+         */
+        private Frame createCommand(String className, Attributes attributes) {
+            final Class<?> type = loadClass(className);
+            if (type == null) {
+                error("Class '" + className + "' not found");
+                return Frame.INVALID;
+            }
+
+            final Class<?> commandType = loadClass(COMMAND);
+            if (commandType == null || !commandType.isAssignableFrom(type)) {
+                error("Class '" + className + "' does not implement " + COMMAND);
+                return Frame.INVALID;
+            }
+
+            if (!checkInstantiable(type)) {
+                return Frame.INVALID;
+            }
+
+            final String variable = "command" + ++counter;
+            body.append("        ").append(type.getCanonicalName()).append(' ').append(variable)
+                .append(" = new ").append(type.getCanonicalName()).append("();\n");
+            setProperties(variable, type, attributes, body, "        ");
+
+            // Register the command like ConfigRegisterRule
+            final Frame parent = parent();
+            final Class<?> chainType = loadClass(CHAIN);
+            if (parent == null || parent.variable == null) {
+                // nothing to register with
+            } else if (parent.catalog) {
+                final String name = attributes.getValue(nameAttribute);
+                if (name != null) {
+                    body.append("        ").append(parent.variable).append(".addCommand(")
+                        .append(literal(name)).append(", command(").append(variable).append("));\n");
+                }
+            } else if (chainType != null && chainType.isAssignableFrom(parent.type)) {
+                body.append("        chain(").append(parent.variable).append(").addCommand(command(")
+                    .append(variable).append("));\n");
+            }
+
+            return new Frame(variable, type, false);
+        }
+
+        /**
+         * Check that the class can be instantiated by the generated code.
+         *
+         * @param type the class to check
+         *
+         * @return {@code true} if the class is valid
+         */
+        private boolean checkInstantiable(Class<?> type) {
+            final int modifiers = type.getModifiers();
+            if (!Modifier.isPublic(modifiers) || Modifier.isAbstract(modifiers) || type.isInterface()) {
+                error("Class '" + type.getName() + "' must be a public, non-abstract class");
+                return false;
+            }
+            if (type.getCanonicalName() == null
+                    || type.getEnclosingClass() != null && !Modifier.isStatic(modifiers)) {
+                error("Class '" + type.getName() + "' must be a top-level or a static nested class");
+                return false;
+            }
+            try {
+                type.getConstructor();
+            } catch (NoSuchMethodException | LinkageError e) {
+                error("Class '" + type.getName() + "' must provide a public zero-args constructor");
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Generate the setter calls for the attributes of an element, like
+         * the {@code SetPropertiesRule} of Digester. The name and class
+         * attributes are only set if a matching property exists; all other
+         * attributes must match a writable property.
+         *
+         * @param target the Java expression of the target object
+         * @param type the type of the target object
+         * @param attributes the attributes of the element
+         * @param out the buffer for the generated code
+         * @param indent the indentation of the generated code
+         */
+        private void setProperties(String target, Class<?> type, Attributes attributes,
+                StringBuilder out, String indent) {
+
+            final Map<String, PropertyDescriptor> descriptors = new HashMap<>();
+            try {
+                for (PropertyDescriptor pd : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+                    descriptors.put(pd.getName(), pd);
+                }
+            } catch (IntrospectionException | LinkageError e) {
+                error("Unable to introspect class '" + type.getName() + "': " + e.getMessage());
+                return;
+            }
+
+            for (int i = 0; i < attributes.getLength(); i++) {
+                final String name = attributes.getQName(i);
+                final String value = attributes.getValue(i);
+                if (name.equals("xmlns") || name.startsWith("xmlns:")) {
+                    continue;
+                }
+
+                final PropertyDescriptor pd = descriptors.get(name);
+                final Method setter = pd == null ? null : pd.getWriteMethod();
+                if (setter == null) {
+                    if (!name.equals(nameAttribute) && !name.equals(classAttribute)) {
+                        error("Class '" + type.getName() + "' has no writable property '" + name + "'");
+                    }
+                    continue;
+                }
+
+                final String expression = expression(setter.getParameterTypes()[0], value);
+                if (expression == null) {
+                    error("Value '" + value + "' of property '" + name + "' can't be converted to "
+                            + setter.getParameterTypes()[0].getName());
+                    continue;
+                }
+                out.append(indent).append(target).append('.').append(setter.getName())
+                   .append('(').append(expression).append(");\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.maven;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.ToolProvider;
+
+import org.apache.commons.chain.Catalog;
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Command;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.config.CatalogInitializer;
+import org.apache.commons.chain.generic.LookupCommand;
+import org.apache.commons.chain.impl.ChainBase;
+import org.apache.commons.chain.impl.ContextBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for the {@code ConfigCompiler} class.
+ */
+public class ConfigCompilerTestCase {
+
+    // ---------------------------------------------------- Instance Variables
+
+    /**
+     * The temporary directory for configurations, sources and classes.
+     */
+    @TempDir
+    Path tempDir;
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public ConfigCompilerTestCase() {
+    }
+
+    // -------------------------------------------------- Overall Test Methods
+
+    /**
+     * Tear down instance variables required by this test case.
+     */
+    @AfterEach
+    public void tearDown() {
+        CatalogFactory.clear();
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test the compilation of a valid configuration.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testCompile() throws Exception {
+        final ConfigCompiler compiler = new ConfigCompiler(getClass().getClassLoader());
+        compiler.parse(config("valid.xml",
+            "<catalogs>",
+            "  <define name=\"copy\" className=\"org.apache.commons.chain.generic.CopyCommand\"/>",
+            "  <catalog name=\"test\">",
+            "    <chain name=\"main\">",
+            "      <copy fromKey=\"a\" toKey=\"b\"/>",
+            "      <command className=\"org.apache.commons.chain.generic.CopyCommand\"",
+            "               toKey=\"c\" value=\"x&quot;y\"/>",
+            "    </chain>",
+            "    <command name=\"lookup\" className=\"org.apache.commons.chain.generic.LookupCommand\"",
+            "             optional=\"true\" catalogName=\"other\"/>",
+            "  </catalog>",
+            "</catalogs>"), "/WEB-INF/valid.xml");
+        assertTrue(compiler.getErrors().isEmpty(), compiler.getErrors().toString());
+
+        final CatalogInitializer initializer = initialize(compiler);
+        assertEquals(Collections.singleton("/WEB-INF/valid.xml"), initializer.getResources());
+
+        final Catalog<Context> catalog = CatalogFactory.<Context>getInstance().getCatalog("test");
+        final Command<Context> main = catalog.getCommand("main");
+        assertTrue(main instanceof ChainBase);
+
+        final Context context = new ContextBase();
+        context.put("a", "value");
+        assertFalse(main.execute(context));
+        assertEquals("value", context.get("b"));
+        assertEquals("x\"y", context.get("c"));
+
+        final LookupCommand<Context> lookup = catalog.getCommand("lookup");
+        assertTrue(lookup.isOptional());
+        assertEquals("other", lookup.getCatalogName());
+        assertEquals("lookup", lookup.getName());
+    }
+
+    /**
+     * Test the compilation of a configuration which exceeds the code size
+     * limit of a single method.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testCompileLarge() throws Exception {
+        final int count = 5000;
+        final List<String> lines = new ArrayList<>();
+        lines.add("<catalog name=\"large\">");
+        lines.add("  <chain name=\"main\">");
+        for (int i = 0; i < count; i++) {
+            lines.add("    <command className=\"org.apache.commons.chain.generic.CopyCommand\""
+                    + " toKey=\"key" + i + "\" value=\"value" + i + "\"/>");
+        }
+        lines.add("  </chain>");
+        for (int i = 0; i < count; i++) {
+            lines.add("  <command name=\"lookup" + i + "\""
+                    + " className=\"org.apache.commons.chain.generic.LookupCommand\" optional=\"true\"/>");
+        }
+        lines.add("</catalog>");
+
+        final ConfigCompiler compiler = new ConfigCompiler(getClass().getClassLoader());
+        compiler.parse(config("large.xml", lines.toArray(new String[0])), "large.xml");
+        assertTrue(compiler.getErrors().isEmpty(), compiler.getErrors().toString());
+        initialize(compiler);
+
+        final Catalog<Context> catalog = CatalogFactory.<Context>getInstance().getCatalog("large");
+        final Context context = new ContextBase();
+        assertFalse(catalog.getCommand("main").execute(context));
+        assertEquals(count, context.size());
+        assertEquals("value" + (count - 1), context.get("key" + (count - 1)));
+        final LookupCommand<Context> lookup = catalog.getCommand("lookup" + (count - 1));
+        assertTrue(lookup.isOptional());
+    }
+
+    /**
+     * Test that configuration errors are reported.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testErrors() throws Exception {
+        final ConfigCompiler compiler = new ConfigCompiler(getClass().getClassLoader());
+        compiler.parse(config("invalid.xml",
+            "<catalog>",
+            "  <command name=\"a\" className=\"org.example.Missing\"/>",
+            "  <command name=\"b\" className=\"org.apache.commons.chain.generic.CopyCommand\" unknown=\"x\"/>",
+            "  <command name=\"c\" className=\"org.apache.commons.chain.generic.LookupCommand\" optional=\"maybe\"/>",
+            "  <command name=\"d\" className=\"java.lang.String\"/>",
+            "  <command name=\"e\"/>",
+            "</catalog>"));
+
+        final List<String> errors = compiler.getErrors();
+        assertEquals(5, errors.size(), errors.toString());
+        assertTrue(errors.get(0).endsWith(":2: Class 'org.example.Missing' not found"), errors.get(0));
+        assertTrue(errors.get(1).contains("no writable property 'unknown'"), errors.get(1));
+        assertTrue(errors.get(2).contains("Value 'maybe' of property 'optional'"), errors.get(2));
+        assertTrue(errors.get(3).contains("does not implement"), errors.get(3));
+        assertTrue(errors.get(4).contains("Missing attribute 'className'"), errors.get(4));
+    }
+
+    // -------------------------------------------------------- Support Methods
+
+    /**
+     * Generate, compile and apply the initializer.
+     *
+     * @param compiler the compiler with the parsed configuration
+     *
+     * @return the applied initializer
+     *
+     * @throws Exception any error
+     */
+    private CatalogInitializer initialize(ConfigCompiler compiler) throws Exception {
+        final Path source = tempDir.resolve("src/test/Initializer.java");
+        Files.createDirectories(source.getParent());
+        try (Writer writer = Files.newBufferedWriter(source, StandardCharsets.UTF_8)) {
+            compiler.generate("test.Initializer", writer);
+        }
+
+        final Path classes = Files.createDirectories(tempDir.resolve("classes"));
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final int result = ToolProvider.getSystemJavaCompiler().run(null, output, output,
+                "-d", classes.toString(),
+                "-classpath", location(Command.class) + File.pathSeparator + location(LookupCommand.class),
+                source.toString());
+        assertEquals(0, result, output.toString());
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {classes.toUri().toURL()},
+                getClass().getClassLoader())) {
+
+            final CatalogInitializer initializer = loader.loadClass("test.Initializer")
+                    .asSubclass(CatalogInitializer.class).getDeclaredConstructor().newInstance();
+            initializer.initialize(CatalogFactory.getInstance());
+            return initializer;
+        }
+    }
+
+    /**
+     * Write a configuration file into the temporary directory.
+     *
+     * @param name the file name
+     * @param lines the lines of the configuration
+     *
+     * @return the URL of the configuration file
+     *
+     * @throws Exception any error
+     */
+    private URL config(String name, String... lines) throws Exception {
+        final Path file = tempDir.resolve(name);
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file.toUri().toURL();
+    }
+
+    /**
+     * Returns the location of the class as file path.
+     *
+     * @param clazz the class
+     *
+     * @return the file path of the jar or directory
+     *
+     * @throws URISyntaxException if the location is invalid
+     */
+    private static String location(Class<?> clazz) throws URISyntaxException {
+        return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Registers the annotated {@link org.apache.commons.chain.Command}
+ * class under the specified name in a {@link org.apache.commons.chain.Catalog}.
+ *
+ * <p>The annotated class must be a public, non-abstract class with a
+ * public zero-args constructor. At compile time the annotation processor
+ * generates a {@link org.apache.commons.chain.config.CatalogInitializer}
+ * which creates the command with a direct constructor call. This is the
+ * equivalent of the configuration element
+ * {@code <command name="..." className="..."/>}.</p>
+ *
+ * @author Graff Stefan
+ * @since Chain 1.4
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface ChainCommand {
+
+    /**
+     * The name of the catalog in which the command is registered.
+     * An empty string (the default) selects the default catalog.
+     *
+     * @return the name of the catalog
+     */
+    String catalog() default "";
+
+    /**
+     * The name under which the command is registered.
+     *
+     * @return the name of the command
+     */
+    String name();
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.apache.commons.chain.Chain;
+import org.apache.commons.chain.Command;
+import org.apache.commons.chain.impl.ChainBase;
+
+/**
+ * Defines a {@link Chain} which is registered under the specified name
+ * in a {@link org.apache.commons.chain.Catalog}. The annotation may be
+ * placed on any type, usually on a configuration class or on the first
+ * command of the chain.
+ *
+ * <p>All classes referenced by this annotation must be public,
+ * non-abstract classes with a public zero-args constructor. At compile
+ * time the annotation processor generates a
+ * {@link org.apache.commons.chain.config.CatalogInitializer} which
+ * creates the chain and its commands with direct constructor calls.
+ * This is the equivalent of the configuration element
+ * {@code <chain name="..."><command className="..."/>...</chain>}.</p>
+ *
+ * @author Graff Stefan
+ * @since Chain 1.4
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+@Repeatable(ChainDefinitions.class)
+public @interface ChainDefinition {
+
+    /**
+     * The name of the catalog in which the chain is registered.
+     * An empty string (the default) selects the default catalog.
+     *
+     * @return the name of the catalog
+     */
+    String catalog() default "";
+
+    /**
+     * The name under which the chain is registered.
+     *
+     * @return the name of the chain
+     */
+    String name();
+
+    /**
+     * The {@link Command} classes of the chain, in the order in which
+     * they are executed.
+     *
+     * @return the command classes of the chain
+     */
+    @SuppressWarnings("rawtypes")
+    Class<? extends Command>[] commands();
+
+    /**
+     * The implementation class of the chain.
+     *
+     * @return the implementation class of the chain
+     */
+    @SuppressWarnings("rawtypes")
+    Class<? extends Chain> chainClass() default ChainBase.class;
+}
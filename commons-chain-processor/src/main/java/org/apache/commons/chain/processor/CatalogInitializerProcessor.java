@@ -0,0 +1,598 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor which generates a
+ * {@code org.apache.commons.chain.config.CatalogInitializer} from the
+ * {@code @ChainCommand} and {@code @ChainDefinition} annotations of the
+ * compiled sources.
+ *
+ * <p>Every referenced class is checked at compile time: it must be a
+ * public, non-abstract top-level or static nested class with a public
+ * zero-args constructor, and it must implement {@code Command} (or
+ * {@code Chain} for the chain implementation). Violations are reported as
+ * compile errors instead of failing at application startup.</p>
+ *
+ * <p>The generated initializer creates all commands and chains with
+ * direct constructor calls and is registered in
+ * {@code META-INF/services/org.apache.commons.chain.config.CatalogInitializer}.
+ * The fully qualified name of the generated class may be set with the
+ * processor option {@value #OPTION_INITIALIZER}; by default the class
+ * {@code ChainCatalogInitializer} is generated in the package of the
+ * first annotated class.</p>
+ *
+ * @author Graff Stefan
+ * @since Chain 1.4
+ */
+public class CatalogInitializerProcessor extends AbstractProcessor {
+
+    // ------------------------------------------------------ Static Variables
+
+    /**
+     * The processor option to set the fully qualified name of the
+     * generated initializer class.
+     */
+    public static final String OPTION_INITIALIZER = "org.apache.commons.chain.initializer";
+
+    /**
+     * The default simple name of the generated initializer class.
+     */
+    public static final String DEFAULT_INITIALIZER = "ChainCatalogInitializer";
+
+    /**
+     * The name of the annotation for commands.
+     */
+    private static final String CHAIN_COMMAND = "org.apache.commons.chain.annotation.ChainCommand";
+
+    /**
+     * The name of the annotation for chains.
+     */
+    private static final String CHAIN_DEFINITION = "org.apache.commons.chain.annotation.ChainDefinition";
+
+    /**
+     * The name of the container annotation for chains.
+     */
+    private static final String CHAIN_DEFINITIONS = "org.apache.commons.chain.annotation.ChainDefinitions";
+
+    /**
+     * The name of the command interface.
+     */
+    private static final String COMMAND = "org.apache.commons.chain.Command";
+
+    /**
+     * The name of the chain interface.
+     */
+    private static final String CHAIN = "org.apache.commons.chain.Chain";
+
+    /**
+     * The name of the default chain implementation.
+     */
+    private static final String CHAIN_BASE = "org.apache.commons.chain.impl.ChainBase";
+
+    /**
+     * The name of the service-provider interface.
+     */
+    private static final String CATALOG_INITIALIZER = "org.apache.commons.chain.config.CatalogInitializer";
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The collected registrations, grouped by catalog name. The empty
+     * string denotes the default catalog.
+     */
+    private final Map<String, Map<String, Registration>> catalogs = new LinkedHashMap<>();
+
+    /**
+     * The package of the first annotated class.
+     */
+    private String firstPackage;
+
+    /**
+     * Has an error been reported?
+     */
+    private boolean failed;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public CatalogInitializerProcessor() {
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        final Set<String> ret = new HashSet<>();
+        ret.add(CHAIN_COMMAND);
+        ret.add(CHAIN_DEFINITION);
+        ret.add(CHAIN_DEFINITIONS);
+        return Collections.unmodifiableSet(ret);
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(OPTION_INITIALIZER);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        final Set<Element> elements = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            elements.addAll(roundEnv.getElementsAnnotatedWith(annotation));
+        }
+        for (Element element : elements) {
+            collect(element);
+        }
+
+        if (roundEnv.processingOver() && !failed && !catalogs.isEmpty()) {
+            generate();
+        }
+
+        return true;
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Collect all registrations of the annotated element.
+     *
+     * @param element the annotated element
+     */
+    protected void collect(Element element) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            final String type = annotationName(mirror);
+            if (CHAIN_COMMAND.equals(type)) {
+                if (checkClass(element, (TypeElement) element, COMMAND, mirror)) {
+                    register(element, mirror, new Registration(qualifiedName((TypeElement) element), null));
+                }
+            } else if (CHAIN_DEFINITION.equals(type)) {
+                collectDefinition(element, mirror);
+            } else if (CHAIN_DEFINITIONS.equals(type)) {
+                for (AnnotationValue value : listValue(mirror, "value")) {
+                    collectDefinition(element, (AnnotationMirror) value.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Collect a single {@code @ChainDefinition}.
+     *
+     * @param element the annotated element
+     * @param mirror the {@code @ChainDefinition} annotation
+     */
+    protected void collectDefinition(Element element, AnnotationMirror mirror) {
+        final Elements elements = processingEnv.getElementUtils();
+
+        final AnnotationValue chainClass = value(mirror, "chainClass");
+        final TypeElement chainType = chainClass == null
+                ? elements.getTypeElement(CHAIN_BASE)
+                : asTypeElement((TypeMirror) chainClass.getValue());
+        boolean valid = checkClass(element, chainType, CHAIN, mirror);
+
+        final List<String> commands = new ArrayList<>();
+        for (AnnotationValue value : listValue(mirror, "commands")) {
+            final TypeElement commandType = asTypeElement((TypeMirror) value.getValue());
+            if (checkClass(element, commandType, COMMAND, mirror)) {
+                commands.add(qualifiedName(commandType));
+            } else {
+                valid = false;
+            }
+        }
+
+        if (valid) {
+            register(element, mirror, new Registration(qualifiedName(chainType), commands));
+        }
+    }
+
+    /**
+     * Check that the class can be instantiated by the generated code and
+     * that it implements the required interface.
+     *
+     * @param element the annotated element, used to report errors
+     * @param type the class to check
+     * @param required the name of the required interface
+     * @param mirror the annotation, used to report errors
+     *
+     * @return {@code true} if the class is valid
+     */
+    protected boolean checkClass(Element element, TypeElement type, String required, AnnotationMirror mirror) {
+        if (type == null) {
+            return error(element, mirror, "Referenced class could not be resolved");
+        }
+
+        final String name = type.getQualifiedName().toString();
+        if (type.getKind() != ElementKind.CLASS) {
+            return error(element, mirror, name + " is not a class");
+        }
+
+        final Set<Modifier> modifiers = type.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.ABSTRACT)) {
+            return error(element, mirror, name + " must be a public, non-abstract class");
+        }
+
+        if (type.getNestingKind() != NestingKind.TOP_LEVEL
+                && (type.getNestingKind() != NestingKind.MEMBER || !modifiers.contains(Modifier.STATIC))) {
+            return error(element, mirror, name + " must be a top-level or a static nested class");
+        }
+
+        boolean hasConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                hasConstructor = true;
+                break;
+            }
+        }
+        if (!hasConstructor) {
+            return error(element, mirror, name + " must provide a public zero-args constructor");
+        }
+
+        final Types types = processingEnv.getTypeUtils();
+        final TypeElement requiredType = processingEnv.getElementUtils().getTypeElement(required);
+        if (requiredType == null
+                || !types.isAssignable(types.erasure(type.asType()), types.erasure(requiredType.asType()))) {
+            return error(element, mirror, name + " does not implement " + required);
+        }
+
+        return true;
+    }
+
+    /**
+     * Generate the initializer class and its service registration.
+     */
+    protected void generate() {
+        String className = processingEnv.getOptions().get(OPTION_INITIALIZER);
+        if (className == null || className.trim().isEmpty()) {
+            className = firstPackage == null || firstPackage.isEmpty()
+                    ? DEFAULT_INITIALIZER
+                    : firstPackage + '.' + DEFAULT_INITIALIZER;
+        }
+
+        final Filer filer = processingEnv.getFiler();
+        try {
+            try (Writer writer = filer.createSourceFile(className).openWriter()) {
+                writeInitializer(new PrintWriter(writer), className);
+            }
+
+            final FileObject services = filer.createResource(StandardLocation.CLASS_OUTPUT, "",
+                    "META-INF/services/" + CATALOG_INITIALIZER);
+            try (Writer writer = services.openWriter()) {
+                writer.write(className);
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to generate " + className + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the source code of the initializer class.
+     *
+     * @param out the writer for the source code
+     * @param className the fully qualified name of the class
+     */
+    protected void writeInitializer(PrintWriter out, String className) {
+        final int idx = className.lastIndexOf('.');
+        if (idx > 0) {
+            out.println("package " + className.substring(0, idx) + ";");
+            out.println();
+        }
+
+        out.println("/**");
+        out.println(" * Generated by " + getClass().getName() + " - do not edit.");
+        out.println(" */");
+        out.println("public final class " + className.substring(idx + 1) + " implements " + CATALOG_INITIALIZER + " {");
+        out.println();
+        out.println("    @Override");
+        out.println("    public void initialize(org.apache.commons.chain.CatalogFactory<org.apache.commons.chain.Context> factory) {");
+        out.println("        org.apache.commons.chain.Catalog<org.apache.commons.chain.Context> catalog;");
+        out.println("        org.apache.commons.chain.Chain<org.apache.commons.chain.Context> chain;");
+
+        for (Map.Entry<String, Map<String, Registration>> catalog : catalogs.entrySet()) {
+            out.println();
+            out.println("        catalog = catalog(factory, " + literal(catalog.getKey()) + ");");
+            for (Map.Entry<String, Registration> entry : catalog.getValue().entrySet()) {
+                final Registration registration = entry.getValue();
+                final String name = literal(entry.getKey());
+                if (registration.commands == null) {
+                    out.println("        catalog.addCommand(" + name + ", command(" + create(registration.className) + "));");
+                } else {
+                    out.println("        chain = chain(" + create(registration.className) + ");");
+                    for (String command : registration.commands) {
+                        out.println("        chain.addCommand(command(" + create(command) + "));");
+                    }
+                    out.println("        catalog.addCommand(" + name + ", chain);");
+                }
+            }
+        }
+
+        out.println("    }");
+        out.println();
+        out.println("    private static org.apache.commons.chain.Catalog<org.apache.commons.chain.Context> catalog(");
+        out.println("            org.apache.commons.chain.CatalogFactory<org.apache.commons.chain.Context> factory, String name) {");
+        out.println("        org.apache.commons.chain.Catalog<org.apache.commons.chain.Context> catalog =");
+        out.println("                name == null ? factory.getCatalog() : factory.getCatalog(name);");
+        out.println("        if (catalog == null) {");
+        out.println("            catalog = new org.apache.commons.chain.impl.CatalogBase<>();");
+        out.println("            if (name == null) {");
+        out.println("                factory.setCatalog(catalog);");
+        out.println("            } else {");
+        out.println("                factory.addCatalog(name, catalog);");
+        out.println("            }");
+        out.println("        }");
+        out.println("        return catalog;");
+        out.println("    }");
+        out.println();
+        out.println("    @SuppressWarnings(\"unchecked\")");
+        out.println("    private static org.apache.commons.chain.Command<org.apache.commons.chain.Context> command(");
+        out.println("            org.apache.commons.chain.Command<?> command) {");
+        out.println("        return (org.apache.commons.chain.Command<org.apache.commons.chain.Context>) command;");
+        out.println("    }");
+        out.println();
+        out.println("    @SuppressWarnings(\"unchecked\")");
+        out.println("    private static org.apache.commons.chain.Chain<org.apache.commons.chain.Context> chain(");
+        out.println("            org.apache.commons.chain.Chain<?> chain) {");
+        out.println("        return (org.apache.commons.chain.Chain<org.apache.commons.chain.Context>) chain;");
+        out.println("    }");
+        out.println("}");
+        out.flush();
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Register a command or chain, reporting duplicate names.
+     *
+     * @param element the annotated element
+     * @param mirror the annotation
+     * @param registration the registration
+     */
+    private void register(Element element, AnnotationMirror mirror, Registration registration) {
+        final AnnotationValue catalogValue = value(mirror, "catalog");
+        final String catalog = catalogValue == null ? "" : (String) catalogValue.getValue();
+        final String name = (String) value(mirror, "name").getValue();
+
+        if (name.isEmpty()) {
+            error(element, mirror, "The name must not be empty");
+            return;
+        }
+
+        final Map<String, Registration> commands = catalogs.computeIfAbsent(catalog, k -> new LinkedHashMap<>());
+        if (commands.putIfAbsent(name, registration) != null) {
+            error(element, mirror, "Duplicate command name '" + name + "' in catalog '" + catalog + "'");
+            return;
+        }
+
+        if (firstPackage == null) {
+            final PackageElement pkg = processingEnv.getElementUtils().getPackageOf(element);
+            firstPackage = pkg.getQualifiedName().toString();
+        }
+    }
+
+    /**
+     * Report an error at the annotation of the element.
+     *
+     * @param element the annotated element
+     * @param mirror the annotation
+     * @param message the error message
+     *
+     * @return always {@code false}
+     */
+    private boolean error(Element element, AnnotationMirror mirror, String message) {
+        final Messager messager = processingEnv.getMessager();
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element, mirror);
+        failed = true;
+        return false;
+    }
+
+    /**
+     * Returns the explicitly set value of an annotation element.
+     *
+     * @param mirror the annotation
+     * @param name the name of the annotation element
+     *
+     * @return the value or {@code null} if the default is used
+     */
+    private static AnnotationValue value(AnnotationMirror mirror, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : mirror.getElementValues().entrySet()) {
+
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the explicitly set array value of an annotation element.
+     *
+     * @param mirror the annotation
+     * @param name the name of the annotation element
+     *
+     * @return the values, never {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    private static List<? extends AnnotationValue> listValue(AnnotationMirror mirror, String name) {
+        final AnnotationValue value = value(mirror, name);
+        return value == null
+                ? Collections.emptyList()
+                : (List<? extends AnnotationValue>) value.getValue();
+    }
+
+    /**
+     * Returns the fully qualified name of the annotation.
+     *
+     * @param mirror the annotation
+     *
+     * @return the fully qualified name
+     */
+    private static String annotationName(AnnotationMirror mirror) {
+        return ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    /**
+     * Returns the type element of a class literal.
+     *
+     * @param type the type of the class literal
+     *
+     * @return the type element or {@code null} if not resolvable
+     */
+    private static TypeElement asTypeElement(TypeMirror type) {
+        return type instanceof DeclaredType ? (TypeElement) ((DeclaredType) type).asElement() : null;
+    }
+
+    /**
+     * Returns the qualified source name of the class.
+     *
+     * @param type the class
+     *
+     * @return the qualified source name
+     */
+    private static String qualifiedName(TypeElement type) {
+        return type.getQualifiedName().toString();
+    }
+
+    /**
+     * Returns the constructor call for the class, using the diamond
+     * operator for generic classes.
+     *
+     * @param className the qualified source name of the class
+     *
+     * @return the constructor call
+     */
+    private String create(String className) {
+        final TypeElement type = processingEnv.getElementUtils().getTypeElement(className);
+        final boolean generic = type != null && !type.getTypeParameters().isEmpty();
+        return "new " + className + (generic ? "<>()" : "()");
+    }
+
+    /**
+     * Returns the Java literal of the catalog or command name.
+     *
+     * @param value the name, the empty string denotes the default catalog
+     *
+     * @return the Java literal
+     */
+    private static String literal(String value) {
+        if (value.isEmpty()) {
+            return "null";
+        }
+
+        final StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < ' ') {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    // --------------------------------------------------------- Inner Classes
+
+    /**
+     * A collected command or chain registration.
+     */
+    private static final class Registration {
+
+        /**
+         * The class of the command or chain.
+         */
+        final String className;
+
+        /**
+         * The command classes of a chain or {@code null} for a single
+         * command.
+         */
+        final List<String> commands;
+
+        /**
+         * Construct a new registration.
+         *
+         * @param className the class of the command or chain
+         * @param commands the command classes of a chain or {@code null}
+         */
+        Registration(String className, List<String> commands) {
+            this.className = className;
+            this.commands = commands;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.processor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.chain.Catalog;
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Chain;
+import org.apache.commons.chain.Command;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.annotation.ChainCommand;
+import org.apache.commons.chain.config.CatalogInitializer;
+import org.apache.commons.chain.impl.ContextBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test case for the {@code CatalogInitializerProcessor} class.
+ */
+public class CatalogInitializerProcessorTestCase {
+
+    // ---------------------------------------------------- Instance Variables
+
+    /**
+     * The temporary directory for sources and classes.
+     */
+    @TempDir
+    Path tempDir;
+
+    /**
+     * The diagnostic output of the compiler.
+     */
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public CatalogInitializerProcessorTestCase() {
+    }
+
+    // -------------------------------------------------- Overall Test Methods
+
+    /**
+     * Tear down instance variables required by this test case.
+     */
+    @AfterEach
+    public void tearDown() {
+        CatalogFactory.clear();
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test the generated initializer for commands and chains in the
+     * default and in a named catalog.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testGenerate() throws Exception {
+        source("test/Echo.java",
+            "package test;",
+            "@org.apache.commons.chain.annotation.ChainCommand(name = \"echo\")",
+            "@org.apache.commons.chain.annotation.ChainDefinition(catalog = \"other\", name = \"twice\",",
+            "    commands = { Echo.class, Echo.class })",
+            "public class Echo implements org.apache.commons.chain.Command<org.apache.commons.chain.Context> {",
+            "    public boolean execute(org.apache.commons.chain.Context context) {",
+            "        context.merge(\"count\", 1, (a, b) -> (Integer) a + (Integer) b);",
+            "        return false;",
+            "    }",
+            "}");
+
+        assertTrue(compile(), output.toString());
+        assertTrue(Files.exists(tempDir.resolve("classes/test/ChainCatalogInitializer.class")));
+
+        final ClassLoader loader = new URLClassLoader(new URL[] {tempDir.resolve("classes").toUri().toURL()},
+                getClass().getClassLoader());
+        assertEquals(1, CatalogInitializer.initializeAll(loader));
+
+        final CatalogFactory<Context> factory = CatalogFactory.getInstance();
+        final Catalog<Context> catalog = factory.getCatalog();
+        assertNotNull(catalog);
+        final Command<Context> echo = catalog.getCommand("echo");
+        assertNotNull(echo);
+        assertEquals("test.Echo", echo.getClass().getName());
+
+        final Command<Context> twice = factory.getCatalog("other").getCommand("twice");
+        assertTrue(twice instanceof Chain);
+        final Context context = new ContextBase();
+        assertFalse(twice.execute(context));
+        assertEquals(2, context.get("count"));
+    }
+
+    /**
+     * Test that invalid classes are reported as compile errors and no
+     * initializer is generated.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testInvalidClass() throws Exception {
+        source("test/Invalid.java",
+            "package test;",
+            "@org.apache.commons.chain.annotation.ChainCommand(name = \"invalid\")",
+            "public class Invalid {",
+            "    public Invalid(String arg) {",
+            "    }",
+            "}");
+
+        assertFalse(compile());
+        assertTrue(output.toString().contains("public zero-args constructor"), output.toString());
+        assertFalse(Files.exists(tempDir.resolve("classes/test/ChainCatalogInitializer.class")));
+    }
+
+    // -------------------------------------------------------- Support Methods
+
+    /**
+     * Write a source file into the temporary source directory.
+     *
+     * @param name the relative file name
+     * @param lines the lines of the source file
+     *
+     * @throws IOException if the file could not be written
+     */
+    private void source(String name, String... lines) throws IOException {
+        final Path file = tempDir.resolve("src").resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compile all sources of the temporary source directory with the
+     * annotation processor.
+     *
+     * @return {@code true} if the compilation succeeded
+     *
+     * @throws Exception any error
+     */
+    private boolean compile() throws Exception {
+        final Path classes = Files.createDirectories(tempDir.resolve("classes"));
+        final String classpath = String.join(File.pathSeparator,
+                location(Command.class), location(ChainCommand.class), location(CatalogInitializerProcessor.class));
+
+        final List<String> args = new ArrayList<>(Arrays.asList(
+                "-d", classes.toString(),
+                "-classpath", classpath,
+                "-processorpath", classpath,
+                "-processor", CatalogInitializerProcessor.class.getName()));
+        try (Stream<Path> files = Files.walk(tempDir.resolve("src"))) {
+            files.filter(Files::isRegularFile).forEach(p -> args.add(p.toString()));
+        }
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        return compiler.run(null, output, output, args.toArray(new String[0])) == 0;
+    }
+
+    /**
+     * Returns the location of the class as file path.
+     *
+     * @param clazz the class
+     *
+     * @return the file path of the jar or directory
+     *
+     * @throws URISyntaxException if the location is invalid
+     */
+    private static String location(Class<?> clazz) throws URISyntaxException {
+        return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.web.jakarta.servlet;
+
+import org.apache.commons.chain.Catalog;
+import org.apache.commons.chain.Command;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.generic.LookupCommand;
+import org.apache.commons.chain.web.PathRouter;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * {@link Command} that matches the path of the request against a set of
+ * route patterns to select a {@link Command} from the appropriate
+ * {@link Catalog}, and execute it. Unlike {@link PathInfoMapper} and
+ * {@link ServletPathMapper}, which use the path as command name, one
+ * route covers many paths, and the lookup cost depends on the length of
+ * the path and not on the number of routes (see {@link PathRouter}).
+ *
+ * <p>The path is the "path info" component of the request URI, or the
+ * "servlet path" component if there is no path info, so that the mapper
+ * can be used with a wildcard mapping like "/execute/*" as well as with
+ * an extension mapping like "*.execute".</p>
+ *
+ * <p>Routes are configured with the {@code routes} property as a list of
+ * definitions separated by commas or line breaks. A definition has the
+ * form {@code [METHOD] pattern=commandName}, e.g.:</p>
+ * <pre>
+ * GET /orders/{id}=getOrder,
+ * POST /orders=createOrder,
+ * /static/*=static
+ * </pre>
+ *
+ * <p>The parameters extracted by the matched route are stored in the
+ * context, with their names prefixed by the {@code parameterPrefix}
+ * property; the wildcard path is stored as parameter
+ * {@value PathRouter#WILDCARD}. Requests not matching any route execute
+ * the command configured by the {@code name} property, if any.</p>
+ *
+ * @since Chain 1.4
+ */
+public class PathRouteMapper extends LookupCommand<ServletWebContext> {
+
+    // ------------------------------------------------------ Instance Variables
+
+    private volatile PathRouter<String> router = new PathRouter<>();
+
+    private String routes = null;
+
+    private String parameterPrefix = "";
+
+    private String patternKey = null;
+
+    // ------------------------------------------------------------ Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public PathRouteMapper() {
+    }
+
+    // -------------------------------------------------------------- Properties
+
+    /**
+     * Return the route definitions.
+     *
+     * @return The route definitions.
+     */
+    public String getRoutes() {
+        return this.routes;
+    }
+
+    /**
+     * Set the route definitions, replacing all routes.
+     *
+     * @param routes The route definitions, separated by commas or line
+     *        breaks
+     *
+     * @throws IllegalArgumentException if a definition is invalid
+     */
+    public void setRoutes(String routes) {
+        final PathRouter<String> newRouter = new PathRouter<>();
+        if (routes != null) {
+            for (String definition : routes.split("[,\\r\\n]")) {
+                definition = definition.trim();
+                if (!definition.isEmpty()) {
+                    addRoute(newRouter, definition);
+                }
+            }
+        }
+        this.routes = routes;
+        this.router = newRouter;
+    }
+
+    /**
+     * Return the prefix of the context keys of the extracted parameters.
+     *
+     * @return The prefix of the context keys.
+     */
+    public String getParameterPrefix() {
+        return this.parameterPrefix;
+    }
+
+    /**
+     * Set the prefix of the context keys of the extracted parameters.
+     *
+     * @param parameterPrefix The prefix of the context keys
+     */
+    public void setParameterPrefix(String parameterPrefix) {
+        this.parameterPrefix = parameterPrefix == null ? "" : parameterPrefix;
+    }
+
+    /**
+     * Return the context key under which the pattern of the matched route
+     * is stored.
+     *
+     * @return The context key, or {@code null} if the pattern is not
+     *         stored.
+     */
+    public String getPatternKey() {
+        return this.patternKey;
+    }
+
+    /**
+     * Set the context key under which the pattern of the matched route
+     * is stored.
+     *
+     * @param patternKey The context key, or {@code null} to not store the
+     *        pattern
+     */
+    public void setPatternKey(String patternKey) {
+        this.patternKey = patternKey;
+    }
+
+    // ---------------------------------------------------------- Public Methods
+
+    /**
+     * Add a route. Routes must be added before requests are processed.
+     *
+     * @param method The HTTP method, or {@code null} for any method
+     * @param pattern The route pattern
+     * @param commandName The name of the command to execute
+     *
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public void addRoute(String method, String pattern, String commandName) {
+        router.add(method, pattern, commandName);
+    }
+
+    // --------------------------------------------------------- Command Methods
+
+    /**
+     * Match the path of this request against the routes, store the
+     * extracted parameters in the context and return the name of the
+     * {@link Command} of the matched route.
+     *
+     * @param context Context for the current request
+     *
+     * @return The name of the {@link Command} instance
+     */
+    @Override
+    protected String getCommandName(ServletWebContext context) {
+        final HttpServletRequest request = context.getRequest();
+        final Object includeServletPath = request.getAttribute("jakarta.servlet.include.servlet_path");
+        final Object path;
+        if (includeServletPath != null) {
+            // included request
+            final Object includePathInfo = request.getAttribute("jakarta.servlet.include.path_info");
+            path = includePathInfo != null ? includePathInfo : includeServletPath;
+        } else {
+            final String pathInfo = request.getPathInfo();
+            path = pathInfo != null ? pathInfo : request.getServletPath();
+        }
+
+        final PathRouter.Match<String> match = router.match(request.getMethod(), String.valueOf(path));
+        if (match == null) {
+            return getName();
+        }
+
+        match.getParameters().forEach((key, value) -> context.put(parameterPrefix + key, value));
+        if (patternKey != null) {
+            context.put(patternKey, match.getPattern());
+        }
+        return match.getValue();
+    }
+
+    /**
+     * Return the {@link Catalog} to look up the {@link Command} in.
+     *
+     * @param context {@link Context} for this request
+     *
+     * @return The catalog.
+     *
+     * @throws IllegalArgumentException if no {@link Catalog}
+     *         can be found
+     */
+    @Override
+    protected Catalog<ServletWebContext> getCatalog(ServletWebContext context) {
+        // use the catalog exposed by ChainProcessor, if available
+        Object testCatalog = context.get(ChainProcessor.CATALOG_DEFAULT);
+
+        @SuppressWarnings("unchecked")
+        Catalog<ServletWebContext> catalog = testCatalog instanceof Catalog
+                    ? (Catalog<ServletWebContext>) testCatalog
+                    : super.getCatalog(context);
+
+        return catalog;
+    }
+
+    // --------------------------------------------------------- Private Methods
+
+    /**
+     * Parse a route definition and add it to the router.
+     *
+     * @param target The router
+     * @param definition The route definition
+     *
+     * @throws IllegalArgumentException if the definition is invalid
+     */
+    private static void addRoute(PathRouter<String> target, String definition) {
+        final int eq = definition.lastIndexOf('=');
+        if (eq < 0) {
+            throw new IllegalArgumentException("Missing command name in route '" + definition + "'");
+        }
+        String pattern = definition.substring(0, eq).trim();
+        final String commandName = definition.substring(eq + 1).trim();
+        String method = null;
+        final int space = pattern.indexOf(' ');
+        if (space > 0) {
+            method = pattern.substring(0, space);
+            pattern = pattern.substring(space + 1).trim();
+        }
+        if (pattern.isEmpty() || commandName.isEmpty()) {
+            throw new IllegalArgumentException("Invalid route '" + definition + "'");
+        }
+        target.add(method, pattern, commandName);
+    }
+}
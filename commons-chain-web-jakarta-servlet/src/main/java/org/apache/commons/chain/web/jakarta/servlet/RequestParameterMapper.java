@@ -16,6 +16,8 @@
  */
 package org.apache.commons.chain.web.jakarta.servlet;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.commons.chain.Catalog;
 import org.apache.commons.chain.Command;
 import org.apache.commons.chain.Context;
@@ -33,6 +35,20 @@ import jakarta.servlet.http.HttpServletRequest;
  * "/foo.execute?command=bar" would cause the "/bar" command to be loaded
  * and executed.
  *
+ * <p>If the {@code precompiled} property is {@code true}, the commands of
+ * the {@link Catalog} are kept in a dispatch table, so that each request
+ * for a known command needs a single map lookup. The table is bound to
+ * the catalog on the first request or when {@link #link(Catalog)} is
+ * called, and filled on demand: a command is looked up in the catalog
+ * when its name is requested for the first time, so that lazily created
+ * commands are not created before they are used. Unknown values are
+ * looked up in the catalog for each request. Commands replaced in the
+ * catalog afterwards are still used until {@link #link(Catalog)} is
+ * called again.
+ * If the {@code fallbackName} property is set, requests with a missing or
+ * unknown parameter value execute the fallback command instead of
+ * failing with an {@code IllegalArgumentException}.</p>
+ *
  * @author Craig R. McClanahan
  */
 public class RequestParameterMapper extends LookupCommand<ServletWebContext> {
@@ -41,6 +57,9 @@ public class RequestParameterMapper extends LookupCommand<ServletWebContext> {
 
     private String catalogKey = ChainProcessor.CATALOG_DEFAULT;
     private String parameter = "command";
+    private boolean precompiled = false;
+    private String fallbackName = null;
+    private volatile Dispatch dispatch = null;
 
     // ------------------------------------------------------------ Constructors
 
@@ -100,6 +119,74 @@ public class RequestParameterMapper extends LookupCommand<ServletWebContext> {
         this.parameter = parameter;
     }
 
+    /**
+     * Return whether the commands are resolved into a dispatch table.
+     *
+     * @return {@code true} if a dispatch table is used
+     *
+     * @since Chain 1.4
+     */
+    public boolean isPrecompiled() {
+        return this.precompiled;
+    }
+
+    /**
+     * Set whether the commands are resolved into a dispatch table.
+     *
+     * @param precompiled {@code true} to use a dispatch table
+     *
+     * @since Chain 1.4
+     */
+    public void setPrecompiled(boolean precompiled) {
+        this.precompiled = precompiled;
+        this.dispatch = null;
+    }
+
+    /**
+     * Return the name of the {@link Command} executed for missing or
+     * unknown parameter values.
+     *
+     * @return The name of the fallback command, or {@code null}
+     *
+     * @since Chain 1.4
+     */
+    public String getFallbackName() {
+        return this.fallbackName;
+    }
+
+    /**
+     * Set the name of the {@link Command} executed for missing or unknown
+     * parameter values.
+     *
+     * @param fallbackName The name of the fallback command, or
+     *        {@code null} to fail for unknown values
+     *
+     * @since Chain 1.4
+     */
+    public void setFallbackName(String fallbackName) {
+        this.fallbackName = fallbackName;
+        this.dispatch = null;
+    }
+
+    // ---------------------------------------------------------- Public Methods
+
+    /**
+     * Bind the dispatch table used in precompiled mode to the specified
+     * {@link Catalog}, replacing the current one. Only the fallback
+     * command is resolved immediately, the other commands when they are
+     * requested.
+     *
+     * @param catalog The catalog to resolve the commands from
+     *
+     * @throws IllegalArgumentException if the fallback command can't be
+     *         found
+     *
+     * @since Chain 1.4
+     */
+    public void link(Catalog<ServletWebContext> catalog) {
+        this.dispatch = new Dispatch(catalog, getFallback(catalog));
+    }
+
     // --------------------------------------------------------- Command Methods
 
     /**
@@ -120,6 +207,46 @@ public class RequestParameterMapper extends LookupCommand<ServletWebContext> {
         return value;
     }
 
+    /**
+     * Return the {@link Command} for the parameter value of this request,
+     * using the dispatch table in precompiled mode, and the fallback
+     * command for missing or unknown values, if configured.
+     *
+     * @param context {@link Context} for this request
+     *
+     * @return The looked-up Command.
+     *
+     * @throws IllegalArgumentException if no such {@link Command}
+     *         can be found, no fallback command is configured and the
+     *         {@code optional} property is set to {@code false}
+     *
+     * @since Chain 1.4
+     */
+    @Override
+    protected Command<ServletWebContext> getCommand(ServletWebContext context) {
+        if (precompiled) {
+            Dispatch table = this.dispatch;
+            if (table == null) {
+                link(getCatalog(context));
+                table = this.dispatch;
+            }
+            final String name = getCommandName(context);
+            final Command<ServletWebContext> command = name == null ? null : table.get(name);
+            if (command != null) {
+                return command;
+            }
+            if (table.fallback != null) {
+                return table.fallback;
+            }
+        } else if (fallbackName != null) {
+            final Catalog<ServletWebContext> catalog = getCatalog(context);
+            final String name = getCommandName(context);
+            final Command<ServletWebContext> command = name == null ? null : catalog.getCommand(name);
+            return command != null ? command : getFallback(catalog);
+        }
+        return super.getCommand(context);
+    }
+
     /**
      * Return the {@link Catalog} to look up the {@link Command} in.
      *
@@ -150,4 +277,85 @@ public class RequestParameterMapper extends LookupCommand<ServletWebContext> {
 
         return catalog;
     }
-}
\ No newline at end of file
+
+    // --------------------------------------------------------- Private Methods
+
+    /**
+     * Return the fallback {@link Command} from the specified
+     * {@link Catalog}.
+     *
+     * @param catalog The catalog
+     *
+     * @return The fallback command, or {@code null} if none is configured
+     *
+     * @throws IllegalArgumentException if the fallback command can't be
+     *         found
+     */
+    private Command<ServletWebContext> getFallback(Catalog<ServletWebContext> catalog) {
+        if (fallbackName == null) {
+            return null;
+        }
+        final Command<ServletWebContext> fallback = catalog.getCommand(fallbackName);
+        if (fallback == null) {
+            throw new IllegalArgumentException("Cannot find fallback command '" + fallbackName + "'");
+        }
+        return fallback;
+    }
+
+    // ----------------------------------------------------------- Inner Classes
+
+    /**
+     * The dispatch table of the precompiled mode.
+     */
+    private static final class Dispatch {
+
+        /**
+         * The catalog to resolve the commands from.
+         */
+        private final Catalog<ServletWebContext> catalog;
+
+        /**
+         * The resolved commands, keyed by parameter value.
+         */
+        private final ConcurrentHashMap<String, Command<ServletWebContext>> commands =
+            new ConcurrentHashMap<>();
+
+        /**
+         * The fallback command, or {@code null}.
+         */
+        final Command<ServletWebContext> fallback;
+
+        /**
+         * Construct a new dispatch table.
+         *
+         * @param catalog The catalog to resolve the commands from
+         * @param fallback The fallback command, or {@code null}
+         */
+        Dispatch(Catalog<ServletWebContext> catalog, Command<ServletWebContext> fallback) {
+            this.catalog = catalog;
+            this.fallback = fallback;
+        }
+
+        /**
+         * Return the command for a parameter value, resolving it on the
+         * first request. Unknown values are not kept.
+         *
+         * @param name The parameter value
+         *
+         * @return The command, or {@code null} if unknown
+         */
+        Command<ServletWebContext> get(String name) {
+            Command<ServletWebContext> ret = commands.get(name);
+            if (ret == null) {
+                ret = catalog.getCommand(name);
+                if (ret != null) {
+                    final Command<ServletWebContext> previous = commands.putIfAbsent(name, ret);
+                    if (previous != null) {
+                        ret = previous;
+                    }
+                }
+            }
+            return ret;
+        }
+    }
+}
@@ -33,8 +33,10 @@ final class ServletHeaderMap extends ParameterMap<HttpServletRequest, String> {
      * The constructor for the servlet request name-value.
      *
      * @param request the servlet-request for the adapter.
+     * @param snapshot {@code true} if the bulk operations should use a
+     *        snapshot of the parameters, created on first use
      */
-    ServletHeaderMap(HttpServletRequest request) {
-        super(request, request::getHeader, request::getHeaderNames);
+    ServletHeaderMap(HttpServletRequest request, boolean snapshot) {
+        super(request, request::getHeader, request::getHeaderNames, snapshot);
     }
 }
\ No newline at end of file
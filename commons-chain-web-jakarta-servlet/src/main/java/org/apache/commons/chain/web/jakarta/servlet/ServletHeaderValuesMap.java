@@ -35,8 +35,11 @@ final class ServletHeaderValuesMap extends ParamValuesMap<HttpServletRequest> {
      * The constructor for the servlet request name-values[].
      *
      * @param request the servlet-request
+     * @param snapshot {@code true} if the bulk operations should use a
+     *        snapshot of the parameters, created on first use
      */
-    ServletHeaderValuesMap(HttpServletRequest request) {
-        super(request, name -> Collections.list(request.getHeaders(name)).toArray(new String[0]), request::getHeaderNames);
+    ServletHeaderValuesMap(HttpServletRequest request, boolean snapshot) {
+        super(request, name -> Collections.list(request.getHeaders(name)).toArray(new String[0]),
+                request::getHeaderNames, snapshot);
     }
 }
\ No newline at end of file
@@ -32,8 +32,10 @@ final class ServletInitParamMap extends ParameterMap<ServletContext, String> {
      * The constructor for the servlet context attributes.
      *
      * @param context the servlet-context for the adapter.
+     * @param snapshot {@code true} if the bulk operations should use a
+     *        snapshot of the parameters, created on first use
      */
-    ServletInitParamMap(ServletContext context) {
-        super(context, context::getInitParameter, context::getInitParameterNames);
+    ServletInitParamMap(ServletContext context, boolean snapshot) {
+        super(context, context::getInitParameter, context::getInitParameterNames, snapshot);
     }
 }
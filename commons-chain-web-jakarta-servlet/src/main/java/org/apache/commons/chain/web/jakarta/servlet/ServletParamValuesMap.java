@@ -33,8 +33,10 @@ final class ServletParamValuesMap extends ParamValuesMap<HttpServletRequest> {
      * The constructor for the servlet parameter name-values[].
      *
      * @param request the servlet-request
+     * @param snapshot {@code true} if the bulk operations should use a
+     *        snapshot of the parameters, created on first use
      */
-    ServletParamValuesMap(HttpServletRequest request) {
-        super(request, request::getParameterValues, request::getParameterNames);
+    ServletParamValuesMap(HttpServletRequest request, boolean snapshot) {
+        super(request, request::getParameterValues, request::getParameterNames, snapshot);
     }
 }
\ No newline at end of file
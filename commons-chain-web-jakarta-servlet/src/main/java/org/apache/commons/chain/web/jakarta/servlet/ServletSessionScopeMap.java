@@ -39,6 +39,17 @@ final class ServletSessionScopeMap extends AbstractSessionScopeMap<HttpSession,
         super(request);
     }
 
+    /**
+     * The constructor for the servlet session attributes.
+     *
+     * @param request the servlet-request.
+     * @param writeBehind {@code true} to buffer all changes until
+     *        {@link #flush()} is called
+     */
+    ServletSessionScopeMap(HttpServletRequest request, boolean writeBehind) {
+        super(request, writeBehind);
+    }
+
     /**
      * Returns the current {@code HttpSession} associated with this request or, if
      * there is no current session and <code>create</code> is true, returns a new
@@ -16,8 +16,13 @@
  */
 package org.apache.commons.chain.web.jakarta.servlet;
 
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.commons.chain.web.AbstractSessionScopeMap;
+import org.apache.commons.chain.web.jakarta.ApplicationScopeCache;
 import org.apache.commons.chain.web.jakarta.WebContext;
 
 import jakarta.servlet.ServletContext;
@@ -36,6 +41,18 @@ import jakarta.servlet.http.HttpServletResponse;
 public class ServletWebContext extends WebContext {
     private static final long serialVersionUID = 5302874006663111922L;
 
+    // ------------------------------------------------------ Manifest Constants
+
+    /**
+     * The name of the context attribute under which the shared,
+     * unmodifiable map of the context init parameters is stored (see
+     * {@link #getSharedInitParam(ServletContext)}).
+     *
+     * @since Chain 1.4
+     */
+    public static final String INIT_PARAM_ATTR =
+        "org.apache.commons.chain.INIT_PARAM";
+
     // ------------------------------------------------------ Instance Variables
 
     /**
@@ -106,6 +123,32 @@ public class ServletWebContext extends WebContext {
      */
     private transient Map<String, Object> sessionScope = null;
 
+    /**
+     * Should the read-only maps use a snapshot of their values?
+     */
+    private boolean snapshotMaps = false;
+
+    /**
+     * Should the session scope map buffer its changes until
+     * {@link #flushSessionScope()} is called?
+     */
+    private boolean writeBehindSession = false;
+
+    /**
+     * The cache serving the application scope, or {@code null}.
+     */
+    private transient ApplicationScopeCache applicationScopeCache = null;
+
+    /**
+     * The shared map of the init parameters, or {@code null}.
+     */
+    private transient Map<String, String> sharedInitParam = null;
+
+    /**
+     * Should the cookies be parsed from the {@code Cookie} headers?
+     */
+    private boolean parseCookieHeader = false;
+
     // ------------------------------------------------------------ Constructors
 
     /**
@@ -158,6 +201,189 @@ public class ServletWebContext extends WebContext {
         return this.response;
     }
 
+    /**
+     * Return {@code true} if the read-only maps of headers, parameters and
+     * init parameters read their names and values once into a snapshot,
+     * which is reused by all bulk operations ({@code size()},
+     * {@code keySet()}, {@code values()}, {@code entrySet()} and so on).
+     *
+     * @return {@code true} if the read-only maps use a snapshot
+     *
+     * @since Chain 1.4
+     */
+    public boolean isSnapshotMaps() {
+        return this.snapshotMaps;
+    }
+
+    /**
+     * Set whether the read-only maps of headers, parameters and init
+     * parameters read their names and values once into a snapshot. This
+     * affects only maps which are created after this call.
+     *
+     * @param snapshotMaps {@code true} if the read-only maps should use
+     *        a snapshot
+     *
+     * @since Chain 1.4
+     */
+    public void setSnapshotMaps(boolean snapshotMaps) {
+        this.snapshotMaps = snapshotMaps;
+    }
+
+    /**
+     * Return {@code true} if the cookie map parses the {@code Cookie}
+     * request headers instead of calling
+     * {@link HttpServletRequest#getCookies()}.
+     *
+     * @return {@code true} if the {@code Cookie} headers are parsed
+     *
+     * @since Chain 1.4
+     */
+    public boolean isParseCookieHeader() {
+        return this.parseCookieHeader;
+    }
+
+    /**
+     * Set whether the cookie map parses the {@code Cookie} request
+     * headers instead of calling {@link HttpServletRequest#getCookies()}.
+     * This affects only a cookie map which is created after this call.
+     *
+     * @param parseCookieHeader {@code true} if the {@code Cookie}
+     *        headers should be parsed
+     *
+     * @since Chain 1.4
+     */
+    public void setParseCookieHeader(boolean parseCookieHeader) {
+        this.parseCookieHeader = parseCookieHeader;
+    }
+
+    /**
+     * Return {@code true} if the session scope map buffers its changes
+     * until {@link #flushSessionScope()} is called.
+     *
+     * @return {@code true} if the session scope map buffers its changes
+     *
+     * @since Chain 1.4
+     */
+    public boolean isWriteBehindSession() {
+        return this.writeBehindSession;
+    }
+
+    /**
+     * Set whether the session scope map buffers its changes until
+     * {@link #flushSessionScope()} is called, which writes only the
+     * real changes to the session (see {@link AbstractSessionScopeMap}).
+     * This affects only a session scope map which is created after this
+     * call.
+     *
+     * @param writeBehindSession {@code true} if the session scope map
+     *        should buffer its changes
+     *
+     * @since Chain 1.4
+     */
+    public void setWriteBehindSession(boolean writeBehindSession) {
+        this.writeBehindSession = writeBehindSession;
+    }
+
+    /**
+     * Write the buffered changes of the session scope map to the
+     * session. Does nothing if the session scope map has not been used or
+     * does not buffer its changes.
+     *
+     * @since Chain 1.4
+     */
+    public void flushSessionScope() {
+        if (sessionScope instanceof AbstractSessionScopeMap) {
+            ((AbstractSessionScopeMap<?, ?>) sessionScope).flush();
+        }
+    }
+
+    /**
+     * Return the {@link ApplicationScopeCache} serving the application
+     * scope map.
+     *
+     * @return the cache, or {@code null} if the application scope map
+     *         reads the context attributes directly
+     *
+     * @since Chain 1.4
+     */
+    public ApplicationScopeCache getApplicationScopeCache() {
+        return this.applicationScopeCache;
+    }
+
+    /**
+     * Set the {@link ApplicationScopeCache} serving the application
+     * scope map. Reads are then served from the cache without calling the
+     * container; writes are passed through. This affects only an
+     * application scope map which is created after this call.
+     *
+     * @param applicationScopeCache the cache, or {@code null} to read
+     *        the context attributes directly
+     *
+     * @since Chain 1.4
+     */
+    public void setApplicationScopeCache(ApplicationScopeCache applicationScopeCache) {
+        this.applicationScopeCache = applicationScopeCache;
+    }
+
+    /**
+     * Return the shared map of the init parameters returned by
+     * {@link #getInitParam()}.
+     *
+     * @return the shared map, or {@code null} if a map reading the
+     *         init parameters of the context is used
+     *
+     * @since Chain 1.4
+     */
+    public Map<String, String> getSharedInitParam() {
+        return this.sharedInitParam;
+    }
+
+    /**
+     * Set a shared map of the init parameters returned by
+     * {@link #getInitParam()} instead of a map reading the init
+     * parameters of the context, typically the map returned by
+     * {@link #getSharedInitParam(ServletContext)}.
+     *
+     * @param sharedInitParam the shared map, or {@code null} to read
+     *        the init parameters of the context
+     *
+     * @since Chain 1.4
+     */
+    public void setSharedInitParam(Map<String, String> sharedInitParam) {
+        this.sharedInitParam = sharedInitParam;
+    }
+
+    /**
+     * Return the unmodifiable map of the init parameters of the
+     * specified context, which is created once and stored under the
+     * context attribute {@value #INIT_PARAM_ATTR}, so that it can be
+     * shared by all requests. Init parameters can't change after the
+     * web application has been started.
+     *
+     * @param context the context of the web application
+     *
+     * @return the shared map of the init parameters
+     *
+     * @since Chain 1.4
+     */
+    public static Map<String, String> getSharedInitParam(ServletContext context) {
+        final Object shared = context.getAttribute(INIT_PARAM_ATTR);
+        if (shared instanceof Map) {
+            @SuppressWarnings("unchecked")
+            final Map<String, String> ret = (Map<String, String>) shared;
+            return ret;
+        }
+
+        final Map<String, String> map = new HashMap<>();
+        for (Enumeration<String> names = context.getInitParameterNames(); names.hasMoreElements();) {
+            final String name = names.nextElement();
+            map.put(name, context.getInitParameter(name));
+        }
+        final Map<String, String> ret = Collections.unmodifiableMap(map);
+        context.setAttribute(INIT_PARAM_ATTR, ret);
+        return ret;
+    }
+
     /**
      * Initialize (or reinitialize) this {@link ServletWebContext} instance
      * for the specified Servlet API objects.
@@ -212,7 +438,9 @@ public class ServletWebContext extends WebContext {
     @Override
     public Map<String, Object> getApplicationScope() {
         if (applicationScope == null && context != null) {
-            applicationScope = new ServletApplicationScopeMap(context);
+            applicationScope = applicationScopeCache != null
+                    ? applicationScopeCache.getMap()
+                    : new ServletApplicationScopeMap(context);
         }
         return applicationScope;
     }
@@ -225,7 +453,7 @@ public class ServletWebContext extends WebContext {
     @Override
     public Map<String, String> getHeader() {
         if (header == null && request != null) {
-            header = new ServletHeaderMap(request);
+            header = new ServletHeaderMap(request, snapshotMaps);
         }
         return header;
     }
@@ -238,7 +466,7 @@ public class ServletWebContext extends WebContext {
     @Override
     public Map<String, String[]> getHeaderValues() {
         if (headerValues == null && request != null) {
-            headerValues = new ServletHeaderValuesMap(request);
+            headerValues = new ServletHeaderValuesMap(request, snapshotMaps);
         }
         return headerValues;
     }
@@ -250,8 +478,11 @@ public class ServletWebContext extends WebContext {
      */
     @Override
     public Map<String, String> getInitParam() {
+        if (sharedInitParam != null) {
+            return sharedInitParam;
+        }
         if (initParam == null && context != null) {
-            initParam = new ServletInitParamMap(context);
+            initParam = new ServletInitParamMap(context, snapshotMaps);
         }
         return initParam;
     }
@@ -264,7 +495,7 @@ public class ServletWebContext extends WebContext {
     @Override
     public Map<String, String> getParam() {
         if (param == null && request != null) {
-            param = new ServletParamMap(request);
+            param = new ServletParamMap(request, snapshotMaps);
         }
         return param;
     }
@@ -277,7 +508,7 @@ public class ServletWebContext extends WebContext {
     @Override
     public Map<String, String[]> getParamValues() {
         if (paramValues == null && request != null) {
-            paramValues = new ServletParamValuesMap(request);
+            paramValues = new ServletParamValuesMap(request, snapshotMaps);
         }
         return paramValues;
     }
@@ -291,7 +522,7 @@ public class ServletWebContext extends WebContext {
     @Override
     public Map<String, Cookie> getCookies() {
         if (cookieValues == null && request != null) {
-            cookieValues = new ServletCookieMap(request);
+            cookieValues = new ServletCookieMap(request, parseCookieHeader);
         }
         return cookieValues;
     }
@@ -317,7 +548,7 @@ public class ServletWebContext extends WebContext {
     @Override
     public Map<String, Object> getSessionScope() {
         if (sessionScope == null && request != null) {
-            sessionScope = new ServletSessionScopeMap(request);
+            sessionScope = new ServletSessionScopeMap(request, writeBehindSession);
         }
         return sessionScope;
     }
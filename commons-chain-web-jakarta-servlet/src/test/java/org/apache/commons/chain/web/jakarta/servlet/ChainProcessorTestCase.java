@@ -16,16 +16,33 @@
  */
 package org.apache.commons.chain.web.jakarta.servlet;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.apache.commons.chain.Catalog;
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.DeadlineExceededException;
+import org.apache.commons.chain.impl.CatalogBase;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
 import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
 
 /**
  *  Test case for {@link ChainProcessor}.
@@ -40,8 +57,316 @@ public class ChainProcessorTestCase {
     public ChainProcessorTestCase() {
     }
 
+    // ---------------------------------------------------- Overall Test Methods
+
+    /**
+     * Tear down instance variables required by this test case.
+     */
+    @AfterEach
+    public void tearDown() {
+        CatalogFactory.clear();
+    }
+
     // ------------------------------------------------- Individual Test Methods
 
+    /**
+     * Test the adaptive mode.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testAdaptiveLimit() throws Exception {
+        List<String> log = new ArrayList<>();
+        Catalog<ServletWebContext> catalog = new CatalogBase<>();
+        catalog.addCommand("command", context -> {
+            log.add(context.getParam().get("id"));
+            if ("fail".equals(context.getParam().get("id"))) {
+                throw new IllegalStateException("fail");
+            }
+            return false;
+        });
+        CatalogFactory.<ServletWebContext>getInstance().setCatalog(catalog);
+
+        List<Runnable> tasks = new ArrayList<>();
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setAttribute("executor", (Executor) tasks::add);
+        MockServletConfig config = new MockServletConfig("test", servletContext);
+        config.setInitParameter(ChainProcessor.ASYNC, "true");
+        config.setInitParameter(ChainProcessor.ASYNC_EXECUTOR, "executor");
+        config.setInitParameter(ChainProcessor.ADAPTIVE_LIMIT, "true");
+        config.setInitParameter(ChainProcessor.ADAPTIVE_LIMIT_MAX, "1");
+        ChainProcessor processor = initServlet(new ChainProcessor(), config);
+        assertEquals(1, processor.getAdaptiveLimiter().getLimit());
+
+        // the running request holds the only permit
+        MockHttpServletRequest request = asyncRequest("first");
+        processor.service(request, new MockHttpServletResponse());
+        assertEquals(1, processor.getAdaptiveLimiter().getInFlight());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        processor.service(asyncRequest("shed"), response);
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+        assertEquals(1, processor.getAdaptiveLimiter().getRejectedCount());
+
+        tasks.remove(0).run();
+        assertEquals(1, request.getAsyncContext().getCompleted());
+        assertEquals(0, processor.getAdaptiveLimiter().getInFlight());
+
+        // a disconnected request holds its permit until the task has run
+        request = asyncRequest("disconnected");
+        processor.service(request, new MockHttpServletResponse());
+        request.getAsyncContext().fireError();
+        assertEquals(1, processor.getAdaptiveLimiter().getInFlight());
+        assertEquals(1, request.getAsyncContext().getCompleted());
+        tasks.remove(0).run();
+        assertEquals(1, request.getAsyncContext().getCompleted());
+        assertEquals(0, processor.getAdaptiveLimiter().getInFlight());
+
+        // synchronous requests
+        request = new MockHttpServletRequest();
+        request.addParameter("id", "sync");
+        response = new MockHttpServletResponse();
+        processor.service(request, response);
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+
+        MockHttpServletRequest failing = new MockHttpServletRequest();
+        failing.addParameter("id", "fail");
+        assertThrows(ServletException.class,
+                () -> processor.service(failing, new MockHttpServletResponse()));
+        assertEquals(0, processor.getAdaptiveLimiter().getInFlight());
+
+        assertEquals("[first, sync, fail]", log.toString());
+
+        // not enabled
+        processor.destroy();
+        assertNull(processor.getAdaptiveLimiter());
+    }
+
+    /**
+     * Test that only overload lowers the limit of the adaptive mode, but
+     * neither application errors nor client disconnects.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testAdaptiveLimitErrors() throws Exception {
+        Catalog<ServletWebContext> catalog = new CatalogBase<>();
+        catalog.addCommand("command", context -> {
+            if ("deadline".equals(context.getParam().get("id"))) {
+                throw new DeadlineExceededException("deadline");
+            }
+            throw new IllegalStateException("fail");
+        });
+        CatalogFactory.<ServletWebContext>getInstance().setCatalog(catalog);
+
+        List<Runnable> tasks = new ArrayList<>();
+        MockServletContext servletContext = new MockServletContext();
+        servletContext.setAttribute("executor", (Executor) tasks::add);
+        MockServletConfig config = new MockServletConfig("test", servletContext);
+        config.setInitParameter(ChainProcessor.ASYNC, "true");
+        config.setInitParameter(ChainProcessor.ASYNC_EXECUTOR, "executor");
+        config.setInitParameter(ChainProcessor.ADAPTIVE_LIMIT, "true");
+        ChainProcessor processor = initServlet(new ChainProcessor(), config);
+        final int limit = processor.getAdaptiveLimiter().getLimit();
+
+        // a window of application errors and client disconnects
+        for (int i = 0; i < limit / 2; i++) {
+            MockHttpServletRequest failing = new MockHttpServletRequest();
+            failing.addParameter("id", "fail");
+            assertThrows(ServletException.class,
+                    () -> processor.service(failing, new MockHttpServletResponse()));
+
+            MockHttpServletRequest request = asyncRequest("disconnected");
+            processor.service(request, new MockHttpServletResponse());
+            request.getAsyncContext().fireError();
+            tasks.remove(0).run();
+        }
+        assertEquals(0, processor.getAdaptiveLimiter().getInFlight());
+        assertEquals(limit, processor.getAdaptiveLimiter().getLimit());
+
+        // a window of exceeded deadlines
+        for (int i = 0; i < limit; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest();
+            request.addParameter("id", "deadline");
+            assertThrows(ServletException.class,
+                    () -> processor.service(request, new MockHttpServletResponse()));
+        }
+        assertEquals(0, processor.getAdaptiveLimiter().getInFlight());
+        assertTrue(processor.getAdaptiveLimiter().getLimit() < limit);
+    }
+
+    /**
+     * Test the asynchronous mode.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testAsync() throws Exception {
+        List<String> log = new ArrayList<>();
+        Catalog<ServletWebContext> catalog = new CatalogBase<>();
+        catalog.addCommand("command", context -> {
+            log.add(context.getParam().get("id"));
+            if ("fail".equals(context.getParam().get("id"))) {
+                throw new IllegalStateException("fail");
+            }
+            return false;
+        });
+        CatalogFactory.<ServletWebContext>getInstance().setCatalog(catalog);
+
+        // executed by the container
+        MockServletContext servletContext = new MockServletContext();
+        MockServletConfig config = new MockServletConfig("test", servletContext);
+        config.setInitParameter(ChainProcessor.ASYNC, "true");
+        config.setInitParameter(ChainProcessor.ASYNC_TIMEOUT, "1000");
+        ChainProcessor processor = initServlet(new ChainProcessor(), config);
+
+        MockHttpServletRequest request = asyncRequest("container");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        processor.service(request, response);
+        assertEquals(1000L, request.getAsyncContext().getTimeout());
+        assertEquals(1, request.getAsyncContext().getCompleted());
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+
+        request = asyncRequest("fail");
+        response = new MockHttpServletResponse();
+        processor.service(request, response);
+        assertEquals(1, request.getAsyncContext().getCompleted());
+        assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, response.getStatus());
+
+        // not supported by the request
+        request = new MockHttpServletRequest();
+        request.addParameter("id", "sync");
+        processor.service(request, new MockHttpServletResponse());
+        assertFalse(request.isAsyncStarted());
+
+        // executed by the executor, timeout and error before execution:
+        // completed at once, the command is not executed
+        List<Runnable> tasks = new ArrayList<>();
+        servletContext.setAttribute("executor", (Executor) tasks::add);
+        config.setInitParameter(ChainProcessor.ASYNC_EXECUTOR, "executor");
+        processor = initServlet(new ChainProcessor(), config);
+
+        request = asyncRequest("timeout");
+        response = new MockHttpServletResponse();
+        processor.service(request, response);
+        assertEquals(0, request.getAsyncContext().getCompleted());
+        request.getAsyncContext().fireTimeout();
+        assertEquals(1, request.getAsyncContext().getCompleted());
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+        tasks.remove(0).run();
+        assertEquals(1, request.getAsyncContext().getCompleted());
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+
+        request = asyncRequest("error");
+        response = new MockHttpServletResponse();
+        processor.service(request, response);
+        request.getAsyncContext().fireError();
+        assertEquals(1, request.getAsyncContext().getCompleted());
+        tasks.remove(0).run();
+        assertEquals(1, request.getAsyncContext().getCompleted());
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+
+        // rejected by the executor
+        servletContext.setAttribute("executor", (Executor) task -> {
+            throw new RejectedExecutionException();
+        });
+        processor = initServlet(new ChainProcessor(), config);
+        request = asyncRequest("rejected");
+        response = new MockHttpServletResponse();
+        processor.service(request, response);
+        assertEquals(1, request.getAsyncContext().getCompleted());
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+
+        assertEquals("[container, fail, sync]", log.toString());
+    }
+
+    /**
+     * Test a timeout of the asynchronous mode while the command is
+     * running.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testAsyncTimeoutWhileRunning() throws Exception {
+        List<String> log = new ArrayList<>();
+        Catalog<ServletWebContext> catalog = new CatalogBase<>();
+        catalog.addCommand("command", context -> {
+            context.getSessionScope().put("key", "value");
+            MockAsyncContext asyncContext =
+                    ((MockHttpServletRequest) context.getRequest()).getAsyncContext();
+            asyncContext.fireTimeout();
+            // completed and detached from the recycled request
+            log.add(asyncContext.getCompleted() + "/" + context.getRequest() + "/"
+                    + context.getResponse() + "/" + context.getParam());
+            return false;
+        });
+        CatalogFactory.<ServletWebContext>getInstance().setCatalog(catalog);
+
+        MockServletConfig config = new MockServletConfig("test");
+        config.setInitParameter(ChainProcessor.ASYNC, "true");
+        config.setInitParameter(ChainProcessor.WRITE_BEHIND_SESSION, "true");
+        ChainProcessor processor = initServlet(new ChainProcessor(), config);
+
+        MockHttpServletRequest request = asyncRequest("running");
+        MockHttpSession session = new MockHttpSession();
+        request.setHttpSession(session);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        processor.service(request, response);
+        assertEquals("[1/null/null/null]", log.toString());
+        assertNull(session.getAttribute("key"));
+        assertEquals(1, request.getAsyncContext().getCompleted());
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+    }
+
+    /**
+     * Test that the mock container completes a timeout with status 500,
+     * if no listener completes it.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testAsyncDefaultCompletion() throws Exception {
+        MockHttpServletRequest request = asyncRequest("default");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockAsyncContext asyncContext = (MockAsyncContext) request.startAsync(request, response);
+        asyncContext.fireTimeout();
+        assertEquals(1, asyncContext.getCompleted());
+        assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, response.getStatus());
+        assertNull(request.getParameter("id"));
+    }
+
+    /**
+     * Test the resolution of catalog and command at initialization.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testBindAtInit() throws Exception {
+        List<String> log = new ArrayList<>();
+        Catalog<ServletWebContext> catalog = new CatalogBase<>();
+        catalog.addCommand("command", context -> log.add("first"));
+        CatalogFactory.<ServletWebContext>getInstance().setCatalog(catalog);
+
+        MockServletConfig config = new MockServletConfig("test");
+        config.setInitParameter(ChainProcessor.BIND_AT_INIT, "true");
+        ChainProcessor processor = initServlet(new ChainProcessor(), config);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        processor.service(request, new MockHttpServletResponse());
+        assertNull(request.getAttribute(ChainProcessor.CATALOG_DEFAULT));
+
+        catalog.addCommand("command", context -> log.add("second"));
+        processor.service(request, new MockHttpServletResponse());
+        processor.reload();
+        processor.service(request, new MockHttpServletResponse());
+        assertEquals("[first, first, second]", log.toString());
+
+        config.setInitParameter(ChainProcessor.EXPOSE_CATALOG, "true");
+        processor = initServlet(new ChainProcessor(), config);
+        processor.service(request, new MockHttpServletResponse());
+        assertSame(catalog, request.getAttribute(ChainProcessor.CATALOG_DEFAULT));
+    }
+
     /**
      * Test serialization.
      */
@@ -54,6 +379,20 @@ public class ChainProcessorTestCase {
         processor = (ChainProcessor)serializeDeserialize(processor, "First Test");
     }
 
+    /**
+     * Create a request supporting the asynchronous mode.
+     *
+     * @param id The value of the request parameter {@code id}
+     *
+     * @return The request
+     */
+    private MockHttpServletRequest asyncRequest(String id) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAsyncSupported(true);
+        request.addParameter("id", id);
+        return request;
+    }
+
     /**
      * Initialize the ChainProcessor.
      *
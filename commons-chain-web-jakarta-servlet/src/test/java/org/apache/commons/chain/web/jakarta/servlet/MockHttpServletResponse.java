@@ -33,6 +33,8 @@ public class MockHttpServletResponse implements HttpServletResponse {
     // ------------------------------------------------------ Instance Variables
 
     private Locale locale = null;
+    private int status = SC_OK;
+    private boolean committed = false;
 
     // ------------------------------------------------------------ Constructors
 
@@ -95,7 +97,11 @@ public class MockHttpServletResponse implements HttpServletResponse {
 
     @Override
     public void sendError(int status) {
-        throw new UnsupportedOperationException();
+        if (committed) {
+            throw new IllegalStateException();
+        }
+        this.status = status;
+        this.committed = true;
     }
 
     @Override
@@ -172,7 +178,7 @@ public class MockHttpServletResponse implements HttpServletResponse {
 
     @Override
     public boolean isCommitted() {
-        throw new UnsupportedOperationException();
+        return committed;
     }
 
     @Override
@@ -216,7 +222,7 @@ public class MockHttpServletResponse implements HttpServletResponse {
 
     @Override
     public int getStatus() {
-        throw new UnsupportedOperationException();
+        return status;
     }
 
     @Override
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.web.jakarta.servlet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.chain.Catalog;
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.impl.CatalogBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link RequestParameterMapper}
+ */
+public class RequestParameterMapperTestCase {
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The names of the executed commands.
+     */
+    protected List<String> log = null;
+
+    /**
+     * Chain API Objects - catalog
+     */
+    protected Catalog<ServletWebContext> catalog = null;
+
+    /**
+     * Chain API Objects - command
+     */
+    protected RequestParameterMapper mapper = null;
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public RequestParameterMapperTestCase() {
+    }
+
+    // -------------------------------------------------- Overall Test Methods
+
+    /**
+     * Set up instance variables required by this test case.
+     */
+    @BeforeEach
+    public void setUp() {
+        log = new ArrayList<>();
+        catalog = new CatalogBase<>();
+        catalog.addCommand("list", context -> log.add("list"));
+        catalog.addCommand("show", context -> log.add("show"));
+        catalog.addCommand("notFound", context -> log.add("notFound"));
+        CatalogFactory.<ServletWebContext>getInstance().setCatalog(catalog);
+        mapper = new RequestParameterMapper();
+    }
+
+    /**
+     * Tear down instance variables required by this test case.
+     */
+    @AfterEach
+    public void tearDown() {
+        CatalogFactory.clear();
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test the lookup without dispatch table and fallback.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testDefault() throws Exception {
+        mapper.execute(context("list"));
+        assertThrows(IllegalArgumentException.class, () -> mapper.execute(context("unknown")));
+        assertThrows(IllegalArgumentException.class, () -> mapper.execute(context(null)));
+        assertEquals("[list]", log.toString());
+    }
+
+    /**
+     * Test the fallback command without dispatch table.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testFallback() throws Exception {
+        mapper.setFallbackName("notFound");
+        mapper.execute(context("show"));
+        mapper.execute(context("unknown"));
+        mapper.execute(context(null));
+        assertEquals("[show, notFound, notFound]", log.toString());
+
+        mapper.setFallbackName("missing");
+        assertThrows(IllegalArgumentException.class, () -> mapper.execute(context("unknown")));
+    }
+
+    /**
+     * Test the dispatch table.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testPrecompiled() throws Exception {
+        mapper.setPrecompiled(true);
+        mapper.execute(context("list"));
+        assertThrows(IllegalArgumentException.class, () -> mapper.execute(context("unknown")));
+
+        // commands added later are resolved when requested
+        catalog.addCommand("edit", context -> log.add("edit"));
+        mapper.execute(context("edit"));
+        catalog.addCommand("edit", context -> log.add("edit2"));
+        mapper.execute(context("edit"));
+        mapper.link(catalog);
+        mapper.execute(context("edit"));
+
+        mapper.setFallbackName("notFound");
+        mapper.execute(context("unknown"));
+        mapper.execute(context(null));
+        mapper.execute(context("show"));
+        assertEquals("[list, edit, edit, edit2, notFound, notFound, show]", log.toString());
+
+        mapper.setFallbackName("missing");
+        assertThrows(IllegalArgumentException.class, () -> mapper.link(catalog));
+    }
+
+    /**
+     * Test that the dispatch table creates lazy commands on demand.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testPrecompiledLazy() throws Exception {
+        List<String> created = new ArrayList<>();
+        catalog.addLazyCommand("lazy", () -> {
+            created.add("lazy");
+            return context -> log.add("lazy");
+        });
+        catalog.addLazyCommand("unused", () -> {
+            created.add("unused");
+            return context -> log.add("unused");
+        });
+        mapper.setPrecompiled(true);
+        mapper.execute(context("list"));
+        assertEquals("[]", created.toString());
+
+        mapper.execute(context("lazy"));
+        mapper.execute(context("lazy"));
+        assertEquals("[lazy]", created.toString());
+        assertEquals("[list, lazy, lazy]", log.toString());
+    }
+
+    // -------------------------------------------------------- Support Methods
+
+    /**
+     * Create a context for a request with the specified parameter value.
+     *
+     * @param value the value of the parameter {@code command}, or
+     *        {@code null}
+     *
+     * @return the context
+     */
+    protected ServletWebContext context(String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (value != null) {
+            request.addParameter("command", value);
+        }
+        return new ServletWebContext(new MockServletContext(), request, new MockHttpServletResponse());
+    }
+}
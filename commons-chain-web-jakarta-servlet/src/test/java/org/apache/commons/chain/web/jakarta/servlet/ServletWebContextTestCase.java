@@ -22,24 +22,33 @@ import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.commons.chain.Context;
 import org.apache.commons.chain.web.ContextBaseTestWeb;
+import org.apache.commons.chain.web.jakarta.ApplicationScopeCache;
+import org.apache.commons.chain.web.jakarta.internal.CookieMap;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextAttributeEvent;
+import jakarta.servlet.ServletContextEvent;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -195,6 +204,56 @@ public class ServletWebContextTestCase extends ContextBaseTestWeb<ServletWebCont
         checkMapSize(map, 2);
     }
 
+    /**
+     * Test {@code getApplicationScope()} served by the
+     * {@link ApplicationScopeCache}
+     */
+    @Test
+    public void testApplicationScopeCache() {
+        ApplicationScopeCache cache = new ApplicationScopeCache();
+        MockServletContext notifying = new MockServletContext() {
+            @Override
+            public void setAttribute(String name, Object value) {
+                super.setAttribute(name, value);
+                cache.attributeAdded(new ServletContextAttributeEvent(this, name, value));
+            }
+
+            @Override
+            public void removeAttribute(String name) {
+                super.removeAttribute(name);
+                cache.attributeRemoved(new ServletContextAttributeEvent(this, name, null));
+            }
+        };
+        notifying.setAttribute("akey1", "avalue1");
+        cache.contextInitialized(new ServletContextEvent(notifying));
+        assertSame(cache, ApplicationScopeCache.getInstance(notifying));
+
+        ServletWebContext ctx = new ServletWebContext(notifying, request, response);
+        ctx.setApplicationScopeCache(cache);
+        Map<String, Object> map = ctx.getApplicationScope();
+        assertSame(cache.getMap(), map);
+        assertEquals("avalue1", map.get("akey1"));
+        assertTrue(map.containsKey(ApplicationScopeCache.CACHE_ATTR));
+        checkMapSize(map, 2);
+
+        // writes pass through
+        map.put("akey2", "avalue2");
+        assertEquals("avalue2", notifying.getAttribute("akey2"));
+        assertEquals("avalue2", map.get("akey2"));
+        map.remove("akey2");
+        assertNull(notifying.getAttribute("akey2"));
+
+        // changes of the servlet context are seen
+        notifying.setAttribute("akey1", "newvalue1");
+        assertEquals("newvalue1", map.get("akey1"));
+        notifying.removeAttribute("akey1");
+        assertFalse(map.containsKey("akey1"));
+        checkMapSize(map, 1);
+
+        cache.contextDestroyed(new ServletContextEvent(notifying));
+        assertNull(ApplicationScopeCache.getInstance(notifying));
+    }
+
     /**
      * Test {@code equals()} and {@code hashCode()}
      * Copied from ContextBaseTestCase with customized creation of "other"
@@ -481,6 +540,123 @@ public class ServletWebContextTestCase extends ContextBaseTestWeb<ServletWebCont
         }
     }
 
+    /**
+     * Test that the views are backed by the request and session
+     */
+    @Test
+    public void testViews() {
+        Map<String, Object> map = context.getRequestScope();
+        Set<String> keys = map.keySet();
+        Collection<Object> values = map.values();
+        Set<Entry<String, Object>> entries = map.entrySet();
+        assertEquals(2, keys.size());
+
+        request.setAttribute("rkey3", "rvalue3");
+        assertEquals(3, keys.size());
+        assertTrue(keys.contains("rkey3"));
+        assertTrue(values.contains("rvalue3"));
+        assertEquals(3, entries.size());
+
+        Map<String, Object> copy = new HashMap<>();
+        map.forEach(copy::put);
+        assertEquals(3, copy.size());
+        assertEquals(copy.entrySet(), entries);
+        assertEquals(copy.keySet(), keys);
+        assertEquals(3, keys.stream().count());
+
+        assertTrue(keys.remove("rkey3"));
+        assertNull(request.getAttribute("rkey3"));
+        assertFalse(keys.remove("rkey3"));
+        assertTrue(map.toString().contains("rkey1=rvalue1"));
+
+        request.setAttribute("rkey3", "rvalue3");
+        request.setAttribute("rkey4", "rvalue4");
+        assertTrue(entries.removeIf(entry -> entry.getKey().compareTo("rkey2") > 0));
+        assertEquals(2, keys.size());
+        assertNull(request.getAttribute("rkey3"));
+        assertNull(request.getAttribute("rkey4"));
+
+        Map<String, Object> session = context.getSessionScope();
+        copy.clear();
+        session.forEach(copy::put);
+        assertEquals(3, copy.size());
+        assertEquals("svalue1", copy.get("skey1"));
+
+        assertEquals("{}", new ServletWebContext(scontext, new MockHttpServletRequest(), response)
+                .getParam().toString());
+    }
+
+    /**
+     * Test the read-only maps in snapshot mode
+     */
+    @Test
+    public void testSnapshotMaps() {
+        ServletWebContext snapshot = new ServletWebContext(scontext, request, response);
+        snapshot.setSnapshotMaps(true);
+        assertTrue(snapshot.isSnapshotMaps());
+
+        Map<String, String> header = snapshot.getHeader();
+        checkMapSize(header, 2);
+        assertEquals(context.getHeader().entrySet(), header.entrySet());
+        assertSame(header.keySet(), header.keySet());
+        assertSame(header.entrySet(), header.entrySet());
+        assertTrue(header.containsValue("hvalue2a"));
+        assertFalse(header.containsValue("hvalue2b"));
+        assertFalse(header.isEmpty());
+
+        Map<String, String[]> headerValues = snapshot.getHeaderValues();
+        checkMapSize(headerValues, 2);
+        assertTrue(headerValues.containsValue(new String[] {"hvalue2a", "hvalue2b"}));
+
+        Map<String, String> param = snapshot.getParam();
+        checkMapSize(param, 2);
+        assertEquals(context.getParam().keySet(), param.keySet());
+        assertTrue(param.values().contains("pvalue1"));
+
+        Map<String, String[]> paramValues = snapshot.getParamValues();
+        checkMapSize(paramValues, 2);
+        assertTrue(paramValues.containsValue(new String[] {"pvalue2a", "pvalue2b"}));
+        assertFalse(paramValues.containsValue("pvalue1"));
+
+        Map<String, String> initParam = snapshot.getInitParam();
+        checkMapSize(initParam, 3);
+        assertEquals(context.getInitParam().entrySet(), initParam.entrySet());
+
+        try {
+            header.keySet().remove("hkey1");
+            fail("Should have thrown UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            ; // expected result
+        }
+    }
+
+    /**
+     * Test {@code getCookies()} parsing the {@code Cookie} headers
+     */
+    @Test
+    public void testCookieHeader() {
+        ((MockHttpServletRequest) request).addHeader("Cookie", "$Version=1; ckey1=cvalue1; ckey2 = cvalue2");
+        ((MockHttpServletRequest) request).addHeader("Cookie", "ckey1=other; ckey3=");
+        ((MockHttpServletRequest) request).addHeader("Cookie", "ckey4=a,b=c;ckey5=\"quoted; value\" ; ckey6=x");
+        ServletWebContext parsed = new ServletWebContext(scontext, request, response);
+        parsed.setParseCookieHeader(true);
+        assertTrue(parsed.isParseCookieHeader());
+
+        Map<String, Cookie> map = parsed.getCookies();
+        assertEquals(7, map.size());
+        assertEquals(6, map.keySet().size());
+        assertEquals("cvalue1", map.get("ckey1").getValue());
+        assertEquals("cvalue2", map.get("ckey2").getValue());
+        assertEquals("", map.get("ckey3").getValue());
+        assertEquals("a,b=c", map.get("ckey4").getValue());
+        assertEquals("\"quoted; value\"", map.get("ckey5").getValue());
+        assertEquals("x", map.get("ckey6").getValue());
+        assertNull(map.get("$Version"));
+        assertSame(map.get("ckey1"), map.get("ckey1"));
+
+        assertNull(CookieMap.parseCookieHeader(null));
+    }
+
     /**
      * Test {@code getCookies()}
      */
@@ -659,6 +835,25 @@ public class ServletWebContextTestCase extends ContextBaseTestWeb<ServletWebCont
         checkMapSize(map, 2);
     }
 
+    /**
+     * Test the shared map of {@code getInitParam()}
+     */
+    @Test
+    public void testSharedInitParam() {
+        Map<String, String> shared = ServletWebContext.getSharedInitParam(scontext);
+        assertSame(shared, ServletWebContext.getSharedInitParam(scontext));
+        assertSame(shared, scontext.getAttribute(ServletWebContext.INIT_PARAM_ATTR));
+        checkMapSize(shared, 3);
+        assertEquals("ivalue1", shared.get("ikey1"));
+        assertThrows(UnsupportedOperationException.class, () -> shared.put("ikey4", "ivalue4"));
+
+        context.setSharedInitParam(shared);
+        assertSame(shared, context.getInitParam());
+        ServletWebContext other = new ServletWebContext(scontext, request, response);
+        other.setSharedInitParam(shared);
+        assertSame(context.getInitParam(), other.getInitParam());
+    }
+
     /**
      * Test {@code getSessionScope()}
      */
@@ -720,6 +915,65 @@ public class ServletWebContextTestCase extends ContextBaseTestWeb<ServletWebCont
         checkMapSize(map, 2);
     }
 
+    /**
+     * Test the write-behind mode of {@code getSessionScope()}
+     */
+    @Test
+    public void testWriteBehindSession() {
+        List<String> writes = new ArrayList<>();
+        MockHttpSession countingSession = new MockHttpSession(scontext) {
+            @Override
+            public void setAttribute(String name, Object value) {
+                writes.add("set " + name);
+                super.setAttribute(name, value);
+            }
+
+            @Override
+            public void removeAttribute(String name) {
+                writes.add("remove " + name);
+                super.removeAttribute(name);
+            }
+        };
+        countingSession.setAttribute("unchanged", "value");
+        countingSession.setAttribute("changed", "old");
+        countingSession.setAttribute("removed", "value");
+        countingSession.setAttribute("mutated", new ArrayList<>(Arrays.asList("a")));
+        countingSession.setAttribute("touched", new ArrayList<>(Arrays.asList("a")));
+        writes.clear();
+
+        ServletWebContext ctx = new ServletWebContext(scontext,
+                new MockHttpServletRequest(countingSession), response);
+        ctx.setWriteBehindSession(true);
+        Map<String, Object> map = ctx.getSessionScope();
+        map.put("unchanged", new String("value"));
+        map.put("changed", "new");
+        map.remove("removed");
+        map.put("added", "value");
+        @SuppressWarnings("unchecked")
+        List<String> mutated = (List<String>) map.get("mutated");
+        mutated.add("b");
+        map.put("mutated", mutated);
+        map.put("touched", map.get("touched"));
+
+        // changes are visible through the map only
+        checkMapSize(map, 5);
+        assertEquals("new", map.get("changed"));
+        assertFalse(map.containsKey("removed"));
+        assertEquals("old", countingSession.getAttribute("changed"));
+        assertTrue(writes.isEmpty());
+
+        // only real changes are written
+        ctx.flushSessionScope();
+        Collections.sort(writes);
+        assertEquals("[remove removed, set added, set changed, set mutated]", writes.toString());
+        assertEquals("new", countingSession.getAttribute("changed"));
+        assertNull(countingSession.getAttribute("removed"));
+
+        writes.clear();
+        ctx.flushSessionScope();
+        assertTrue(writes.isEmpty());
+    }
+
     /**
      * Test {@code getSessionScope()} without Session
      */
@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.web.jakarta;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextAttributeEvent;
+import jakarta.servlet.ServletContextAttributeListener;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+/**
+ * Listener which keeps a concurrent copy of the servlet context
+ * attributes, so that the application scope can be read without calling
+ * {@code ServletContext.getAttribute()}, which is synchronized by some
+ * containers.
+ *
+ * <p>The listener must be declared in the deployment descriptor (or
+ * registered before the context is initialized). At startup it copies the
+ * current attributes and stores itself under the context attribute
+ * {@value #CACHE_ATTR}; afterwards every attribute event refreshes the
+ * affected entry from the servlet context. The map returned by
+ * {@link #getMap()} serves all reads from the copy without locking and
+ * passes all writes through to the servlet context.</p>
+ *
+ * <p>{@code ChainProcessor} uses the cache for the application scope of
+ * its web contexts if the servlet init parameter
+ * {@code org.apache.commons.chain.CACHE_APPLICATION_SCOPE} is
+ * {@code true}.</p>
+ *
+ * @since Chain 1.4
+ */
+public class ApplicationScopeCache implements ServletContextListener, ServletContextAttributeListener {
+
+    // ------------------------------------------------------ Manifest Constants
+
+    /**
+     * The name of the context attribute under which the cache is stored.
+     */
+    public static final String CACHE_ATTR =
+        "org.apache.commons.chain.APPLICATION_SCOPE_CACHE";
+
+    // ------------------------------------------------------ Instance Variables
+
+    /**
+     * The copy of the servlet context attributes.
+     */
+    private final ConcurrentHashMap<String, Object> attributes = new ConcurrentHashMap<>();
+
+    /**
+     * The map of the application scope.
+     */
+    private final Map<String, Object> map = new CachedMap();
+
+    /**
+     * The servlet context.
+     */
+    private volatile ServletContext context = null;
+
+    // ------------------------------------------------------------ Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public ApplicationScopeCache() {
+    }
+
+    // ---------------------------------------------------------- Public Methods
+
+    /**
+     * Return the cache registered for the specified servlet context.
+     *
+     * @param context the servlet context
+     *
+     * @return the cache or {@code null} if the listener is not registered
+     */
+    public static ApplicationScopeCache getInstance(ServletContext context) {
+        final Object cache = context.getAttribute(CACHE_ATTR);
+        return cache instanceof ApplicationScopeCache ? (ApplicationScopeCache) cache : null;
+    }
+
+    /**
+     * Return the map of the application scope. Reads are served from
+     * the cached copy, writes are passed through to the servlet context.
+     * The map is shared and thread-safe.
+     *
+     * @return the map of the application scope
+     */
+    public Map<String, Object> getMap() {
+        return map;
+    }
+
+    // ------------------------------------------ ServletContextListener Methods
+
+    /**
+     * Copy the current attributes and register the cache.
+     *
+     * @param event {@code ServletContextEvent} to be processed
+     */
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        context = event.getServletContext();
+        for (Enumeration<String> names = context.getAttributeNames(); names.hasMoreElements();) {
+            refresh(context, names.nextElement());
+        }
+        context.setAttribute(CACHE_ATTR, this);
+    }
+
+    /**
+     * Unregister the cache and release the copy.
+     *
+     * @param event {@code ServletContextEvent} to be processed
+     */
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        event.getServletContext().removeAttribute(CACHE_ATTR);
+        attributes.clear();
+        context = null;
+    }
+
+    // --------------------------------- ServletContextAttributeListener Methods
+
+    /**
+     * Refresh the added attribute.
+     *
+     * @param event {@code ServletContextAttributeEvent} to be processed
+     */
+    @Override
+    public void attributeAdded(ServletContextAttributeEvent event) {
+        refresh(event.getServletContext(), event.getName());
+    }
+
+    /**
+     * Refresh the removed attribute.
+     *
+     * @param event {@code ServletContextAttributeEvent} to be processed
+     */
+    @Override
+    public void attributeRemoved(ServletContextAttributeEvent event) {
+        refresh(event.getServletContext(), event.getName());
+    }
+
+    /**
+     * Refresh the replaced attribute.
+     *
+     * @param event {@code ServletContextAttributeEvent} to be processed
+     */
+    @Override
+    public void attributeReplaced(ServletContextAttributeEvent event) {
+        refresh(event.getServletContext(), event.getName());
+    }
+
+    // --------------------------------------------------------- Private Methods
+
+    /**
+     * Copy the current value of an attribute. The value is read from the
+     * servlet context rather than taken from the event, so that the copy
+     * converges to the latest value even if the events of concurrent
+     * writes are delivered out of order.
+     *
+     * @param servletContext the servlet context
+     * @param name the name of the attribute
+     */
+    private void refresh(ServletContext servletContext, String name) {
+        final Object value = servletContext.getAttribute(name);
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    /**
+     * Return the servlet context.
+     *
+     * @return the servlet context
+     *
+     * @throws IllegalStateException if the listener is not initialized
+     */
+    private ServletContext context() {
+        final ServletContext ret = context;
+        if (ret == null) {
+            throw new IllegalStateException("ApplicationScopeCache is not initialized");
+        }
+        return ret;
+    }
+
+    // ----------------------------------------------------------- Inner Classes
+
+    /**
+     * The map of the application scope.
+     */
+    private final class CachedMap extends AbstractMap<String, Object> {
+
+        /**
+         * The entry set view.
+         */
+        private final Set<Map.Entry<String, Object>> entrySet = new EntrySet();
+
+        @Override
+        public Object get(Object key) {
+            return key == null ? null : attributes.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key != null && attributes.containsKey(key);
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            return value != null && attributes.containsValue(value);
+        }
+
+        @Override
+        public int size() {
+            return attributes.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return attributes.isEmpty();
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super String, ? super Object> action) {
+            attributes.forEach(action);
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            Objects.requireNonNull(key, "key");
+            final ServletContext servletContext = context();
+            final Object previous = attributes.get(key);
+            servletContext.setAttribute(key, value);
+            // refresh here as well, in case the container delivers the
+            // event asynchronously
+            refresh(servletContext, key);
+            return previous;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            if (key == null) {
+                return null;
+            }
+            final String name = key.toString();
+            final ServletContext servletContext = context();
+            final Object previous = attributes.get(name);
+            servletContext.removeAttribute(name);
+            refresh(servletContext, name);
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            for (String name : attributes.keySet()) {
+                remove(name);
+            }
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return entrySet;
+        }
+    }
+
+    /**
+     * The entry set view of the map, backed by the copy. Removals are
+     * passed through to the servlet context.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<String, Object>> {
+
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            final Iterator<Map.Entry<String, Object>> it = attributes.entrySet().iterator();
+            return new Iterator<Map.Entry<String, Object>>() {
+                private String last = null;
+
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public Map.Entry<String, Object> next() {
+                    final Map.Entry<String, Object> entry = it.next();
+                    last = entry.getKey();
+                    return new AbstractMap.SimpleImmutableEntry<>(entry);
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    map.remove(last);
+                    last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return attributes.size();
+        }
+    }
+}
@@ -32,8 +32,10 @@ final class PortletInitParamMap extends ParameterMap<PortletContext, String> {
      * The constructor for the portlet context attributes.
      *
      * @param context the portlet-context for the adapter.
+     * @param snapshot {@code true} if the bulk operations should use a
+     *        snapshot of the parameters, created on first use
      */
-    PortletInitParamMap(PortletContext context) {
-        super(context, context::getInitParameter, context::getInitParameterNames);
+    PortletInitParamMap(PortletContext context, boolean snapshot) {
+        super(context, context::getInitParameter, context::getInitParameterNames, snapshot);
     }
 }
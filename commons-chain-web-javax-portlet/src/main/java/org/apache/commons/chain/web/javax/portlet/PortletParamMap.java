@@ -33,9 +33,11 @@ final class PortletParamMap extends ParameterMap<PortletRequest, String> {
      * The constructor for the portlet parameter name-value.
      *
      * @param request the portlet-request for the adapter.
+     * @param snapshot {@code true} if the bulk operations should use a
+     *        snapshot of the parameters, created on first use
      */
     @SuppressWarnings("deprecation")
-    PortletParamMap(PortletRequest request) {
-        super(request, request::getParameter, request::getParameterNames);
+    PortletParamMap(PortletRequest request, boolean snapshot) {
+        super(request, request::getParameter, request::getParameterNames, snapshot);
     }
 }
\ No newline at end of file
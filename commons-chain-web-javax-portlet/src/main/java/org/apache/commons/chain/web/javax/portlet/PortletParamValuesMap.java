@@ -33,9 +33,11 @@ final class PortletParamValuesMap extends ParamValuesMap<PortletRequest> {
      * The constructor for the portlet parameter name-values[].
      *
      * @param request the portlet-request
+     * @param snapshot {@code true} if the bulk operations should use a
+     *        snapshot of the parameters, created on first use
      */
     @SuppressWarnings("deprecation")
-    PortletParamValuesMap(PortletRequest request) {
-        super(request, request::getParameterValues, request::getParameterNames);
+    PortletParamValuesMap(PortletRequest request, boolean snapshot) {
+        super(request, request::getParameterValues, request::getParameterNames, snapshot);
     }
 }
\ No newline at end of file
@@ -39,6 +39,17 @@ final class PortletSessionScopeMap extends AbstractSessionScopeMap<PortletSessio
         super(request);
     }
 
+    /**
+     * The constructor for the portlet session attributes.
+     *
+     * @param request the portlet-request.
+     * @param writeBehind {@code true} to buffer all changes until
+     *        {@link #flush()} is called
+     */
+    PortletSessionScopeMap(PortletRequest request, boolean writeBehind) {
+        super(request, writeBehind);
+    }
+
     /**
      * Returns the current portlet session or, if there is no current session and
      * the given flag is {@code true}, creates one and returns the new session.
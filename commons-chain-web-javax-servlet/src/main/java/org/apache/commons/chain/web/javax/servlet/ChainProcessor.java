@@ -17,7 +17,14 @@
 package org.apache.commons.chain.web.javax.servlet;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -25,6 +32,9 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.chain.Catalog;
 import org.apache.commons.chain.CatalogFactory;
 import org.apache.commons.chain.Command;
+import org.apache.commons.chain.DeadlineExceededException;
+import org.apache.commons.chain.web.AdaptiveLimiter;
+import org.apache.commons.chain.web.javax.ApplicationScopeCache;
 import org.apache.commons.chain.web.javax.ChainServlet;
 
 /**
@@ -43,8 +53,90 @@ import org.apache.commons.chain.web.javax.ChainServlet;
  *     {@link Command} (looked up in our configured {@link Catalog} used
  *     to process all incoming servlet requests. If not specified,
  *     defaults to {@code command}.</li>
+ * <li><strong>org.apache.commons.chain.SNAPSHOT_MAPS</strong> - If
+ *     {@code true}, the read-only header, parameter and init parameter
+ *     maps of each {@link ServletWebContext} read their values once per
+ *     request into a snapshot (see
+ *     {@link ServletWebContext#setSnapshotMaps(boolean)}). Defaults to
+ *     {@code false}.</li>
+ * <li><strong>org.apache.commons.chain.PARSE_COOKIE_HEADER</strong> - If
+ *     {@code true}, the cookie map of each {@link ServletWebContext} parses
+ *     the {@code Cookie} request headers (see
+ *     {@link ServletWebContext#setParseCookieHeader(boolean)}). Defaults
+ *     to {@code false}.</li>
+ * <li><strong>org.apache.commons.chain.BIND_AT_INIT</strong> - If
+ *     {@code true}, the {@link Catalog} and the {@link Command} are
+ *     resolved once in {@code init()} (and again on {@link #reload()})
+ *     instead of for each request. The catalog is then exposed as request
+ *     attribute only if {@code org.apache.commons.chain.EXPOSE_CATALOG}
+ *     is {@code true}. Defaults to {@code false}.</li>
+ * <li><strong>org.apache.commons.chain.EXPOSE_CATALOG</strong> - If
+ *     {@code true}, the {@link Catalog} is exposed as request attribute
+ *     {@code org.apache.commons.chain.CATALOG} also in binding mode, for
+ *     mappers which look it up there. Defaults to {@code false}.</li>
+ * <li><strong>org.apache.commons.chain.ASYNC</strong> - If {@code true},
+ *     each request is put into asynchronous mode and the {@link Command}
+ *     is executed outside of the container thread (see below). Defaults
+ *     to {@code false}.</li>
+ * <li><strong>org.apache.commons.chain.ASYNC_EXECUTOR</strong> - Name of
+ *     the {@code ServletContext} attribute holding the
+ *     {@link Executor} on which the {@link Command} is executed in
+ *     asynchronous mode. If not specified, the command is started with
+ *     {@link AsyncContext#start(Runnable)} of the container.</li>
+ * <li><strong>org.apache.commons.chain.ASYNC_TIMEOUT</strong> - The
+ *     timeout of the asynchronous processing in milliseconds. If not
+ *     specified, the timeout of the container is used.</li>
+ * <li><strong>org.apache.commons.chain.WRITE_BEHIND_SESSION</strong> - If
+ *     {@code true}, the session scope map of each {@link ServletWebContext}
+ *     buffers its changes and writes only the real changes to the session
+ *     once the {@link Command} has returned (see
+ *     {@link ServletWebContext#setWriteBehindSession(boolean)}). Defaults
+ *     to {@code false}.</li>
+ * <li><strong>org.apache.commons.chain.CACHE_APPLICATION_SCOPE</strong> -
+ *     If {@code true}, the application scope map of each
+ *     {@link ServletWebContext} is served by the
+ *     {@link ApplicationScopeCache}, which must be registered as listener
+ *     of the web application. Defaults to {@code false}.</li>
+ * <li><strong>org.apache.commons.chain.SHARE_INIT_PARAM</strong> - If
+ *     {@code true}, the init parameter map of the web application is
+ *     built once at initialization and shared by all
+ *     {@link ServletWebContext}s (see
+ *     {@link ServletWebContext#getSharedInitParam(javax.servlet.ServletContext)}).
+ *     Defaults to {@code false}.</li>
+ * <li><strong>org.apache.commons.chain.ADAPTIVE_LIMIT</strong> - If
+ *     {@code true}, the number of concurrently processed requests is
+ *     limited by an {@link AdaptiveLimiter}, which adapts the limit to
+ *     the measured processing time. Excess requests are answered with
+ *     status 503 at once. Only requests signalling overload count as
+ *     dropped: asynchronous timeouts, commands rejected by the executor
+ *     and commands failing with a {@link DeadlineExceededException}.
+ *     Defaults to {@code false}.</li>
+ * <li><strong>org.apache.commons.chain.ADAPTIVE_LIMIT_MAX</strong> - The
+ *     maximum limit of the adaptive mode. Defaults to 1000.</li>
  * </ul>
  *
+ * <p>In asynchronous mode the servlet must be declared with
+ * {@code <async-supported>true</async-supported>}; requests which do
+ * not support asynchronous processing are executed synchronously. The
+ * asynchronous processing is completed once the {@link Command},
+ * including the {@code postprocess()} methods of all filters of a
+ * chain, has returned. If the command throws an exception, it is
+ * logged and an uncommitted response is answered with status 500. If
+ * the executor rejects the command, an uncommitted response is answered
+ * with status 503 at once.</p>
+ *
+ * <p>If the timeout expires first, an uncommitted response is answered
+ * with status 503 and the processing is completed at once; if the client
+ * disconnects, the processing is completed without a response. Otherwise
+ * the container would complete the processing itself with status 500.
+ * The container may then recycle the request and the response, so the
+ * {@link ServletWebContext} is released (see
+ * {@link ServletWebContext#release()}) before: a command which is still
+ * running no longer reaches the request, the response and their maps
+ * through the context, and buffered changes of the session scope are
+ * discarded. A command which has not been started yet is not executed
+ * at all.</p>
+ *
  * <p>Also, the {@code org.apache.commons.chain.CONFIG_ATTR}
  * init parameter is also used to identify the
  * {@link org.apache.commons.chain.Context} attribute under
@@ -81,11 +173,126 @@ public class ChainProcessor extends ChainServlet {
     public static final String COMMAND =
         "org.apache.commons.chain.COMMAND";
 
+    /**
+     * The name of the servlet init parameter enabling the snapshot mode
+     * of the read-only maps of each {@link ServletWebContext}.
+     *
+     * @since Chain 1.4
+     */
+    public static final String SNAPSHOT_MAPS =
+        "org.apache.commons.chain.SNAPSHOT_MAPS";
+
+    /**
+     * The name of the servlet init parameter enabling the parsing of the
+     * {@code Cookie} request headers by each {@link ServletWebContext}.
+     *
+     * @since Chain 1.4
+     */
+    public static final String PARSE_COOKIE_HEADER =
+        "org.apache.commons.chain.PARSE_COOKIE_HEADER";
+
+    /**
+     * The name of the servlet init parameter enabling the resolution of
+     * the {@link Catalog} and the {@link Command} at initialization.
+     *
+     * @since Chain 1.4
+     */
+    public static final String BIND_AT_INIT =
+        "org.apache.commons.chain.BIND_AT_INIT";
+
+    /**
+     * The name of the servlet init parameter enabling the request
+     * attribute with the {@link Catalog} in binding mode.
+     *
+     * @since Chain 1.4
+     */
+    public static final String EXPOSE_CATALOG =
+        "org.apache.commons.chain.EXPOSE_CATALOG";
+
+    /**
+     * The name of the servlet init parameter enabling the asynchronous
+     * mode.
+     *
+     * @since Chain 1.4
+     */
+    public static final String ASYNC =
+        "org.apache.commons.chain.ASYNC";
+
+    /**
+     * The name of the servlet init parameter containing the name of the
+     * {@code ServletContext} attribute holding the {@link Executor} for
+     * the asynchronous mode.
+     *
+     * @since Chain 1.4
+     */
+    public static final String ASYNC_EXECUTOR =
+        "org.apache.commons.chain.ASYNC_EXECUTOR";
+
+    /**
+     * The name of the servlet init parameter containing the timeout of
+     * the asynchronous mode in milliseconds.
+     *
+     * @since Chain 1.4
+     */
+    public static final String ASYNC_TIMEOUT =
+        "org.apache.commons.chain.ASYNC_TIMEOUT";
+
+    /**
+     * The name of the servlet init parameter enabling the write-behind
+     * mode of the session scope map of each {@link ServletWebContext}.
+     *
+     * @since Chain 1.4
+     */
+    public static final String WRITE_BEHIND_SESSION =
+        "org.apache.commons.chain.WRITE_BEHIND_SESSION";
+
+    /**
+     * The name of the servlet init parameter enabling the
+     * {@link ApplicationScopeCache} for the application scope map of each
+     * {@link ServletWebContext}.
+     *
+     * @since Chain 1.4
+     */
+    public static final String CACHE_APPLICATION_SCOPE =
+        "org.apache.commons.chain.CACHE_APPLICATION_SCOPE";
+
+    /**
+     * The name of the servlet init parameter enabling the shared init
+     * parameter map of each {@link ServletWebContext}.
+     *
+     * @since Chain 1.4
+     */
+    public static final String SHARE_INIT_PARAM =
+        "org.apache.commons.chain.SHARE_INIT_PARAM";
+
+    /**
+     * The name of the servlet init parameter enabling the
+     * {@link AdaptiveLimiter}.
+     *
+     * @since Chain 1.4
+     */
+    public static final String ADAPTIVE_LIMIT =
+        "org.apache.commons.chain.ADAPTIVE_LIMIT";
+
+    /**
+     * The name of the servlet init parameter containing the maximum
+     * limit of the {@link AdaptiveLimiter}.
+     *
+     * @since Chain 1.4
+     */
+    public static final String ADAPTIVE_LIMIT_MAX =
+        "org.apache.commons.chain.ADAPTIVE_LIMIT_MAX";
+
     /**
      * The default command name.
      */
     private static final String COMMAND_DEFAULT = "command";
 
+    /**
+     * The default maximum limit of the {@link AdaptiveLimiter}.
+     */
+    private static final int ADAPTIVE_LIMIT_MAX_DEFAULT = 1000;
+
     // ------------------------------------------------------ Instance Variables
 
     /**
@@ -110,6 +317,103 @@ public class ChainProcessor extends ChainServlet {
      */
     private String command = null;
 
+    /**
+     * Should the read-only maps of each {@link ServletWebContext} use a
+     * snapshot of their values?
+     */
+    private boolean snapshotMaps = false;
+
+    /**
+     * Should each {@link ServletWebContext} parse the {@code Cookie}
+     * request headers?
+     */
+    private boolean parseCookieHeader = false;
+
+    /**
+     * Are the {@link Catalog} and the {@link Command} resolved at
+     * initialization?
+     */
+    private boolean bindAtInit = false;
+
+    /**
+     * Is the {@link Catalog} exposed as request attribute in binding
+     * mode?
+     */
+    private boolean exposeCatalog = false;
+
+    /**
+     * The {@link Catalog} resolved at initialization (binding mode only).
+     */
+    private transient volatile Catalog<ServletWebContext> boundCatalog = null;
+
+    /**
+     * The {@link Command} resolved at initialization (binding mode only).
+     */
+    private transient volatile Command<ServletWebContext> boundCommand = null;
+
+    /**
+     * Are the requests processed asynchronously?
+     */
+    private boolean async = false;
+
+    /**
+     * The name of the context attribute holding the {@link Executor} for
+     * the asynchronous mode, or {@code null} to use the container.
+     */
+    private String executorAttr = null;
+
+    /**
+     * The timeout of the asynchronous mode in milliseconds, or a
+     * negative value to use the timeout of the container.
+     */
+    private long asyncTimeout = -1L;
+
+    /**
+     * The {@link Executor} for the asynchronous mode.
+     */
+    private transient volatile Executor executor = null;
+
+    /**
+     * Should the session scope map of each {@link ServletWebContext}
+     * buffer its changes until the command has returned?
+     */
+    private boolean writeBehindSession = false;
+
+    /**
+     * Is the application scope served by the {@link ApplicationScopeCache}?
+     */
+    private boolean cacheApplicationScope = false;
+
+    /**
+     * The {@link ApplicationScopeCache} of the web application.
+     */
+    private transient volatile ApplicationScopeCache applicationScopeCache = null;
+
+    /**
+     * Is the init parameter map shared by all requests?
+     */
+    private boolean shareInitParam = false;
+
+    /**
+     * The shared init parameter map.
+     */
+    private transient volatile Map<String, String> sharedInitParam = null;
+
+    /**
+     * Is the number of concurrent requests limited adaptively?
+     */
+    private boolean adaptiveLimit = false;
+
+    /**
+     * The maximum limit of the adaptive mode.
+     */
+    private int adaptiveLimitMax = ADAPTIVE_LIMIT_MAX_DEFAULT;
+
+    /**
+     * The {@link AdaptiveLimiter} of the adaptive mode.
+     */
+    private transient volatile AdaptiveLimiter adaptiveLimiter = null;
+
     // ------------------------------------------------------------ Constructors
 
     /**
@@ -129,6 +433,24 @@ public class ChainProcessor extends ChainServlet {
         attribute = null;
         catalog = null;
         command = null;
+        snapshotMaps = false;
+        parseCookieHeader = false;
+        bindAtInit = false;
+        exposeCatalog = false;
+        boundCatalog = null;
+        boundCommand = null;
+        async = false;
+        executorAttr = null;
+        asyncTimeout = -1L;
+        executor = null;
+        writeBehindSession = false;
+        cacheApplicationScope = false;
+        applicationScopeCache = null;
+        shareInitParam = false;
+        sharedInitParam = null;
+        adaptiveLimit = false;
+        adaptiveLimitMax = ADAPTIVE_LIMIT_MAX_DEFAULT;
+        adaptiveLimiter = null;
     }
 
     /**
@@ -145,6 +467,87 @@ public class ChainProcessor extends ChainServlet {
         if (command == null) {
             command = COMMAND_DEFAULT;
         }
+        snapshotMaps = Boolean.parseBoolean(getServletConfig().getInitParameter(SNAPSHOT_MAPS));
+        parseCookieHeader = Boolean.parseBoolean(getServletConfig().getInitParameter(PARSE_COOKIE_HEADER));
+        bindAtInit = Boolean.parseBoolean(getServletConfig().getInitParameter(BIND_AT_INIT));
+        exposeCatalog = Boolean.parseBoolean(getServletConfig().getInitParameter(EXPOSE_CATALOG));
+        async = Boolean.parseBoolean(getServletConfig().getInitParameter(ASYNC));
+        executorAttr = getServletConfig().getInitParameter(ASYNC_EXECUTOR);
+        writeBehindSession = Boolean.parseBoolean(getServletConfig().getInitParameter(WRITE_BEHIND_SESSION));
+        cacheApplicationScope = Boolean.parseBoolean(getServletConfig().getInitParameter(CACHE_APPLICATION_SCOPE));
+        shareInitParam = Boolean.parseBoolean(getServletConfig().getInitParameter(SHARE_INIT_PARAM));
+        adaptiveLimit = Boolean.parseBoolean(getServletConfig().getInitParameter(ADAPTIVE_LIMIT));
+        final String timeout = getServletConfig().getInitParameter(ASYNC_TIMEOUT);
+        if (timeout != null) {
+            try {
+                asyncTimeout = Long.parseLong(timeout.trim());
+            } catch (NumberFormatException e) {
+                throw new ServletException("Invalid " + ASYNC_TIMEOUT + " '" + timeout + "'", e);
+            }
+        }
+        final String limitMax = getServletConfig().getInitParameter(ADAPTIVE_LIMIT_MAX);
+        if (limitMax != null) {
+            try {
+                adaptiveLimitMax = Integer.parseInt(limitMax.trim());
+            } catch (NumberFormatException e) {
+                throw new ServletException("Invalid " + ADAPTIVE_LIMIT_MAX + " '" + limitMax + "'", e);
+            }
+        }
+        if (bindAtInit) {
+            reload();
+        }
+        if (async && executorAttr != null) {
+            lookupExecutor();
+        }
+        if (cacheApplicationScope) {
+            lookupApplicationScopeCache();
+        }
+        if (shareInitParam) {
+            sharedInitParam = ServletWebContext.getSharedInitParam(getServletContext());
+        }
+        if (adaptiveLimit) {
+            createAdaptiveLimiter();
+        }
+    }
+
+    /**
+     * Return the {@link AdaptiveLimiter} of the adaptive mode (see
+     * {@link #ADAPTIVE_LIMIT}), e.g. for monitoring.
+     *
+     * @return the limiter, or {@code null} if the adaptive mode is off
+     *
+     * @since Chain 1.4
+     */
+    public AdaptiveLimiter getAdaptiveLimiter() {
+        return adaptiveLimiter;
+    }
+
+    /**
+     * Resolve the {@link Catalog} and the {@link Command} again, in
+     * binding mode (see {@link #BIND_AT_INIT}). Call this method after
+     * the configured catalog has been replaced or changed.
+     *
+     * @throws ServletException if the catalog or the command can't be
+     *         found
+     *
+     * @since Chain 1.4
+     */
+    public void reload() throws ServletException {
+        if (!bindAtInit) {
+            return;
+        }
+
+        final Catalog<ServletWebContext> theCatalog = lookupCatalog();
+        if (theCatalog == null) {
+            throw new ServletException("Cannot find catalog '"
+                    + (attribute != null ? attribute : catalog) + "'");
+        }
+        final Command<ServletWebContext> theCommand = theCatalog.getCommand(this.command);
+        if (theCommand == null) {
+            throw new ServletException("Cannot find command '" + this.command + "'");
+        }
+        boundCatalog = theCatalog;
+        boundCommand = theCommand;
     }
 
     /**
@@ -152,6 +555,9 @@ public class ChainProcessor extends ChainServlet {
      * pass it to the {@code execute()} method of the specified
      * {@link Command}, loaded from our configured {@link Catalog}.
      *
+     * <p>In adaptive mode the request is answered with status 503 at
+     * once, if the limit of concurrent requests is reached.</p>
+     *
      * @param request The request we are processing
      * @param response The response we are creating
      *
@@ -163,27 +569,411 @@ public class ChainProcessor extends ChainServlet {
                         HttpServletResponse response)
         throws IOException, ServletException {
 
+        if (!adaptiveLimit) {
+            process(request, response, null);
+            return;
+        }
+
+        AdaptiveLimiter limiter = adaptiveLimiter;
+        if (limiter == null) {
+            // not created yet, e.g. after deserialization
+            limiter = createAdaptiveLimiter();
+        }
+        final AdaptiveLimiter.Permit permit = limiter.acquire();
+        if (permit == null) {
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        try {
+            process(request, response, permit);
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            if (isOverload(e)) {
+                permit.drop();
+            } else {
+                permit.release();
+            }
+            throw e;
+        }
+    }
+
+    // --------------------------------------------------------- Private Methods
+
+    /**
+     * Process an admitted request.
+     *
+     * @param request The request we are processing
+     * @param response The response we are creating
+     * @param permit The permit of the adaptive mode, released once the
+     *        {@link Command} has returned, or {@code null}
+     *
+     * @throws IOException if an input/output error occurs
+     * @throws ServletException if a servlet exception occurs
+     */
+    private void process(HttpServletRequest request, HttpServletResponse response,
+            AdaptiveLimiter.Permit permit) throws IOException, ServletException {
+
         ServletWebContext context =
             new ServletWebContext(getServletContext(), request, response);
-        Catalog<ServletWebContext> theCatalog = null;
+        context.setSnapshotMaps(snapshotMaps);
+        context.setParseCookieHeader(parseCookieHeader);
+        context.setWriteBehindSession(writeBehindSession);
+        if (cacheApplicationScope) {
+            ApplicationScopeCache cache = applicationScopeCache;
+            if (cache == null) {
+                // not resolved yet, e.g. after deserialization
+                cache = lookupApplicationScopeCache();
+            }
+            context.setApplicationScopeCache(cache);
+        }
+        if (shareInitParam) {
+            Map<String, String> initParam = sharedInitParam;
+            if (initParam == null) {
+                // not built yet, e.g. after deserialization
+                initParam = ServletWebContext.getSharedInitParam(getServletContext());
+                sharedInitParam = initParam;
+            }
+            context.setSharedInitParam(initParam);
+        }
+        final Command<ServletWebContext> command = resolveCommand(request);
+        if (async && request.isAsyncSupported()) {
+            executeAsync(command, context, request, response, permit);
+            return;
+        }
+        try {
+            command.execute(context);
+        } catch (Exception e) {
+            throw new ServletException(e);
+        } finally {
+            context.flushSessionScope();
+        }
+        if (permit != null) {
+            permit.release();
+        }
+    }
+
+    /**
+     * Does an exception signal overload, i.e. has a deadline been exceeded
+     * by the command?
+     *
+     * @param e The exception
+     *
+     * @return {@code true} if the exception or one of its causes is a
+     *         {@link DeadlineExceededException}
+     */
+    private static boolean isOverload(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof DeadlineExceededException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolve the {@link Command} for the current request and expose the
+     * {@link Catalog} as request attribute, if configured.
+     *
+     * @param request The request we are processing
+     *
+     * @return the command to execute
+     *
+     * @throws ServletException if the command can't be resolved
+     */
+    private Command<ServletWebContext> resolveCommand(HttpServletRequest request)
+            throws ServletException {
+
+        if (bindAtInit) {
+            if (boundCommand == null) {
+                // not bound yet, e.g. after deserialization
+                reload();
+            }
+            if (exposeCatalog && attribute == null) {
+                request.setAttribute(CATALOG_DEFAULT, boundCatalog);
+            }
+            return boundCommand;
+        }
+
+        Catalog<ServletWebContext> theCatalog = lookupCatalog();
+        if (attribute == null) {
+            request.setAttribute(CATALOG_DEFAULT, theCatalog);
+        }
+        return theCatalog.getCommand(this.command);
+    }
+
+    /**
+     * Put the request into asynchronous mode and execute the
+     * {@link Command} on the configured {@link Executor}, or on a
+     * container thread.
+     *
+     * @param command The command to execute
+     * @param context The context of the current request
+     * @param request The request we are processing
+     * @param response The response we are creating
+     * @param permit The permit of the adaptive mode, or {@code null}
+     *
+     * @throws IOException if an input/output error occurs
+     * @throws ServletException if the executor can't be found
+     */
+    private void executeAsync(Command<ServletWebContext> command,
+            ServletWebContext context, HttpServletRequest request,
+            HttpServletResponse response, AdaptiveLimiter.Permit permit)
+            throws IOException, ServletException {
+
+        Executor theExecutor = executor;
+        if (theExecutor == null && executorAttr != null) {
+            // not resolved yet, e.g. after deserialization
+            theExecutor = lookupExecutor();
+        }
+
+        final AsyncContext asyncContext = request.startAsync(request, response);
+        if (asyncTimeout >= 0L) {
+            asyncContext.setTimeout(asyncTimeout);
+        }
+        final AsyncTask task = new AsyncTask(command, context, asyncContext, permit);
+        asyncContext.addListener(task);
+
+        if (theExecutor == null) {
+            asyncContext.start(task);
+            return;
+        }
+        try {
+            theExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            getServletContext().log("Command '" + this.command + "' rejected", e);
+            task.abort(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Look up and cache the {@link Executor} of the asynchronous mode.
+     *
+     * @return the executor
+     *
+     * @throws ServletException if the executor can't be found
+     */
+    private Executor lookupExecutor() throws ServletException {
+        final Object value = getServletContext().getAttribute(executorAttr);
+        if (!(value instanceof Executor)) {
+            throw new ServletException("Cannot find executor '" + executorAttr + "'");
+        }
+        executor = (Executor) value;
+        return executor;
+    }
+
+    /**
+     * Look up and cache the {@link ApplicationScopeCache} of the web
+     * application.
+     *
+     * @return the cache
+     *
+     * @throws ServletException if the cache is not registered
+     */
+    private ApplicationScopeCache lookupApplicationScopeCache() throws ServletException {
+        final ApplicationScopeCache cache = ApplicationScopeCache.getInstance(getServletContext());
+        if (cache == null) {
+            throw new ServletException("ApplicationScopeCache is not registered as listener");
+        }
+        applicationScopeCache = cache;
+        return cache;
+    }
+
+    /**
+     * Create the {@link AdaptiveLimiter} of the adaptive mode.
+     *
+     * @return the limiter
+     *
+     * @throws ServletException if the maximum limit is invalid
+     */
+    private AdaptiveLimiter createAdaptiveLimiter() throws ServletException {
+        if (adaptiveLimitMax < 1) {
+            throw new ServletException("Invalid " + ADAPTIVE_LIMIT_MAX + " '" + adaptiveLimitMax + "'");
+        }
+        final AdaptiveLimiter limiter =
+                new AdaptiveLimiter(Math.min(20, adaptiveLimitMax), 1, adaptiveLimitMax);
+        adaptiveLimiter = limiter;
+        return limiter;
+    }
+
+    /**
+     * Look up the configured {@link Catalog}.
+     *
+     * @return the catalog or {@code null} if not found
+     */
+    private Catalog<ServletWebContext> lookupCatalog() {
         if (attribute != null) {
             @SuppressWarnings("unchecked")
-            Catalog<ServletWebContext> catalog = (Catalog<ServletWebContext>)
+            Catalog<ServletWebContext> theCatalog = (Catalog<ServletWebContext>)
                     getServletContext().getAttribute(this.attribute);
-            theCatalog = catalog;
+            return theCatalog;
         } else if (catalog != null) {
-            theCatalog = CatalogFactory.<ServletWebContext>getInstance().getCatalog(catalog);
+            return CatalogFactory.<ServletWebContext>getInstance().getCatalog(catalog);
         } else {
-            theCatalog = CatalogFactory.<ServletWebContext>getInstance().getCatalog();
+            return CatalogFactory.<ServletWebContext>getInstance().getCatalog();
         }
-        if (attribute == null) {
-            request.setAttribute(CATALOG_DEFAULT, theCatalog);
+    }
+
+    // ----------------------------------------------------------- Inner Classes
+
+    /**
+     * The asynchronous execution of a {@link Command}. The
+     * {@link AsyncContext} is completed exactly once: by the task after
+     * the command has returned, or at once on a timeout or an error of
+     * the asynchronous processing, releasing the context of the request
+     * first, as the container may recycle the request and the response
+     * afterwards. The permit of the adaptive mode is released or dropped
+     * exactly once, after the command has returned, so that it is counted
+     * as in flight as long as the command occupies a thread; it is
+     * dropped only on overload, i.e. if the processing has timed out or
+     * the command has exceeded its deadline.
+     */
+    private final class AsyncTask implements Runnable, AsyncListener {
+
+        /**
+         * The command to execute.
+         */
+        private final Command<ServletWebContext> command;
+
+        /**
+         * The context of the request.
+         */
+        private final ServletWebContext context;
+
+        /**
+         * The asynchronous context of the request.
+         */
+        private final AsyncContext asyncContext;
+
+        /**
+         * Is the asynchronous processing finished?
+         */
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        /**
+         * Has the asynchronous processing timed out?
+         */
+        private volatile boolean timedOut = false;
+
+        /**
+         * Has the asynchronous processing failed, e.g. because the client
+         * has disconnected?
+         */
+        private volatile boolean failed = false;
+
+        /**
+         * The permit of the adaptive mode, or {@code null}.
+         */
+        private final AdaptiveLimiter.Permit permit;
+
+        /**
+         * Construct a new task.
+         *
+         * @param command The command to execute
+         * @param context The context of the request
+         * @param asyncContext The asynchronous context of the request
+         * @param permit The permit of the adaptive mode, or {@code null}
+         */
+        AsyncTask(Command<ServletWebContext> command, ServletWebContext context,
+                AsyncContext asyncContext, AdaptiveLimiter.Permit permit) {
+            this.command = command;
+            this.context = context;
+            this.asyncContext = asyncContext;
+            this.permit = permit;
         }
-        Command<ServletWebContext> command = theCatalog.getCommand(this.command);
-        try {
-            command.execute(context);
-        } catch (Exception e) {
-            throw new ServletException(e);
+
+        @Override
+        public void run() {
+            int status = 0;
+            boolean overload = false;
+            if (!done.get()) {
+                // not completed by a timeout or an error before
+                try {
+                    try {
+                        command.execute(context);
+                    } finally {
+                        context.flushSessionScope();
+                    }
+                } catch (Exception e) {
+                    getServletContext().log("Command '" + ChainProcessor.this.command + "' failed", e);
+                    status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+                    overload = isOverload(e);
+                }
+            }
+            if (status == 0 && timedOut) {
+                status = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+            }
+            if (permit != null) {
+                if (overload || timedOut) {
+                    permit.drop();
+                } else {
+                    permit.release();
+                }
+            }
+            finish(status, false);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            done.set(true);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            timedOut = true;
+            finish(HttpServletResponse.SC_SERVICE_UNAVAILABLE, true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // e.g. the client has disconnected
+            failed = true;
+            finish(0, true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        /**
+         * Answer a command which is not executed, e.g. because the
+         * executor has rejected it.
+         *
+         * @param status The HTTP status code
+         */
+        void abort(int status) {
+            if (permit != null) {
+                permit.drop();
+            }
+            finish(status, false);
+        }
+
+        /**
+         * Answer an uncommitted response with an error status, unless
+         * the processing has failed, and complete the asynchronous
+         * processing, if not already done.
+         *
+         * @param status The HTTP status code, or {@code 0} if no error
+         *        status is sent
+         * @param release {@code true} to release the context first,
+         *        because the command may still be running
+         */
+        private void finish(int status, boolean release) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            if (release) {
+                context.release();
+            }
+            try {
+                final HttpServletResponse response =
+                        (HttpServletResponse) asyncContext.getResponse();
+                if (status != 0 && !failed && !response.isCommitted()) {
+                    response.sendError(status);
+                }
+            } catch (IOException | IllegalStateException e) {
+                getServletContext().log("Cannot send status " + status, e);
+            } finally {
+                asyncContext.complete();
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -32,8 +32,12 @@ final class ServletCookieMap extends CookieMap<HttpServletRequest> {
      * The constructor for the servlet cookies.
      *
      * @param request the servlet-request.
+     * @param parseHeader {@code true} to parse the {@code Cookie} headers
+     *        instead of calling {@code getCookies()}
      */
-    ServletCookieMap(HttpServletRequest request) {
-        super(request, request::getCookies);
+    ServletCookieMap(HttpServletRequest request, boolean parseHeader) {
+        super(request, parseHeader
+                ? () -> parseCookieHeader(request.getHeaders("Cookie"))
+                : request::getCookies);
     }
 }
\ No newline at end of file
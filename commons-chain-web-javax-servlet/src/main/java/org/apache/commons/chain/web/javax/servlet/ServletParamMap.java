@@ -33,8 +33,10 @@ final class ServletParamMap extends ParameterMap<HttpServletRequest, String> {
      * The constructor for the servlet parameter name-value.
      *
      * @param request the servlet-request for the adapter.
+     * @param snapshot {@code true} if the bulk operations should use a
+     *        snapshot of the parameters, created on first use
      */
-    ServletParamMap(HttpServletRequest request) {
-        super(request, request::getParameter, request::getParameterNames);
+    ServletParamMap(HttpServletRequest request, boolean snapshot) {
+        super(request, request::getParameter, request::getParameterNames, snapshot);
     }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.web.javax.servlet;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Mock {@link AsyncContext} implementation. Started tasks are run in the
+ * calling thread. Like a container, a timeout or an error which is not
+ * completed by a listener is answered with status 500 and completed, and
+ * the request is recycled afterwards.
+ */
+public class MockAsyncContext implements AsyncContext {
+    private final ServletRequest request;
+    private final ServletResponse response;
+    private final List<AsyncListener> listeners = new ArrayList<>();
+    private long timeout = 30000L;
+    private int completed = 0;
+
+    /**
+     * Construct an instance for the specified request and response.
+     *
+     * @param request the request
+     * @param response the response
+     */
+    public MockAsyncContext(ServletRequest request, ServletResponse response) {
+        this.request = request;
+        this.response = response;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return how often {@link #complete()} has been called.
+     *
+     * @return the number of calls
+     */
+    public int getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Signal a timeout to all listeners.
+     *
+     * @throws Exception any error of a listener
+     */
+    public void fireTimeout() throws Exception {
+        final int before = completed;
+        for (AsyncListener listener : new ArrayList<>(listeners)) {
+            listener.onTimeout(new AsyncEvent(this, request, response));
+        }
+        completeByDefault(before);
+    }
+
+    /**
+     * Signal an error to all listeners.
+     *
+     * @throws Exception any error of a listener
+     */
+    public void fireError() throws Exception {
+        final int before = completed;
+        for (AsyncListener listener : new ArrayList<>(listeners)) {
+            listener.onError(new AsyncEvent(this, request, response));
+        }
+        completeByDefault(before);
+    }
+
+    /**
+     * Complete the processing with status 500 like a container, if no
+     * listener has completed it, and recycle the request.
+     *
+     * @param before the number of completions before the listeners
+     *        were notified
+     *
+     * @throws Exception any error of a listener
+     */
+    private void completeByDefault(int before) throws Exception {
+        if (completed == before) {
+            final HttpServletResponse httpResponse = (HttpServletResponse) response;
+            if (!httpResponse.isCommitted()) {
+                httpResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+            complete();
+        }
+        ((MockHttpServletRequest) request).recycle();
+    }
+
+    // --------------------------------------------------- AsyncContext Methods
+
+    @Override
+    public ServletRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public ServletResponse getResponse() {
+        return response;
+    }
+
+    @Override
+    public boolean hasOriginalRequestAndResponse() {
+        return true;
+    }
+
+    @Override
+    public void dispatch() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void dispatch(String path) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void dispatch(ServletContext context, String path) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void complete() {
+        completed++;
+        for (AsyncListener listener : new ArrayList<>(listeners)) {
+            try {
+                listener.onComplete(new AsyncEvent(this, request, response));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    @Override
+    public void start(Runnable run) {
+        run.run();
+    }
+
+    @Override
+    public void addListener(AsyncListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void addListener(AsyncListener listener, ServletRequest request, ServletResponse response) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public <T extends AsyncListener> T createListener(Class<T> clazz) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public long getTimeout() {
+        return timeout;
+    }
+}
@@ -78,6 +78,8 @@ public class MockHttpServletRequest implements HttpServletRequest {
     protected String queryString = null;
     protected String servletPath = null;
     protected HttpSession session = null;
+    protected boolean asyncSupported = false;
+    protected MockAsyncContext asyncContext = null;
 
     // --------------------------------------------------------- Public Methods
 
@@ -107,6 +109,10 @@ public class MockHttpServletRequest implements HttpServletRequest {
         parameters.put(name, results);
     }
 
+    public void setAsyncSupported(boolean asyncSupported) {
+        this.asyncSupported = asyncSupported;
+    }
+
     public void addCookie(String name, String value) {
         addCookie(new Cookie(name, value));
     }
@@ -139,6 +145,18 @@ public class MockHttpServletRequest implements HttpServletRequest {
         this.principal = principal;
     }
 
+    /**
+     * Recycle this request like a container after the processing has
+     * been completed, clearing its attributes, headers, parameters and
+     * session.
+     */
+    public void recycle() {
+        attributes.clear();
+        headers.clear();
+        parameters.clear();
+        session = null;
+    }
+
     // --------------------------------------------- HttpServletRequest Methods
 
     @Override
@@ -471,22 +489,29 @@ public class MockHttpServletRequest implements HttpServletRequest {
     @Override
     public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse)
             throws IllegalStateException {
-        throw new UnsupportedOperationException();
+        if (!asyncSupported) {
+            throw new IllegalStateException();
+        }
+        asyncContext = new MockAsyncContext(servletRequest, servletResponse);
+        return asyncContext;
     }
 
     @Override
     public boolean isAsyncStarted() {
-        throw new UnsupportedOperationException();
+        return asyncContext != null;
     }
 
     @Override
     public boolean isAsyncSupported() {
-        throw new UnsupportedOperationException();
+        return asyncSupported;
     }
 
     @Override
-    public AsyncContext getAsyncContext() {
-        throw new UnsupportedOperationException();
+    public MockAsyncContext getAsyncContext() {
+        if (asyncContext == null) {
+            throw new IllegalStateException();
+        }
+        return asyncContext;
     }
 
     @Override
@@ -27,7 +27,9 @@ import javax.servlet.ServletException;
 
 import org.apache.commons.chain.Catalog;
 import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.config.CatalogInitializer;
 import org.apache.commons.chain.config.ConfigParser;
+import org.apache.commons.chain.config.ConfigReport;
 import org.apache.commons.chain.impl.CatalogBase;
 import org.apache.commons.chain.web.CheckedConsumer;
 import org.apache.commons.digester.RuleSet;
@@ -61,6 +63,15 @@ import org.slf4j.Logger;
  *     implementation to use for parsing configuration resources (this
  *     class must have a public zero-args constructor). If not defined,
  *     the standard {@code RuleSet} implementation will be used.</li>
+ * <li><strong>org.apache.commons.chain.CONFIG_INITIALIZER</strong> -
+ *     Fully qualified class name of a {@code CatalogInitializer} compiled
+ *     from chain configuration resources at build time (for example by
+ *     the {@code commons-chain-maven-plugin}), or {@code true} for the
+ *     class {@code org.apache.commons.chain.generated.ChainConfigInitializer}.
+ *     The initializer is applied after the resources in JAR files; the
+ *     class loader and web application resources compiled into it are
+ *     not parsed again. If not specified, no compiled configuration is
+ *     used.</li>
  * </ul>
  *
  * <p>When a web application that has configured this listener is
@@ -77,6 +88,16 @@ import org.slf4j.Logger;
  *     archive (via {@code ServetContext.getResource()}).</li>
  * </ul>
  *
+ * <p>Before any configuration resource is parsed, all
+ * {@link CatalogInitializer}s visible to the web application class loader
+ * (usually generated at compile time from annotations) are applied to the
+ * {@link CatalogFactory} for this web application.</p>
+ *
+ * <p>The time and resources spent for each initializer and configuration
+ * resource are recorded in a {@link ConfigReport}, which is logged and
+ * exposed under the servlet context attribute
+ * {@code org.apache.commons.chain.CONFIG_REPORT}.</p>
+ *
  * <p>If no attribute key is specified, on the other hand, parsed configuration
  * resources are expected to contain {@code &lt;catalog&gt;} elements,
  * and the catalogs will be registered with the {@link CatalogFactory}
@@ -117,6 +138,28 @@ final class ChainInit {
     static final String RULE_SET =
         "org.apache.commons.chain.RULE_SET";
 
+    /**
+     * The name of the context init parameter containing the fully
+     * qualified class name of a {@link CatalogInitializer} compiled from
+     * the chain configuration resources at build time.
+     */
+    static final String CONFIG_INITIALIZER =
+        "org.apache.commons.chain.CONFIG_INITIALIZER";
+
+    /**
+     * The fully qualified class name of the {@link CatalogInitializer}
+     * used if {@code CONFIG_INITIALIZER} is {@code true}.
+     */
+    static final String DEFAULT_CONFIG_INITIALIZER =
+        "org.apache.commons.chain.generated.ChainConfigInitializer";
+
+    /**
+     * The name of the servlet context attribute under which the
+     * {@link ConfigReport} of the loaded chain configuration is stored.
+     */
+    static final String CONFIG_REPORT =
+        "org.apache.commons.chain.CONFIG_REPORT";
+
     /**
      * Remove the configured {@link Catalog} from the servlet context
      * attributes for this web application.
@@ -128,6 +171,7 @@ final class ChainInit {
         if (attr != null) {
             context.removeAttribute(attr);
         }
+        context.removeAttribute(CONFIG_REPORT);
         CatalogFactory.clear();
     }
 
@@ -162,15 +206,33 @@ final class ChainInit {
             }
         }
 
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = ChainInit.class.getClassLoader();
+        }
+
+        final ConfigReport report = new ConfigReport();
+
+        // Apply the compile-time generated catalog initializers (if any)
+        long start = System.nanoTime();
+        long classes = ConfigReport.loadedClassCount();
+        int commands = countCommands(catalog);
+        try {
+            int count = CatalogInitializer.initializeAll(loader);
+            logger.debug("Applied {} catalog initializers", count);
+            if (count > 0) {
+                report.addEntry(CatalogInitializer.class.getName(), System.nanoTime() - start, 0,
+                        countCommands(catalog) - commands, ConfigReport.loadedClassCount() - classes);
+            }
+        } catch (Exception e) {
+            throw new ServletException("Exception applying catalog initializers", e);
+        }
+
         // Construct the configuration resource parser we will use
         ConfigParser parser = new ConfigParser();
+        parser.setReport(report);
         if (ruleSet != null) {
             try {
-                ClassLoader loader =
-                    Thread.currentThread().getContextClassLoader();
-                if (loader == null) {
-                    loader = ChainInit.class.getClassLoader();
-                }
                 Class<? extends RuleSet> clazz = loader
                         .loadClass(ruleSet)
                         .asSubclass(RuleSet.class);
@@ -192,17 +254,159 @@ final class ChainInit {
         if (parseJarResources) {
             parseJarResources(context, parse, logger);
         }
-        ChainResources.parseClassResources(classResources, parse);
-        ChainResources.parseWebResources(context, webResources, parse);
+
+        // Apply the configuration compiled at build time (if configured)
+        Set<String> compiledResources = Collections.emptySet();
+        if (attr == null) {
+            CatalogInitializer compiled = loadConfigInitializer(context, loader, logger);
+            if (compiled != null) {
+                start = System.nanoTime();
+                classes = ConfigReport.loadedClassCount();
+                commands = countCommands(null);
+                try {
+                    compiled.initialize(CatalogFactory.getInstance());
+                } catch (Exception e) {
+                    throw new ServletException("Exception applying compiled configuration '"
+                                               + compiled.getClass().getName() + "'", e);
+                }
+                report.addEntry(compiled.getClass().getName(), System.nanoTime() - start, 0,
+                        countCommands(null) - commands, ConfigReport.loadedClassCount() - classes);
+                compiledResources = compiled.getResources();
+            }
+        }
+
+        ChainResources.parseClassResources(classResources, compiledResources, parse);
+        ChainResources.parseWebResources(context, webResources, compiledResources, parse);
 
         // Expose the completed catalog (if requested)
         if (attr != null) {
             context.setAttribute(attr, catalog);
         }
+        publishReport(context, report, logger);
     }
 
     // --------------------------------------------------------- Private Methods
 
+    /**
+     * Count the commands registered in the {@link CatalogFactory} and in
+     * the specified {@link Catalog}, that is the names registered in the
+     * catalogs, as defined by {@link ConfigReport}.
+     *
+     * @param catalog the catalog of the {@code CONFIG_ATTR} or {@code null}
+     *
+     * @return the number of registered commands
+     */
+    private static int countCommands(Catalog<?> catalog) {
+        int ret = catalog == null ? 0 : count(catalog.getNames());
+        CatalogFactory<?> factory = CatalogFactory.getInstance();
+        Catalog<?> defaultCatalog = factory.getCatalog();
+        if (defaultCatalog != null) {
+            ret += count(defaultCatalog.getNames());
+        }
+        Iterator<String> names = factory.getNames();
+        while (names.hasNext()) {
+            Catalog<?> named = factory.getCatalog(names.next());
+            if (named != null) {
+                ret += count(named.getNames());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Count the elements of an iterator.
+     *
+     * @param iterator the iterator
+     *
+     * @return the number of elements
+     */
+    private static int count(Iterator<?> iterator) {
+        int ret = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            ret++;
+        }
+        return ret;
+    }
+
+    /**
+     * Log the {@link ConfigReport} as structured entries and expose it
+     * as servlet context attribute. The summary is logged at info level,
+     * or at debug level if no configuration has been loaded.
+     *
+     * @param context the servlet-context
+     * @param report the report of the loaded chain configuration
+     * @param logger to use for logging
+     */
+    private static void publishReport(ServletContext context, ConfigReport report, Logger logger) {
+        for (ConfigReport.Entry entry : report.getEntries()) {
+            logger.atDebug().setMessage("Loaded chain config source {}")
+                .addArgument(entry.getSource())
+                .addKeyValue("source", entry.getSource())
+                .addKeyValue("nanos", entry.getNanos())
+                .addKeyValue("bytes", entry.getBytes())
+                .addKeyValue("registeredCommands", entry.getRegisteredCommands())
+                .addKeyValue("classes", entry.getClasses())
+                .log();
+        }
+        final boolean loaded = !report.getEntries().isEmpty();
+        (loaded ? logger.atInfo() : logger.atDebug())
+            .setMessage("Loaded chain configuration from {} sources in {} ms")
+            .addArgument(report.getEntries().size())
+            .addArgument(report.getTotalNanos() / 1_000_000L)
+            .addKeyValue("sources", report.getEntries().size())
+            .addKeyValue("nanos", report.getTotalNanos())
+            .addKeyValue("bytes", report.getTotalBytes())
+            .addKeyValue("registeredCommands", report.getTotalRegisteredCommands())
+            .addKeyValue("classes", report.getTotalClasses())
+            .log();
+        context.setAttribute(CONFIG_REPORT, report);
+    }
+
+    /**
+     * Load the {@link CatalogInitializer} compiled from the chain
+     * configuration resources at build time.
+     *
+     * @param context the servlet-context
+     * @param loader the class loader of the web application
+     * @param logger to use for logging
+     *
+     * @return the initializer or {@code null} if not configured
+     *
+     * @throws ServletException if the initializer can't be loaded
+     */
+    private static CatalogInitializer loadConfigInitializer(ServletContext context,
+                ClassLoader loader, Logger logger) throws ServletException {
+
+        String className = context.getInitParameter(CONFIG_INITIALIZER);
+        if (className == null || className.trim().isEmpty()) {
+            return null;
+        }
+        className = className.trim();
+        if ("true".equalsIgnoreCase(className)) {
+            className = DEFAULT_CONFIG_INITIALIZER;
+        }
+
+        final Class<? extends CatalogInitializer> clazz;
+        try {
+            clazz = loader.loadClass(className).asSubclass(CatalogInitializer.class);
+        } catch (ClassNotFoundException e) {
+            throw new ServletException("Compiled configuration '"
+                                       + className + "' not found", e);
+        } catch (ClassCastException e) {
+            throw new ServletException("Compiled configuration '"
+                                       + className + "' is no CatalogInitializer", e);
+        }
+
+        try {
+            logger.debug("Using compiled configuration: {}", className);
+            return clazz.getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new ServletException("Exception initalizing compiled configuration '"
+                                       + className + "' instance ", e);
+        }
+    }
+
     /**
      * Parse resources found in JAR files in the {@code /WEB-INF/lib}
      * subdirectory (if any).
@@ -19,6 +19,7 @@ package org.apache.commons.chain.web.javax;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import javax.servlet.ServletContext;
 
@@ -51,9 +52,12 @@ final class ChainResources {
      *
      * @param <E> the type of the exception from parse-function
      * @param resources Comma-delimited list of resources (or {@code null})
+     * @param skip the resources which are not parsed, e.g. because they
+     *        have been compiled into a {@code CatalogInitializer}
      * @param parse parse-function to parse the XML document
      */
     static <E extends Exception> void parseClassResources(String resources,
+                                    Set<String> skip,
                                     CheckedConsumer<URL, E> parse) {
 
         ClassLoader loader =
@@ -61,7 +65,7 @@ final class ChainResources {
         if (loader == null) {
             loader = ChainResources.class.getClassLoader();
         }
-        parseResources(loader::getResource, resources, parse);
+        parseResources(loader::getResource, resources, skip, parse);
     }
 
     /**
@@ -70,13 +74,16 @@ final class ChainResources {
      * @param <E> the type of the exception from parse-function
      * @param context {@code ServletContext} for this web application
      * @param resources Comma-delimited list of resources (or {@code null})
+     * @param skip the resources which are not parsed, e.g. because they
+     *        have been compiled into a {@code CatalogInitializer}
      * @param parse parse-function to parse the XML document
      */
     static <E extends Exception> void parseWebResources(ServletContext context,
                                   String resources,
+                                  Set<String> skip,
                                   CheckedConsumer<URL, E> parse) {
 
-        parseResources(context::getResource, resources, parse);
+        parseResources(context::getResource, resources, skip, parse);
     }
 
     /**
@@ -86,11 +93,12 @@ final class ChainResources {
      * @param <EP> the type of the exception from parse-function
      * @param resourceFunction function to get the {@link URL} from a path
      * @param resources Comma-delimited list of resources (or {@code null})
+     * @param skip the resources which are not parsed
      * @param parse parse-function to parse the XML document
      */
     private static <ER extends Exception, EP extends Exception> void parseResources(
             CheckedFunction<String, URL, ER> resourceFunction, String resources,
-            CheckedConsumer<URL, EP> parse) {
+            Set<String> skip, CheckedConsumer<URL, EP> parse) {
 
         if (resources == null) {
             return;
@@ -101,6 +109,10 @@ final class ChainResources {
         try {
             for (String path2 : paths) {
                 path = path2;
+                if (skip.contains(path)) {
+                    logger.debug("Skipping compiled chain config resource '{}'", path);
+                    continue;
+                }
                 URL url = resourceFunction.apply(path);
                 if (url == null) {
                     throw new IllegalStateException("Missing chain config resource '" + path + "'");
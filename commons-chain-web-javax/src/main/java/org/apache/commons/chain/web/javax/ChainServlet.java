@@ -59,6 +59,15 @@ import org.slf4j.LoggerFactory;
  *     implementation to use for parsing configuration resources (this
  *     class must have a public zero-args constructor). If not defined,
  *     the standard {@code RuleSet} implementation will be used.</li>
+ * <li><strong>org.apache.commons.chain.CONFIG_INITIALIZER</strong> -
+ *     Fully qualified class name of a {@code CatalogInitializer} compiled
+ *     from chain configuration resources at build time (for example by
+ *     the {@code commons-chain-maven-plugin}), or {@code true} for the
+ *     class {@code org.apache.commons.chain.generated.ChainConfigInitializer}.
+ *     The initializer is applied after the resources in JAR files; the
+ *     class loader and web application resources compiled into it are
+ *     not parsed again. If not specified, no compiled configuration is
+ *     used.</li>
  * </ul>
  *
  * <p>When a web application that has configured this servlet is
@@ -123,6 +132,23 @@ public class ChainServlet extends HttpServlet {
      */
     public static final String RULE_SET = ChainInit.RULE_SET;
 
+    /**
+     * The name of the context init parameter containing the fully
+     * qualified class name of a {@code CatalogInitializer} compiled from
+     * the chain configuration resources at build time.
+     *
+     * @since Chain 1.4
+     */
+    public static final String CONFIG_INITIALIZER = ChainInit.CONFIG_INITIALIZER;
+
+    /**
+     * The name of the servlet context attribute under which the
+     * {@code ConfigReport} of the loaded chain configuration is stored.
+     *
+     * @since Chain 1.4
+     */
+    public static final String CONFIG_REPORT = ChainInit.CONFIG_REPORT;
+
     // ------------------------------------------------------------ Constructors
 
     /**
@@ -16,10 +16,14 @@
  */
 package org.apache.commons.chain.web.javax.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
@@ -33,6 +37,15 @@ import org.apache.commons.chain.web.ParameterMap;
  * Implementation of {@code Map} for cookies with
  * a parameter-provider.
  *
+ * <p>The cookies are read once, on first use, and indexed by name. If
+ * several cookies have the same name, the first one is mapped. Because
+ * a cookie-map is created per request, changes to the cookies of the
+ * request after the first use are not reflected.</p>
+ *
+ * <p>{@link #parseCookieHeader(Enumeration)} reads the cookies directly
+ * from the {@code Cookie} request headers, without the copies of the
+ * cookie-array made by {@code HttpServletRequest.getCookies()}.</p>
+ *
  * @param <P> the type of the parameter-provider
  *
  * @author Graff Stefan
@@ -45,6 +58,16 @@ public class CookieMap<P> extends ParameterMap<P, Cookie> {
      */
     private final Supplier<Cookie[]> cookiesSupplier;
 
+    /**
+     * The cookies, read on first use.
+     */
+    private List<Cookie> cookies = null;
+
+    /**
+     * The cookies indexed by name, built on first use.
+     */
+    private Map<String, Cookie> index = null;
+
     /**
      * The constructor for the {@code Map} for cookies.
      *
@@ -102,8 +125,9 @@ public class CookieMap<P> extends ParameterMap<P, Cookie> {
      */
     @Override
     public Set<Map.Entry<String, Cookie>> entrySet() {
-        final Set<Map.Entry<String, Cookie>> set = new HashSet<>();
-        for (Cookie cookie : values()) {
+        final Collection<Cookie> cookies = values();
+        final Set<Map.Entry<String, Cookie>> set = new HashSet<>(Math.max((int) (cookies.size() / .75f) + 1, 16));
+        for (Cookie cookie : cookies) {
             set.add(new MapEntry<>(cookie.getName(), cookie, false));
         }
         return set;
@@ -125,16 +149,7 @@ public class CookieMap<P> extends ParameterMap<P, Cookie> {
      */
     @Override
     public Cookie get(Object key) {
-        final Collection<Cookie> cookies = values();
-        if (!cookies.isEmpty()) {
-            final String skey = key(key);
-            for (Cookie cookie : cookies) {
-                if (cookie.getName().equals(skey)) {
-                    return cookie;
-                }
-            }
-        }
-        return null;
+        return index().get(key(key));
     }
 
     /**
@@ -144,8 +159,7 @@ public class CookieMap<P> extends ParameterMap<P, Cookie> {
      */
     @Override
     public boolean isEmpty() {
-        final Cookie[] cookies = cookiesSupplier.get();
-        return cookies == null || cookies.length == 0;
+        return values().isEmpty();
     }
 
     /**
@@ -158,12 +172,7 @@ public class CookieMap<P> extends ParameterMap<P, Cookie> {
      */
     @Override
     public Set<String> keySet() {
-        final Collection<Cookie> cookies = values();
-        final Set<String> set = new HashSet<String>(Math.max((int) (cookies.size() / .75f) + 1, 16));
-        for (Cookie cookie : cookies) {
-            set.add(cookie.getName());
-        }
-        return set;
+        return new HashSet<>(index().keySet());
     }
 
     /**
@@ -173,22 +182,26 @@ public class CookieMap<P> extends ParameterMap<P, Cookie> {
      */
     @Override
     public int size() {
-        final Cookie[] cookies = cookiesSupplier.get();
-        return cookies == null ? 0 : cookies.length;
+        return values().size();
     }
 
     /**
-     * Returns a {@link Collection} view of the cookies contained in
-     * this cookie-map. The collection is not backed by the
-     * cookie-map, so changes to the cookie-map are not
-     * reflected in the collection, and vice-versa.
+     * Returns an unmodifiable {@link Collection} view of the cookies
+     * contained in this cookie-map.
      *
      * @return a view of the cookies contained in this cookie-map
      */
     @Override
     public Collection<Cookie> values() {
-        final Cookie[] cookies = cookiesSupplier.get();
-        return cookies == null ? Collections.emptyList() : Arrays.asList(cookies);
+        List<Cookie> ret = cookies;
+        if (ret == null) {
+            final Cookie[] array = cookiesSupplier.get();
+            ret = array == null || array.length == 0
+                    ? Collections.emptyList()
+                    : Collections.unmodifiableList(Arrays.asList(array));
+            cookies = ret;
+        }
+        return ret;
     }
 
     /**
@@ -228,4 +241,88 @@ public class CookieMap<P> extends ParameterMap<P, Cookie> {
     public boolean equals(Object obj) {
         return super.equals(obj);
     }
-}
\ No newline at end of file
+
+    /**
+     * Parse the values of the {@code Cookie} request headers into
+     * cookies. Each header contains a list of {@code name=value} pairs
+     * separated by semicolons. Commas are part of the values, and a
+     * semicolon within a quoted value doesn't separate pairs. Surrounding
+     * whitespace is removed, the values are neither decoded nor unquoted.
+     * Attributes starting with
+     * {@code $} (like {@code $Version} or {@code $Path}) and pairs with
+     * invalid cookie names are skipped.
+     *
+     * @param headers the values of the {@code Cookie} request headers
+     *        (or {@code null})
+     *
+     * @return the cookies in header order, or {@code null} if there are
+     *         none
+     *
+     * @since Chain 1.4
+     */
+    public static Cookie[] parseCookieHeader(Enumeration<String> headers) {
+        if (headers == null) {
+            return null;
+        }
+
+        final List<Cookie> ret = new ArrayList<>();
+        while (headers.hasMoreElements()) {
+            final String header = headers.nextElement();
+            if (header == null) {
+                continue;
+            }
+
+            final int length = header.length();
+            int start = 0;
+            while (start < length) {
+                int end = start;
+                int equals = -1;
+                boolean quoted = false;
+                while (end < length) {
+                    final char ch = header.charAt(end);
+                    if (ch == ';' && !quoted) {
+                        break;
+                    } else if (ch == '=' && equals < 0) {
+                        equals = end;
+                    } else if (ch == '"' && equals >= 0) {
+                        quoted = !quoted;
+                    }
+                    end++;
+                }
+
+                if (equals > start) {
+                    final String name = header.substring(start, equals).trim();
+                    if (!name.isEmpty() && name.charAt(0) != '$') {
+                        try {
+                            ret.add(new Cookie(name, header.substring(equals + 1, end).trim()));
+                        } catch (IllegalArgumentException e) {
+                            // invalid cookie name
+                        }
+                    }
+                }
+                start = end + 1;
+            }
+        }
+        return ret.isEmpty() ? null : ret.toArray(new Cookie[0]);
+    }
+
+    /**
+     * Returns the cookies indexed by name, building the index on first
+     * use. If several cookies have the same name, the first one is
+     * indexed.
+     *
+     * @return the cookies indexed by name
+     */
+    private Map<String, Cookie> index() {
+        Map<String, Cookie> ret = index;
+        if (ret == null) {
+            final Collection<Cookie> cookies = values();
+            ret = new HashMap<>(Math.max((int) (cookies.size() / .75f) + 1, 16));
+            for (Cookie cookie : cookies) {
+                ret.putIfAbsent(cookie.getName(), cookie);
+            }
+            index = ret;
+        }
+        return ret;
+    }
+}
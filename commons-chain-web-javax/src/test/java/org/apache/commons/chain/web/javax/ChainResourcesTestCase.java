@@ -18,6 +18,10 @@ package org.apache.commons.chain.web.javax;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Collections;
 
 import org.junit.jupiter.api.Test;
 
@@ -65,6 +69,15 @@ public class ChainResourcesTestCase {
         }
     }
 
+    @Test
+    public void testSkipCompiled() throws Exception {
+        String resource = "org/apache/commons/chain/web/missing-chain-config.xml";
+        ChainResources.parseClassResources(resource, Collections.singleton(resource),
+            url -> fail("Parsed " + url));
+        assertThrows(RuntimeException.class, () -> ChainResources.parseClassResources(
+            resource, Collections.emptySet(), url -> fail("Parsed " + url)));
+    }
+
     // ---------------------------------------------------------- Inner classes
 
     /**
@@ -16,16 +16,33 @@
  */
 package org.apache.commons.chain.web;
 
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
  * Implementation of {@code Map} for session attributes with a
  * parameter-provider.
  *
+ * <p>In write-behind mode the session attributes are copied once into a
+ * local buffer, and all changes are applied to the buffer until
+ * {@link #flush()} is called, typically once at the end of the request.
+ * The flush writes only the real changes to the session: attributes put
+ * with a value equal to the current one are skipped, as are values put
+ * again after an in-place mutation, if their {@code hashCode()} is
+ * unchanged since they were read through this map. Values which don't
+ * override {@code hashCode()} are always written when put again. This
+ * reduces the number of {@code setAttribute} calls, each of which may
+ * trigger the serialization and replication of the attribute in a
+ * clustered container. The buffer is not visible to other requests of
+ * the same session until it is flushed.</p>
+ *
  * @param <S> the type of the session-class
  * @param <R> the type of the request-class
  *
@@ -49,13 +66,37 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
      */
     private MutableParameterMap<S, Object> parameterMap = null;
 
+    /**
+     * Are the changes buffered until {@link #flush()}?
+     */
+    private final boolean writeBehind;
+
+    /**
+     * The buffer of the write-behind mode, or {@code null}.
+     */
+    private WriteBuffer buffer = null;
+
     /**
      * The constructor for the session attributes.
      *
      * @param request the request-class
      */
     public AbstractSessionScopeMap(final R request) {
+        this(request, false);
+    }
+
+    /**
+     * The constructor for the session attributes.
+     *
+     * @param request the request-class
+     * @param writeBehind {@code true} to buffer all changes until
+     *        {@link #flush()} is called
+     *
+     * @since Chain 1.4
+     */
+    public AbstractSessionScopeMap(final R request, final boolean writeBehind) {
         this.request = request;
+        this.writeBehind = writeBehind;
         sessionExists();
     }
 
@@ -66,7 +107,7 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
     @Override
     public void clear() {
         if (sessionExists()) {
-            parameterMap.clear();
+            attributes().clear();
         }
     }
 
@@ -82,7 +123,7 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
      */
     @Override
     public boolean containsKey(Object key) {
-        return sessionExists() && parameterMap.containsKey(key);
+        return sessionExists() && attributes().containsKey(key);
     }
 
     /**
@@ -97,21 +138,47 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
      */
     @Override
     public boolean containsValue(Object value) {
-        return value != null && sessionExists() && parameterMap.containsValue(value);
+        return value != null && sessionExists() && attributes().containsValue(value);
     }
 
     /**
      * Returns a {@link Set} view of the mappings contained in this
-     * session-map. The set is not backed by the session-map, so
-     * changes to the session-map are not reflected in the set,
-     * and vice-versa.
+     * session-map. The set is backed by the session attributes, or
+     * empty if no session exists.
      *
      * @return a set view of the mappings contained in this
      *         session-map
      */
     @Override
     public Set<Map.Entry<String, Object>> entrySet() {
-        return sessionExists() ? parameterMap.entrySet() : new HashSet<>();
+        if (!sessionExists()) {
+            return Collections.emptySet();
+        }
+        if (buffer != null) {
+            buffer.readAll();
+        }
+        return attributes().entrySet();
+    }
+
+    /**
+     * Performs the given action for each attribute of the session,
+     * without creating entries.
+     *
+     * @param action the action to be performed for each attribute
+     *
+     * @throws NullPointerException if the specified action is null
+     *
+     * @since Chain 1.4
+     */
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        Objects.requireNonNull(action);
+        if (sessionExists()) {
+            if (buffer != null) {
+                buffer.readAll();
+            }
+            attributes().forEach(action);
+        }
     }
 
     /**
@@ -135,7 +202,10 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
      */
     @Override
     public Object get(Object key) {
-        return sessionExists() ? parameterMap.get(key) : null;
+        if (!sessionExists()) {
+            return null;
+        }
+        return buffer != null ? buffer.get(key) : parameterMap.get(key);
     }
 
     /**
@@ -147,20 +217,19 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
      */
     @Override
     public boolean isEmpty() {
-        return !sessionExists() || parameterMap.isEmpty();
+        return !sessionExists() || attributes().isEmpty();
     }
 
     /**
      * Returns a {@link Set} view of the keys contained in this
-     * session-map. The set is not backed by the session-map, so
-     * changes to the session-map are not reflected in the set, and
-     * vice-versa.
+     * session-map. The set is backed by the session attributes, or
+     * empty if no session exists.
      *
      * @return a set view of the keys contained in this session-map
      */
     @Override
     public Set<String> keySet() {
-        return sessionExists() ? parameterMap.keySet() : new HashSet<>();
+        return sessionExists() ? attributes().keySet() : Collections.emptySet();
     }
 
     /**
@@ -185,7 +254,10 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
 
         // Ensure the Session is created, if it
         // doesn't exist
-        return sessionExists(true) ? parameterMap.put(key, value) : null;
+        if (!sessionExists(true)) {
+            return null;
+        }
+        return buffer != null ? buffer.put(key, value) : parameterMap.put(key, value);
     }
 
     /**
@@ -218,7 +290,7 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
      */
     @Override
     public Object remove(Object key) {
-        return sessionExists() ? parameterMap.remove(key) : null;
+        return sessionExists() ? attributes().remove(key) : null;
     }
 
     /**
@@ -228,20 +300,25 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
      */
     @Override
     public int size() {
-        return sessionExists() ? parameterMap.size() : 0;
+        return sessionExists() ? attributes().size() : 0;
     }
 
     /**
      * Returns a {@link Collection} view of the values contained in
-     * this session-map. The collection is not backed by the
-     * session-map, so changes to the session-map are not
-     * reflected in the collection, and vice-versa.
+     * this session-map. The collection is backed by the session
+     * attributes, or empty if no session exists.
      *
      * @return a view of the values contained in this session-map
      */
     @Override
     public Collection<Object> values() {
-        return sessionExists() ? parameterMap.values() : new ArrayList<>();
+        if (!sessionExists()) {
+            return Collections.emptyList();
+        }
+        if (buffer != null) {
+            buffer.readAll();
+        }
+        return attributes().values();
     }
 
     /**
@@ -257,7 +334,7 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
      */
     @Override
     public int hashCode() {
-        return sessionExists() ? parameterMap.hashCode() : 0;
+        return sessionExists() ? attributes().hashCode() : 0;
     }
 
     /**
@@ -275,7 +352,7 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
      */
     @Override
     public boolean equals(Object obj) {
-        return sessionExists() && parameterMap.equals(obj);
+        return sessionExists() && attributes().equals(obj);
     }
 
     /**
@@ -304,6 +381,39 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
         return "{}";
     }
 
+    /**
+     * Returns {@code true} if the changes are buffered until
+     * {@link #flush()} is called.
+     *
+     * @return {@code true} in write-behind mode
+     *
+     * @since Chain 1.4
+     */
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Writes the buffered changes to the session in write-behind mode.
+     * Only attributes which were added, removed or really changed since
+     * the session was read or last flushed are written. If the session
+     * has been invalidated meanwhile, the changes are discarded. Without
+     * write-behind mode, this method does nothing.
+     *
+     * @since Chain 1.4
+     */
+    public void flush() {
+        if (buffer != null && parameterMap != null) {
+            try {
+                buffer.flush(parameterMap);
+            } catch (IllegalStateException e) {
+                // the session has been invalidated
+                buffer = null;
+                parameterMap = null;
+            }
+        }
+    }
+
     /**
      * Returns the session-class.
      *
@@ -346,11 +456,15 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
             if (session != null) {
                 request = null;
                 parameterMap = createParameterMap();
+                if (writeBehind) {
+                    buffer = new WriteBuffer(parameterMap);
+                }
             }
         }
 
         if (session == null) {
             parameterMap = null;
+            buffer = null;
             return false;
         } else {
             return parameterMap != null;
@@ -377,4 +491,142 @@ public abstract class AbstractSessionScopeMap<S, R> implements Map<String, Objec
      * @return a new mutable-parameter-map to access the session-attributes
      */
     protected abstract MutableParameterMap<S, Object> createParameterMap();
-}
\ No newline at end of file
+
+    /**
+     * Returns the map of the current attributes: the buffer in
+     * write-behind mode, or the session attributes. A session must
+     * exist.
+     *
+     * @return the map of the current attributes
+     */
+    private Map<String, Object> attributes() {
+        return buffer != null ? buffer.working : parameterMap;
+    }
+
+    /**
+     * The buffer of the write-behind mode.
+     */
+    private static final class WriteBuffer {
+
+        /**
+         * The current attributes, including the buffered changes.
+         */
+        final Map<String, Object> working = new LinkedHashMap<>();
+
+        /**
+         * The attributes as read from or last flushed to the session.
+         */
+        private Map<String, Object> originals;
+
+        /**
+         * The hash codes of the original values when they were first
+         * read through the map, keyed by attribute name.
+         */
+        private final Map<String, Integer> hashes = new HashMap<>();
+
+        /**
+         * The names of the attributes put since the last flush.
+         */
+        private final Set<String> puts = new HashSet<>();
+
+        /**
+         * Create the buffer for the specified session attributes.
+         *
+         * @param attributes the session attributes
+         */
+        WriteBuffer(Map<String, Object> attributes) {
+            attributes.forEach(working::put);
+            originals = new HashMap<>(working);
+        }
+
+        /**
+         * Return the current value of an attribute and remember the hash
+         * code of an original value, to detect in-place mutations.
+         *
+         * @param key the name of the attribute
+         *
+         * @return the current value or {@code null}
+         */
+        Object get(Object key) {
+            final Object value = working.get(key);
+            if (value != null && value == originals.get(key)) {
+                hashes.putIfAbsent((String) key, value.hashCode());
+            }
+            return value;
+        }
+
+        /**
+         * Remember the hash codes of all original values, before they
+         * are exposed by a view.
+         */
+        void readAll() {
+            working.forEach((key, value) -> {
+                if (value == originals.get(key)) {
+                    hashes.putIfAbsent(key, value.hashCode());
+                }
+            });
+        }
+
+        /**
+         * Put an attribute into the buffer.
+         *
+         * @param key the name of the attribute
+         * @param value the value, not {@code null}
+         *
+         * @return the previous value or {@code null}
+         */
+        Object put(String key, Object value) {
+            puts.add(key);
+            return working.put(key, value);
+        }
+
+        /**
+         * Write the changes to the session attributes and start a new
+         * buffering period.
+         *
+         * @param target the session attributes
+         */
+        void flush(Map<String, Object> target) {
+            for (String key : originals.keySet()) {
+                if (!working.containsKey(key)) {
+                    target.remove(key);
+                }
+            }
+            for (Map.Entry<String, Object> entry : working.entrySet()) {
+                if (isChanged(entry.getKey(), entry.getValue())) {
+                    target.put(entry.getKey(), entry.getValue());
+                }
+            }
+            originals = new HashMap<>(working);
+            hashes.clear();
+            puts.clear();
+        }
+
+        /**
+         * Check whether an attribute is really changed.
+         *
+         * @param key the name of the attribute
+         * @param value the current value
+         *
+         * @return {@code true} if the attribute has to be written
+         */
+        private boolean isChanged(String key, Object value) {
+            final Object original = originals.get(key);
+            if (original == null) {
+                return true;
+            }
+            if (value != original) {
+                return !value.equals(original);
+            }
+            if (!puts.contains(key)) {
+                return false;
+            }
+
+            // put again, possibly after an in-place mutation
+            final Integer hash = hashes.get(key);
+            return hash == null
+                    || value.hashCode() == System.identityHashCode(value)
+                    || value.hashCode() != hash.intValue();
+        }
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.web;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limiter which adapts the number of admitted concurrent
+ * requests to the measured latency.
+ *
+ * <p>By Little's law, as long as the server is not overloaded, more
+ * concurrent requests increase the throughput at a constant latency;
+ * beyond this point they only queue up and increase the latency. The
+ * limiter therefore compares the average latency of the latest window
+ * of samples with the long-term average latency and adjusts the limit
+ * by the gradient of both:</p>
+ * <pre>
+ * gradient = max(0.5, min(1, 1.5 * longTermLatency / latency))
+ * newLimit = limit * gradient + sqrt(limit)
+ * limit    = limit * 0.8 + newLimit * 0.2
+ * </pre>
+ *
+ * <p>So the limit grows by about the square root of the limit while the
+ * latency stays within 1.5 times the long-term latency, and shrinks
+ * as the latency rises above. A window containing a dropped request
+ * (one that signals overload, e.g. by a timeout) uses the minimum
+ * gradient. The limit only grows
+ * if at least half of it has been used within the window, and it is
+ * kept between the minimum and the maximum limit.</p>
+ *
+ * <p>A request acquires a {@link Permit} before it is processed and
+ * releases or drops it afterwards. Requests failing for other reasons,
+ * e.g. application errors or client disconnects, must be released, as
+ * they say nothing about the capacity of the server. If the limit is
+ * reached, no permit is
+ * returned and the request should be rejected at once.</p>
+ *
+ * @since Chain 1.4
+ */
+public class AdaptiveLimiter {
+
+    // ------------------------------------------------------ Manifest Constants
+
+    /**
+     * The latency increase tolerated before the limit shrinks.
+     */
+    private static final double TOLERANCE = 1.5;
+
+    /**
+     * The minimum gradient.
+     */
+    private static final double MIN_GRADIENT = 0.5;
+
+    /**
+     * The weight of a new limit.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * The number of windows of the long-term latency average.
+     */
+    private static final int LONG_TERM_WINDOWS = 100;
+
+    /**
+     * The minimum number of samples of a window.
+     */
+    private static final int MIN_WINDOW_SAMPLES = 10;
+
+    // ------------------------------------------------------ Instance Variables
+
+    /**
+     * The minimum limit.
+     */
+    private final int minLimit;
+
+    /**
+     * The maximum limit.
+     */
+    private final int maxLimit;
+
+    /**
+     * The current limit.
+     */
+    private volatile double limit;
+
+    /**
+     * The number of requests holding a permit.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * The number of rejected requests.
+     */
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * The long-term average latency in nanoseconds, {@code 0} before the
+     * first window.
+     */
+    private double longTermLatency = 0;
+
+    /**
+     * The sum of the latencies of the current window in nanoseconds.
+     */
+    private long windowLatency = 0;
+
+    /**
+     * The number of samples of the current window.
+     */
+    private int windowSamples = 0;
+
+    /**
+     * The maximum number of requests in flight within the current window.
+     */
+    private int windowInFlight = 0;
+
+    /**
+     * Has a request of the current window been dropped?
+     */
+    private boolean windowDropped = false;
+
+    // ------------------------------------------------------------ Constructors
+
+    /**
+     * Construct a limiter with an initial limit of 20, which is kept
+     * between 1 and 1000.
+     */
+    public AdaptiveLimiter() {
+        this(20, 1, 1000);
+    }
+
+    /**
+     * Construct a limiter.
+     *
+     * @param initialLimit the initial limit
+     * @param minLimit the minimum limit
+     * @param maxLimit the maximum limit
+     *
+     * @throws IllegalArgumentException if the limits are inconsistent
+     */
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit
+                || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid limits " + initialLimit
+                    + " [" + minLimit + ", " + maxLimit + "]");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Acquire a permit for a request.
+     *
+     * @return the permit, or {@code null} if the limit is reached
+     */
+    public Permit acquire() {
+        final int current = inFlight.incrementAndGet();
+        if (current > (int) limit) {
+            inFlight.decrementAndGet();
+            rejectedCount.increment();
+            return null;
+        }
+        return new Permit(current);
+    }
+
+    /**
+     * Return the current limit.
+     *
+     * @return the current limit
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Return the number of requests holding a permit.
+     *
+     * @return the number of requests in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Return the number of rejected requests.
+     *
+     * @return the number of rejected requests
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    // ------------------------------------------------------- Package Methods
+
+    /**
+     * Record a sample and adjust the limit at the end of a window.
+     *
+     * @param latency the latency of the request in nanoseconds
+     * @param concurrency the number of requests in flight when the
+     *        request was admitted
+     * @param dropped has the request been dropped?
+     */
+    synchronized void sample(long latency, int concurrency, boolean dropped) {
+        windowLatency += latency;
+        windowInFlight = Math.max(windowInFlight, concurrency);
+        windowDropped |= dropped;
+        if (++windowSamples < Math.max(MIN_WINDOW_SAMPLES, (int) limit)) {
+            return;
+        }
+
+        final double latencyAvg = Math.max(1.0, (double) windowLatency / windowSamples);
+        if (longTermLatency == 0) {
+            longTermLatency = latencyAvg;
+        } else {
+            longTermLatency += (latencyAvg - longTermLatency) / LONG_TERM_WINDOWS;
+            if (longTermLatency > 2 * latencyAvg) {
+                // the load has dropped: let the average follow faster
+                longTermLatency *= 0.95;
+            }
+        }
+
+        final double current = limit;
+        final double gradient = windowDropped
+                ? MIN_GRADIENT
+                : Math.max(MIN_GRADIENT, Math.min(1.0, TOLERANCE * longTermLatency / latencyAvg));
+        double newLimit = current * gradient + Math.sqrt(current);
+        newLimit = current * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        if (newLimit > current && windowInFlight < current / 2) {
+            // not limited by the limit, so its effect is unknown
+            newLimit = current;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+
+        windowLatency = 0;
+        windowSamples = 0;
+        windowInFlight = 0;
+        windowDropped = false;
+    }
+
+    // --------------------------------------------------------- Inner Classes
+
+    /**
+     * The permit of an admitted request, which must be released or
+     * dropped exactly once; further calls are ignored.
+     */
+    public final class Permit {
+
+        /**
+         * The start of the request in nanoseconds.
+         */
+        private final long start = System.nanoTime();
+
+        /**
+         * The number of requests in flight at the start.
+         */
+        private final int concurrency;
+
+        /**
+         * Has the permit been released or dropped?
+         */
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        /**
+         * Construct a new permit.
+         *
+         * @param concurrency the number of requests in flight at the start
+         */
+        Permit(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        /**
+         * Release the permit of a processed request, including a request
+         * which has failed for a reason other than overload.
+         */
+        public void release() {
+            finish(false);
+        }
+
+        /**
+         * Release the permit of a request which signals overload, e.g.
+         * because it has timed out or exceeded its deadline.
+         */
+        public void drop() {
+            finish(true);
+        }
+
+        /**
+         * Release the permit and record the sample.
+         *
+         * @param dropped has the request been dropped?
+         */
+        private void finish(boolean dropped) {
+            if (done.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                sample(System.nanoTime() - start, concurrency, dropped);
+            }
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.commons.chain.web;
 
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Map;
 import java.util.Set;
@@ -71,7 +72,9 @@ public class MutableParameterMap<P, T> extends ParameterMap<P, T> {
      */
     @Override
     public void clear() {
-        for (String key : keySet()) {
+        // Collect the names first, the enumeration may be backed by
+        // the parameters
+        for (String key : Collections.list(getNamesSupplier().get())) {
             removeConsumer.accept(key);
         }
     }
@@ -93,9 +96,9 @@ public class MutableParameterMap<P, T> extends ParameterMap<P, T> {
 
     /**
      * Returns a {@link Set} view of the mappings contained in this
-     * parameter-map. The set is not backed by the parameter-map, so
-     * changes to the parameter-map are not reflected in the set,
-     * and vice-versa.
+     * parameter-map. The set is backed by the parameter-provider, so
+     * changes to the parameters are reflected in the set. The entries
+     * are not backed by the parameter-map.
      *
      * @return a set view of the mappings contained in this
      *         parameter-map
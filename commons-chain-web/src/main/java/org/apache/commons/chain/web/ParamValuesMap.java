@@ -45,6 +45,23 @@ public class ParamValuesMap<P> extends ParameterMap<P, String[]> {
         super(parameter, valueFunction, namesSupplier);
     }
 
+    /**
+     * The constructor for an immutable parameter-map.
+     *
+     * @param parameter the parameter-provider
+     * @param valueFunction Function to return the value of a parameter
+     * @param namesSupplier Supplier to return all names of the parameter
+     * @param snapshot {@code true} if the bulk operations should use a
+     *        snapshot of the parameters, created on first use
+     *
+     * @since Chain 1.4
+     */
+    public ParamValuesMap(final P parameter, final Function<String, String[]> valueFunction,
+            final Supplier<Enumeration<String>> namesSupplier, final boolean snapshot) {
+
+        super(parameter, valueFunction, namesSupplier, snapshot);
+    }
+
     /**
      * Returns {@code true} if this parameter-map maps one or more keys
      * to the specified value.
@@ -60,14 +77,19 @@ public class ParamValuesMap<P> extends ParameterMap<P, String[]> {
         if (!(value instanceof String[])) {
             return false;
         }
+        return super.containsValue(value);
+    }
 
-        final Enumeration<String> keys = getNamesSupplier().get();
-        while (keys.hasMoreElements()) {
-            final String[] next = getValueFunction().apply(keys.nextElement());
-            if (Objects.deepEquals(value, next)) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * Compares the arrays deeply.
+     *
+     * @param value the searched value
+     * @param next a value of this parameter-map
+     *
+     * @return {@code true} if the arrays are deeply equal
+     */
+    @Override
+    protected boolean valueEquals(Object value, String[] next) {
+        return Objects.deepEquals(value, next);
     }
 }
\ No newline at end of file
@@ -16,15 +16,22 @@
  */
 package org.apache.commons.chain.web;
 
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -32,6 +39,21 @@ import java.util.function.Supplier;
  * Implementation of {@code Map} for immutable parameters with a
  * parameter-provider.
  *
+ * <p>In <em>snapshot</em> mode, the names and values of all parameters
+ * are read once, on the first call of a bulk operation ({@code size()},
+ * {@code isEmpty()}, {@code keySet()}, {@code values()},
+ * {@code containsValue()} and {@code entrySet()}), into compact arrays
+ * which are reused by all further bulk operations. This is suitable for
+ * parameters which don't change during the lifetime of the map, like the
+ * headers and parameters of a request. {@code get()} and
+ * {@code containsKey()} always query the parameter-provider.</p>
+ *
+ * <p>Otherwise, the views returned by {@code keySet()}, {@code values()}
+ * and {@code entrySet()} are backed by the parameter-provider: each
+ * iteration enumerates the current parameter names, without copying
+ * them into a collection first. {@code forEach()} of the map and of the
+ * key and value views doesn't allocate objects per parameter.</p>
+ *
  * @param <P> the type of the parameter-provider
  * @param <T> the type of results supplied by this parameters
  *
@@ -59,6 +81,16 @@ public class ParameterMap<P, T> implements Map<String, T> {
      */
     private final Supplier<Enumeration<String>> namesSupplier;
 
+    /**
+     * Should the bulk operations use a snapshot of the parameters?
+     */
+    private final boolean snapshot;
+
+    /**
+     * The snapshot of the parameters, created on first use.
+     */
+    private Snapshot snapshotValues = null;
+
     /**
      * The constructor for an immutable parameter-map.
      *
@@ -69,9 +101,27 @@ public class ParameterMap<P, T> implements Map<String, T> {
     public ParameterMap(final P parameter, final Function<String, T> valueFunction,
             final Supplier<Enumeration<String>> namesSupplier) {
 
+        this(parameter, valueFunction, namesSupplier, false);
+    }
+
+    /**
+     * The constructor for an immutable parameter-map.
+     *
+     * @param parameter the parameter-provider
+     * @param valueFunction Function to return the value of a parameter
+     * @param namesSupplier Supplier to return all names of the parameter
+     * @param snapshot {@code true} if the bulk operations should use a
+     *        snapshot of the parameters, created on first use
+     *
+     * @since Chain 1.4
+     */
+    public ParameterMap(final P parameter, final Function<String, T> valueFunction,
+            final Supplier<Enumeration<String>> namesSupplier, final boolean snapshot) {
+
         this.parameter = parameter;
         this.valueFunction = valueFunction;
         this.namesSupplier = namesSupplier;
+        this.snapshot = snapshot;
     }
 
     /**
@@ -113,10 +163,19 @@ public class ParameterMap<P, T> implements Map<String, T> {
      */
     @Override
     public boolean containsValue(Object value) {
+        if (snapshot) {
+            for (T next : snapshot().values) {
+                if (valueEquals(value, next)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         final Enumeration<String> keys = namesSupplier.get();
         while (keys.hasMoreElements()) {
             final T next = valueFunction.apply(keys.nextElement());
-            if (value.equals(next)) {
+            if (valueEquals(value, next)) {
                 return true;
             }
         }
@@ -125,9 +184,9 @@ public class ParameterMap<P, T> implements Map<String, T> {
 
     /**
      * Returns a {@link Set} view of the mappings contained in this
-     * parameter-map. The set is not backed by the parameter-map, so
-     * changes to the parameter-map are not reflected in the set,
-     * and vice-versa.
+     * parameter-map. The set is backed by the parameter-provider, so
+     * changes to the parameters are reflected in the set. The entries
+     * are not backed by the parameter-map.
      *
      * @return a set view of the mappings contained in this
      *         parameter-map
@@ -137,6 +196,34 @@ public class ParameterMap<P, T> implements Map<String, T> {
         return entrySet(false);
     }
 
+    /**
+     * Performs the given action for each parameter of this
+     * parameter-map, without creating entries.
+     *
+     * @param action the action to be performed for each parameter
+     *
+     * @throws NullPointerException if the specified action is null
+     *
+     * @since Chain 1.4
+     */
+    @Override
+    public void forEach(BiConsumer<? super String, ? super T> action) {
+        Objects.requireNonNull(action);
+        if (snapshot) {
+            final Snapshot values = snapshot();
+            for (int i = 0; i < values.keys.length; i++) {
+                action.accept(values.keys[i], values.values[i]);
+            }
+            return;
+        }
+
+        final Enumeration<String> keys = namesSupplier.get();
+        while (keys.hasMoreElements()) {
+            final String key = keys.nextElement();
+            action.accept(key, valueFunction.apply(key));
+        }
+    }
+
     /**
      * Returns the value to which the specified key is mapped,
      * or {@code null} if this parameter-map contains no mapping
@@ -170,25 +257,26 @@ public class ParameterMap<P, T> implements Map<String, T> {
      */
     @Override
     public boolean isEmpty() {
+        if (snapshot) {
+            return snapshot().keys.length == 0;
+        }
         return !namesSupplier.get().hasMoreElements();
     }
 
     /**
      * Returns a {@link Set} view of the keys contained in this
-     * parameter-map. The set is not backed by the parameter-map, so
-     * changes to the parameter-map are not reflected in the set, and
-     * vice-versa.
+     * parameter-map. The set is backed by the parameter-provider, so
+     * changes to the parameters are reflected in the set. Removing a
+     * key from the set removes the parameter (if supported).
      *
      * @return a set view of the keys contained in this parameter-map
      */
     @Override
     public Set<String> keySet() {
-        final Set<String> set = new HashSet<>();
-        final Enumeration<String> keys = namesSupplier.get();
-        while (keys.hasMoreElements()) {
-            set.add(keys.nextElement());
+        if (snapshot) {
+            return snapshot().keySet;
         }
-        return set;
+        return new KeySet();
     }
 
     /**
@@ -258,6 +346,10 @@ public class ParameterMap<P, T> implements Map<String, T> {
      */
     @Override
     public int size() {
+        if (snapshot) {
+            return snapshot().keys.length;
+        }
+
         int n = 0;
         final Enumeration<String> keys = namesSupplier.get();
         while (keys.hasMoreElements()) {
@@ -269,20 +361,18 @@ public class ParameterMap<P, T> implements Map<String, T> {
 
     /**
      * Returns a {@link Collection} view of the values contained in
-     * this parameter-map. The collection is not backed by the
-     * parameter-map, so changes to the parameter-map are not
-     * reflected in the collection, and vice-versa.
+     * this parameter-map. The collection is backed by the
+     * parameter-provider, so changes to the parameters are reflected
+     * in the collection.
      *
      * @return a view of the values contained in this parameter-map
      */
     @Override
     public Collection<T> values() {
-        final List<T> list = new ArrayList<>();
-        final Enumeration<String> keys = namesSupplier.get();
-        while (keys.hasMoreElements()) {
-            list.add(valueFunction.apply(keys.nextElement()));
+        if (snapshot) {
+            return snapshot().valueList;
         }
-        return list;
+        return new Values();
     }
 
     /**
@@ -353,7 +443,7 @@ public class ParameterMap<P, T> implements Map<String, T> {
      */
     public String toString() {
         final Iterator<Entry<String, T>> entries = entrySet().iterator();
-        if (entries.hasNext()) {
+        if (!entries.hasNext()) {
             return "{}";
         }
 
@@ -418,13 +508,51 @@ public class ParameterMap<P, T> implements Map<String, T> {
      * @return a set view of the mappings contained in this map
      */
     protected Set<Map.Entry<String, T>> entrySet(boolean modifiable) {
-        final Set<Map.Entry<String, T>> set = new HashSet<>();
-        final Enumeration<String> keys = namesSupplier.get();
-        while (keys.hasMoreElements()) {
-            final String key = keys.nextElement();
-            set.add(new MapEntry<>(key, valueFunction.apply(key), modifiable));
+        if (snapshot && !modifiable) {
+            return snapshot().entrySet();
+        }
+        return new EntrySet(modifiable);
+    }
+
+    /**
+     * Returns {@code true} if the bulk operations use a snapshot of the
+     * parameters.
+     *
+     * @return {@code true} in snapshot mode
+     *
+     * @since Chain 1.4
+     */
+    protected boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Compares a value of this parameter-map with the value searched
+     * by {@link #containsValue(Object)}.
+     *
+     * @param value the searched value
+     * @param next a value of this parameter-map
+     *
+     * @return {@code true} if the values are equal
+     *
+     * @since Chain 1.4
+     */
+    protected boolean valueEquals(Object value, T next) {
+        return value.equals(next);
+    }
+
+    /**
+     * Returns the snapshot of the parameters, creating it on first use.
+     *
+     * @return the snapshot of the parameters
+     */
+    private Snapshot snapshot() {
+        Snapshot ret = snapshotValues;
+        if (ret == null) {
+            ret = new Snapshot();
+            snapshotValues = ret;
         }
-        return set;
+        return ret;
     }
 
     /**
@@ -443,4 +571,310 @@ public class ParameterMap<P, T> implements Map<String, T> {
             return key.toString();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Iterator over the current parameter names, mapping each name to
+     * an element of a view. The enumeration of the names may be backed
+     * by the parameters, so the remaining names are copied before the
+     * first removal.
+     *
+     * @param <E> the type of the elements
+     */
+    private abstract class ViewIterator<E> implements Iterator<E> {
+
+        /**
+         * The enumeration of the parameter names.
+         */
+        private Enumeration<String> keys = namesSupplier.get();
+
+        /**
+         * Have the remaining parameter names been copied?
+         */
+        private boolean copied = false;
+
+        /**
+         * The name of the last returned element or {@code null}.
+         */
+        private String last = null;
+
+        @Override
+        public boolean hasNext() {
+            return keys.hasMoreElements();
+        }
+
+        @Override
+        public E next() {
+            last = keys.nextElement();
+            return element(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            if (!copied) {
+                keys = Collections.enumeration(Collections.list(keys));
+                copied = true;
+            }
+            ParameterMap.this.remove(last);
+            last = null;
+        }
+
+        /**
+         * Returns the element for a parameter name.
+         *
+         * @param key the parameter name
+         *
+         * @return the element
+         */
+        abstract E element(String key);
+    }
+
+    /**
+     * Key view backed by the parameter-provider.
+     */
+    private final class KeySet extends AbstractSet<String> {
+
+        @Override
+        public Iterator<String> iterator() {
+            return new ViewIterator<String>() {
+                @Override
+                String element(String key) {
+                    return key;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ParameterMap.this.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ParameterMap.this.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o != null && containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) {
+                return false;
+            }
+            ParameterMap.this.remove(o);
+            return true;
+        }
+
+        @Override
+        public void forEach(Consumer<? super String> action) {
+            Objects.requireNonNull(action);
+            final Enumeration<String> keys = namesSupplier.get();
+            while (keys.hasMoreElements()) {
+                action.accept(keys.nextElement());
+            }
+        }
+
+        @Override
+        public Spliterator<String> spliterator() {
+            return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+    }
+
+    /**
+     * Value view backed by the parameter-provider.
+     */
+    private final class Values extends AbstractCollection<T> {
+
+        @Override
+        public Iterator<T> iterator() {
+            return new ViewIterator<T>() {
+                @Override
+                T element(String key) {
+                    return valueFunction.apply(key);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ParameterMap.this.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ParameterMap.this.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o != null && containsValue(o);
+        }
+
+        @Override
+        public void forEach(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            final Enumeration<String> keys = namesSupplier.get();
+            while (keys.hasMoreElements()) {
+                action.accept(valueFunction.apply(keys.nextElement()));
+            }
+        }
+
+        @Override
+        public Spliterator<T> spliterator() {
+            return Spliterators.spliteratorUnknownSize(iterator(), 0);
+        }
+    }
+
+    /**
+     * Entry view backed by the parameter-provider.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<String, T>> {
+
+        /**
+         * Whether the entries should allow modification or not.
+         */
+        private final boolean modifiable;
+
+        /**
+         * Construct a new entry view.
+         *
+         * @param modifiable Whether the entries should allow
+         *                   modification or not
+         */
+        EntrySet(boolean modifiable) {
+            this.modifiable = modifiable;
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, T>> iterator() {
+            return new ViewIterator<Map.Entry<String, T>>() {
+                @Override
+                Map.Entry<String, T> element(String key) {
+                    return new MapEntry<>(key, valueFunction.apply(key), modifiable);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ParameterMap.this.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ParameterMap.this.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            if (entry.getKey() == null || entry.getValue() == null) {
+                return false;
+            }
+            return valueEquals(entry.getValue(), get(entry.getKey()));
+        }
+
+        @Override
+        public Spliterator<Map.Entry<String, T>> spliterator() {
+            return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+    }
+
+    /**
+     * Snapshot of the names and values of the parameters.
+     */
+    private final class Snapshot {
+
+        /**
+         * The names of the parameters.
+         */
+        final String[] keys;
+
+        /**
+         * The values of the parameters in the order of {@link #keys}.
+         */
+        final T[] values;
+
+        /**
+         * The unmodifiable view of the names.
+         */
+        final Set<String> keySet;
+
+        /**
+         * The unmodifiable view of the values.
+         */
+        final Collection<T> valueList;
+
+        /**
+         * The view of the mappings, created on first use.
+         */
+        private Set<Map.Entry<String, T>> entries = null;
+
+        /**
+         * Read the names and values of all parameters.
+         */
+        @SuppressWarnings("unchecked")
+        Snapshot() {
+            final List<String> names = Collections.list(namesSupplier.get());
+            keys = names.toArray(new String[0]);
+            values = (T[]) new Object[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                values[i] = valueFunction.apply(keys[i]);
+            }
+
+            final List<String> keyList = Collections.unmodifiableList(Arrays.asList(keys));
+            keySet = new AbstractSet<String>() {
+                @Override
+                public Iterator<String> iterator() {
+                    return keyList.iterator();
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return keyList.contains(o);
+                }
+            };
+            valueList = Collections.unmodifiableList(Arrays.asList(values));
+        }
+
+        /**
+         * Returns the unmodifiable view of the mappings.
+         *
+         * @return the view of the mappings
+         */
+        Set<Map.Entry<String, T>> entrySet() {
+            if (entries == null) {
+                final List<Map.Entry<String, T>> list = new ArrayList<>(keys.length);
+                for (int i = 0; i < keys.length; i++) {
+                    list.add(new MapEntry<>(keys[i], values[i], false));
+                }
+                final List<Map.Entry<String, T>> entryList = Collections.unmodifiableList(list);
+                entries = new AbstractSet<Map.Entry<String, T>>() {
+                    @Override
+                    public Iterator<Map.Entry<String, T>> iterator() {
+                        return entryList.iterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return entryList.size();
+                    }
+                };
+            }
+            return entries;
+        }
+    }
+}
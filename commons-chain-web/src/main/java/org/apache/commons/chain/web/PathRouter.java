@@ -0,0 +1,480 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.web;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Router which maps request paths to values by means of a compressed
+ * radix trie, so that the cost of a lookup depends on the length of the
+ * path and not on the number of routes.
+ *
+ * <p>A route pattern consists of static text, path parameters and an
+ * optional trailing wildcard:</p>
+ * <ul>
+ * <li>{@code /orders} matches exactly this path.</li>
+ * <li>{@code /orders/{id}} matches one non-empty path segment and
+ *     extracts it as parameter {@code id}. A parameter must span a whole
+ *     segment.</li>
+ * <li>{@code /static/*} matches the remainder of the path (which may be
+ *     empty) and extracts it as parameter {@value #WILDCARD}. A wildcard
+ *     is only allowed as last segment.</li>
+ * </ul>
+ *
+ * <p>Routes may be restricted to a HTTP method; a route without method
+ * matches any method, unless a route with the same pattern is registered
+ * for the requested method. Static text takes precedence over
+ * parameters, and parameters take precedence over wildcards. Different
+ * parameter names at the same position of two routes are rejected.</p>
+ *
+ * <p>Routes must be added before the router is used concurrently; the
+ * lookup methods are thread-safe as long as the router is not
+ * modified.</p>
+ *
+ * @param <T> type of the route values
+ *
+ * @since Chain 1.4
+ */
+public class PathRouter<T> {
+
+    // ------------------------------------------------------ Manifest Constants
+
+    /**
+     * The name of the parameter containing the path matched by a
+     * wildcard.
+     */
+    public static final String WILDCARD = "*";
+
+    // ------------------------------------------------------ Instance Variables
+
+    /**
+     * The root of the trie.
+     */
+    private final Node<T> root = new Node<>("");
+
+    /**
+     * The number of registered routes.
+     */
+    private int size = 0;
+
+    // ------------------------------------------------------------ Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public PathRouter() {
+    }
+
+    // ---------------------------------------------------------- Public Methods
+
+    /**
+     * Add a route matching any HTTP method.
+     *
+     * @param pattern the route pattern
+     * @param value the value of the route
+     *
+     * @return the previous value of the route, or {@code null}
+     *
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public T add(String pattern, T value) {
+        return add(null, pattern, value);
+    }
+
+    /**
+     * Add a route matching the specified HTTP method.
+     *
+     * @param method the HTTP method, or {@code null} for any method
+     * @param pattern the route pattern
+     * @param value the value of the route
+     *
+     * @return the previous value of the route, or {@code null}
+     *
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public T add(String method, String pattern, T value) {
+        Objects.requireNonNull(pattern, "pattern");
+        Objects.requireNonNull(value, "value");
+
+        Node<T> node = root;
+        int pos = 0;
+        while (pos < pattern.length()) {
+            final char ch = pattern.charAt(pos);
+            if (ch == '{') {
+                final int end = pattern.indexOf('}', pos);
+                if (end < 0 || (pos > 0 && pattern.charAt(pos - 1) != '/')
+                        || (end + 1 < pattern.length() && pattern.charAt(end + 1) != '/')) {
+                    throw new IllegalArgumentException("Parameter must span a whole segment in '" + pattern + "'");
+                }
+                final String name = pattern.substring(pos + 1, end);
+                if (name.isEmpty() || name.indexOf('{') >= 0 || WILDCARD.equals(name)) {
+                    throw new IllegalArgumentException("Invalid parameter name in '" + pattern + "'");
+                }
+                if (node.param == null) {
+                    node.param = new Node<>("");
+                    node.param.name = name;
+                } else if (!node.param.name.equals(name)) {
+                    throw new IllegalArgumentException("Parameter '" + name + "' in '" + pattern
+                            + "' conflicts with parameter '" + node.param.name + "'");
+                }
+                node = node.param;
+                pos = end + 1;
+            } else if (ch == '*') {
+                if (pos + 1 != pattern.length() || (pos > 0 && pattern.charAt(pos - 1) != '/')) {
+                    throw new IllegalArgumentException("Wildcard must be the last segment in '" + pattern + "'");
+                }
+                if (node.wildcard == null) {
+                    node.wildcard = new Node<>("");
+                }
+                node = node.wildcard;
+                pos++;
+            } else {
+                int end = pos;
+                while (end < pattern.length() && pattern.charAt(end) != '{' && pattern.charAt(end) != '*') {
+                    end++;
+                }
+                node = node.insert(pattern.substring(pos, end));
+                pos = end;
+            }
+        }
+
+        if (node.values == null) {
+            node.values = new HashMap<>(4);
+            node.pattern = pattern;
+        }
+        final T previous = node.values.put(method, value);
+        if (previous == null) {
+            size++;
+        }
+        return previous;
+    }
+
+    /**
+     * Return the number of routes.
+     *
+     * @return the number of routes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Look up the route matching the specified HTTP method and path.
+     *
+     * @param method the HTTP method, or {@code null} to match only routes
+     *        without method
+     * @param path the path to match
+     *
+     * @return the match or {@code null} if no route matches
+     */
+    public Match<T> match(String method, String path) {
+        if (path == null) {
+            return null;
+        }
+        final List<String> params = new ArrayList<>(4);
+        return root.match(method, path, 0, params);
+    }
+
+    // ----------------------------------------------------------- Inner Classes
+
+    /**
+     * The result of a successful lookup.
+     *
+     * @param <T> type of the route values
+     */
+    public static final class Match<T> {
+
+        /**
+         * The value of the matched route.
+         */
+        private final T value;
+
+        /**
+         * The pattern of the matched route.
+         */
+        private final String pattern;
+
+        /**
+         * The extracted parameters.
+         */
+        private final Map<String, String> parameters;
+
+        /**
+         * Construct a new match.
+         *
+         * @param value the value of the matched route
+         * @param pattern the pattern of the matched route
+         * @param params the alternating names and values of the
+         *        extracted parameters
+         */
+        Match(T value, String pattern, List<String> params) {
+            this.value = value;
+            this.pattern = pattern;
+            if (params.isEmpty()) {
+                this.parameters = Collections.emptyMap();
+            } else {
+                final Map<String, String> map = new LinkedHashMap<>(params.size());
+                for (int i = 0; i < params.size(); i += 2) {
+                    map.put(params.get(i), params.get(i + 1));
+                }
+                this.parameters = Collections.unmodifiableMap(map);
+            }
+        }
+
+        /**
+         * Return the value of the matched route.
+         *
+         * @return the value
+         */
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * Return the pattern of the matched route.
+         *
+         * @return the pattern
+         */
+        public String getPattern() {
+            return pattern;
+        }
+
+        /**
+         * Return the extracted parameters in the order of the pattern.
+         *
+         * @return the unmodifiable parameters, keyed by name
+         */
+        public Map<String, String> getParameters() {
+            return parameters;
+        }
+    }
+
+    /**
+     * A node of the trie. Static children are compressed, i.e. a node
+     * holds the longest common prefix of its static routes.
+     *
+     * @param <T> type of the route values
+     */
+    private static final class Node<T> {
+
+        /**
+         * The static text of this node.
+         */
+        String prefix;
+
+        /**
+         * The first characters of the static children.
+         */
+        char[] indices = new char[0];
+
+        /**
+         * The static children, in the order of {@link #indices}.
+         */
+        List<Node<T>> children = new ArrayList<>(0);
+
+        /**
+         * The parameter child, or {@code null}.
+         */
+        Node<T> param;
+
+        /**
+         * The name of the parameter (parameter nodes only).
+         */
+        String name;
+
+        /**
+         * The wildcard child, or {@code null}.
+         */
+        Node<T> wildcard;
+
+        /**
+         * The pattern of the routes ending at this node.
+         */
+        String pattern;
+
+        /**
+         * The values of the routes ending at this node, keyed by HTTP
+         * method ({@code null} for any method).
+         */
+        Map<String, T> values;
+
+        /**
+         * Construct a new node.
+         *
+         * @param prefix the static text
+         */
+        Node(String prefix) {
+            this.prefix = prefix;
+        }
+
+        /**
+         * Insert the static text below this node, splitting nodes as
+         * needed.
+         *
+         * @param text the static text
+         *
+         * @return the node at the end of the text
+         */
+        Node<T> insert(String text) {
+            Node<T> node = this;
+            while (!text.isEmpty()) {
+                final int index = node.indexOf(text.charAt(0));
+                if (index < 0) {
+                    final Node<T> child = new Node<>(text);
+                    node.addChild(child);
+                    return child;
+                }
+
+                Node<T> child = node.children.get(index);
+                int common = 0;
+                final int max = Math.min(child.prefix.length(), text.length());
+                while (common < max && child.prefix.charAt(common) == text.charAt(common)) {
+                    common++;
+                }
+                if (common < child.prefix.length()) {
+                    // split the child at the common prefix
+                    final Node<T> split = new Node<>(child.prefix.substring(0, common));
+                    child.prefix = child.prefix.substring(common);
+                    split.addChild(child);
+                    node.children.set(index, split);
+                    child = split;
+                }
+                node = child;
+                text = text.substring(common);
+            }
+            return node;
+        }
+
+        /**
+         * Match the path from the specified position against this node.
+         *
+         * @param method the HTTP method
+         * @param path the path
+         * @param pos the position in the path after the prefix of the
+         *        parent node
+         * @param params the alternating names and values of the
+         *        parameters extracted so far
+         *
+         * @return the match or {@code null}
+         */
+        Match<T> match(String method, String path, int pos, List<String> params) {
+            if (!path.startsWith(prefix, pos)) {
+                return null;
+            }
+            pos += prefix.length();
+
+            if (pos == path.length()) {
+                final Match<T> ret = result(method, params);
+                if (ret != null) {
+                    return ret;
+                }
+            } else {
+                final int index = indexOf(path.charAt(pos));
+                if (index >= 0) {
+                    final Match<T> ret = children.get(index).match(method, path, pos, params);
+                    if (ret != null) {
+                        return ret;
+                    }
+                }
+                if (param != null) {
+                    int end = path.indexOf('/', pos);
+                    if (end < 0) {
+                        end = path.length();
+                    }
+                    if (end > pos) {
+                        params.add(param.name);
+                        params.add(path.substring(pos, end));
+                        final Match<T> ret = param.match(method, path, end, params);
+                        if (ret != null) {
+                            return ret;
+                        }
+                        params.remove(params.size() - 1);
+                        params.remove(params.size() - 1);
+                    }
+                }
+            }
+
+            if (wildcard != null) {
+                params.add(WILDCARD);
+                params.add(path.substring(pos));
+                final Match<T> ret = wildcard.result(method, params);
+                if (ret != null) {
+                    return ret;
+                }
+                params.remove(params.size() - 1);
+                params.remove(params.size() - 1);
+            }
+            return null;
+        }
+
+        /**
+         * Return the match of the routes ending at this node.
+         *
+         * @param method the HTTP method
+         * @param params the alternating names and values of the
+         *        extracted parameters
+         *
+         * @return the match or {@code null}
+         */
+        private Match<T> result(String method, List<String> params) {
+            if (values == null) {
+                return null;
+            }
+            T value = method == null ? null : values.get(method);
+            if (value == null) {
+                value = values.get(null);
+            }
+            return value == null ? null : new Match<>(value, pattern, params);
+        }
+
+        /**
+         * Return the index of the static child starting with the
+         * specified character.
+         *
+         * @param ch the first character
+         *
+         * @return the index or {@code -1}
+         */
+        private int indexOf(char ch) {
+            for (int i = 0; i < indices.length; i++) {
+                if (indices[i] == ch) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Add a static child.
+         *
+         * @param child the child
+         */
+        private void addChild(Node<T> child) {
+            final char[] tmp = new char[indices.length + 1];
+            System.arraycopy(indices, 0, tmp, 0, indices.length);
+            tmp[indices.length] = child.prefix.charAt(0);
+            indices = tmp;
+            children.add(child);
+        }
+    }
+}
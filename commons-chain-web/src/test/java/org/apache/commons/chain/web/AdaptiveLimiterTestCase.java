@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link AdaptiveLimiter}.
+ */
+public class AdaptiveLimiterTestCase {
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public AdaptiveLimiterTestCase() {
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test admission up to the limit.
+     */
+    @Test
+    public void testAcquire() {
+        final AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 10);
+        final AdaptiveLimiter.Permit first = limiter.acquire();
+        assertNotNull(first);
+        assertNotNull(limiter.acquire());
+        assertNull(limiter.acquire());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getRejectedCount());
+
+        first.release();
+        first.drop();
+        assertEquals(1, limiter.getInFlight());
+        assertNotNull(limiter.acquire());
+    }
+
+    /**
+     * Test that the limit grows at constant latency.
+     */
+    @Test
+    public void testGrow() {
+        final AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 30);
+        for (int i = 0; i < 50; i++) {
+            window(limiter, 1_000_000L, false, true);
+        }
+        assertEquals(30, limiter.getLimit());
+    }
+
+    /**
+     * Test that the limit doesn't grow if it isn't used.
+     */
+    @Test
+    public void testUnused() {
+        final AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 30);
+        for (int i = 0; i < 50; i++) {
+            window(limiter, 1_000_000L, false, false);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    /**
+     * Test that the limit shrinks at rising latency.
+     */
+    @Test
+    public void testShrink() {
+        final AdaptiveLimiter limiter = new AdaptiveLimiter(50, 5, 100);
+        window(limiter, 1_000_000L, false, true);
+        final int limit = limiter.getLimit();
+        for (int i = 0; i < 20; i++) {
+            window(limiter, 10_000_000L, false, true);
+        }
+        assertTrue(limiter.getLimit() < limit / 2, "limit " + limiter.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            window(limiter, 10_000_000L, true, true);
+        }
+        assertEquals(5, limiter.getLimit());
+    }
+
+    /**
+     * Test invalid limits.
+     */
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(0, 0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(20, 1, 10));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveLimiter(5, 6, 10));
+    }
+
+    // -------------------------------------------------------- Support Methods
+
+    /**
+     * Record a complete window of samples.
+     *
+     * @param limiter the limiter
+     * @param latency the latency of each request in nanoseconds
+     * @param dropped are the requests dropped?
+     * @param used is the limit used?
+     */
+    private static void window(AdaptiveLimiter limiter, long latency, boolean dropped, boolean used) {
+        final int limit = limiter.getLimit();
+        final int concurrency = used ? limit : 1;
+        for (int i = 0; i < Math.max(10, limit); i++) {
+            limiter.sample(latency, concurrency, dropped);
+        }
+    }
+}
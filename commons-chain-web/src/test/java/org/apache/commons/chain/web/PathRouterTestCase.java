@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.web;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for {@link PathRouter}.
+ */
+public class PathRouterTestCase {
+
+    // ---------------------------------------------------- Instance Variables
+
+    /**
+     * The router under test.
+     */
+    protected PathRouter<String> router = null;
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public PathRouterTestCase() {
+    }
+
+    // -------------------------------------------------- Overall Test Methods
+
+    /**
+     * Set up instance variables required by this test case.
+     */
+    @BeforeEach
+    public void setUp() {
+        router = new PathRouter<>();
+        router.add("/", "root");
+        router.add("/orders", "orders");
+        router.add("/orders/{id}", "order");
+        router.add("/orders/{id}/items/{item}", "item");
+        router.add("/orders/new", "newOrder");
+        router.add("/order-history", "history");
+        router.add("GET", "/users/{name}", "getUser");
+        router.add("DELETE", "/users/{name}", "deleteUser");
+        router.add("/static/*", "static");
+        router.add("/files/{dir}/list", "list");
+        router.add("/files/*", "files");
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test matching static routes.
+     */
+    @Test
+    public void testStatic() {
+        assertEquals(11, router.size());
+        checkMatch("root", Collections.emptyMap(), "GET", "/");
+        checkMatch("orders", Collections.emptyMap(), "GET", "/orders");
+        checkMatch("history", Collections.emptyMap(), "GET", "/order-history");
+        checkMatch("newOrder", Collections.emptyMap(), "GET", "/orders/new");
+        assertNull(router.match("GET", "/order"));
+        assertNull(router.match("GET", "/orders-x"));
+        assertNull(router.match("GET", ""));
+        assertNull(router.match("GET", null));
+    }
+
+    /**
+     * Test matching path parameters.
+     */
+    @Test
+    public void testParameters() {
+        checkMatch("order", Collections.singletonMap("id", "42"), "GET", "/orders/42");
+        assertEquals("/orders/{id}/items/{item}",
+                router.match("GET", "/orders/42/items/7").getPattern());
+        assertEquals("{id=42, item=7}",
+                router.match("GET", "/orders/42/items/7").getParameters().toString());
+        assertNull(router.match("GET", "/orders/"));
+        assertNull(router.match("GET", "/orders/42/items"));
+        assertNull(router.match("GET", "/orders/42/items/7/x"));
+    }
+
+    /**
+     * Test matching wildcards, including backtracking from a parameter.
+     */
+    @Test
+    public void testWildcard() {
+        checkMatch("static", Collections.singletonMap(PathRouter.WILDCARD, "css/site.css"),
+                "GET", "/static/css/site.css");
+        checkMatch("static", Collections.singletonMap(PathRouter.WILDCARD, ""), "GET", "/static/");
+        checkMatch("list", Collections.singletonMap("dir", "docs"), "GET", "/files/docs/list");
+        checkMatch("files", Collections.singletonMap(PathRouter.WILDCARD, "docs/readme"),
+                "GET", "/files/docs/readme");
+    }
+
+    /**
+     * Test matching HTTP methods.
+     */
+    @Test
+    public void testMethods() {
+        checkMatch("getUser", Collections.singletonMap("name", "joe"), "GET", "/users/joe");
+        checkMatch("deleteUser", Collections.singletonMap("name", "joe"), "DELETE", "/users/joe");
+        assertNull(router.match("POST", "/users/joe"));
+        assertNull(router.match(null, "/users/joe"));
+
+        router.add("/users/{name}", "anyUser");
+        checkMatch("anyUser", Collections.singletonMap("name", "joe"), "POST", "/users/joe");
+        checkMatch("getUser", Collections.singletonMap("name", "joe"), "GET", "/users/joe");
+
+        assertEquals("anyUser", router.add("/users/{name}", "otherUser"));
+        assertEquals(12, router.size());
+    }
+
+    /**
+     * Test invalid patterns.
+     */
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> router.add("/orders/{key}", "x"));
+        assertThrows(IllegalArgumentException.class, () -> router.add("/orders/x{id}", "x"));
+        assertThrows(IllegalArgumentException.class, () -> router.add("/orders/{id}x", "x"));
+        assertThrows(IllegalArgumentException.class, () -> router.add("/orders/{id", "x"));
+        assertThrows(IllegalArgumentException.class, () -> router.add("/orders/{}", "x"));
+        assertThrows(IllegalArgumentException.class, () -> router.add("/static/*/x", "x"));
+        assertThrows(IllegalArgumentException.class, () -> router.add("/static*", "x"));
+    }
+
+    // -------------------------------------------------------- Support Methods
+
+    /**
+     * Check the match of a path.
+     *
+     * @param expected the expected value
+     * @param parameters the expected parameters
+     * @param method the HTTP method
+     * @param path the path
+     */
+    protected void checkMatch(String expected, Map<String, String> parameters, String method, String path) {
+        PathRouter.Match<String> match = router.match(method, path);
+        assertEquals(expected, match == null ? null : match.getValue(), path);
+        assertEquals(parameters, match.getParameters(), path);
+    }
+}
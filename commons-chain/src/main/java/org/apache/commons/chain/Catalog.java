@@ -17,6 +17,7 @@
 package org.apache.commons.chain;
 
 import java.util.Iterator;
+import java.util.function.Supplier;
 
 /**
  * A {@link Catalog} is a collection of named {@link Command}s (or
@@ -50,6 +51,26 @@ public interface Catalog<C extends Context> {
      */
     <CMD extends Command<C>> void addCommand(String name, CMD command);
 
+    /**
+     * Add a new name and a factory for the associated {@link Command} or
+     * {@link Chain} to the set of named commands known to this
+     * {@link Catalog}, replacing any previous command for that name. The
+     * command is created by the factory when it is looked up for the
+     * first time.
+     *
+     * <p>The default implementation creates the command immediately and
+     * adds it with {@link #addCommand(String, Command)}.</p>
+     *
+     * @param name Name of the new command
+     * @param factory factory which creates the {@link Command} or
+     *        {@link Chain} to be returned for later lookups on this name
+     *
+     * @since Chain 1.4
+     */
+    default void addLazyCommand(String name, Supplier<? extends Command<C>> factory) {
+        addCommand(name, factory.get());
+    }
+
     /**
      * Return the {@link Command} or {@link Chain} associated with the
      * specified name, if any; otherwise, return {@code null}.
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which the processing of a {@link Context} should be
+ * finished. A deadline is carried in the context attribute {@link #KEY},
+ * so that it is propagated to all {@link Command}s processing the
+ * context, which may check it and give up early.
+ *
+ * <p>Deadlines are measured with {@link System#nanoTime()}, so they are
+ * only meaningful within the same JVM. Instances are immutable.</p>
+ *
+ * @since Chain 1.4
+ */
+public final class Deadline implements Comparable<Deadline> {
+
+    // ------------------------------------------------------ Manifest Constants
+
+    /**
+     * The context attribute holding the current deadline.
+     */
+    public static final String KEY = "org.apache.commons.chain.DEADLINE";
+
+    // ------------------------------------------------------ Instance Variables
+
+    /**
+     * The deadline in nanoseconds of {@link System#nanoTime()}.
+     */
+    private final long nanoTime;
+
+    // ------------------------------------------------------------ Constructors
+
+    /**
+     * Construct a deadline.
+     *
+     * @param nanoTime the deadline in nanoseconds of
+     *        {@link System#nanoTime()}
+     */
+    private Deadline(long nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return a deadline after the specified duration from now. Durations
+     * beyond {@code Long.MAX_VALUE / 2} nanoseconds (about 146 years) are
+     * clamped, so that the deadline can still be compared.
+     *
+     * @param duration the duration
+     * @param unit the unit of the duration
+     *
+     * @return the deadline
+     */
+    public static Deadline after(long duration, TimeUnit unit) {
+        final long nanos = Math.min(unit.toNanos(duration), Long.MAX_VALUE / 2);
+        return new Deadline(System.nanoTime() + nanos);
+    }
+
+    /**
+     * Return the deadline of a context.
+     *
+     * @param context the context
+     *
+     * @return the deadline, or {@code null} if there is none
+     */
+    public static Deadline get(Map<String, Object> context) {
+        final Object value = context.get(KEY);
+        return value instanceof Deadline ? (Deadline) value : null;
+    }
+
+    /**
+     * Set the deadline of a context, unless the context already has an
+     * earlier deadline.
+     *
+     * @param context the context
+     * @param deadline the new deadline
+     *
+     * @return the previous deadline, or {@code null} if there was none,
+     *         which may be passed to {@link #restore(Map, Deadline)}
+     */
+    public static Deadline narrow(Map<String, Object> context, Deadline deadline) {
+        final Deadline previous = get(context);
+        if (previous == null || deadline.compareTo(previous) < 0) {
+            context.put(KEY, deadline);
+        }
+        return previous;
+    }
+
+    /**
+     * Restore the previous deadline of a context.
+     *
+     * @param context the context
+     * @param previous the previous deadline returned by
+     *        {@link #narrow(Map, Deadline)}, or {@code null}
+     */
+    public static void restore(Map<String, Object> context, Deadline previous) {
+        if (previous == null) {
+            context.remove(KEY);
+        } else {
+            context.put(KEY, previous);
+        }
+    }
+
+    /**
+     * Throw a {@link DeadlineExceededException} if the deadline of a
+     * context has expired.
+     *
+     * @param context the context
+     *
+     * @throws DeadlineExceededException if the deadline has expired
+     */
+    public static void check(Map<String, Object> context) throws DeadlineExceededException {
+        final Deadline deadline = get(context);
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException("Deadline exceeded by "
+                    + -deadline.timeRemaining(TimeUnit.MILLISECONDS) + " ms");
+        }
+    }
+
+    /**
+     * Has this deadline expired?
+     *
+     * @return {@code true} if the deadline has expired
+     */
+    public boolean isExpired() {
+        return System.nanoTime() - nanoTime >= 0;
+    }
+
+    /**
+     * Return the time remaining until this deadline.
+     *
+     * @param unit the unit of the result
+     *
+     * @return the remaining time, which is negative if the deadline has
+     *         expired
+     */
+    public long timeRemaining(TimeUnit unit) {
+        return unit.convert(nanoTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Compare this deadline with another deadline.
+     *
+     * @param other the other deadline
+     *
+     * @return a negative value if this deadline is earlier, zero if equal
+     *         and a positive value if later
+     */
+    @Override
+    public int compareTo(Deadline other) {
+        return Long.signum(nanoTime - other.nanoTime);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Deadline && ((Deadline) obj).nanoTime == nanoTime;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(nanoTime);
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline[" + timeRemaining(TimeUnit.MILLISECONDS) + " ms remaining]";
+    }
+}
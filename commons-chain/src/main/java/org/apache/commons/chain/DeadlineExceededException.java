@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Thrown when the {@link Deadline} of a {@link Context} has expired or a
+ * {@link Command} has exceeded its time budget. Like any other
+ * exception, it may be handled by the {@code postprocess()} method of a
+ * {@link Filter}.
+ *
+ * @since Chain 1.4
+ */
+public class DeadlineExceededException extends TimeoutException {
+    private static final long serialVersionUID = 4203764151394316847L;
+
+    /**
+     * Construct an exception with the specified detail message.
+     *
+     * @param message the detail message
+     */
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.config;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.beanutils.BeanUtils;
+import org.apache.commons.beanutils.BeanUtilsBean;
+import org.apache.commons.beanutils.ConvertUtilsBean;
+import org.apache.commons.beanutils.Converter;
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.MethodUtils;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.commons.beanutils.expression.Resolver;
+import org.xml.sax.Attributes;
+
+/**
+ * Cached plan for binding attribute values to the properties of a
+ * class. The plan is computed once per class and holds a method handle
+ * for each simple writable property and the names of all writable
+ * properties, so that repeated elements of the same class are bound with
+ * direct setter calls instead of introspecting the class for each element.
+ *
+ * <p>The binding follows {@link BeanUtils#populate(Object, Map)}: unknown
+ * properties and properties without a setter are ignored. Nested, indexed
+ * and mapped property names, array typed properties and {@link DynaBean}s
+ * are delegated to {@link BeanUtils#setProperty(Object, String, Object)}.</p>
+ *
+ * <p>The plans are shared by all class loaders, so the {@link Converter}
+ * for a property type is not part of the plan, but looked up from the
+ * current {@link BeanUtilsBean} for each value.</p>
+ *
+ * @since Chain 1.4
+ */
+final class BindingPlan {
+
+    // ------------------------------------------------------ Static Variables
+
+    /**
+     * The cached plans, keyed by class.
+     */
+    private static final ClassValue<BindingPlan> PLANS = new ClassValue<BindingPlan>() {
+        @Override
+        protected BindingPlan computeValue(Class<?> type) {
+            return new BindingPlan(type);
+        }
+    };
+
+    /**
+     * The generic type of the setter handles.
+     */
+    private static final MethodType SETTER_TYPE =
+        MethodType.methodType(void.class, Object.class, Object.class);
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The setters of the simple writable properties, keyed by property
+     * name.
+     */
+    private final Map<String, Setter> setters = new HashMap<>();
+
+    /**
+     * The names of all writable properties, including those which are
+     * delegated to {@code BeanUtils}.
+     */
+    private final Set<String> writable = new HashSet<>();
+
+    /**
+     * Should all properties be delegated to {@code BeanUtils}?
+     */
+    private final boolean dynamic;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Create the plan for the specified class.
+     *
+     * @param type the class of the beans to bind
+     */
+    private BindingPlan(Class<?> type) {
+        this.dynamic = DynaBean.class.isAssignableFrom(type);
+        if (dynamic) {
+            return;
+        }
+
+        final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        for (PropertyDescriptor pd : PropertyUtils.getPropertyDescriptors(type)) {
+            if (pd.getWriteMethod() == null) {
+                continue;
+            }
+
+            writable.add(pd.getName());
+            final Method method = MethodUtils.getAccessibleMethod(type, pd.getWriteMethod());
+            if (method == null || method.getParameterCount() != 1) {
+                continue;
+            }
+
+            final Class<?> propertyType = method.getParameterTypes()[0];
+            if (propertyType.isArray()) {
+                // arrays are converted specially by BeanUtils
+                continue;
+            }
+
+            try {
+                final MethodHandle handle = lookup.unreflect(method).asType(SETTER_TYPE);
+                setters.put(pd.getName(), new Setter(handle, propertyType));
+            } catch (IllegalAccessException e) {
+                // not accessible via method handle, use BeanUtils
+            }
+        }
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Return the cached plan for the specified class.
+     *
+     * @param type the class of the beans to bind
+     *
+     * @return the plan for the class
+     */
+    static BindingPlan forClass(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    /**
+     * Bind all attributes of an element to the properties of the bean.
+     * Like the set-properties rule of Digester, the local name of an
+     * attribute is used, or the qualified name if it is empty.
+     *
+     * @param bean the bean to bind
+     * @param attributes the attributes of the element
+     *
+     * @throws Exception if a property can't be set
+     */
+    void bind(Object bean, Attributes attributes) throws Exception {
+        for (int i = 0; i < attributes.getLength(); i++) {
+            String name = attributes.getLocalName(i);
+            if (name == null || name.isEmpty()) {
+                name = attributes.getQName(i);
+            }
+            bind(bean, name, attributes.getValue(i));
+        }
+    }
+
+    /**
+     * Bind all values to the properties of the bean.
+     *
+     * @param bean the bean to bind
+     * @param values the property values, keyed by property name
+     *
+     * @throws Exception if a property can't be set
+     */
+    void bind(Object bean, Map<String, String> values) throws Exception {
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            bind(bean, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Bind a single value to a property of the bean.
+     *
+     * @param bean the bean to bind
+     * @param name the name of the property
+     * @param value the value of the property
+     *
+     * @throws Exception if the property can't be set
+     */
+    void bind(Object bean, String name, String value) throws Exception {
+        final Setter setter = dynamic ? null : setters.get(name);
+        if (setter == null) {
+            if (dynamic || writable.contains(name) || !isSimple(name)) {
+                // not a simple writable property: use BeanUtils
+                BeanUtils.setProperty(bean, name, value);
+            }
+            // else unknown or read-only property, ignored like BeanUtils
+            return;
+        }
+
+        final Object converted = setter.type == String.class
+                ? value
+                : converter(setter.type).convert(setter.type, value);
+        try {
+            setter.handle.invokeExact(bean, converted);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Is the specified name a simple property name, which is neither
+     * nested, indexed nor mapped?
+     *
+     * @param name the name of the property
+     *
+     * @return {@code true} for a simple property name
+     */
+    private static boolean isSimple(String name) {
+        final Resolver resolver = BeanUtilsBean.getInstance().getPropertyUtils().getResolver();
+        return !resolver.hasNested(name) && !resolver.isIndexed(name) && !resolver.isMapped(name);
+    }
+
+    /**
+     * Return the converter for the specified type, which is registered
+     * with the current {@code BeanUtilsBean}.
+     *
+     * @param type the type of the property
+     *
+     * @return the converter for the type
+     */
+    private static Converter converter(Class<?> type) {
+        final ConvertUtilsBean convertUtils = BeanUtilsBean.getInstance().getConvertUtils();
+        final Converter converter = convertUtils.lookup(type);
+        return converter == null ? convertUtils.lookup(String.class) : converter;
+    }
+
+    // --------------------------------------------------------- Inner Classes
+
+    /**
+     * The cached setter of a single property.
+     */
+    private static final class Setter {
+
+        /**
+         * The setter handle of type {@code (Object, Object)void}.
+         */
+        final MethodHandle handle;
+
+        /**
+         * The type of the property.
+         */
+        final Class<?> type;
+
+        /**
+         * Construct a new setter.
+         *
+         * @param handle the setter handle
+         * @param type the type of the property
+         */
+        Setter(MethodHandle handle, Class<?> type) {
+            this.handle = handle;
+            this.type = type;
+        }
+    }
+}
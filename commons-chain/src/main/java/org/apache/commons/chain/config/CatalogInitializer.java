@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.config;
+
+import java.util.Collections;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import org.apache.commons.chain.Catalog;
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Context;
+
+/**
+ * Service-provider interface for classes that register {@link Catalog}s
+ * and their commands with a {@link CatalogFactory} through plain Java
+ * code, instead of parsing an XML configuration resource at runtime.
+ *
+ * <p>Implementations are usually generated at compile time (for example by
+ * the annotation processor of the {@code commons-chain-processor} module)
+ * and registered in
+ * {@code META-INF/services/org.apache.commons.chain.config.CatalogInitializer},
+ * so that they can be discovered with {@link ServiceLoader}. Because the
+ * generated code calls the constructors and setters directly, no
+ * reflection is needed to build the catalogs.</p>
+ *
+ * <p>Implementations must provide a public zero-args constructor.</p>
+ *
+ * @since Chain 1.4
+ */
+public interface CatalogInitializer {
+
+    /**
+     * Register the catalogs and commands of this initializer with the
+     * specified {@link CatalogFactory}. Catalogs which already exist in
+     * the factory are updated, missing catalogs are created.
+     *
+     * @param factory the {@link CatalogFactory} to be populated
+     *
+     * @throws Exception if a catalog or command could not be created
+     */
+    void initialize(CatalogFactory<Context> factory) throws Exception;
+
+    /**
+     * Return the names of the configuration resources compiled into this
+     * initializer, so that they are not parsed again at runtime. Class
+     * loader resources are named as for {@code ClassLoader.getResource()},
+     * web application resources as for {@code ServletContext.getResource()}
+     * (starting with {@code /}).
+     *
+     * @return the names of the compiled resources, empty by default
+     */
+    default Set<String> getResources() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Discover all {@link CatalogInitializer}s visible to the specified
+     * class loader with {@link ServiceLoader} and apply them to the
+     * {@link CatalogFactory} of the current application.
+     *
+     * @param loader the class loader used to locate the providers, or
+     *        {@code null} to use the system class loader
+     *
+     * @return the number of applied initializers
+     *
+     * @throws Exception if one of the initializers fails
+     */
+    static int initializeAll(ClassLoader loader) throws Exception {
+        final CatalogFactory<Context> factory = CatalogFactory.getInstance();
+        int count = 0;
+        for (CatalogInitializer initializer : ServiceLoader.load(CatalogInitializer.class, loader)) {
+            initializer.initialize(factory);
+            count++;
+        }
+        return count;
+    }
+}
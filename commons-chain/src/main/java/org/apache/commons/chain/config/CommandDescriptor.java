@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.apache.commons.chain.Chain;
+import org.apache.commons.chain.Command;
+import org.apache.commons.chain.Context;
+
+/**
+ * Lightweight description of a configured {@link Command} or
+ * {@link Chain}: the implementation class name, the property values and
+ * the descriptions of nested commands. A descriptor is recorded by
+ * {@link ConfigRuleSet} in lazy mode instead of creating the command
+ * while parsing, and is added to the {@link org.apache.commons.chain.Catalog}
+ * with {@link org.apache.commons.chain.Catalog#addLazyCommand(String, Supplier)}.
+ *
+ * <p>Each call of {@link #get()} creates a new command (including the
+ * nested commands of a chain) the same way the eager rules do.</p>
+ *
+ * @since Chain 1.4
+ */
+public class CommandDescriptor implements Supplier<Command<Context>> {
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The fully qualified name of the implementation class.
+     */
+    private final String className;
+
+    /**
+     * The class loader used to load the implementation class.
+     */
+    private final ClassLoader classLoader;
+
+    /**
+     * The property values, keyed by property name.
+     */
+    private final Map<String, String> properties;
+
+    /**
+     * The descriptors of the nested commands.
+     */
+    private final List<CommandDescriptor> commands = new ArrayList<>();
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Construct a new descriptor.
+     *
+     * @param className the fully qualified name of the implementation class
+     * @param classLoader the class loader used to load the implementation
+     *        class
+     * @param properties the property values, keyed by property name
+     */
+    public CommandDescriptor(String className, ClassLoader classLoader, Map<String, String> properties) {
+        this.className = className;
+        this.classLoader = classLoader;
+        this.properties = new LinkedHashMap<>(properties);
+    }
+
+    // ------------------------------------------------------------- Properties
+
+    /**
+     * Return the fully qualified name of the implementation class.
+     *
+     * @return the fully qualified name of the implementation class
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Return the property values, keyed by property name.
+     *
+     * @return the unmodifiable property values
+     */
+    public Map<String, String> getProperties() {
+        return Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * Return the descriptors of the nested commands.
+     *
+     * @return the unmodifiable list of descriptors
+     */
+    public List<CommandDescriptor> getCommands() {
+        return Collections.unmodifiableList(commands);
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Add the descriptor of a nested command. Nested commands are only
+     * added, if the implementation class is a {@link Chain}.
+     *
+     * @param command the descriptor of the nested command
+     */
+    public void addCommand(CommandDescriptor command) {
+        commands.add(command);
+    }
+
+    /**
+     * Create the described command, set its properties and add the
+     * nested commands.
+     *
+     * @return the new command
+     *
+     * @throws IllegalStateException if the command can't be created
+     */
+    @Override
+    public Command<Context> get() {
+        final Object instance;
+        try {
+            instance = classLoader.loadClass(className).getDeclaredConstructor().newInstance();
+            BindingPlan.forClass(instance.getClass()).bind(instance, properties);
+        } catch (Exception | LinkageError e) {
+            throw new IllegalStateException("Cannot create command '" + className + "'", e);
+        }
+
+        if (!(instance instanceof Command)) {
+            throw new IllegalStateException("Class '" + className + "' is not a Command");
+        }
+
+        /* All commands can consume a generic context. Here we depend on
+         * the configuration being correct because the binding is
+         * dynamic. */
+        @SuppressWarnings("unchecked")
+        final Command<Context> command = (Command<Context>) instance;
+
+        if (command instanceof Chain) {
+            @SuppressWarnings("unchecked")
+            final Chain<Context> chain = (Chain<Context>) command;
+            for (CommandDescriptor descriptor : commands) {
+                chain.addCommand(descriptor.get());
+            }
+        }
+
+        return command;
+    }
+
+    /**
+     * Converts this descriptor to a String. Useful for debugging purposes.
+     *
+     * @return a representation of this descriptor as a String
+     */
+    @Override
+    public String toString() {
+        return "CommandDescriptor[" + className + ", " + properties + ", " + commands + ']';
+    }
+}
@@ -47,6 +47,11 @@ class ConfigDefineRule extends Rule {
      */
     private final String nameAttribute;
 
+    /**
+     * Should the new elements be registered lazily?
+     */
+    private final boolean lazy;
+
     // ----------------------------------------------------------- Constructors
 
     /**
@@ -57,10 +62,12 @@ class ConfigDefineRule extends Rule {
      *        of the new element for which rules should generated
      * @param classAttribute Name of the attribute containing the
      *        implementation class for the new chain or command
+     * @param lazy {@code true} to register the new elements lazily
      */
-    ConfigDefineRule(String nameAttribute, String classAttribute) {
+    ConfigDefineRule(String nameAttribute, String classAttribute, boolean lazy) {
         this.nameAttribute = nameAttribute;
         this.classAttribute = classAttribute;
+        this.lazy = lazy;
     }
 
     // --------------------------------------------------------- Public Methods
@@ -84,8 +91,13 @@ class ConfigDefineRule extends Rule {
         String classValue = attributes.getValue(classAttribute);
 
         // Add rules for this new element
+        if (lazy) {
+            digester.addRule("*/" + nameValue,
+                             new ConfigDescriptorRule(classValue, null, nameAttribute));
+            return;
+        }
         digester.addObjectCreate("*/" + nameValue, classValue);
-        digester.addSetProperties("*/" + nameValue);
+        digester.addRule("*/" + nameValue, new ConfigSetPropertiesRule());
         digester.addRule("*/" + nameValue,
                          new ConfigRegisterRule(nameAttribute));
     }
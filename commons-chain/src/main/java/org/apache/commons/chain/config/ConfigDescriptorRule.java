@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.chain.Catalog;
+import org.apache.commons.chain.Context;
+import org.apache.commons.digester.Rule;
+import org.xml.sax.Attributes;
+
+/**
+ * Digester rule used in lazy mode in place of the object-create,
+ * set-properties and {@link ConfigRegisterRule} rules. It pushes a
+ * {@link CommandDescriptor} instead of creating the command. When the
+ * element ends, the descriptor is registered lazily with a
+ * {@link Catalog} or added to the descriptor of the enclosing chain.
+ *
+ * @since Chain 1.4
+ */
+class ConfigDescriptorRule extends Rule {
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The default implementation class or {@code null} if the class
+     * attribute is required.
+     */
+    private final String defaultClass;
+
+    /**
+     * The name of the attribute which overrides the implementation class
+     * or {@code null} if the class can't be overridden.
+     */
+    private final String classAttribute;
+
+    /**
+     * The name of the attribute under which we can retrieve the name
+     * this command should be registered with.
+     */
+    private final String nameAttribute;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Construct a new instance of this rule.
+     *
+     * @param defaultClass the default implementation class or {@code null}
+     * @param classAttribute Name of the attribute which overrides the
+     *        implementation class or {@code null}
+     * @param nameAttribute Name of the attribute containing the name under
+     *        which this command should be registered
+     */
+    ConfigDescriptorRule(String defaultClass, String classAttribute, String nameAttribute) {
+        this.defaultClass = defaultClass;
+        this.classAttribute = classAttribute;
+        this.nameAttribute = nameAttribute;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Push a new {@link CommandDescriptor} for this element.
+     *
+     * @param namespace the namespace URI of the matching element, or an
+     *        empty string if the parser is not namespace aware or the
+     *        element has no namespace
+     * @param name the local name if the parser is namespace aware, or
+     *        just the element name otherwise
+     * @param attributes The attribute list of this element
+     */
+    @Override
+    public void begin(String namespace, String name, Attributes attributes)
+        throws Exception {
+
+        String className = defaultClass;
+        if (classAttribute != null) {
+            String value = attributes.getValue(classAttribute);
+            if (value != null) {
+                className = value;
+            }
+        }
+        if (className == null) {
+            throw new IllegalArgumentException("No class name specified for element '"
+                                               + name + "'");
+        }
+
+        // Record all attributes like the set-properties rule
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            String attributeName = attributes.getLocalName(i);
+            if (attributeName == null || attributeName.isEmpty()) {
+                attributeName = attributes.getQName(i);
+            }
+            properties.put(attributeName, attributes.getValue(i));
+        }
+
+        digester.push(new CommandDescriptor(className, digester.getClassLoader(), properties));
+    }
+
+    /**
+     * Register the completed {@link CommandDescriptor} and pop it.
+     *
+     * @param namespace the namespace URI of the matching element, or an
+     *        empty string if the parser is not namespace aware or the
+     *        element has no namespace
+     * @param name the local name if the parser is namespace aware, or
+     *        just the element name otherwise
+     */
+    @Override
+    public void end(String namespace, String name) throws Exception {
+        CommandDescriptor descriptor = (CommandDescriptor) digester.pop();
+        Object next = digester.peek();
+
+        if (next instanceof Catalog) {
+            String nameValue = descriptor.getProperties().get(nameAttribute);
+            if (nameValue != null) {
+                /* We are dynamically building a catalog and assigning
+                 * generics to the most base types possible. */
+                @SuppressWarnings("unchecked")
+                Catalog<Context> catalog = (Catalog<Context>) next;
+                catalog.addLazyCommand(nameValue, descriptor);
+                ConfigReport.commandRegistered(digester);
+            }
+        } else if (next instanceof CommandDescriptor) {
+            ((CommandDescriptor) next).addCommand(descriptor);
+        }
+    }
+}
@@ -100,6 +100,7 @@ class ConfigRegisterRule extends Rule {
                 @SuppressWarnings("unchecked")
                 Catalog<Context> catalog = (Catalog<Context>) next;
                 catalog.addCommand(nameValue, command);
+                ConfigReport.commandRegistered(digester);
             }
         } else if (next instanceof Chain) {
             /* Like above - the chain is being dynamically generated,
@@ -0,0 +1,324 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.digester.Digester;
+
+/**
+ * Report of the time and resources spent for loading chain
+ * configurations. Each configuration source (usually a parsed
+ * configuration resource, see {@link ConfigParser#setReport(ConfigReport)})
+ * adds an {@link Entry} with the elapsed time, the number of bytes read,
+ * the number of registered commands and the number of classes loaded
+ * while the source was processed.
+ *
+ * <p>The registered commands are the commands added to a catalog under a
+ * name, whether created at once or lazily on first lookup. This is not
+ * the number of instantiated commands: commands nested in chains are not
+ * counted, so that the number is the same for a parsed configuration
+ * resource and for a configuration applied by a
+ * {@link CatalogInitializer}.</p>
+ *
+ * <p>The number of loaded classes is taken from the class loading
+ * statistics of the Java virtual machine, and therefore includes
+ * classes loaded concurrently by other threads.</p>
+ *
+ * <p>Instances are not thread-safe.</p>
+ *
+ * @since Chain 1.4
+ */
+public class ConfigReport {
+
+    // ------------------------------------------------------ Static Variables
+
+    /**
+     * The name of the Digester stack holding the report of the current
+     * parse.
+     */
+    static final String STACK = ConfigReport.class.getName();
+
+    // ----------------------------------------------------- Instance Variables
+
+    /**
+     * The recorded entries in the order they were added.
+     */
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * The number of commands registered in a catalog by the current
+     * parse.
+     */
+    private int pendingCommands = 0;
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public ConfigReport() {
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Add an entry to this report.
+     *
+     * @param source the name of the configuration source
+     * @param nanos the elapsed time in nanoseconds
+     * @param bytes the number of bytes read
+     * @param registeredCommands the number of registered commands
+     * @param classes the number of loaded classes
+     */
+    public void addEntry(String source, long nanos, long bytes, int registeredCommands,
+            long classes) {
+        entries.add(new Entry(source, nanos, bytes, registeredCommands, classes));
+    }
+
+    /**
+     * Return the recorded entries in the order they were added.
+     *
+     * @return an unmodifiable list of the entries
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Return the total elapsed time of all entries.
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    public long getTotalNanos() {
+        long ret = 0;
+        for (Entry entry : entries) {
+            ret += entry.getNanos();
+        }
+        return ret;
+    }
+
+    /**
+     * Return the total number of bytes read of all entries.
+     *
+     * @return the number of bytes read
+     */
+    public long getTotalBytes() {
+        long ret = 0;
+        for (Entry entry : entries) {
+            ret += entry.getBytes();
+        }
+        return ret;
+    }
+
+    /**
+     * Return the total number of registered commands of all entries.
+     *
+     * @return the number of registered commands
+     */
+    public int getTotalRegisteredCommands() {
+        int ret = 0;
+        for (Entry entry : entries) {
+            ret += entry.getRegisteredCommands();
+        }
+        return ret;
+    }
+
+    /**
+     * Return the total number of loaded classes of all entries.
+     *
+     * @return the number of loaded classes
+     */
+    public long getTotalClasses() {
+        long ret = 0;
+        for (Entry entry : entries) {
+            ret += entry.getClasses();
+        }
+        return ret;
+    }
+
+    /**
+     * Return the total number of classes loaded by the Java virtual
+     * machine since it was started. The difference of two calls is the
+     * number of classes loaded in between.
+     *
+     * @return the total number of loaded classes
+     */
+    public static long loadedClassCount() {
+        return ManagementFactory.getClassLoadingMXBean().getTotalLoadedClassCount();
+    }
+
+    /**
+     * Return a string representation of this report.
+     *
+     * @return the summary followed by one line per entry
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("ConfigReport[sources=").append(entries.size())
+            .append(", millis=").append(getTotalNanos() / 1_000_000L)
+            .append(", bytes=").append(getTotalBytes())
+            .append(", registeredCommands=").append(getTotalRegisteredCommands())
+            .append(", classes=").append(getTotalClasses())
+            .append(']');
+        for (Entry entry : entries) {
+            sb.append(System.lineSeparator()).append("  ").append(entry);
+        }
+        return sb.toString();
+    }
+
+    // -------------------------------------------------------- Package Methods
+
+    /**
+     * Start recording the commands registered by a parse.
+     */
+    void startCommands() {
+        pendingCommands = 0;
+    }
+
+    /**
+     * Return the number of commands registered since the last call of
+     * {@link #startCommands()}.
+     *
+     * @return the number of registered commands
+     */
+    int pendingCommands() {
+        return pendingCommands;
+    }
+
+    /**
+     * Record a command registered in a catalog with the report of the
+     * current parse, if any.
+     *
+     * @param digester the Digester of the current parse
+     */
+    static void commandRegistered(Digester digester) {
+        if (!digester.isEmpty(STACK)) {
+            ((ConfigReport) digester.peek(STACK)).pendingCommands++;
+        }
+    }
+
+    // --------------------------------------------------------- Inner Classes
+
+    /**
+     * The report of a single configuration source.
+     */
+    public static final class Entry {
+
+        /**
+         * The name of the configuration source.
+         */
+        private final String source;
+
+        /**
+         * The elapsed time in nanoseconds.
+         */
+        private final long nanos;
+
+        /**
+         * The number of bytes read.
+         */
+        private final long bytes;
+
+        /**
+         * The number of registered commands.
+         */
+        private final int registeredCommands;
+
+        /**
+         * The number of loaded classes.
+         */
+        private final long classes;
+
+        /**
+         * Construct a new entry.
+         *
+         * @param source the name of the configuration source
+         * @param nanos the elapsed time in nanoseconds
+         * @param bytes the number of bytes read
+         * @param registeredCommands the number of registered commands
+         * @param classes the number of loaded classes
+         */
+        Entry(String source, long nanos, long bytes, int registeredCommands, long classes) {
+            this.source = source;
+            this.nanos = nanos;
+            this.bytes = bytes;
+            this.registeredCommands = registeredCommands;
+            this.classes = classes;
+        }
+
+        /**
+         * Return the name of the configuration source.
+         *
+         * @return the name of the source
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * Return the elapsed time.
+         *
+         * @return the elapsed time in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Return the number of bytes read.
+         *
+         * @return the number of bytes read
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Return the number of registered commands.
+         *
+         * @return the number of registered commands
+         */
+        public int getRegisteredCommands() {
+            return registeredCommands;
+        }
+
+        /**
+         * Return the number of loaded classes.
+         *
+         * @return the number of loaded classes
+         */
+        public long getClasses() {
+            return classes;
+        }
+
+        /**
+         * Return a string representation of this entry.
+         *
+         * @return the string representation
+         */
+        @Override
+        public String toString() {
+            return source + ": millis=" + nanos / 1_000_000L + ", bytes=" + bytes
+                + ", registeredCommands=" + registeredCommands + ", classes=" + classes;
+        }
+    }
+}
@@ -62,6 +62,11 @@ import org.apache.commons.digester.RuleSetBase;
  *     attributes with a {@link org.apache.commons.chain.Command} or
  *     {@link org.apache.commons.chain.Chain} implementation class
  *     named by the {@code classAttribute} attribute. [define]</li>
+ * <li><strong>lazy</strong> -- If {@code true}, commands and chains
+ *     are not created while parsing. Instead a {@link CommandDescriptor}
+ *     is recorded and added with
+ *     {@link org.apache.commons.chain.Catalog#addLazyCommand(String, java.util.function.Supplier)},
+ *     so that the command is created on its first lookup. [false]</li>
  * <li><strong>nameAttribute</strong> -- Attribute on an outermost chain or
  *     command element that will be used to register this command with the
  *     associated {@link org.apache.commons.chain.Catalog} instance on the stack.
@@ -86,6 +91,7 @@ public class ConfigRuleSet extends RuleSetBase {
     private String commandElement = "command";
     private String defineElement = "define";
     private String nameAttribute = "name";
+    private boolean lazy = false;
 
     // ----------------------------------------------------------- Constructors
 
@@ -247,6 +253,29 @@ public class ConfigRuleSet extends RuleSetBase {
         this.nameAttribute = nameAttribute;
     }
 
+    /**
+     * Return {@code true} if commands are created on their first lookup.
+     *
+     * @return {@code true} if commands are created lazily
+     *
+     * @since Chain 1.4
+     */
+    public boolean isLazy() {
+        return this.lazy;
+    }
+
+    /**
+     * Set whether commands are created on their first lookup instead of
+     * while parsing.
+     *
+     * @param lazy {@code true} to create commands lazily
+     *
+     * @since Chain 1.4
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -263,27 +292,40 @@ public class ConfigRuleSet extends RuleSetBase {
         // Add rules for a catalog element
         digester.addRule("*/" + getCatalogElement(),
                          new ConfigCatalogRule(nameAttribute, catalogClass));
-        digester.addSetProperties("*/" + getCatalogElement());
+        digester.addRule("*/" + getCatalogElement(), new ConfigSetPropertiesRule());
 
-        // Add rules for a chain element
-        digester.addObjectCreate("*/" + getChainElement(),
-                                 getChainClass(),
-                                 getClassAttribute());
-        digester.addSetProperties("*/" + getChainElement());
-        digester.addRule("*/" + getChainElement(),
-                         new ConfigRegisterRule(nameAttribute));
+        if (lazy) {
+            // Add descriptor rules for chain and command elements
+            digester.addRule("*/" + getChainElement(),
+                             new ConfigDescriptorRule(getChainClass(),
+                                                      getClassAttribute(),
+                                                      nameAttribute));
+            digester.addRule("*/" + getCommandElement(),
+                             new ConfigDescriptorRule(null,
+                                                      getClassAttribute(),
+                                                      nameAttribute));
+        } else {
+            // Add rules for a chain element
+            digester.addObjectCreate("*/" + getChainElement(),
+                                     getChainClass(),
+                                     getClassAttribute());
+            digester.addRule("*/" + getChainElement(), new ConfigSetPropertiesRule());
+            digester.addRule("*/" + getChainElement(),
+                             new ConfigRegisterRule(nameAttribute));
 
-        // Add rules for a command element
-        digester.addObjectCreate("*/" + getCommandElement(),
-                                 null,
-                                 getClassAttribute());
-        digester.addSetProperties("*/" + getCommandElement());
-        digester.addRule("*/" + getCommandElement(),
-                         new ConfigRegisterRule(nameAttribute));
+            // Add rules for a command element
+            digester.addObjectCreate("*/" + getCommandElement(),
+                                     null,
+                                     getClassAttribute());
+            digester.addRule("*/" + getCommandElement(), new ConfigSetPropertiesRule());
+            digester.addRule("*/" + getCommandElement(),
+                             new ConfigRegisterRule(nameAttribute));
+        }
 
         // Add rules for a define element
         digester.addRule("*/" + getDefineElement(),
                          new ConfigDefineRule(getNameAttribute(),
-                                              getClassAttribute()));
+                                              getClassAttribute(),
+                                              isLazy()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.config;
+
+import org.apache.commons.digester.Rule;
+import org.xml.sax.Attributes;
+
+/**
+ * Digester rule that sets the properties of the top-most element on the
+ * Digester stack from the attributes of the matching element. Unlike
+ * the standard set-properties rule, the setters and converters of each
+ * class are resolved only once (see {@link BindingPlan}), so repeated
+ * elements of the same class are bound with direct setter calls.
+ *
+ * @since Chain 1.4
+ */
+class ConfigSetPropertiesRule extends Rule {
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    ConfigSetPropertiesRule() {
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Set the properties of the top object from the attributes.
+     *
+     * @param namespace the namespace URI of the matching element, or an
+     *        empty string if the parser is not namespace aware or the
+     *        element has no namespace
+     * @param name the local name if the parser is namespace aware, or
+     *        just the element name otherwise
+     * @param attributes The attribute list of this element
+     */
+    @Override
+    public void begin(String namespace, String name, Attributes attributes)
+        throws Exception {
+
+        Object top = digester.peek();
+        if (top != null) {
+            BindingPlan.forClass(top.getClass()).bind(top, attributes);
+        }
+    }
+}
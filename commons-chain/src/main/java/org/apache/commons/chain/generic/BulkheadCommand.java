@@ -0,0 +1,587 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.Deadline;
+
+/**
+ * Limits the number of concurrent executions of a delegate
+ * {@link org.apache.commons.chain.Command}, so that a slow delegate can't
+ * occupy all threads.
+ *
+ * <p>In the default {@code semaphore} mode the delegate is executed by the
+ * calling thread, after acquiring one of {@code maxConcurrentCalls}
+ * permits. If no permit is available and fewer than {@code maxQueued}
+ * calls are waiting, the call waits for a permit.</p>
+ *
+ * <p>In the {@code executor} mode the delegate is executed by a dedicated
+ * pool of {@code maxConcurrentCalls} daemon threads with a queue of
+ * {@code maxQueued} calls, and the calling thread waits for the result.
+ * The delegate is executed on a copy of the context (see
+ * {@link #createContext(Context)}); if it completes in time, the values
+ * of the {@code outputKeys} are copied back into the context. Idle
+ * threads are terminated after a minute; {@link #shutdown()} terminates
+ * the pool.</p>
+ *
+ * <p>The calling thread waits at most {@code maxWait} milliseconds if this
+ * is positive, and not beyond the {@link Deadline} of the context. In the
+ * {@code executor} mode this includes the execution of the delegate, which
+ * is cancelled when the time is up.</p>
+ *
+ * <p>A call which is neither executed nor queued, or whose wait time is
+ * up, is rejected according to the {@code rejectionPolicy}:</p>
+ * <ul>
+ * <li>{@code fail} (default): throw a {@link RejectedExecutionException}.</li>
+ * <li>{@code fallback}: execute the command named by the
+ *     {@code fallbackName} property instead.</li>
+ * <li>{@code callerRuns}: execute the delegate in the calling thread
+ *     anyway, without counting it. A call whose wait time is up in the
+ *     {@code executor} mode may already have been started by the pool,
+ *     so it fails instead.</li>
+ * </ul>
+ *
+ * <p>The configuration properties must be set before the first
+ * execution. The active, queued and rejected calls are exposed as
+ * gauges.</p>
+ *
+ * <pre>
+ * &lt;command className="org.apache.commons.chain.generic.BulkheadCommand"
+ *     name="reportChain" maxConcurrentCalls="4" maxQueued="16"
+ *     maxWait="500" rejectionPolicy="fallback" fallbackName="busy"/&gt;
+ * </pre>
+ *
+ * @param <C> Type of the context associated with this command
+ *
+ * @since Chain 1.4
+ */
+public class BulkheadCommand<C extends Context> extends WrapperCommandBase<C> {
+
+    // -------------------------------------------------------------- Constructors
+
+    /**
+     * Create an instance, setting its {@code catalogFactory} property to the
+     * value of {@code CatalogFactory.getInstance()}.
+     */
+    public BulkheadCommand() {
+    }
+
+    /**
+     * Create an instance and initialize the {@code catalogFactory} property
+     * to given {@code factory}.
+     *
+     * @param factory The Catalog Factory.
+     */
+    public BulkheadCommand(CatalogFactory<C> factory) {
+        super(factory);
+    }
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * The permits of the semaphore mode, created with the first execution.
+     */
+    private volatile Semaphore semaphore = null;
+
+    /**
+     * The thread pool of the executor mode, created with the first
+     * execution.
+     */
+    private volatile ThreadPoolExecutor executor = null;
+
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    // -------------------------------------------------------------- Properties
+
+    private boolean executorMode = false;
+
+    private int maxConcurrentCalls = 25;
+
+    private int maxQueued = 0;
+
+    private long maxWait = 0;
+
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.FAIL;
+
+    private String[] outputKeys = ContextKeys.NONE;
+
+    /**
+     * Return the mode.
+     *
+     * @return {@code semaphore} or {@code executor}.
+     */
+    public String getMode() {
+        return executorMode ? "executor" : "semaphore";
+    }
+
+    /**
+     * Set the mode. Defaults to {@code semaphore}.
+     *
+     * @param mode {@code semaphore} or {@code executor}
+     *
+     * @throws IllegalArgumentException if the mode is unknown
+     */
+    public void setMode(String mode) {
+        if ("executor".equals(mode)) {
+            this.executorMode = true;
+        } else if ("semaphore".equals(mode)) {
+            this.executorMode = false;
+        } else {
+            throw new IllegalArgumentException("Unknown mode '" + mode + "'");
+        }
+    }
+
+    /**
+     * Return the maximum number of concurrent executions.
+     *
+     * @return The maximum number of concurrent executions.
+     */
+    public int getMaxConcurrentCalls() {
+        return this.maxConcurrentCalls;
+    }
+
+    /**
+     * Set the maximum number of concurrent executions. Defaults to 25.
+     *
+     * @param maxConcurrentCalls The maximum number of concurrent executions
+     */
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = Math.max(1, maxConcurrentCalls);
+    }
+
+    /**
+     * Return the maximum number of waiting calls.
+     *
+     * @return The maximum number of waiting calls.
+     */
+    public int getMaxQueued() {
+        return this.maxQueued;
+    }
+
+    /**
+     * Set the maximum number of waiting calls. Defaults to 0.
+     *
+     * @param maxQueued The maximum number of waiting calls
+     */
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = Math.max(0, maxQueued);
+    }
+
+    /**
+     * Return the maximum time a call waits for a permit in semaphore mode,
+     * or for the result in executor mode.
+     *
+     * @return The maximum time in milliseconds, {@code 0} if unbounded.
+     */
+    public long getMaxWait() {
+        return this.maxWait;
+    }
+
+    /**
+     * Set the maximum time a call waits for a permit in semaphore mode,
+     * or for the result in executor mode. Defaults to {@code 0}
+     * (unbounded).
+     *
+     * @param maxWait The maximum time in milliseconds, {@code 0} if
+     *        unbounded
+     */
+    public void setMaxWait(long maxWait) {
+        this.maxWait = Math.max(0, maxWait);
+    }
+
+    /**
+     * Return the rejection policy.
+     *
+     * @return {@code fail}, {@code fallback} or {@code callerRuns}.
+     */
+    public String getRejectionPolicy() {
+        return rejectionPolicy.toString();
+    }
+
+    /**
+     * Set the rejection policy. Defaults to {@code fail}.
+     *
+     * @param rejectionPolicy {@code fail}, {@code fallback} or
+     *        {@code callerRuns}
+     *
+     * @throws IllegalArgumentException if the policy is unknown
+     */
+    public void setRejectionPolicy(String rejectionPolicy) {
+        this.rejectionPolicy = RejectionPolicy.parse(rejectionPolicy);
+    }
+
+    /**
+     * Return the context keys copied back into the context after the
+     * delegate has completed in time in executor mode.
+     *
+     * @return The comma separated context keys.
+     */
+    public String getOutputKeys() {
+        return String.join(",", outputKeys);
+    }
+
+    /**
+     * Set the context keys copied back into the context after the
+     * delegate has completed in time in executor mode.
+     *
+     * @param outputKeys The comma separated context keys
+     */
+    public void setOutputKeys(String outputKeys) {
+        this.outputKeys = ContextKeys.parse(outputKeys);
+    }
+
+    // -------------------------------------------------------------- Gauges
+
+    /**
+     * Return the number of executing calls, not counting calls executed
+     * by the {@code callerRuns} policy.
+     *
+     * @return The number of executing calls.
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * Return the number of waiting calls.
+     *
+     * @return The number of waiting calls.
+     */
+    public int getQueuedCount() {
+        final ThreadPoolExecutor pool = executor;
+        return pool != null ? pool.getQueue().size() : waitingCount.get();
+    }
+
+    /**
+     * Return the number of rejected calls.
+     *
+     * @return The number of rejected calls.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Terminate the thread pool of the executor mode, if it has been
+     * created. A later execution creates a new pool.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    // --------------------------------------------------------- Command Methods
+
+    /**
+     * Execute the delegate within the concurrency limit, or reject the
+     * call.
+     *
+     * @param context The context for this request
+     *
+     * @return the result of the delegate or the fallback command, or
+     *         {@code false} if {@code ignoreExecuteResult} is {@code true}
+     *
+     * @throws RejectedExecutionException if the call is rejected by the
+     *         {@code fail} policy
+     * @throws IllegalArgumentException if the context can't be copied in
+     *         executor mode
+     * @throws InterruptedException if interrupted while waiting
+     * @throws Exception if thrown by the delegate or the fallback command
+     */
+    @Override
+    public boolean execute(C context) throws Exception {
+        return executorMode ? executeInPool(context) : executeWithPermit(context);
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Create the copy of the context on which the delegate is executed by
+     * the pool in executor mode. The default implementation copies the
+     * attributes of a plain {@link org.apache.commons.chain.impl.ContextBase}.
+     * Subclasses using another type of context should override this
+     * method.
+     *
+     * @param context The context for this request
+     *
+     * @return the copy of the context
+     *
+     * @throws IllegalArgumentException if the context can't be copied
+     */
+    protected C createContext(C context) {
+        return ContextKeys.copy(context, context);
+    }
+
+    // ------------------------------------------------------- Private Methods
+
+    /**
+     * Execute the delegate in the calling thread after acquiring a permit.
+     *
+     * @param context the context for this request
+     *
+     * @return the result of the delegate or the rejection policy
+     *
+     * @throws Exception if thrown by the delegate or the rejection policy
+     */
+    private boolean executeWithPermit(C context) throws Exception {
+        final Semaphore permits = semaphore();
+        if (!permits.tryAcquire() && !await(permits, waitNanos(context))) {
+            return reject(context);
+        }
+        activeCount.incrementAndGet();
+        try {
+            return executeDelegate(context);
+        } finally {
+            activeCount.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    /**
+     * Wait for a permit, if the queue isn't full.
+     *
+     * @param permits the semaphore
+     * @param nanos the maximum wait time in nanoseconds, or
+     *        {@code Long.MAX_VALUE} if unbounded
+     *
+     * @return {@code true} if a permit has been acquired
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private boolean await(Semaphore permits, long nanos) throws InterruptedException {
+        if (waitingCount.incrementAndGet() > maxQueued) {
+            waitingCount.decrementAndGet();
+            return false;
+        }
+        try {
+            if (nanos != Long.MAX_VALUE) {
+                return permits.tryAcquire(nanos, TimeUnit.NANOSECONDS);
+            }
+            permits.acquire();
+            return true;
+        } finally {
+            waitingCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Execute the delegate in the thread pool and wait for the result.
+     *
+     * @param context the context for this request
+     *
+     * @return the result of the delegate or the rejection policy
+     *
+     * @throws Exception if thrown by the delegate or the rejection policy
+     */
+    private boolean executeInPool(C context) throws Exception {
+        final C copy = createContext(context);
+        final Future<Boolean> future;
+        try {
+            future = executor().submit(() -> {
+                activeCount.incrementAndGet();
+                try {
+                    return executeDelegate(copy);
+                } finally {
+                    activeCount.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return reject(context);
+        }
+
+        final long nanos = waitNanos(context);
+        try {
+            final boolean result =
+                    nanos == Long.MAX_VALUE ? future.get() : future.get(nanos, TimeUnit.NANOSECONDS);
+            ContextKeys.store(context, outputKeys, ContextKeys.values(copy, outputKeys));
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return rejectTimedOut(context);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (Exception) cause;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Return the maximum wait time of a call, bounded by {@code maxWait}
+     * and the deadline of the context.
+     *
+     * @param context the context for this request
+     *
+     * @return the wait time in nanoseconds, or {@code Long.MAX_VALUE} if
+     *         unbounded
+     */
+    private long waitNanos(C context) {
+        long nanos = maxWait > 0 ? TimeUnit.MILLISECONDS.toNanos(maxWait) : Long.MAX_VALUE;
+        final Deadline deadline = Deadline.get(context);
+        if (deadline != null) {
+            nanos = Math.min(nanos, Math.max(0, deadline.timeRemaining(TimeUnit.NANOSECONDS)));
+        }
+        return nanos;
+    }
+
+    /**
+     * Handle a rejected call according to the rejection policy.
+     *
+     * @param context the context for this request
+     *
+     * @return the result of the fallback command or the delegate
+     *
+     * @throws Exception if thrown by the fallback command or the delegate
+     */
+    private boolean reject(C context) throws Exception {
+        rejectedCount.increment();
+        switch (rejectionPolicy) {
+        case FALLBACK:
+            return executeFallback(context);
+        case CALLER_RUNS:
+            return executeDelegate(context);
+        default:
+            throw new RejectedExecutionException("Bulkhead is full");
+        }
+    }
+
+    /**
+     * Handle a call whose wait time is up in executor mode. The delegate
+     * may already be running, so it isn't executed again by the
+     * {@code callerRuns} policy.
+     *
+     * @param context the context for this request
+     *
+     * @return the result of the fallback command
+     *
+     * @throws Exception if thrown by the fallback command
+     */
+    private boolean rejectTimedOut(C context) throws Exception {
+        if (rejectionPolicy == RejectionPolicy.CALLER_RUNS) {
+            rejectedCount.increment();
+            throw new RejectedExecutionException("Bulkhead wait timed out");
+        }
+        return reject(context);
+    }
+
+    /**
+     * Return the semaphore, creating it if necessary.
+     *
+     * @return the semaphore
+     */
+    private Semaphore semaphore() {
+        Semaphore ret = semaphore;
+        if (ret == null) {
+            synchronized (this) {
+                ret = semaphore;
+                if (ret == null) {
+                    ret = new Semaphore(maxConcurrentCalls);
+                    semaphore = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Return the thread pool, creating it if necessary.
+     *
+     * @return the thread pool
+     */
+    private ThreadPoolExecutor executor() {
+        ThreadPoolExecutor ret = executor;
+        if (ret == null) {
+            synchronized (this) {
+                ret = executor;
+                if (ret == null) {
+                    final BlockingQueue<Runnable> queue = maxQueued > 0
+                            ? new ArrayBlockingQueue<>(maxQueued)
+                            : new SynchronousQueue<>();
+                    final AtomicInteger threadNumber = new AtomicInteger();
+                    ret = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls,
+                            60, TimeUnit.SECONDS, queue, runnable -> {
+                                final Thread thread = new Thread(runnable,
+                                        "chain-bulkhead-" + threadNumber.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                    ret.allowCoreThreadTimeOut(true);
+                    executor = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    // --------------------------------------------------------- Inner Classes
+
+    /**
+     * The handling of rejected calls.
+     */
+    private enum RejectionPolicy {
+
+        FAIL("fail"),
+
+        FALLBACK("fallback"),
+
+        CALLER_RUNS("callerRuns");
+
+        private final String name;
+
+        RejectionPolicy(String name) {
+            this.name = name;
+        }
+
+        static RejectionPolicy parse(String name) {
+            for (RejectionPolicy policy : values()) {
+                if (policy.name.equalsIgnoreCase(name)) {
+                    return policy;
+                }
+            }
+            throw new IllegalArgumentException("Unknown rejection policy '" + name + "'");
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
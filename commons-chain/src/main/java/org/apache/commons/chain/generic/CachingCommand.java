@@ -0,0 +1,650 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Context;
+
+/**
+ * Memoizes the results of a delegate {@link org.apache.commons.chain.Command}.
+ *
+ * <p>The cache key is built from the values of the context attributes
+ * named by the {@code keys} property. On a miss the delegate is executed
+ * and the values of the context attributes named by the
+ * {@code outputKeys} property are stored together with the result of the
+ * delegate. On a hit the delegate is skipped: the stored non-null values
+ * are put into the context and the stored result is returned. Exceptions
+ * are not cached.</p>
+ *
+ * <p>The cache is bounded by the number of entries
+ * ({@code maximumSize}), optionally by the total weight of the entries
+ * ({@code maximumWeight}) and the age of an entry
+ * ({@code timeToLive}). The weight of an entry is the {@link Number}
+ * the delegate stores in the context attribute named by the
+ * {@code weightKey} property, or 1. Entries are evicted in least recently
+ * used order, but a new entry is only admitted if it was requested at least
+ * as often as the entries it would evict. The request frequencies are
+ * approximated with a periodically aged count-min sketch (TinyLFU), so
+ * that rarely used results don't displace frequently used ones.</p>
+ *
+ * <p>Hits are served without locking. The requested keys are recorded in
+ * a small buffer, which is applied to the request frequencies and the
+ * recency order under a lock, by the thread which fills the buffer or
+ * adds an entry. If the buffer is full, requests are not recorded, so
+ * that a hit never waits for the lock.</p>
+ *
+ * <p>All properties can be configured in the chain configuration, e.g.:</p>
+ * <pre>
+ * &lt;command className="org.apache.commons.chain.generic.CachingCommand"
+ *     name="loadCustomer" keys="customerId" outputKeys="customer"
+ *     maximumSize="1000" timeToLive="60000"/&gt;
+ * </pre>
+ *
+ * @param <C> Type of the context associated with this command
+ *
+ * @since Chain 1.4
+ */
+public class CachingCommand<C extends Context> extends WrapperCommandBase<C> {
+
+    // -------------------------------------------------------------- Constructors
+
+    /**
+     * Create an instance, setting its {@code catalogFactory} property to the
+     * value of {@code CatalogFactory.getInstance()}.
+     */
+    public CachingCommand() {
+    }
+
+    /**
+     * Create an instance and initialize the {@code catalogFactory} property
+     * to given {@code factory}.
+     *
+     * @param factory The Catalog Factory.
+     */
+    public CachingCommand(CatalogFactory<C> factory) {
+        super(factory);
+    }
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * The cached entries, read without locking.
+     */
+    private final ConcurrentHashMap<Object, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * The cached entries in access order, guarded by the lock.
+     */
+    private final LinkedHashMap<Object, Entry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The lock for the eviction order, the request frequencies and the
+     * total weight.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The requested keys, not yet applied to the eviction order and the
+     * request frequencies.
+     */
+    private final ReadBuffer buffer = new ReadBuffer();
+
+    /**
+     * The request frequencies, created with the first request.
+     */
+    private FrequencySketch sketch = null;
+
+    /**
+     * The total weight of the cached entries.
+     */
+    private long totalWeight = 0;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    // -------------------------------------------------------------- Properties
+
+    private String[] keys = ContextKeys.NONE;
+
+    private String[] outputKeys = ContextKeys.NONE;
+
+    private long maximumSize = 10000;
+
+    private long maximumWeight = 0;
+
+    private String weightKey = null;
+
+    private long timeToLive = 0;
+
+    /**
+     * Return the context keys of the cache key.
+     *
+     * @return The comma separated context keys.
+     */
+    public String getKeys() {
+        return String.join(",", keys);
+    }
+
+    /**
+     * Set the context keys whose values build the cache key.
+     *
+     * @param keys The comma separated context keys
+     */
+    public void setKeys(String keys) {
+        this.keys = ContextKeys.parse(keys);
+    }
+
+    /**
+     * Return the context keys of the cached output.
+     *
+     * @return The comma separated context keys.
+     */
+    public String getOutputKeys() {
+        return String.join(",", outputKeys);
+    }
+
+    /**
+     * Set the context keys whose values are stored after executing the
+     * delegate and restored on a cache hit.
+     *
+     * @param outputKeys The comma separated context keys
+     */
+    public void setOutputKeys(String outputKeys) {
+        this.outputKeys = ContextKeys.parse(outputKeys);
+    }
+
+    /**
+     * Return the maximum number of cached entries.
+     *
+     * @return The maximum number of entries, {@code 0} if unbounded.
+     */
+    public long getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    /**
+     * Set the maximum number of cached entries. Defaults to 10000.
+     *
+     * @param maximumSize The maximum number of entries, {@code 0} if
+     *        unbounded
+     */
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+    }
+
+    /**
+     * Return the maximum total weight of the cached entries.
+     *
+     * @return The maximum total weight, {@code 0} if unbounded.
+     */
+    public long getMaximumWeight() {
+        return this.maximumWeight;
+    }
+
+    /**
+     * Set the maximum total weight of the cached entries. Defaults to
+     * {@code 0} (unbounded).
+     *
+     * @param maximumWeight The maximum total weight, {@code 0} if unbounded
+     */
+    public void setMaximumWeight(long maximumWeight) {
+        this.maximumWeight = Math.max(0, maximumWeight);
+    }
+
+    /**
+     * Return the context key of the entry weight.
+     *
+     * @return The context key, or {@code null}.
+     */
+    public String getWeightKey() {
+        return this.weightKey;
+    }
+
+    /**
+     * Set the context key of a {@link Number}, stored by the delegate,
+     * which is the weight of the new entry. If not set or if there is no
+     * such number, the weight is 1.
+     *
+     * @param weightKey The context key, or {@code null}
+     */
+    public void setWeightKey(String weightKey) {
+        this.weightKey = weightKey;
+    }
+
+    /**
+     * Return the time to live of the cached entries.
+     *
+     * @return The time to live in milliseconds, {@code 0} if unbounded.
+     */
+    public long getTimeToLive() {
+        return this.timeToLive;
+    }
+
+    /**
+     * Set the time to live of the cached entries, measured from their
+     * creation. Defaults to {@code 0} (unbounded).
+     *
+     * @param timeToLive The time to live in milliseconds, {@code 0} if
+     *        unbounded
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = Math.max(0, timeToLive);
+    }
+
+    // -------------------------------------------------------------- Metrics
+
+    /**
+     * Return the number of cache hits.
+     *
+     * @return The number of executions which skipped the delegate.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Return the number of cache misses.
+     *
+     * @return The number of executions of the delegate.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Return the number of evicted entries, not counting expired entries.
+     *
+     * @return The number of evicted entries.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Return the number of cached entries, which may include expired
+     * entries not yet removed.
+     *
+     * @return The number of cached entries.
+     */
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Remove all cached entries. The metrics and request frequencies are
+     * kept.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            cache.clear();
+            entries.clear();
+            totalWeight = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --------------------------------------------------------- Command Methods
+
+    /**
+     * Return the cached result for the cache key from the context, if
+     * present, otherwise execute the delegate and cache its result.
+     *
+     * @param context The context for this request
+     *
+     * @return the result of the delegate, or {@code false} if
+     *         {@code ignoreExecuteResult} is {@code true}
+     *
+     * @throws IllegalArgumentException if the delegate can't be found and
+     *         is not optional
+     * @throws Exception if thrown by the delegate
+     */
+    @Override
+    public boolean execute(C context) throws Exception {
+        final Object key = ContextKeys.key(context, keys);
+        final long now = System.nanoTime();
+
+        final Entry hit = lookup(key, now);
+        if (hit != null) {
+            hitCount.increment();
+            ContextKeys.store(context, outputKeys, hit.outputs);
+            return hit.result;
+        }
+        missCount.increment();
+
+        final boolean result = executeDelegate(context);
+        final long expires = timeToLive > 0 ? now + TimeUnit.MILLISECONDS.toNanos(timeToLive) : 0;
+        admit(key, new Entry(ContextKeys.values(context, outputKeys), result, weight(context), expires), now);
+        return result;
+    }
+
+    // ------------------------------------------------------- Private Methods
+
+    /**
+     * Record the request and return the live entry for the key. Expired
+     * entries are replaced or evicted by {@link #admit(Object, Entry, long)}.
+     *
+     * @param key the cache key
+     * @param now the current time in nanoseconds
+     *
+     * @return the entry, or {@code null} if absent or expired
+     */
+    private Entry lookup(Object key, long now) {
+        if (buffer.offer(key) && lock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+        final Entry entry = entries.get(key);
+        return entry == null || entry.isExpired(now) ? null : entry;
+    }
+
+    /**
+     * Apply the recorded requests to the request frequencies and the
+     * eviction order. Must be called while holding the lock.
+     */
+    private void drain() {
+        final FrequencySketch frequencies = sketch();
+        buffer.drain(key -> {
+            frequencies.increment(key);
+            cache.get(key);
+        });
+    }
+
+    /**
+     * Add an entry, if the entries it would evict were not requested more
+     * often.
+     *
+     * @param key the cache key
+     * @param entry the new entry
+     * @param now the current time in nanoseconds
+     */
+    private void admit(Object key, Entry entry, long now) {
+        lock.lock();
+        try {
+            drain();
+            final Entry old = cache.remove(key);
+            if (old != null) {
+                entries.remove(key);
+                totalWeight -= old.weight;
+            }
+            if (maximumWeight > 0 && entry.weight > maximumWeight) {
+                return;
+            }
+
+            final int frequency = sketch().frequency(key);
+            final List<Object> victims = new ArrayList<>();
+            int size = cache.size() + 1;
+            long weight = totalWeight + entry.weight;
+            final Iterator<Map.Entry<Object, Entry>> it = cache.entrySet().iterator();
+            while (isExceeded(size, weight) && it.hasNext()) {
+                final Map.Entry<Object, Entry> victim = it.next();
+                if (!victim.getValue().isExpired(now)
+                        && sketch.frequency(victim.getKey()) > frequency) {
+                    return;
+                }
+                victims.add(victim.getKey());
+                size--;
+                weight -= victim.getValue().weight;
+            }
+
+            for (Object victim : victims) {
+                final Entry removed = cache.remove(victim);
+                entries.remove(victim);
+                totalWeight -= removed.weight;
+                if (!removed.isExpired(now)) {
+                    evictionCount.increment();
+                }
+            }
+            cache.put(key, entry);
+            entries.put(key, entry);
+            totalWeight += entry.weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Is a bound of the cache exceeded?
+     *
+     * @param size the number of entries
+     * @param weight the total weight
+     *
+     * @return {@code true} if the cache is too large
+     */
+    private boolean isExceeded(int size, long weight) {
+        return maximumSize > 0 && size > maximumSize
+                || maximumWeight > 0 && weight > maximumWeight;
+    }
+
+    /**
+     * Return the frequency sketch, creating it if necessary. Must be
+     * called while holding the lock.
+     *
+     * @return the frequency sketch
+     */
+    private FrequencySketch sketch() {
+        if (sketch == null) {
+            sketch = new FrequencySketch(maximumSize > 0 ? maximumSize : 1024);
+        }
+        return sketch;
+    }
+
+    /**
+     * Return the weight of the new entry.
+     *
+     * @param context the context for this request
+     *
+     * @return the weight stored by the delegate, or 1
+     */
+    private long weight(C context) {
+        if (weightKey != null) {
+            final Object weight = context.get(weightKey);
+            if (weight instanceof Number) {
+                return Math.max(0, ((Number) weight).longValue());
+            }
+        }
+        return 1;
+    }
+
+    // --------------------------------------------------------- Inner Classes
+
+    /**
+     * A cached result.
+     */
+    private static final class Entry {
+
+        final Object[] outputs;
+
+        final boolean result;
+
+        final long weight;
+
+        /**
+         * Expiry time in nanoseconds, {@code 0} if unbounded.
+         */
+        final long expires;
+
+        Entry(Object[] outputs, boolean result, long weight, long expires) {
+            this.outputs = outputs;
+            this.result = result;
+            this.weight = weight;
+            this.expires = expires;
+        }
+
+        boolean isExpired(long now) {
+            return expires != 0 && now - expires >= 0;
+        }
+    }
+
+    /**
+     * A lossy ring buffer of requested keys. Any thread may add keys
+     * without locking; the keys are drained while holding the lock. A key
+     * is dropped if the buffer is full or another thread adds a key at the
+     * same time.
+     */
+    private static final class ReadBuffer {
+
+        private static final int SIZE = 128;
+
+        private static final int MASK = SIZE - 1;
+
+        /**
+         * The number of pending keys which triggers a drain.
+         */
+        private static final int DRAIN_THRESHOLD = 32;
+
+        private final AtomicReferenceArray<Object> slots = new AtomicReferenceArray<>(SIZE);
+
+        private final AtomicLong tail = new AtomicLong();
+
+        /**
+         * The position of the next key to drain, only written while
+         * holding the lock.
+         */
+        private volatile long head = 0;
+
+        /**
+         * Add a requested key.
+         *
+         * @param key the cache key
+         *
+         * @return {@code true} if the buffer should be drained
+         */
+        boolean offer(Object key) {
+            final long start = head;
+            final long position = tail.get();
+            final long pending = position - start;
+            if (pending >= SIZE) {
+                return true;
+            }
+            if (!tail.compareAndSet(position, position + 1)) {
+                return false;
+            }
+            slots.lazySet((int) (position & MASK), key);
+            return pending + 1 >= DRAIN_THRESHOLD;
+        }
+
+        /**
+         * Drain the added keys. Must be called while holding the lock.
+         *
+         * @param consumer the consumer of the keys
+         */
+        void drain(Consumer<Object> consumer) {
+            long position = head;
+            final long end = tail.get();
+            while (position < end) {
+                final int index = (int) (position & MASK);
+                final Object key = slots.get(index);
+                if (key == null) {
+                    // claimed, but not yet written
+                    break;
+                }
+                slots.lazySet(index, null);
+                consumer.accept(key);
+                position++;
+            }
+            head = position;
+        }
+    }
+
+    /**
+     * A count-min sketch of 4-bit counters, which approximates the request
+     * frequency of keys. All counters are halved periodically, so that
+     * old requests lose weight.
+     */
+    private static final class FrequencySketch {
+
+        private static final int[] SEEDS = {
+            0x97cb3127, 0xb4e6d3b7, 0x6e3ae44f, 0x4e7c2f59
+        };
+
+        private static final int MAX_COUNT = 15;
+
+        private final byte[] table;
+
+        private final int mask;
+
+        private final int sampleSize;
+
+        private int additions = 0;
+
+        FrequencySketch(long capacity) {
+            final int size = Integer.highestOneBit((int) Math.min(Math.max(4 * capacity, 256), 1 << 24) - 1) << 1;
+            this.table = new byte[size];
+            this.mask = size - 1;
+            this.sampleSize = 10 * size;
+        }
+
+        void increment(Object key) {
+            final int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int seed : SEEDS) {
+                final int index = index(hash, seed);
+                if (table[index] < MAX_COUNT) {
+                    table[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] >>>= 1;
+                }
+                additions >>>= 1;
+            }
+        }
+
+        int frequency(Object key) {
+            final int hash = spread(key.hashCode());
+            int ret = MAX_COUNT;
+            for (int seed : SEEDS) {
+                ret = Math.min(ret, table[index(hash, seed)]);
+            }
+            return ret;
+        }
+
+        private int index(int hash, int seed) {
+            int h = hash * seed;
+            h ^= h >>> 16;
+            return h & mask;
+        }
+
+        private static int spread(int hash) {
+            final int h = hash * 0x9e3779b9;
+            return h ^ (h >>> 15);
+        }
+    }
+}
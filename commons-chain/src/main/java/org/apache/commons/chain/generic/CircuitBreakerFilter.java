@@ -0,0 +1,632 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Context;
+
+/**
+ * Stops calling a failing or slow downstream {@link org.apache.commons.chain.Command}
+ * for a while.
+ *
+ * <p>The outcomes of the guarded calls are recorded in a sliding time
+ * window of {@code windowSize} milliseconds. When at least
+ * {@code minimumCalls} calls have been recorded and the percentage of
+ * failed calls reaches {@code failureRateThreshold}, or the percentage of
+ * calls taking at least {@code slowCallDuration} milliseconds reaches
+ * {@code slowCallRateThreshold}, the circuit breaker is {@code OPEN}.
+ * Calls are then rejected without calling the downstream command: the
+ * fallback command (property {@code fallbackName}) is executed if it is
+ * configured, otherwise a {@link RejectedExecutionException} is thrown.
+ * After {@code openDuration} milliseconds the circuit breaker is
+ * {@code HALF_OPEN} and permits {@code halfOpenCalls} trial calls. If all
+ * of them succeed in time, it is {@code CLOSED} again, otherwise it is
+ * opened again.</p>
+ *
+ * <p>The circuit breaker is used in one of two ways:</p>
+ * <ul>
+ * <li>If the {@code name} or {@code nameKey} property or the delegate is
+ *     set, it guards the delegate, which is looked up and executed like in
+ *     {@link LookupCommand}.</li>
+ * <li>Otherwise it guards the commands following it in a
+ *     {@link org.apache.commons.chain.Chain}: {@code execute()} checks the
+ *     state and returns {@code false}, and {@code postprocess()} records
+ *     the outcome of the rest of the chain. A rejected call returns
+ *     {@code true} after the fallback command, so that the guarded
+ *     commands are not executed.</li>
+ * </ul>
+ *
+ * <p>The state and the rates are exposed for monitoring. The window is
+ * updated without locks.</p>
+ *
+ * <pre>
+ * &lt;chain name="remote"&gt;
+ *   &lt;command className="org.apache.commons.chain.generic.CircuitBreakerFilter"
+ *       failureRateThreshold="50" slowCallDuration="2000"
+ *       openDuration="30000" fallbackName="remoteUnavailable"/&gt;
+ *   &lt;command className="com.example.CallRemote"/&gt;
+ * &lt;/chain&gt;
+ * </pre>
+ *
+ * @param <C> Type of the context associated with this command
+ *
+ * @since Chain 1.4
+ */
+public class CircuitBreakerFilter<C extends Context> extends WrapperCommandBase<C> {
+
+    // ------------------------------------------------------ Manifest Constants
+
+    /**
+     * The number of buckets of the sliding window.
+     */
+    private static final int BUCKETS = 10;
+
+    // -------------------------------------------------------------- Constructors
+
+    /**
+     * Create an instance, setting its {@code catalogFactory} property to the
+     * value of {@code CatalogFactory.getInstance()}.
+     */
+    public CircuitBreakerFilter() {
+    }
+
+    /**
+     * Create an instance and initialize the {@code catalogFactory} property
+     * to given {@code factory}.
+     *
+     * @param factory The Catalog Factory.
+     */
+    public CircuitBreakerFilter(CatalogFactory<C> factory) {
+        super(factory);
+    }
+
+    // -------------------------------------------------------------- Variables
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    /**
+     * The time the circuit breaker was opened or half opened, in
+     * nanoseconds.
+     */
+    private final AtomicLong openedAt = new AtomicLong();
+
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+
+    private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+
+    /**
+     * The buckets of the sliding window.
+     */
+    private volatile AtomicReferenceArray<Bucket> window = new AtomicReferenceArray<>(BUCKETS);
+
+    /**
+     * The start time of a call guarded in filter mode, in nanoseconds.
+     */
+    private final ThreadLocal<Long> started = new ThreadLocal<>();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    // -------------------------------------------------------------- Properties
+
+    private int failureRateThreshold = 50;
+
+    private int slowCallRateThreshold = 100;
+
+    private long slowCallDuration = 60000;
+
+    private int minimumCalls = 10;
+
+    private long windowSize = 10000;
+
+    private long openDuration = 60000;
+
+    private int halfOpenCalls = 1;
+
+    /**
+     * Return the failure rate which opens the circuit breaker.
+     *
+     * @return The failure rate in percent.
+     */
+    public int getFailureRateThreshold() {
+        return this.failureRateThreshold;
+    }
+
+    /**
+     * Set the failure rate which opens the circuit breaker. Defaults to 50.
+     *
+     * @param failureRateThreshold The failure rate in percent
+     */
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    /**
+     * Return the slow call rate which opens the circuit breaker.
+     *
+     * @return The slow call rate in percent.
+     */
+    public int getSlowCallRateThreshold() {
+        return this.slowCallRateThreshold;
+    }
+
+    /**
+     * Set the slow call rate which opens the circuit breaker. Defaults to
+     * 100.
+     *
+     * @param slowCallRateThreshold The slow call rate in percent
+     */
+    public void setSlowCallRateThreshold(int slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    /**
+     * Return the duration from which a call is slow.
+     *
+     * @return The duration in milliseconds.
+     */
+    public long getSlowCallDuration() {
+        return this.slowCallDuration;
+    }
+
+    /**
+     * Set the duration from which a call is slow. Defaults to 60000.
+     *
+     * @param slowCallDuration The duration in milliseconds
+     */
+    public void setSlowCallDuration(long slowCallDuration) {
+        this.slowCallDuration = slowCallDuration;
+    }
+
+    /**
+     * Return the number of calls in the window required to open the
+     * circuit breaker.
+     *
+     * @return The minimum number of calls.
+     */
+    public int getMinimumCalls() {
+        return this.minimumCalls;
+    }
+
+    /**
+     * Set the number of calls in the window required to open the circuit
+     * breaker. Defaults to 10.
+     *
+     * @param minimumCalls The minimum number of calls
+     */
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = Math.max(1, minimumCalls);
+    }
+
+    /**
+     * Return the size of the sliding window.
+     *
+     * @return The size in milliseconds.
+     */
+    public long getWindowSize() {
+        return this.windowSize;
+    }
+
+    /**
+     * Set the size of the sliding window and clear it. Defaults to 10000.
+     *
+     * @param windowSize The size in milliseconds
+     */
+    public void setWindowSize(long windowSize) {
+        this.windowSize = Math.max(BUCKETS, windowSize);
+        this.window = new AtomicReferenceArray<>(BUCKETS);
+    }
+
+    /**
+     * Return how long the circuit breaker stays open.
+     *
+     * @return The duration in milliseconds.
+     */
+    public long getOpenDuration() {
+        return this.openDuration;
+    }
+
+    /**
+     * Set how long the circuit breaker stays open. Defaults to 60000.
+     *
+     * @param openDuration The duration in milliseconds
+     */
+    public void setOpenDuration(long openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Return the number of trial calls when half open.
+     *
+     * @return The number of trial calls.
+     */
+    public int getHalfOpenCalls() {
+        return this.halfOpenCalls;
+    }
+
+    /**
+     * Set the number of trial calls when half open. Defaults to 1.
+     *
+     * @param halfOpenCalls The number of trial calls
+     */
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+    }
+
+    // -------------------------------------------------------------- Monitoring
+
+    /**
+     * Return the current state.
+     *
+     * @return The current state.
+     */
+    public State getState() {
+        if (state.get() == State.OPEN && isOpenElapsed(System.nanoTime())) {
+            return State.HALF_OPEN;
+        }
+        return state.get();
+    }
+
+    /**
+     * Return the number of calls in the sliding window.
+     *
+     * @return The number of calls.
+     */
+    public long getCallCount() {
+        return snapshot(System.nanoTime())[0];
+    }
+
+    /**
+     * Return the percentage of failed calls in the sliding window.
+     *
+     * @return The failure rate in percent, or {@code -1} if fewer than
+     *         {@code minimumCalls} calls have been recorded.
+     */
+    public float getFailureRate() {
+        return rate(snapshot(System.nanoTime()), 1);
+    }
+
+    /**
+     * Return the percentage of slow calls in the sliding window.
+     *
+     * @return The slow call rate in percent, or {@code -1} if fewer than
+     *         {@code minimumCalls} calls have been recorded.
+     */
+    public float getSlowCallRate() {
+        return rate(snapshot(System.nanoTime()), 2);
+    }
+
+    /**
+     * Return the number of rejected calls.
+     *
+     * @return The number of rejected calls.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Close the circuit breaker and clear the sliding window.
+     */
+    public void reset() {
+        window = new AtomicReferenceArray<>(BUCKETS);
+        state.set(State.CLOSED);
+    }
+
+    // --------------------------------------------------------- Command Methods
+
+    /**
+     * If the circuit breaker permits the call, execute the delegate or, in
+     * filter mode, return {@code false} to continue the chain. Otherwise
+     * execute the fallback command or throw a
+     * {@link RejectedExecutionException}.
+     *
+     * @param context The context for this request
+     *
+     * @return the result of the delegate or the fallback command, or
+     *         {@code false} if {@code ignoreExecuteResult} is {@code true};
+     *         in filter mode {@code false} if the call is permitted and
+     *         {@code true} after the fallback command, to stop the chain
+     *
+     * @throws RejectedExecutionException if the call is not permitted and
+     *         no fallback command is configured
+     * @throws Exception if thrown by the delegate or the fallback command
+     */
+    @Override
+    public boolean execute(C context) throws Exception {
+        if (!acquire(System.nanoTime())) {
+            rejectedCount.increment();
+            if (getFallbackName() != null) {
+                final boolean result = executeFallback(context);
+                return isFilterMode() || result;
+            }
+            throw new RejectedExecutionException("Circuit breaker is open");
+        }
+
+        final long start = System.nanoTime();
+        if (isFilterMode()) {
+            started.set(start);
+            return false;
+        }
+
+        try {
+            final boolean result = executeDelegate(context);
+            record(start, false);
+            return result;
+        } catch (Exception | Error e) {
+            record(start, true);
+            throw e;
+        }
+    }
+
+    /**
+     * In filter mode, record the outcome of the guarded commands.
+     *
+     * @param context The context for this request
+     * @param exception Any {@code Exception} thrown by command execution
+     *
+     * @return {@code false}
+     */
+    @Override
+    public boolean postprocess(C context, Exception exception) {
+        final Long start = started.get();
+        if (start != null) {
+            started.remove();
+            record(start, exception != null);
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------- Private Methods
+
+    /**
+     * Does this circuit breaker guard the rest of a chain instead of a
+     * delegate?
+     *
+     * @return {@code true} in filter mode
+     */
+    private boolean isFilterMode() {
+        return getDelegate() == null && getName() == null && getNameKey() == null;
+    }
+
+    /**
+     * Is a call permitted?
+     *
+     * @param now the current time in nanoseconds
+     *
+     * @return {@code true} if the call is permitted
+     */
+    private boolean acquire(long now) {
+        switch (state.get()) {
+        case CLOSED:
+            return true;
+        case OPEN:
+            if (!isOpenElapsed(now)) {
+                return false;
+            }
+            if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                startTrial(now);
+                return true;
+            }
+            // fall through
+        default:
+            if (halfOpenPermits.getAndUpdate(permits -> permits > 0 ? permits - 1 : 0) > 0) {
+                return true;
+            }
+            // the outcome of a trial call may never be recorded, e.g. if
+            // the chain is aborted by an Error: retry after the open duration
+            final long at = openedAt.get();
+            if (now - at >= TimeUnit.MILLISECONDS.toNanos(openDuration)
+                    && openedAt.compareAndSet(at, now)) {
+                startTrial(now);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Start the trial calls of the half open state, taking the first
+     * permit.
+     *
+     * @param now the current time in nanoseconds
+     */
+    private void startTrial(long now) {
+        openedAt.set(now);
+        halfOpenSuccesses.set(0);
+        halfOpenPermits.set(halfOpenCalls - 1);
+    }
+
+    /**
+     * Has the open duration elapsed?
+     *
+     * @param now the current time in nanoseconds
+     *
+     * @return {@code true} if the circuit breaker may be half opened
+     */
+    private boolean isOpenElapsed(long now) {
+        return now - openedAt.get() >= TimeUnit.MILLISECONDS.toNanos(openDuration);
+    }
+
+    /**
+     * Record the outcome of a permitted call and update the state.
+     *
+     * @param start the start time of the call in nanoseconds
+     * @param failed has the call failed?
+     */
+    private void record(long start, boolean failed) {
+        final long now = System.nanoTime();
+        final boolean slow = now - start >= TimeUnit.MILLISECONDS.toNanos(slowCallDuration);
+
+        if (state.get() == State.HALF_OPEN) {
+            if (failed || slow) {
+                open(State.HALF_OPEN, now);
+            } else if (halfOpenSuccesses.incrementAndGet() >= halfOpenCalls
+                    && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                window = new AtomicReferenceArray<>(BUCKETS);
+            }
+            return;
+        }
+
+        final Bucket bucket = bucket(now);
+        bucket.calls.incrementAndGet();
+        if (failed) {
+            bucket.failures.incrementAndGet();
+        }
+        if (slow) {
+            bucket.slowCalls.incrementAndGet();
+        }
+
+        if ((failed || slow) && state.get() == State.CLOSED) {
+            final long[] snapshot = snapshot(now);
+            if (rate(snapshot, 1) >= failureRateThreshold
+                    || rate(snapshot, 2) >= slowCallRateThreshold) {
+                open(State.CLOSED, now);
+            }
+        }
+    }
+
+    /**
+     * Open the circuit breaker.
+     *
+     * @param expected the expected current state
+     * @param now the current time in nanoseconds
+     */
+    private void open(State expected, long now) {
+        halfOpenPermits.set(0);
+        openedAt.set(now);
+        state.compareAndSet(expected, State.OPEN);
+    }
+
+    /**
+     * Return the current bucket of the sliding window.
+     *
+     * @param now the current time in nanoseconds
+     *
+     * @return the current bucket
+     */
+    private Bucket bucket(long now) {
+        final AtomicReferenceArray<Bucket> buckets = window;
+        final long epoch = now / bucketNanos();
+        final int index = (int) Math.floorMod(epoch, (long) BUCKETS);
+        while (true) {
+            final Bucket bucket = buckets.get(index);
+            if (bucket != null && bucket.epoch == epoch) {
+                return bucket;
+            }
+            final Bucket next = new Bucket(epoch);
+            if (buckets.compareAndSet(index, bucket, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Sum the buckets of the sliding window.
+     *
+     * @param now the current time in nanoseconds
+     *
+     * @return the number of calls, failed calls and slow calls
+     */
+    private long[] snapshot(long now) {
+        final AtomicReferenceArray<Bucket> buckets = window;
+        final long epoch = now / bucketNanos();
+        final long[] ret = new long[3];
+        for (int i = 0; i < BUCKETS; i++) {
+            final Bucket bucket = buckets.get(i);
+            if (bucket != null && epoch - bucket.epoch < BUCKETS) {
+                ret[0] += bucket.calls.get();
+                ret[1] += bucket.failures.get();
+                ret[2] += bucket.slowCalls.get();
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Return a rate of a snapshot.
+     *
+     * @param snapshot the snapshot of the window
+     * @param index the index of the counter
+     *
+     * @return the rate in percent, or {@code -1} if fewer than
+     *         {@code minimumCalls} calls have been recorded
+     */
+    private float rate(long[] snapshot, int index) {
+        if (snapshot[0] < minimumCalls) {
+            return -1;
+        }
+        return snapshot[index] * 100f / snapshot[0];
+    }
+
+    /**
+     * Return the duration of a bucket.
+     *
+     * @return the duration in nanoseconds
+     */
+    private long bucketNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(windowSize) / BUCKETS;
+    }
+
+    // --------------------------------------------------------- Inner Classes
+
+    /**
+     * The state of a circuit breaker.
+     */
+    public enum State {
+
+        /**
+         * Calls are permitted and recorded.
+         */
+        CLOSED,
+
+        /**
+         * Calls are rejected.
+         */
+        OPEN,
+
+        /**
+         * A limited number of trial calls is permitted.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * The counters of a bucket of the sliding window.
+     */
+    private static final class Bucket {
+
+        final long epoch;
+
+        final AtomicLong calls = new AtomicLong();
+
+        final AtomicLong failures = new AtomicLong();
+
+        final AtomicLong slowCalls = new AtomicLong();
+
+        Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.impl.ContextBase;
+
+/**
+ * Helper for lists of context keys configured as comma separated
+ * property values, and for copies of contexts.
+ *
+ * @since Chain 1.4
+ */
+final class ContextKeys {
+
+    /**
+     * An empty list of keys.
+     */
+    static final String[] NONE = new String[0];
+
+    /**
+     * Not to be instantiated.
+     */
+    private ContextKeys() {
+    }
+
+    /**
+     * Parse a comma separated list of context keys.
+     *
+     * @param keys the comma separated keys, or {@code null}
+     *
+     * @return the trimmed, non-empty keys
+     */
+    static String[] parse(String keys) {
+        if (keys == null || keys.trim().isEmpty()) {
+            return NONE;
+        }
+        return Arrays.stream(keys.split(","))
+                .map(String::trim)
+                .filter(key -> !key.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Return a key object for the values of the specified context keys,
+     * which is suitable as key of a hash map.
+     *
+     * @param context the context
+     * @param keys the context keys
+     *
+     * @return the key object
+     */
+    static Object key(Map<String, Object> context, String[] keys) {
+        switch (keys.length) {
+        case 0:
+            return Collections.emptyList();
+        case 1:
+            return Collections.singletonList(context.get(keys[0]));
+        default:
+            return Arrays.asList(values(context, keys));
+        }
+    }
+
+    /**
+     * Return the values of the specified context keys.
+     *
+     * @param context the context
+     * @param keys the context keys
+     *
+     * @return the values, {@code null} for missing keys
+     */
+    static Object[] values(Map<String, Object> context, String[] keys) {
+        final Object[] ret = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ret[i] = context.get(keys[i]);
+        }
+        return ret;
+    }
+
+    /**
+     * Store values under the specified context keys. {@code null}
+     * values are skipped.
+     *
+     * @param context the context
+     * @param keys the context keys
+     * @param values the values
+     */
+    static void store(Map<String, Object> context, String[] keys, Object[] values) {
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                context.put(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * Create a copy of a context holding the specified attributes, e.g.
+     * for a command running in another thread. Only a plain
+     * {@link ContextBase} can be copied; other contexts, such as web
+     * contexts, are backed by objects which must not be shared.
+     *
+     * @param <C> Type of the context
+     * @param context the context to copy
+     * @param attributes the attributes of the copy
+     *
+     * @return the copy
+     *
+     * @throws IllegalArgumentException if the context can't be copied
+     */
+    @SuppressWarnings("unchecked")
+    static <C extends Context> C copy(C context, Map<String, Object> attributes) {
+        if (context.getClass() != ContextBase.class) {
+            throw new IllegalArgumentException("Cannot copy a context of "
+                    + context.getClass().getName() + ", a ContextBase is required");
+        }
+        return (C) new ContextBase(attributes);
+    }
+}
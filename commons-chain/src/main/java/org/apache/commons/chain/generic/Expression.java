@@ -0,0 +1,454 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A small expression over context attributes, parsed once into a tree of
+ * evaluators.
+ *
+ * <p>Syntax, in order of increasing precedence:</p>
+ * <pre>
+ * expression := and ('||' and)*
+ * and        := not ('&amp;&amp;' not)*
+ * not        := '!' not | comparison
+ * comparison := value (('==' | '!=' | '&lt;' | '&lt;=' | '&gt;' | '&gt;=') value)?
+ * value      := '(' expression ')' | literal | key
+ * literal    := 'text' | "text" | number | true | false | null
+ * key        := name of a context attribute, e.g. order.status
+ * </pre>
+ *
+ * <p>A value is {@code false} if it is {@code null}, {@code false}, zero,
+ * an empty string or an empty collection, and {@code true} otherwise.
+ * Numbers, and strings compared with numbers, are compared numerically;
+ * other values by {@code equals()} or, if they are of the same
+ * {@link Comparable} type, by {@code compareTo()}. Number literals are
+ * converted once, when the expression is parsed, to a {@code Long} if
+ * they are integral, otherwise to a {@code BigDecimal}. Integral numbers
+ * and floating point numbers are compared directly; only other numbers
+ * and strings are converted to {@code BigDecimal} for each
+ * comparison.</p>
+ *
+ * @since Chain 1.4
+ */
+final class Expression {
+
+    // ------------------------------------------------------ Static Variables
+
+    /**
+     * The largest {@code long} which is exactly representable as
+     * {@code double}, together with all smaller ones.
+     */
+    private static final long MAX_EXACT = 1L << 53;
+
+    // ------------------------------------------------------ Instance Variables
+
+    /**
+     * The source of this expression.
+     */
+    private final String source;
+
+    /**
+     * The root of the evaluator tree.
+     */
+    private final Node root;
+
+    // ------------------------------------------------------------ Constructors
+
+    /**
+     * Construct a parsed expression.
+     *
+     * @param source the source of the expression
+     * @param root the root of the evaluator tree
+     */
+    private Expression(String source, Node root) {
+        this.source = source;
+        this.root = root;
+    }
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Parse an expression.
+     *
+     * @param source the source of the expression
+     *
+     * @return the parsed expression
+     *
+     * @throws IllegalArgumentException if the expression is invalid
+     */
+    static Expression parse(String source) {
+        final Parser parser = new Parser(source);
+        final Node root = parser.expression();
+        parser.skipWhitespace();
+        if (parser.pos < source.length()) {
+            throw parser.error("Unexpected '" + source.charAt(parser.pos) + "'");
+        }
+        return new Expression(source, root);
+    }
+
+    /**
+     * Evaluate this expression.
+     *
+     * @param context the context
+     *
+     * @return the value of this expression
+     */
+    Object evaluate(Map<String, Object> context) {
+        return root.eval(context);
+    }
+
+    /**
+     * Evaluate this expression as condition.
+     *
+     * @param context the context
+     *
+     * @return the truth value of this expression
+     */
+    boolean test(Map<String, Object> context) {
+        return isTrue(root.eval(context));
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Return the truth value of a value.
+     *
+     * @param value the value
+     *
+     * @return the truth value
+     */
+    private static boolean isTrue(Object value) {
+        if (value == null) {
+            return false;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue() != 0;
+        } else if (value instanceof CharSequence) {
+            return ((CharSequence) value).length() > 0;
+        } else if (value instanceof Collection) {
+            return !((Collection<?>) value).isEmpty();
+        }
+        return true;
+    }
+
+    /**
+     * Compare two values.
+     *
+     * @param left the left value
+     * @param right the right value
+     *
+     * @return the comparison result, or {@code null} if the values are
+     *         not comparable
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Integer compare(Object left, Object right) {
+        if (isIntegral(left) && isIntegral(right)) {
+            return Long.compare(((Number) left).longValue(), ((Number) right).longValue());
+        }
+        if (isFloating(left) && isFloating(right)) {
+            final double l = ((Number) left).doubleValue();
+            final double r = ((Number) right).doubleValue();
+            return l < r ? -1 : l > r ? 1 : 0;
+        }
+        if (left instanceof Number || right instanceof Number) {
+            final BigDecimal l = toNumber(left);
+            final BigDecimal r = toNumber(right);
+            return l != null && r != null ? l.compareTo(r) : null;
+        }
+        if (left instanceof Comparable && right != null && left.getClass() == right.getClass()) {
+            return ((Comparable) left).compareTo(right);
+        }
+        return null;
+    }
+
+    /**
+     * Are two values equal?
+     *
+     * @param left the left value
+     * @param right the right value
+     *
+     * @return {@code true} if the values are equal
+     */
+    private static boolean isEqual(Object left, Object right) {
+        if (left instanceof Number || right instanceof Number) {
+            final Integer result = compare(left, right);
+            return result != null && result == 0;
+        }
+        return Objects.equals(left, right);
+    }
+
+    /**
+     * Is the value an integral number, which can be compared as
+     * {@code long}?
+     *
+     * @param value the value
+     *
+     * @return {@code true} for {@code Integer}, {@code Long},
+     *         {@code Short} and {@code Byte}
+     */
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * Is the value a finite number, which can be compared as
+     * {@code double} with other finite floating point numbers and
+     * integral numbers of at most 53 bits?
+     *
+     * @param value the value
+     *
+     * @return {@code true} for such a number
+     */
+    private static boolean isFloating(Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            return Double.isFinite(((Number) value).doubleValue());
+        }
+        if (isIntegral(value)) {
+            final long l = ((Number) value).longValue();
+            return l >= -MAX_EXACT && l <= MAX_EXACT;
+        }
+        return false;
+    }
+
+    /**
+     * Convert a value to a number.
+     *
+     * @param value the value
+     *
+     * @return the number, or {@code null} if not numeric
+     */
+    private static BigDecimal toNumber(Object value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof Number || value instanceof CharSequence) {
+            try {
+                return new BigDecimal(value.toString().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    // --------------------------------------------------------- Inner Classes
+
+    /**
+     * A node of the evaluator tree.
+     */
+    @FunctionalInterface
+    private interface Node {
+
+        /**
+         * Evaluate this node.
+         *
+         * @param context the context
+         *
+         * @return the value of this node
+         */
+        Object eval(Map<String, Object> context);
+    }
+
+    /**
+     * Recursive descent parser.
+     */
+    private static final class Parser {
+
+        /**
+         * The source of the expression.
+         */
+        private final String source;
+
+        /**
+         * The current position.
+         */
+        int pos = 0;
+
+        /**
+         * Construct a parser.
+         *
+         * @param source the source of the expression
+         */
+        Parser(String source) {
+            this.source = Objects.requireNonNull(source, "expression");
+        }
+
+        Node expression() {
+            Node left = and();
+            while (accept("||")) {
+                final Node l = left;
+                final Node r = and();
+                left = context -> isTrue(l.eval(context)) || isTrue(r.eval(context));
+            }
+            return left;
+        }
+
+        private Node and() {
+            Node left = not();
+            while (accept("&&")) {
+                final Node l = left;
+                final Node r = not();
+                left = context -> isTrue(l.eval(context)) && isTrue(r.eval(context));
+            }
+            return left;
+        }
+
+        private Node not() {
+            skipWhitespace();
+            if (pos < source.length() && source.charAt(pos) == '!' && !source.startsWith("!=", pos)) {
+                pos++;
+                final Node operand = not();
+                return context -> !isTrue(operand.eval(context));
+            }
+            return comparison();
+        }
+
+        private Node comparison() {
+            final Node l = value();
+            if (accept("==")) {
+                final Node r = value();
+                return context -> isEqual(l.eval(context), r.eval(context));
+            } else if (accept("!=")) {
+                final Node r = value();
+                return context -> !isEqual(l.eval(context), r.eval(context));
+            } else if (accept("<=")) {
+                final Node r = value();
+                return context -> {
+                    final Integer result = compare(l.eval(context), r.eval(context));
+                    return result != null && result <= 0;
+                };
+            } else if (accept(">=")) {
+                final Node r = value();
+                return context -> {
+                    final Integer result = compare(l.eval(context), r.eval(context));
+                    return result != null && result >= 0;
+                };
+            } else if (accept("<")) {
+                final Node r = value();
+                return context -> {
+                    final Integer result = compare(l.eval(context), r.eval(context));
+                    return result != null && result < 0;
+                };
+            } else if (accept(">")) {
+                final Node r = value();
+                return context -> {
+                    final Integer result = compare(l.eval(context), r.eval(context));
+                    return result != null && result > 0;
+                };
+            }
+            return l;
+        }
+
+        private Node value() {
+            skipWhitespace();
+            if (pos >= source.length()) {
+                throw error("Unexpected end");
+            }
+            final char c = source.charAt(pos);
+            if (c == '(') {
+                pos++;
+                final Node inner = expression();
+                if (!accept(")")) {
+                    throw error("Missing ')'");
+                }
+                return inner;
+            }
+            if (c == '\'' || c == '"') {
+                final int end = source.indexOf(c, pos + 1);
+                if (end < 0) {
+                    throw error("Unterminated string");
+                }
+                final String text = source.substring(pos + 1, end);
+                pos = end + 1;
+                return context -> text;
+            }
+            if (c == '-' || Character.isDigit(c)) {
+                final int start = pos++;
+                while (pos < source.length()
+                        && (Character.isDigit(source.charAt(pos)) || source.charAt(pos) == '.')) {
+                    pos++;
+                }
+                final Number number;
+                try {
+                    final BigDecimal decimal = new BigDecimal(source.substring(start, pos));
+                    number = isLong(decimal) ? (Number) decimal.longValueExact() : decimal;
+                } catch (NumberFormatException e) {
+                    throw error("Invalid number");
+                }
+                return context -> number;
+            }
+            if (isNameChar(c)) {
+                final int start = pos;
+                while (pos < source.length() && isNameChar(source.charAt(pos))) {
+                    pos++;
+                }
+                final String name = source.substring(start, pos);
+                switch (name) {
+                case "true":
+                    return context -> Boolean.TRUE;
+                case "false":
+                    return context -> Boolean.FALSE;
+                case "null":
+                    return context -> null;
+                default:
+                    return context -> context.get(name);
+                }
+            }
+            throw error("Unexpected '" + c + "'");
+        }
+
+        private static boolean isLong(BigDecimal decimal) {
+            return decimal.scale() == 0 && decimal.unscaledValue().bitLength() < 64;
+        }
+
+        private boolean accept(String token) {
+            skipWhitespace();
+            if (source.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        void skipWhitespace() {
+            while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '$' || c == '-';
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos
+                    + " of expression '" + source + "'");
+        }
+    }
+}
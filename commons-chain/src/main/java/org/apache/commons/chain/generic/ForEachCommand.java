@@ -0,0 +1,522 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.Deadline;
+import org.apache.commons.chain.impl.ContextBase;
+
+/**
+ * Executes a sub-command for every element of a collection stored in the
+ * context.
+ *
+ * <p>For each element a child context is created (see
+ * {@link #createContext(Context, Map, Object, int)}), holding a copy of
+ * the attributes of the context, the element under {@code elementKey} and,
+ * if configured, the position of the element under {@code indexKey}.
+ * The sub-command is the {@code delegate}, or the command looked up by
+ * {@code name} or {@code nameKey}. After the sub-command has completed,
+ * the value of {@code resultKey} in the child context (or the result of
+ * the sub-command, if no {@code resultKey} is set) is collected; the
+ * collected values are stored as a {@code List}, in the order of the
+ * elements, under {@code outputKey}.</p>
+ *
+ * <p>The attributes of the context are copied once by the calling thread
+ * before the first element is executed, and the child contexts are
+ * created from this copy, so that the context itself is not accessed by
+ * other threads. By default only a plain {@link ContextBase} can be
+ * copied; for other types of contexts an
+ * {@code IllegalArgumentException} is thrown, unless
+ * {@link #createContext(Context, Map, Object, int)} is overridden.</p>
+ *
+ * <p>The collection may be a {@code Collection}, an {@code Iterable} or
+ * an array. With a {@code parallelism} greater than {@code 1} the
+ * elements are split into chunks of {@code chunkSize} elements which are
+ * executed on a {@link ForkJoinPool}. The first exception of a
+ * sub-command is rethrown after all running chunks have completed;
+ * chunks not yet started are skipped. The {@link Deadline} of the context
+ * is checked before each element.</p>
+ *
+ * <pre>
+ * &lt;command className="org.apache.commons.chain.generic.ForEachCommand"
+ *     name="priceLineItem" collectionKey="lineItems" elementKey="lineItem"
+ *     resultKey="price" outputKey="prices" parallelism="4"/&gt;
+ * </pre>
+ *
+ * @param <C> Type of the context associated with this command
+ *
+ * @since Chain 1.4
+ */
+public class ForEachCommand<C extends Context> extends WrapperCommandBase<C> {
+
+    // -------------------------------------------------------------- Constructors
+
+    /**
+     * Create an instance, setting its {@code catalogFactory} property to the
+     * value of {@code CatalogFactory.getInstance()}.
+     */
+    public ForEachCommand() {
+    }
+
+    /**
+     * Create an instance and initialize the {@code catalogFactory} property
+     * to given {@code factory}.
+     *
+     * @param factory The Catalog Factory.
+     */
+    public ForEachCommand(CatalogFactory<C> factory) {
+        super(factory);
+    }
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * Has the {@code pool} been created by this command?
+     */
+    private boolean ownPool = false;
+
+    // -------------------------------------------------------------- Properties
+
+    private String collectionKey = null;
+
+    private String elementKey = "element";
+
+    private String indexKey = null;
+
+    private String resultKey = null;
+
+    private String outputKey = null;
+
+    private int parallelism = 1;
+
+    private int chunkSize = 16;
+
+    private ForkJoinPool pool = null;
+
+    /**
+     * Return the context key of the collection.
+     *
+     * @return The context key of the collection.
+     */
+    public String getCollectionKey() {
+        return this.collectionKey;
+    }
+
+    /**
+     * Set the context key of the collection.
+     *
+     * @param collectionKey The context key of the collection
+     */
+    public void setCollectionKey(String collectionKey) {
+        this.collectionKey = collectionKey;
+    }
+
+    /**
+     * Return the key of the element in the child context.
+     *
+     * @return The key of the element.
+     */
+    public String getElementKey() {
+        return this.elementKey;
+    }
+
+    /**
+     * Set the key of the element in the child context. Defaults to
+     * {@code element}.
+     *
+     * @param elementKey The key of the element
+     */
+    public void setElementKey(String elementKey) {
+        this.elementKey = elementKey;
+    }
+
+    /**
+     * Return the key of the position of the element in the child context.
+     *
+     * @return The key of the position, or {@code null} if the position is
+     *         not stored.
+     */
+    public String getIndexKey() {
+        return this.indexKey;
+    }
+
+    /**
+     * Set the key of the position of the element in the child context.
+     *
+     * @param indexKey The key of the position, or {@code null} if the
+     *        position is not stored
+     */
+    public void setIndexKey(String indexKey) {
+        this.indexKey = indexKey;
+    }
+
+    /**
+     * Return the key of the result in the child context.
+     *
+     * @return The key of the result, or {@code null} if the result of the
+     *         sub-command is collected.
+     */
+    public String getResultKey() {
+        return this.resultKey;
+    }
+
+    /**
+     * Set the key of the result in the child context.
+     *
+     * @param resultKey The key of the result, or {@code null} to collect
+     *        the result of the sub-command
+     */
+    public void setResultKey(String resultKey) {
+        this.resultKey = resultKey;
+    }
+
+    /**
+     * Return the context key of the collected results.
+     *
+     * @return The context key of the collected results, or {@code null}
+     *         if the results are not collected.
+     */
+    public String getOutputKey() {
+        return this.outputKey;
+    }
+
+    /**
+     * Set the context key of the collected results.
+     *
+     * @param outputKey The context key of the collected results, or
+     *        {@code null} if the results are not collected
+     */
+    public void setOutputKey(String outputKey) {
+        this.outputKey = outputKey;
+    }
+
+    /**
+     * Return the number of elements executed in parallel.
+     *
+     * @return The parallelism, {@code 1} if the elements are executed
+     *         one after another by the calling thread.
+     */
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Set the number of elements executed in parallel. Defaults to
+     * {@code 1}, which executes the elements one after another by the
+     * calling thread. A dedicated {@link ForkJoinPool} with this
+     * parallelism is created on first use, unless a {@code pool} is set.
+     *
+     * @param parallelism The parallelism
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Return the number of elements executed by a single task.
+     *
+     * @return The chunk size.
+     */
+    public int getChunkSize() {
+        return this.chunkSize;
+    }
+
+    /**
+     * Set the number of elements executed by a single task when executing
+     * in parallel. Defaults to {@code 16}.
+     *
+     * @param chunkSize The chunk size
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Return the {@link ForkJoinPool} executing the elements in parallel.
+     *
+     * @return The pool, or {@code null} if not yet created.
+     */
+    public synchronized ForkJoinPool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * Set the {@link ForkJoinPool} executing the elements in parallel, for
+     * example {@link ForkJoinPool#commonPool()}. A pool set here is not
+     * shut down by {@link #shutdown()}.
+     *
+     * @param pool The pool, or {@code null} for a dedicated pool
+     */
+    public synchronized void setPool(ForkJoinPool pool) {
+        shutdown();
+        this.pool = pool;
+    }
+
+    /**
+     * Shut down the dedicated {@link ForkJoinPool}, if it has been
+     * created. A new pool is created on the next parallel execution.
+     */
+    public synchronized void shutdown() {
+        if (pool != null && ownPool) {
+            pool.shutdown();
+            pool = null;
+        }
+        ownPool = false;
+    }
+
+    // --------------------------------------------------------- Command Methods
+
+    /**
+     * Execute the sub-command for every element of the collection.
+     *
+     * @param context The context for this request
+     *
+     * @return {@code true} if the sub-command returned {@code true} for
+     *         any element, or {@code false} if {@code ignoreExecuteResult}
+     *         is {@code true}
+     *
+     * @throws IllegalArgumentException if the collection is not a
+     *         {@code Collection}, an {@code Iterable} or an array
+     * @throws org.apache.commons.chain.DeadlineExceededException if the
+     *         deadline of the context has expired
+     * @throws Exception if thrown by the sub-command
+     */
+    @Override
+    public boolean execute(C context) throws Exception {
+        final List<?> elements = elements(context.get(collectionKey));
+        final Object[] results = new Object[elements.size()];
+        final Map<String, Object> attributes =
+                elements.isEmpty() ? Collections.emptyMap() : new HashMap<>(context);
+
+        boolean result;
+        if (parallelism > 1 && elements.size() > chunkSize) {
+            final ChunkTask task = new ChunkTask(context, attributes, elements, results, 0, elements.size());
+            getOrCreatePool().invoke(task);
+            if (task.failure.get() != null) {
+                final Throwable failure = task.failure.get();
+                if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+                throw (Exception) failure;
+            }
+            result = task.result;
+        } else {
+            result = false;
+            for (int i = 0; i < results.length; i++) {
+                result |= executeElement(context, attributes, elements.get(i), i, results);
+            }
+        }
+
+        if (outputKey != null) {
+            context.put(outputKey, new ArrayList<>(Arrays.asList(results)));
+        }
+        return !isIgnoreExecuteResult() && result;
+    }
+
+    // ------------------------------------------------------- Protected Methods
+
+    /**
+     * Create the child context for an element. In parallel mode this
+     * method is called by the worker threads, which must not access the
+     * context itself but the copy of its attributes. The default
+     * implementation creates a {@link ContextBase} holding the attributes,
+     * if the context is a plain {@link ContextBase}. Subclasses using
+     * another type of context should override this method.
+     *
+     * @param context The context for this request, only to determine its
+     *        type
+     * @param attributes The copy of the attributes of the context, which
+     *        must not be modified
+     * @param element The element
+     * @param index The position of the element
+     *
+     * @return the child context
+     *
+     * @throws IllegalArgumentException if the context can't be copied
+     */
+    protected C createContext(C context, Map<String, Object> attributes, Object element, int index) {
+        return ContextKeys.copy(context, attributes);
+    }
+
+    // ------------------------------------------------------- Private Methods
+
+    /**
+     * Execute the sub-command for a single element.
+     *
+     * @param context The context for this request
+     * @param attributes The copy of the attributes of the context
+     * @param element The element
+     * @param index The position of the element
+     * @param results The collected results
+     *
+     * @return the result of the sub-command
+     *
+     * @throws Exception if thrown by the sub-command
+     */
+    private boolean executeElement(C context, Map<String, Object> attributes, Object element,
+            int index, Object[] results) throws Exception {
+
+        Deadline.check(attributes);
+        final C child = createContext(context, attributes, element, index);
+        child.put(elementKey, element);
+        if (indexKey != null) {
+            child.put(indexKey, index);
+        }
+        final boolean result = executeDelegate(child);
+        results[index] = resultKey == null ? Boolean.valueOf(result) : child.get(resultKey);
+        return result;
+    }
+
+    /**
+     * Convert the collection to a list.
+     *
+     * @param collection The collection
+     *
+     * @return the elements of the collection
+     */
+    private static List<?> elements(Object collection) {
+        if (collection == null) {
+            return Collections.emptyList();
+        } else if (collection instanceof List) {
+            return (List<?>) collection;
+        } else if (collection instanceof Collection) {
+            return new ArrayList<>((Collection<?>) collection);
+        } else if (collection instanceof Iterable) {
+            final List<Object> ret = new ArrayList<>();
+            for (Object element : (Iterable<?>) collection) {
+                ret.add(element);
+            }
+            return ret;
+        } else if (collection instanceof Object[]) {
+            return Arrays.asList((Object[]) collection);
+        } else if (collection.getClass().isArray()) {
+            final int length = Array.getLength(collection);
+            final List<Object> ret = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                ret.add(Array.get(collection, i));
+            }
+            return ret;
+        }
+        throw new IllegalArgumentException("Not a collection: " + collection.getClass().getName());
+    }
+
+    /**
+     * Return the pool, creating a dedicated pool if none is set.
+     *
+     * @return the pool
+     */
+    private synchronized ForkJoinPool getOrCreatePool() {
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+            ownPool = true;
+        }
+        return pool;
+    }
+
+    // --------------------------------------------------------- Inner Classes
+
+    /**
+     * Executes a range of elements, splitting it in halves down to the
+     * chunk size.
+     */
+    private final class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient C context;
+
+        private final transient Map<String, Object> attributes;
+
+        private final transient List<?> elements;
+
+        private final transient Object[] results;
+
+        private final int from;
+
+        private final int to;
+
+        /**
+         * The first failure of all tasks of the execution.
+         */
+        private final transient AtomicReference<Throwable> failure;
+
+        /**
+         * Did the sub-command return {@code true} for any element?
+         */
+        private boolean result;
+
+        ChunkTask(C context, Map<String, Object> attributes, List<?> elements, Object[] results,
+                int from, int to) {
+            this(context, attributes, elements, results, from, to, new AtomicReference<>());
+        }
+
+        private ChunkTask(C context, Map<String, Object> attributes, List<?> elements,
+                Object[] results, int from, int to, AtomicReference<Throwable> failure) {
+
+            this.context = context;
+            this.attributes = attributes;
+            this.elements = elements;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            if (failure.get() != null) {
+                return;
+            }
+            if (to - from > chunkSize) {
+                final int middle = (from + to) >>> 1;
+                final ChunkTask left =
+                        new ChunkTask(context, attributes, elements, results, from, middle, failure);
+                final ChunkTask right =
+                        new ChunkTask(context, attributes, elements, results, middle, to, failure);
+                invokeAll(left, right);
+                result = left.result || right.result;
+                return;
+            }
+            for (int i = from; i < to && failure.get() == null; i++) {
+                try {
+                    result |= executeElement(context, attributes, elements.get(i), i, results);
+                } catch (Exception | Error e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        }
+    }
+}
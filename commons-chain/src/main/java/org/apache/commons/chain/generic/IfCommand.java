@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Command;
+import org.apache.commons.chain.Context;
+
+/**
+ * Executes the delegate {@link Command} only if a condition over the
+ * context holds, and the fallback command otherwise.
+ *
+ * <p>The condition is an expression over context attributes, which is
+ * parsed once when the {@code condition} property is set, e.g.
+ * {@code status == 'open' && total >= 100}. The expressions support
+ * literals, context attribute names, comparisons, {@code !},
+ * {@code &&}, {@code ||} and parentheses.</p>
+ *
+ * <p>The delegate (properties {@code name} or {@code delegate}) is the
+ * {@code then} branch, the fallback command (property
+ * {@code fallbackName}) is the optional {@code else} branch. Both are
+ * looked up once at the first execution and then referenced directly,
+ * unless the delegate is named by the {@code nameKey} property. If no
+ * branch is executed, {@code false} is returned.</p>
+ *
+ * <pre>
+ * &lt;command className="org.apache.commons.chain.generic.IfCommand"
+ *     condition="customer.vip == true || total &gt; 1000"
+ *     name="priorityShipping" fallbackName="standardShipping"/&gt;
+ * </pre>
+ *
+ * @param <C> Type of the context associated with this command
+ *
+ * @since Chain 1.4
+ */
+public class IfCommand<C extends Context> extends WrapperCommandBase<C> {
+
+    // -------------------------------------------------------------- Constructors
+
+    /**
+     * Create an instance, setting its {@code catalogFactory} property to the
+     * value of {@code CatalogFactory.getInstance()}.
+     */
+    public IfCommand() {
+    }
+
+    /**
+     * Create an instance and initialize the {@code catalogFactory} property
+     * to given {@code factory}.
+     *
+     * @param factory The Catalog Factory.
+     */
+    public IfCommand(CatalogFactory<C> factory) {
+        super(factory);
+    }
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * The {@code then} branch, once looked up.
+     */
+    private volatile Command<C> thenCommand = null;
+
+    /**
+     * The {@code else} branch, once looked up.
+     */
+    private volatile Command<C> elseCommand = null;
+
+    // -------------------------------------------------------------- Properties
+
+    private Expression condition = null;
+
+    /**
+     * Return the condition.
+     *
+     * @return The condition, or {@code null}.
+     */
+    public String getCondition() {
+        return condition == null ? null : condition.toString();
+    }
+
+    /**
+     * Set the condition.
+     *
+     * @param condition The condition
+     *
+     * @throws IllegalArgumentException if the condition is invalid
+     */
+    public void setCondition(String condition) {
+        this.condition = Expression.parse(condition);
+    }
+
+    // --------------------------------------------------------- Command Methods
+
+    /**
+     * Evaluate the condition and execute the matching branch.
+     *
+     * @param context The context for this request
+     *
+     * @return the result of the executed branch, or {@code false} if no
+     *         branch has been executed or if {@code ignoreExecuteResult} is
+     *         {@code true}
+     *
+     * @throws IllegalStateException if no condition is set
+     * @throws IllegalArgumentException if a branch can't be found
+     * @throws Exception if thrown by the executed branch
+     */
+    @Override
+    public boolean execute(C context) throws Exception {
+        if (condition == null) {
+            throw new IllegalStateException("No condition");
+        }
+        final Command<C> branch = condition.test(context)
+                ? thenBranch(context)
+                : elseBranch(context);
+        return branch != null && executeCommand(branch, context);
+    }
+
+    // ------------------------------------------------------- Private Methods
+
+    /**
+     * Return the {@code then} branch.
+     *
+     * @param context The context for this request
+     *
+     * @return the command, or {@code null} if it is optional and not found
+     */
+    private Command<C> thenBranch(C context) {
+        if (getDelegate() != null) {
+            return getDelegate();
+        }
+        if (getNameKey() != null) {
+            return getCommand(context);
+        }
+        Command<C> ret = thenCommand;
+        if (ret == null) {
+            ret = getCommand(context);
+            thenCommand = ret;
+        }
+        return ret;
+    }
+
+    /**
+     * Return the {@code else} branch.
+     *
+     * @param context The context for this request
+     *
+     * @return the command, or {@code null} if there is none
+     */
+    private Command<C> elseBranch(C context) {
+        Command<C> ret = elseCommand;
+        if (ret == null) {
+            ret = getFallbackCommand(context);
+            elseCommand = ret;
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.Deadline;
+import org.apache.commons.chain.DeadlineExceededException;
+
+/**
+ * Retries a delegate {@link org.apache.commons.chain.Command} which fails
+ * with a transient exception.
+ *
+ * <p>If the delegate throws an exception of one of the types listed in
+ * the {@code retryOn} property (by default any exception), it is executed
+ * again after a delay, up to {@code maxAttempts} executions in total. The
+ * delay starts with {@code initialDelay} milliseconds and is multiplied
+ * by {@code multiplier} after each retry, up to {@code maxDelay}
+ * milliseconds. A random part of up to {@code jitter} times the delay is
+ * subtracted, so that concurrent clients don't retry in lockstep. If the
+ * delay would exceed the {@link Deadline} of the context, the last
+ * exception is thrown at once. An {@link InterruptedException} or a
+ * {@link DeadlineExceededException} is never retried, whatever
+ * {@code retryOn} says.</p>
+ *
+ * <p>{@link #execute(Context)} waits for the delay in the calling thread;
+ * {@link #executeAsync(Context, ScheduledExecutorService)} schedules the
+ * retries without blocking a thread. The number of executions is stored
+ * in the context attribute named by the {@code attemptsKey} property, if
+ * set, and retries are counted for monitoring.</p>
+ *
+ * <pre>
+ * &lt;command className="org.apache.commons.chain.generic.RetryCommand"
+ *     name="readIndex" maxAttempts="4" initialDelay="50"
+ *     retryOn="java.io.IOException,java.util.ConcurrentModificationException"/&gt;
+ * </pre>
+ *
+ * @param <C> Type of the context associated with this command
+ *
+ * @since Chain 1.4
+ */
+public class RetryCommand<C extends Context> extends WrapperCommandBase<C> {
+
+    // -------------------------------------------------------------- Constructors
+
+    /**
+     * Create an instance, setting its {@code catalogFactory} property to the
+     * value of {@code CatalogFactory.getInstance()}.
+     */
+    public RetryCommand() {
+    }
+
+    /**
+     * Create an instance and initialize the {@code catalogFactory} property
+     * to given {@code factory}.
+     *
+     * @param factory The Catalog Factory.
+     */
+    public RetryCommand(CatalogFactory<C> factory) {
+        super(factory);
+    }
+
+    // -------------------------------------------------------------- Variables
+
+    private final LongAdder retryCount = new LongAdder();
+
+    private final LongAdder recoveredCount = new LongAdder();
+
+    private final LongAdder exhaustedCount = new LongAdder();
+
+    // -------------------------------------------------------------- Properties
+
+    private Class<?>[] retryOn = {Exception.class};
+
+    private int maxAttempts = 3;
+
+    private long initialDelay = 100;
+
+    private double multiplier = 2.0;
+
+    private long maxDelay = 10000;
+
+    private double jitter = 0.5;
+
+    private String attemptsKey = null;
+
+    /**
+     * Return the exception types which are retried.
+     *
+     * @return The comma separated class names.
+     */
+    public String getRetryOn() {
+        final StringBuilder ret = new StringBuilder();
+        for (Class<?> type : retryOn) {
+            if (ret.length() > 0) {
+                ret.append(',');
+            }
+            ret.append(type.getName());
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Set the exception types which are retried, including their
+     * subclasses, except {@link InterruptedException} and
+     * {@link DeadlineExceededException}. Defaults to
+     * {@code java.lang.Exception}.
+     *
+     * @param retryOn The comma separated class names
+     *
+     * @throws IllegalArgumentException if a class can't be loaded or is
+     *         not a {@link Throwable}
+     */
+    public void setRetryOn(String retryOn) {
+        final String[] names = ContextKeys.parse(retryOn);
+        final Class<?>[] types = new Class<?>[names.length];
+        for (int i = 0; i < names.length; i++) {
+            types[i] = loadClass(names[i]);
+            if (!Throwable.class.isAssignableFrom(types[i])) {
+                throw new IllegalArgumentException("Not an exception type '" + names[i] + "'");
+            }
+        }
+        this.retryOn = types;
+    }
+
+    /**
+     * Return the maximum number of executions.
+     *
+     * @return The maximum number of executions.
+     */
+    public int getMaxAttempts() {
+        return this.maxAttempts;
+    }
+
+    /**
+     * Set the maximum number of executions, including the first one.
+     * Defaults to 3.
+     *
+     * @param maxAttempts The maximum number of executions
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /**
+     * Return the delay before the first retry.
+     *
+     * @return The delay in milliseconds.
+     */
+    public long getInitialDelay() {
+        return this.initialDelay;
+    }
+
+    /**
+     * Set the delay before the first retry. Defaults to 100.
+     *
+     * @param initialDelay The delay in milliseconds
+     */
+    public void setInitialDelay(long initialDelay) {
+        this.initialDelay = Math.max(0, initialDelay);
+    }
+
+    /**
+     * Return the factor by which the delay grows after each retry.
+     *
+     * @return The factor.
+     */
+    public double getMultiplier() {
+        return this.multiplier;
+    }
+
+    /**
+     * Set the factor by which the delay grows after each retry. Defaults
+     * to 2.
+     *
+     * @param multiplier The factor
+     */
+    public void setMultiplier(double multiplier) {
+        this.multiplier = Math.max(1.0, multiplier);
+    }
+
+    /**
+     * Return the maximum delay.
+     *
+     * @return The maximum delay in milliseconds.
+     */
+    public long getMaxDelay() {
+        return this.maxDelay;
+    }
+
+    /**
+     * Set the maximum delay. Defaults to 10000.
+     *
+     * @param maxDelay The maximum delay in milliseconds
+     */
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = Math.max(0, maxDelay);
+    }
+
+    /**
+     * Return the maximum random part of the delay.
+     *
+     * @return The maximum random part as fraction of the delay.
+     */
+    public double getJitter() {
+        return this.jitter;
+    }
+
+    /**
+     * Set the maximum random part of the delay, which is subtracted from
+     * the delay. Defaults to 0.5.
+     *
+     * @param jitter The maximum random part as fraction of the delay,
+     *        between 0 and 1
+     */
+    public void setJitter(double jitter) {
+        this.jitter = Math.max(0.0, Math.min(1.0, jitter));
+    }
+
+    /**
+     * Return the context key of the number of executions.
+     *
+     * @return The context key, or {@code null}.
+     */
+    public String getAttemptsKey() {
+        return this.attemptsKey;
+    }
+
+    /**
+     * Set the context key under which the number of executions of the
+     * delegate is stored.
+     *
+     * @param attemptsKey The context key, or {@code null}
+     */
+    public void setAttemptsKey(String attemptsKey) {
+        this.attemptsKey = attemptsKey;
+    }
+
+    // -------------------------------------------------------------- Metrics
+
+    /**
+     * Return the number of retries.
+     *
+     * @return The number of retries.
+     */
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    /**
+     * Return the number of calls which succeeded after a retry.
+     *
+     * @return The number of recovered calls.
+     */
+    public long getRecoveredCount() {
+        return recoveredCount.sum();
+    }
+
+    /**
+     * Return the number of calls which failed although retryable, because
+     * the attempts or the deadline were exhausted.
+     *
+     * @return The number of exhausted calls.
+     */
+    public long getExhaustedCount() {
+        return exhaustedCount.sum();
+    }
+
+    // --------------------------------------------------------- Command Methods
+
+    /**
+     * Execute the delegate, retrying it after transient failures.
+     *
+     * @param context The context for this request
+     *
+     * @return the result of the delegate, or {@code false} if
+     *         {@code ignoreExecuteResult} is {@code true}
+     *
+     * @throws InterruptedException if interrupted while waiting
+     * @throws Exception the last exception thrown by the delegate
+     */
+    @Override
+    public boolean execute(C context) throws Exception {
+        long delay = initialDelay;
+        for (int attempt = 1;; attempt++) {
+            try {
+                return attempt(context, attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (Exception e) {
+                final long sleep = retryDelay(context, e, attempt, delay);
+                if (sleep < 0) {
+                    throw e;
+                }
+                TimeUnit.MILLISECONDS.sleep(sleep);
+                delay = nextDelay(delay);
+            }
+        }
+    }
+
+    /**
+     * Execute the delegate asynchronously on the specified scheduler,
+     * scheduling the retries after their delay.
+     *
+     * @param context The context for this request
+     * @param scheduler The scheduler executing the delegate
+     *
+     * @return the future result of the delegate, which fails with the last
+     *         exception thrown by the delegate
+     */
+    public CompletableFuture<Boolean> executeAsync(C context, ScheduledExecutorService scheduler) {
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        try {
+            scheduler.execute(() -> attemptAsync(context, scheduler, result, 1, initialDelay));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    // ------------------------------------------------------- Private Methods
+
+    /**
+     * Execute the delegate once.
+     *
+     * @param context the context for this request
+     * @param attempt the number of the execution
+     *
+     * @return the result of the delegate
+     *
+     * @throws Exception if thrown by the delegate
+     */
+    private boolean attempt(C context, int attempt) throws Exception {
+        if (attemptsKey != null) {
+            context.put(attemptsKey, attempt);
+        }
+        final boolean result = executeDelegate(context);
+        if (attempt > 1) {
+            recoveredCount.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Execute the delegate once asynchronously and schedule a retry if
+     * necessary.
+     *
+     * @param context the context for this request
+     * @param scheduler the scheduler executing the delegate
+     * @param result the future result
+     * @param attempt the number of the execution
+     * @param delay the delay before the next retry without jitter
+     */
+    private void attemptAsync(C context, ScheduledExecutorService scheduler,
+            CompletableFuture<Boolean> result, int attempt, long delay) {
+        try {
+            result.complete(attempt(context, attempt));
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            final long sleep = retryDelay(context, e, attempt, delay);
+            if (sleep < 0) {
+                result.completeExceptionally(e);
+                return;
+            }
+            try {
+                scheduler.schedule(() -> attemptAsync(context, scheduler, result,
+                        attempt + 1, nextDelay(delay)), sleep, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e2) {
+                e.addSuppressed(e2);
+                result.completeExceptionally(e);
+            }
+        } catch (Error e) {
+            result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Decide whether a failed execution is retried.
+     *
+     * @param context the context for this request
+     * @param exception the exception thrown by the delegate
+     * @param attempt the number of the failed execution
+     * @param delay the delay before the next retry without jitter
+     *
+     * @return the delay before the retry in milliseconds, or {@code -1}
+     *         if the exception is thrown
+     */
+    private long retryDelay(C context, Exception exception, int attempt, long delay) {
+        if (!isRetryable(exception)) {
+            return -1;
+        }
+        final long sleep = delay - (long) (delay * jitter * ThreadLocalRandom.current().nextDouble());
+        final Deadline deadline = Deadline.get(context);
+        if (attempt >= maxAttempts
+                || deadline != null && deadline.timeRemaining(TimeUnit.MILLISECONDS) <= sleep) {
+            exhaustedCount.increment();
+            return -1;
+        }
+        retryCount.increment();
+        return sleep;
+    }
+
+    /**
+     * Return the delay before the retry after the next one.
+     *
+     * @param delay the current delay without jitter
+     *
+     * @return the next delay without jitter
+     */
+    private long nextDelay(long delay) {
+        return (long) Math.min(maxDelay, delay * multiplier);
+    }
+
+    /**
+     * Is an exception retried?
+     *
+     * @param exception the exception
+     *
+     * @return {@code true} if the exception is an instance of one of the
+     *         configured types, but neither an interruption nor an
+     *         exceeded deadline
+     */
+    private boolean isRetryable(Exception exception) {
+        if (exception instanceof InterruptedException
+                || exception instanceof DeadlineExceededException) {
+            return false;
+        }
+        for (Class<?> type : retryOn) {
+            if (type.isInstance(exception)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Load a class with the context class loader, or the class loader of
+     * this class.
+     *
+     * @param name the class name
+     *
+     * @return the class
+     *
+     * @throws IllegalArgumentException if the class can't be loaded
+     */
+    private static Class<?> loadClass(String name) {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader == null) {
+            loader = RetryCommand.class.getClassLoader();
+        }
+        try {
+            return Class.forName(name, false, loader);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Cannot load class '" + name + "'", e);
+        }
+    }
+}
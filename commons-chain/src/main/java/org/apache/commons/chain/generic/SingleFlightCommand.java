@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.Deadline;
+import org.apache.commons.chain.DeadlineExceededException;
+
+/**
+ * Coalesces concurrent executions of a delegate
+ * {@link org.apache.commons.chain.Command} with the same input.
+ *
+ * <p>The key of an execution is built from the values of the context
+ * attributes named by the {@code keys} property. While the delegate is
+ * executed for a key, further executions with an equal key don't execute
+ * the delegate again, but wait for the running execution. Afterwards the
+ * values of the context attributes named by the {@code outputKeys}
+ * property are copied from the context of the running execution into the
+ * context of each waiting execution, and all executions return the same
+ * result, or throw the same exception.</p>
+ *
+ * <p>A waiting execution waits at most until the {@link Deadline} of its
+ * context, if any, and then throws a {@link DeadlineExceededException}.
+ * An execution with the key of a running execution of the same thread,
+ * for example a recursive call of the delegate, executes the delegate
+ * directly instead of waiting for itself.</p>
+ *
+ * <p>Unlike {@link CachingCommand} nothing is kept after the execution has
+ * finished, so the next execution with the same key executes the delegate
+ * again.</p>
+ *
+ * @param <C> Type of the context associated with this command
+ *
+ * @since Chain 1.4
+ */
+public class SingleFlightCommand<C extends Context> extends WrapperCommandBase<C> {
+
+    // -------------------------------------------------------------- Constructors
+
+    /**
+     * Create an instance, setting its {@code catalogFactory} property to the
+     * value of {@code CatalogFactory.getInstance()}.
+     */
+    public SingleFlightCommand() {
+    }
+
+    /**
+     * Create an instance and initialize the {@code catalogFactory} property
+     * to given {@code factory}.
+     *
+     * @param factory The Catalog Factory.
+     */
+    public SingleFlightCommand(CatalogFactory<C> factory) {
+        super(factory);
+    }
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * The running executions, keyed by their key.
+     */
+    private final ConcurrentHashMap<Object, Flight> flights =
+        new ConcurrentHashMap<>();
+
+    private final LongAdder executionCount = new LongAdder();
+
+    private final LongAdder sharedCount = new LongAdder();
+
+    // -------------------------------------------------------------- Properties
+
+    private String[] keys = ContextKeys.NONE;
+
+    private String[] outputKeys = ContextKeys.NONE;
+
+    /**
+     * Return the context keys of the execution key.
+     *
+     * @return The comma separated context keys.
+     */
+    public String getKeys() {
+        return String.join(",", keys);
+    }
+
+    /**
+     * Set the context keys whose values build the execution key.
+     *
+     * @param keys The comma separated context keys
+     */
+    public void setKeys(String keys) {
+        this.keys = ContextKeys.parse(keys);
+    }
+
+    /**
+     * Return the context keys of the shared output.
+     *
+     * @return The comma separated context keys.
+     */
+    public String getOutputKeys() {
+        return String.join(",", outputKeys);
+    }
+
+    /**
+     * Set the context keys whose values are copied to the waiting
+     * executions.
+     *
+     * @param outputKeys The comma separated context keys
+     */
+    public void setOutputKeys(String outputKeys) {
+        this.outputKeys = ContextKeys.parse(outputKeys);
+    }
+
+    // -------------------------------------------------------------- Metrics
+
+    /**
+     * Return the number of executions of the delegate.
+     *
+     * @return The number of executions of the delegate.
+     */
+    public long getExecutionCount() {
+        return executionCount.sum();
+    }
+
+    /**
+     * Return the number of executions which waited for a running execution
+     * instead of executing the delegate.
+     *
+     * @return The number of coalesced executions.
+     */
+    public long getSharedCount() {
+        return sharedCount.sum();
+    }
+
+    /**
+     * Return the number of keys for which the delegate is running.
+     *
+     * @return The number of running executions.
+     */
+    public int getInFlightCount() {
+        return flights.size();
+    }
+
+    // --------------------------------------------------------- Command Methods
+
+    /**
+     * Execute the delegate, or wait for the running execution with the
+     * same key.
+     *
+     * @param context The context for this request
+     *
+     * @return the result of the delegate, or {@code false} if
+     *         {@code ignoreExecuteResult} is {@code true}
+     *
+     * @throws IllegalArgumentException if the delegate can't be found and
+     *         is not optional
+     * @throws InterruptedException if interrupted while waiting for the
+     *         running execution
+     * @throws DeadlineExceededException if the deadline of the context
+     *         expires while waiting for the running execution
+     * @throws Exception if thrown by the delegate
+     */
+    @Override
+    public boolean execute(C context) throws Exception {
+        final Object key = ContextKeys.key(context, keys);
+        final Flight flight = new Flight();
+        final Flight running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            if (running.owner == Thread.currentThread()) {
+                // re-entrant execution, waiting would never end
+                executionCount.increment();
+                return executeDelegate(context);
+            }
+            sharedCount.increment();
+            return await(running, context);
+        }
+
+        executionCount.increment();
+        try {
+            final boolean result = executeDelegate(context);
+            flight.complete(new Outcome(ContextKeys.values(context, outputKeys), result));
+            return result;
+        } catch (Exception | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    // ------------------------------------------------------- Private Methods
+
+    /**
+     * Wait for a running execution and copy its outcome.
+     *
+     * @param running the running execution
+     * @param context the context for this request
+     *
+     * @return the result of the running execution
+     *
+     * @throws DeadlineExceededException if the deadline of the context
+     *         expires
+     * @throws Exception if thrown by the running execution
+     */
+    private boolean await(Flight running, C context) throws Exception {
+        final Deadline deadline = Deadline.get(context);
+        final Outcome outcome;
+        try {
+            if (deadline == null) {
+                outcome = running.get();
+            } else {
+                outcome = running.get(Math.max(0, deadline.timeRemaining(TimeUnit.NANOSECONDS)),
+                        TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("Deadline exceeded while waiting for a running execution");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (Exception) cause;
+        }
+        ContextKeys.store(context, outputKeys, outcome.outputs);
+        return outcome.result;
+    }
+
+    // --------------------------------------------------------- Inner Classes
+
+    /**
+     * A running execution of the delegate.
+     */
+    private static final class Flight extends CompletableFuture<Outcome> {
+
+        /**
+         * The thread executing the delegate.
+         */
+        final Thread owner = Thread.currentThread();
+    }
+
+    /**
+     * The outcome of an execution of the delegate.
+     */
+    private static final class Outcome {
+
+        final Object[] outputs;
+
+        final boolean result;
+
+        Outcome(Object[] outputs, boolean result) {
+            this.outputs = outputs;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Command;
+import org.apache.commons.chain.Context;
+
+/**
+ * Executes one of several {@link Command}s, selected by the value of an
+ * expression over the context.
+ *
+ * <p>The {@code expression} property is parsed once, like the condition
+ * of {@link IfCommand}; usually it is just the name of a context
+ * attribute. Its value, converted to a string, selects a case of the
+ * {@code cases} property, which maps values to command names, e.g.
+ * {@code open=handleOpen, closed=handleClosed}. If no case matches, the
+ * fallback command (property {@code fallbackName}) is the default
+ * branch; without it {@code false} is returned. The {@code name},
+ * {@code nameKey} and {@code delegate} properties are not used.</p>
+ *
+ * <p>The commands are looked up once at the first execution and then
+ * referenced directly, so that selecting a branch costs a hash lookup
+ * instead of a catalog lookup.</p>
+ *
+ * <pre>
+ * &lt;command className="org.apache.commons.chain.generic.SwitchCommand"
+ *     expression="order.type" cases="retail=retailOrder, b2b=b2bOrder"
+ *     fallbackName="unknownOrder"/&gt;
+ * </pre>
+ *
+ * @param <C> Type of the context associated with this command
+ *
+ * @since Chain 1.4
+ */
+public class SwitchCommand<C extends Context> extends WrapperCommandBase<C> {
+
+    // -------------------------------------------------------------- Constructors
+
+    /**
+     * Create an instance, setting its {@code catalogFactory} property to the
+     * value of {@code CatalogFactory.getInstance()}.
+     */
+    public SwitchCommand() {
+    }
+
+    /**
+     * Create an instance and initialize the {@code catalogFactory} property
+     * to given {@code factory}.
+     *
+     * @param factory The Catalog Factory.
+     */
+    public SwitchCommand(CatalogFactory<C> factory) {
+        super(factory);
+    }
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * The commands set directly, keyed by case value.
+     */
+    private final Map<String, Command<C>> caseCommands = new HashMap<>();
+
+    /**
+     * The commands of all cases, once looked up.
+     */
+    private volatile Map<String, Command<C>> branches = null;
+
+    /**
+     * The default branch, once looked up.
+     */
+    private volatile Command<C> defaultCommand = null;
+
+    // -------------------------------------------------------------- Properties
+
+    private Expression expression = null;
+
+    private Map<String, String> cases = Collections.emptyMap();
+
+    /**
+     * Return the expression selecting the case.
+     *
+     * @return The expression, or {@code null}.
+     */
+    public String getExpression() {
+        return expression == null ? null : expression.toString();
+    }
+
+    /**
+     * Set the expression selecting the case.
+     *
+     * @param expression The expression
+     *
+     * @throws IllegalArgumentException if the expression is invalid
+     */
+    public void setExpression(String expression) {
+        this.expression = Expression.parse(expression);
+    }
+
+    /**
+     * Return the cases.
+     *
+     * @return The comma separated {@code value=commandName} pairs.
+     */
+    public String getCases() {
+        final StringBuilder ret = new StringBuilder();
+        for (Map.Entry<String, String> entry : cases.entrySet()) {
+            if (ret.length() > 0) {
+                ret.append(", ");
+            }
+            ret.append(entry.getKey()).append('=').append(entry.getValue());
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Set the cases, replacing the cases set before.
+     *
+     * @param cases The comma separated {@code value=commandName} pairs
+     *
+     * @throws IllegalArgumentException if a pair is invalid
+     */
+    public void setCases(String cases) {
+        final Map<String, String> map = new LinkedHashMap<>();
+        for (String pair : ContextKeys.parse(cases)) {
+            final int eq = pair.indexOf('=');
+            if (eq <= 0 || eq == pair.length() - 1) {
+                throw new IllegalArgumentException("Invalid case '" + pair + "'");
+            }
+            map.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+        }
+        this.cases = map;
+        this.branches = null;
+    }
+
+    /**
+     * Add a case with a {@link Command} set directly.
+     *
+     * @param value The case value
+     * @param command The command to execute for the value
+     */
+    public synchronized void addCase(String value, Command<C> command) {
+        caseCommands.put(value, command);
+        this.branches = null;
+    }
+
+    // --------------------------------------------------------- Command Methods
+
+    /**
+     * Evaluate the expression and execute the selected branch.
+     *
+     * @param context The context for this request
+     *
+     * @return the result of the executed branch, or {@code false} if no
+     *         branch has been executed or if {@code ignoreExecuteResult} is
+     *         {@code true}
+     *
+     * @throws IllegalStateException if no expression is set
+     * @throws IllegalArgumentException if a command can't be found
+     * @throws Exception if thrown by the executed branch
+     */
+    @Override
+    public boolean execute(C context) throws Exception {
+        if (expression == null) {
+            throw new IllegalStateException("No expression");
+        }
+        final Object value = expression.evaluate(context);
+        Command<C> branch = branches(context).get(String.valueOf(value));
+        if (branch == null) {
+            branch = defaultBranch(context);
+        }
+        return branch != null && executeCommand(branch, context);
+    }
+
+    // ------------------------------------------------------- Private Methods
+
+    /**
+     * Return the commands of all cases, looking them up if necessary.
+     *
+     * @param context The context for this request
+     *
+     * @return the commands, keyed by case value
+     *
+     * @throws IllegalArgumentException if a command can't be found
+     */
+    private Map<String, Command<C>> branches(C context) {
+        Map<String, Command<C>> ret = branches;
+        if (ret == null) {
+            synchronized (this) {
+                final Map<String, Command<C>> map = new HashMap<>();
+                for (Map.Entry<String, String> entry : cases.entrySet()) {
+                    final Command<C> command = getCatalog(context).getCommand(entry.getValue());
+                    if (command == null) {
+                        throw new IllegalArgumentException("Cannot find command '"
+                                + entry.getValue() + "' for case '" + entry.getKey() + "'");
+                    }
+                    map.put(entry.getKey(), command);
+                }
+                map.putAll(caseCommands);
+                ret = Collections.unmodifiableMap(map);
+                branches = ret;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Return the default branch.
+     *
+     * @param context The context for this request
+     *
+     * @return the command, or {@code null} if there is none
+     */
+    private Command<C> defaultBranch(C context) {
+        Command<C> ret = defaultCommand;
+        if (ret == null) {
+            ret = getFallbackCommand(context);
+            defaultCommand = ret;
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.Deadline;
+import org.apache.commons.chain.DeadlineExceededException;
+
+/**
+ * Executes a delegate {@link org.apache.commons.chain.Command} with a time
+ * budget.
+ *
+ * <p>The budget is the {@code timeout} property, narrowed by the
+ * {@link Deadline} of the context, if any; the delegate sees the narrowed
+ * deadline in its context. The delegate is executed by a worker thread
+ * on a copy of the context (see {@link #createContext(Context)}) while
+ * the calling thread waits. If the delegate completes in time, the
+ * values of the {@code outputKeys} are copied back into the context. If
+ * the budget runs out first, the delegate is interrupted (or just
+ * abandoned, if the {@code interrupt} property is {@code false}) and a
+ * {@link DeadlineExceededException} is thrown; an abandoned delegate
+ * may still be running, but only on its own copy of the context. If
+ * there is no budget at all, the delegate is executed by the calling
+ * thread on the context itself.</p>
+ *
+ * <p>The worker threads belong to a pool of this command with at most
+ * {@code maxThreads} threads, which is created with the first execution;
+ * idle threads are terminated after a minute and {@link #shutdown()}
+ * terminates the pool. If all threads are busy, e.g. with abandoned
+ * delegates, the execution is rejected with a
+ * {@link RejectedExecutionException}.</p>
+ *
+ * <pre>
+ * &lt;command className="org.apache.commons.chain.generic.TimeoutCommand"
+ *     name="loadProfile" timeout="250" outputKeys="profile"/&gt;
+ * </pre>
+ *
+ * @param <C> Type of the context associated with this command
+ *
+ * @since Chain 1.4
+ */
+public class TimeoutCommand<C extends Context> extends WrapperCommandBase<C> {
+
+    // -------------------------------------------------------------- Constructors
+
+    /**
+     * Create an instance, setting its {@code catalogFactory} property to the
+     * value of {@code CatalogFactory.getInstance()}.
+     */
+    public TimeoutCommand() {
+    }
+
+    /**
+     * Create an instance and initialize the {@code catalogFactory} property
+     * to given {@code factory}.
+     *
+     * @param factory The Catalog Factory.
+     */
+    public TimeoutCommand(CatalogFactory<C> factory) {
+        super(factory);
+    }
+
+    // -------------------------------------------------------------- Variables
+
+    /**
+     * The number of delegates which have run out of time.
+     */
+    private final LongAdder timeoutCount = new LongAdder();
+
+    /**
+     * The thread pool of this command, created with the first execution.
+     */
+    private volatile ThreadPoolExecutor pool = null;
+
+    // -------------------------------------------------------------- Properties
+
+    /**
+     * The time budget of the delegate in milliseconds.
+     */
+    private long timeout = 0;
+
+    /**
+     * Is the delegate interrupted when the budget runs out?
+     */
+    private boolean interrupt = true;
+
+    /**
+     * The executor of the delegate, {@code null} for the own pool.
+     */
+    private ExecutorService executor = null;
+
+    /**
+     * The context keys copied back after a delegate completed in time.
+     */
+    private String[] outputKeys = ContextKeys.NONE;
+
+    /**
+     * The maximum number of threads of the own pool.
+     */
+    private int maxThreads = 25;
+
+    /**
+     * Return the time budget of the delegate.
+     *
+     * @return The time budget in milliseconds, {@code 0} if only the
+     *         deadline of the context applies.
+     */
+    public long getTimeout() {
+        return this.timeout;
+    }
+
+    /**
+     * Set the time budget of the delegate.
+     *
+     * @param timeout The time budget in milliseconds, {@code 0} if only
+     *        the deadline of the context applies
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = Math.max(0, timeout);
+    }
+
+    /**
+     * Is the delegate interrupted when the budget runs out?
+     *
+     * @return {@code true} if the delegate is interrupted.
+     */
+    public boolean isInterrupt() {
+        return this.interrupt;
+    }
+
+    /**
+     * Set if the delegate is interrupted or abandoned when the budget runs
+     * out. Defaults to {@code true}.
+     *
+     * @param interrupt {@code true} to interrupt the delegate
+     */
+    public void setInterrupt(boolean interrupt) {
+        this.interrupt = interrupt;
+    }
+
+    /**
+     * Return the context keys copied back into the context after the
+     * delegate has completed in time.
+     *
+     * @return The comma separated context keys.
+     */
+    public String getOutputKeys() {
+        return String.join(",", outputKeys);
+    }
+
+    /**
+     * Set the context keys copied back into the context after the
+     * delegate has completed in time.
+     *
+     * @param outputKeys The comma separated context keys
+     */
+    public void setOutputKeys(String outputKeys) {
+        this.outputKeys = ContextKeys.parse(outputKeys);
+    }
+
+    /**
+     * Return the maximum number of threads of the pool of this command.
+     *
+     * @return The maximum number of threads.
+     */
+    public int getMaxThreads() {
+        return this.maxThreads;
+    }
+
+    /**
+     * Set the maximum number of threads of the pool of this command.
+     * Defaults to {@code 25}.
+     *
+     * @param maxThreads The maximum number of threads
+     */
+    public void setMaxThreads(int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("maxThreads must be positive");
+        }
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Return the {@link ExecutorService} executing the delegate.
+     *
+     * @return The executor, or {@code null} for the pool of this command.
+     */
+    public ExecutorService getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Set the {@link ExecutorService} executing the delegate.
+     *
+     * @param executor The executor, or {@code null} for the pool of this
+     *        command
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Return the number of executions which ran out of time.
+     *
+     * @return The number of timeouts.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    /**
+     * Terminate the thread pool of this command, if it has been created.
+     * A later execution creates a new pool.
+     */
+    public synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    // --------------------------------------------------------- Command Methods
+
+    /**
+     * Execute the delegate within the time budget.
+     *
+     * @param context The context for this request
+     *
+     * @return the result of the delegate, or {@code false} if
+     *         {@code ignoreExecuteResult} is {@code true}
+     *
+     * @throws DeadlineExceededException if the budget runs out
+     * @throws RejectedExecutionException if all threads are busy
+     * @throws IllegalArgumentException if the context can't be copied
+     * @throws InterruptedException if interrupted while waiting
+     * @throws Exception if thrown by the delegate
+     */
+    @Override
+    public boolean execute(C context) throws Exception {
+        if (timeout <= 0) {
+            return executeWithin(context);
+        }
+        final Deadline previous =
+                Deadline.narrow(context, Deadline.after(timeout, TimeUnit.MILLISECONDS));
+        try {
+            return executeWithin(context);
+        } finally {
+            Deadline.restore(context, previous);
+        }
+    }
+
+    // ------------------------------------------------------ Protected Methods
+
+    /**
+     * Create the copy of the context on which the delegate is executed by
+     * a worker thread. The default implementation copies the attributes
+     * of a plain {@link org.apache.commons.chain.impl.ContextBase}.
+     * Subclasses using another type of context should override this
+     * method.
+     *
+     * @param context The context for this request
+     *
+     * @return the copy of the context
+     *
+     * @throws IllegalArgumentException if the context can't be copied
+     */
+    protected C createContext(C context) {
+        return ContextKeys.copy(context, context);
+    }
+
+    // ------------------------------------------------------- Private Methods
+
+    /**
+     * Execute the delegate within the deadline of the context.
+     *
+     * @param context The context for this request
+     *
+     * @return the result of the delegate
+     *
+     * @throws Exception if thrown by the delegate or on timeout
+     */
+    private boolean executeWithin(C context) throws Exception {
+        final Deadline deadline = Deadline.get(context);
+        if (deadline == null) {
+            return executeDelegate(context);
+        }
+        Deadline.check(context);
+
+        final C copy = createContext(context);
+        final ExecutorService theExecutor = executor != null ? executor : pool();
+        final Future<Boolean> future = theExecutor.submit(() -> executeDelegate(copy));
+        try {
+            final boolean result =
+                    future.get(deadline.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            ContextKeys.store(context, outputKeys, ContextKeys.values(copy, outputKeys));
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(interrupt);
+            timeoutCount.increment();
+            throw new DeadlineExceededException("Command timed out");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (Exception) cause;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Return the thread pool, creating it if necessary.
+     *
+     * @return the thread pool
+     */
+    private ThreadPoolExecutor pool() {
+        ThreadPoolExecutor ret = pool;
+        if (ret == null) {
+            synchronized (this) {
+                ret = pool;
+                if (ret == null) {
+                    final AtomicInteger threadNumber = new AtomicInteger();
+                    ret = new ThreadPoolExecutor(maxThreads, maxThreads,
+                            60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                                final Thread thread = new Thread(runnable,
+                                        "chain-timeout-" + threadNumber.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                    ret.allowCoreThreadTimeOut(true);
+                    pool = ret;
+                }
+            }
+        }
+        return ret;
+    }
+}
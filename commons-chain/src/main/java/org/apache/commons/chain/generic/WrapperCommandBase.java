@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Command;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.Filter;
+
+/**
+ * Base class for commands which wrap the execution of a delegate
+ * {@link Command}, looked up like in {@link LookupCommand}, for example to
+ * cache, coalesce, limit or guard it.
+ *
+ * <p>The delegate is executed as a unit: if it is a {@link Filter}, its
+ * {@code postprocess()} method is called right after its
+ * {@code execute()} method, like at the end of a
+ * {@link org.apache.commons.chain.Chain}, and an exception handled by the
+ * {@code postprocess()} method is not rethrown. Therefore the
+ * {@code postprocess()} method of this class does nothing, unless it is
+ * overridden.</p>
+ *
+ * <p>Instead of being looked up, the delegate may also be set directly
+ * with {@link #setDelegate(Command)}.</p>
+ *
+ * <p>If the {@code fallbackName} property is set, subclasses may execute
+ * the command of this name from the same catalog instead of the delegate,
+ * e.g. if the delegate is not available.</p>
+ *
+ * @param <C> Type of the context associated with this command
+ *
+ * @since Chain 1.4
+ */
+public abstract class WrapperCommandBase<C extends Context> extends LookupCommand<C> {
+
+    // -------------------------------------------------------------- Constructors
+
+    /**
+     * Create an instance, setting its {@code catalogFactory} property to the
+     * value of {@code CatalogFactory.getInstance()}.
+     */
+    protected WrapperCommandBase() {
+    }
+
+    /**
+     * Create an instance and initialize the {@code catalogFactory} property
+     * to given {@code factory}.
+     *
+     * @param factory The Catalog Factory.
+     */
+    protected WrapperCommandBase(CatalogFactory<C> factory) {
+        super(factory);
+    }
+
+    // -------------------------------------------------------------- Properties
+
+    private Command<C> delegate = null;
+
+    private String fallbackName = null;
+
+    /**
+     * Return the delegate {@link Command}, if it is set directly.
+     *
+     * @return The delegate command, or {@code null} if it is looked up.
+     */
+    public Command<C> getDelegate() {
+        return this.delegate;
+    }
+
+    /**
+     * Set the delegate {@link Command} directly, instead of looking it up.
+     *
+     * @param delegate The delegate command, or {@code null} to look it up
+     */
+    public void setDelegate(Command<C> delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Return the name of the fallback {@link Command}.
+     *
+     * @return The name of the fallback command, or {@code null}.
+     */
+    public String getFallbackName() {
+        return this.fallbackName;
+    }
+
+    /**
+     * Set the name of the fallback {@link Command}, which is looked up in
+     * the same catalog as the delegate.
+     *
+     * @param fallbackName The name of the fallback command, or
+     *        {@code null} for none
+     */
+    public void setFallbackName(String fallbackName) {
+        this.fallbackName = fallbackName;
+    }
+
+    // ---------------------------------------------------------- Filter Methods
+
+    /**
+     * Does nothing, as the delegate has already been postprocessed within
+     * {@code execute()}.
+     *
+     * @param context The context for this request
+     * @param exception Any {@code Exception} thrown by command execution
+     *
+     * @return {@code false}
+     */
+    @Override
+    public boolean postprocess(C context, Exception exception) {
+        return false;
+    }
+
+    // ------------------------------------------------------- Protected Methods
+
+    /**
+     * Execute the delegate, looking it up if it isn't set directly.
+     *
+     * @param context The context for this request
+     *
+     * @return the result of the delegate, or {@code false} if the
+     *         delegate is optional and not found or if
+     *         {@code ignoreExecuteResult} is {@code true}
+     *
+     * @throws IllegalArgumentException if the delegate can't be found and
+     *         is not optional
+     * @throws Exception if thrown by the delegate and not handled by its
+     *         {@code postprocess()} method
+     */
+    protected boolean executeDelegate(C context) throws Exception {
+        final Command<C> command = delegate != null ? delegate : getCommand(context);
+        return command != null && executeCommand(command, context);
+    }
+
+    /**
+     * Execute the fallback command.
+     *
+     * @param context The context for this request
+     *
+     * @return the result of the fallback command, or {@code false} if
+     *         {@code ignoreExecuteResult} is {@code true}
+     *
+     * @throws IllegalStateException if no fallback command is configured
+     * @throws IllegalArgumentException if the fallback command can't be
+     *         found
+     * @throws Exception if thrown by the fallback command and not handled
+     *         by its {@code postprocess()} method
+     */
+    protected boolean executeFallback(C context) throws Exception {
+        final Command<C> fallback = getFallbackCommand(context);
+        if (fallback == null) {
+            throw new IllegalStateException("No fallback command");
+        }
+        return executeCommand(fallback, context);
+    }
+
+    /**
+     * Return the fallback {@link Command}.
+     *
+     * @param context The context for this request
+     *
+     * @return the fallback command, or {@code null} if none is configured
+     *
+     * @throws IllegalArgumentException if the fallback command can't be
+     *         found
+     */
+    protected Command<C> getFallbackCommand(C context) {
+        if (fallbackName == null) {
+            return null;
+        }
+        final Command<C> fallback = getCatalog(context).getCommand(fallbackName);
+        if (fallback == null) {
+            throw new IllegalArgumentException("Cannot find fallback command '" + fallbackName + "'");
+        }
+        return fallback;
+    }
+
+    /**
+     * Execute a command as a unit: if it is a {@link Filter}, call its
+     * {@code postprocess()} method afterwards.
+     *
+     * @param command The command to execute
+     * @param context The context for this request
+     *
+     * @return the result of the command, or {@code false} if
+     *         {@code ignoreExecuteResult} is {@code true}
+     *
+     * @throws Exception if thrown by the command and not handled by its
+     *         {@code postprocess()} method
+     */
+    protected boolean executeCommand(Command<C> command, C context) throws Exception {
+        boolean result = false;
+        Exception saveException = null;
+        try {
+            result = command.execute(context);
+        } catch (Exception e) {
+            saveException = e;
+        }
+
+        if (command instanceof Filter) {
+            try {
+                if (((Filter<C>) command).postprocess(context, saveException)) {
+                    saveException = null;
+                }
+            } catch (Exception e) {
+                // Silently ignore, like ChainBase
+            }
+        }
+
+        if (saveException != null) {
+            throw saveException;
+        }
+        return !isIgnoreExecuteResult() && result;
+    }
+}
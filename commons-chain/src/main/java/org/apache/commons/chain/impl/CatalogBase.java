@@ -17,8 +17,11 @@
 package org.apache.commons.chain.impl;
 
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import org.apache.commons.chain.Catalog;
 import org.apache.commons.chain.Command;
@@ -28,6 +31,10 @@ import org.apache.commons.chain.Context;
  * Simple in-memory implementation of {@link Catalog}. This class can
  * also be used as the basis for more advanced implementations.
  *
+ * <p>Commands added with {@link #addLazyCommand(String, Supplier)} are
+ * created on their first lookup. The creation happens at most once per
+ * name and the created command is safely published to all threads.</p>
+ *
  * <p>This implementation is thread-safe.</p>
  *
  * @param <C> Type of the context associated with this catalog
@@ -45,6 +52,12 @@ public class CatalogBase<C extends Context> implements Catalog<C> {
      */
     private final Map<String, Command<C>> commands;
 
+    /**
+     * The map of factories for named {@link Command}s which have not
+     * been created yet, keyed by name.
+     */
+    private final Map<String, Supplier<? extends Command<C>>> lazyCommands = new ConcurrentHashMap<>();
+
     // --------------------------------------------------------- Constructors
 
     /**
@@ -81,6 +94,26 @@ public class CatalogBase<C extends Context> implements Catalog<C> {
     @Override
     public <CMD extends Command<C>> void addCommand(String name, CMD command) {
         commands.put(name, command);
+        lazyCommands.remove(name);
+    }
+
+    /**
+     * Add a new name and a factory for the associated {@link Command}
+     * to the set of named commands known to this {@link Catalog},
+     * replacing any previous command for that name. The command is
+     * created on the first call of {@link #getCommand(String)} for
+     * this name.
+     *
+     * @param name Name of the new command
+     * @param factory factory which creates the {@link Command}
+     *        to be returned for later lookups on this name
+     *
+     * @since Chain 1.4
+     */
+    @Override
+    public void addLazyCommand(String name, Supplier<? extends Command<C>> factory) {
+        lazyCommands.put(name, factory);
+        commands.remove(name);
     }
 
     /**
@@ -94,10 +127,13 @@ public class CatalogBase<C extends Context> implements Catalog<C> {
      * @return The Command associated with the specified name.
      */
     @Override
+    @SuppressWarnings("unchecked") // it would throw ClassCastException if users try to cast to a different type
     public <CMD extends Command<C>> CMD getCommand(String name) {
-        @SuppressWarnings("unchecked") // it would throw ClassCastException if users try to cast to a different type
-        CMD command = (CMD) commands.get(name);
-        return command;
+        Command<C> command = commands.get(name);
+        if (command == null && !lazyCommands.isEmpty()) {
+            command = createCommand(name);
+        }
+        return (CMD) command;
     }
 
     /**
@@ -109,7 +145,13 @@ public class CatalogBase<C extends Context> implements Catalog<C> {
      */
     @Override
     public Iterator<String> getNames() {
-        return commands.keySet().iterator();
+        if (lazyCommands.isEmpty()) {
+            return commands.keySet().iterator();
+        }
+
+        Set<String> names = new LinkedHashSet<>(commands.keySet());
+        names.addAll(lazyCommands.keySet());
+        return names.iterator();
     }
 
     /**
@@ -136,4 +178,25 @@ public class CatalogBase<C extends Context> implements Catalog<C> {
 
         return str.toString();
     }
-}
\ No newline at end of file
+
+    // ------------------------------------------------------ Private Methods
+
+    /**
+     * Create and cache the lazily added {@link Command} with the
+     * specified name, if any.
+     *
+     * @param name Name for which a {@link Command} should be created
+     *
+     * @return The created Command or {@code null}.
+     */
+    private Command<C> createCommand(String name) {
+        final Supplier<? extends Command<C>> factory = lazyCommands.get(name);
+        if (factory == null) {
+            return commands.get(name);
+        }
+
+        final Command<C> command = commands.computeIfAbsent(name, k -> factory.get());
+        lazyCommands.remove(name, factory);
+        return command;
+    }
+}
@@ -19,10 +19,13 @@ package org.apache.commons.chain.impl;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.chain.Chain;
 import org.apache.commons.chain.Command;
 import org.apache.commons.chain.Context;
+import org.apache.commons.chain.Deadline;
+import org.apache.commons.chain.DeadlineExceededException;
 import org.apache.commons.chain.Filter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +33,19 @@ import org.slf4j.LoggerFactory;
 /**
  * Convenience base class for {@link Chain} implementations.
  *
+ * <p>If the {@code timeout} property is set, the {@link Deadline} of the
+ * {@link Context} is narrowed to the timeout while the chain is executed.
+ * If the {@code timeout} or the {@code checkDeadline} property is set,
+ * the deadline is checked before each command; if it has expired, the
+ * remaining commands are skipped and a {@link DeadlineExceededException}
+ * is passed to the {@code postprocess()} methods of the executed
+ * filters.</p>
+ *
+ * <p>The filters among the commands are located when the commands are
+ * configured, not on each execution. Without filters and deadline checks
+ * there is nothing to postprocess, so an exception of a command is
+ * propagated directly.</p>
+ *
  * @param <C> Type of the context associated with this chain
  *
  * @author Craig R. McClanahan
@@ -92,6 +108,7 @@ public class ChainBase<C extends Context> implements Chain<C> {
         final Command<C>[] cmds = commands.toArray(new Command[0]);
 
         this.commands = cmds;
+        indexFilters();
     }
 
     // ----------------------------------------------------- Instance Variables
@@ -103,12 +120,83 @@ public class ChainBase<C extends Context> implements Chain<C> {
      */
     private Command<C>[] commands;
 
+    /**
+     * The {@link Filter}s of the {@link Command}s, at the same positions,
+     * or {@code null} for commands which are no filters.
+     */
+    private Filter<C>[] filters;
+
+    /**
+     * The position of the last {@link Filter}, or {@code -1} if there is
+     * no filter.
+     */
+    private int lastFilter = -1;
+
     /**
      * Flag indicating whether the configuration of our commands list
      * has been frozen by a call to the {@code execute()} method.
      */
     private boolean frozen = false;
 
+    /**
+     * The timeout of this chain in milliseconds, or {@code 0}.
+     */
+    private long timeout = 0;
+
+    /**
+     * Is the deadline checked before each command?
+     */
+    private boolean checkDeadline = false;
+
+    // ------------------------------------------------------------- Properties
+
+    /**
+     * Return the timeout of this chain.
+     *
+     * @return the timeout in milliseconds, or {@code 0} if none
+     *
+     * @since Chain 1.4
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Set the timeout of this chain, which narrows the {@link Deadline}
+     * of the context while the chain is executed, and enables checking
+     * the deadline before each command.
+     *
+     * @param timeout the timeout in milliseconds, or {@code 0} for none
+     *
+     * @since Chain 1.4
+     */
+    public void setTimeout(long timeout) {
+        this.timeout = Math.max(0, timeout);
+    }
+
+    /**
+     * Is the {@link Deadline} of the context checked before each command?
+     *
+     * @return {@code true} if the deadline is checked
+     *
+     * @since Chain 1.4
+     */
+    public boolean isCheckDeadline() {
+        return checkDeadline;
+    }
+
+    /**
+     * Set if the {@link Deadline} of the context is checked before each
+     * command, even without a timeout of this chain.
+     *
+     * @param checkDeadline {@code true} to check the deadline
+     *
+     * @since Chain 1.4
+     */
+    public void setCheckDeadline(boolean checkDeadline) {
+        this.checkDeadline = checkDeadline;
+    }
+
     // ---------------------------------------------------------- Chain Methods
 
     /**
@@ -131,6 +219,7 @@ public class ChainBase<C extends Context> implements Chain<C> {
         final int len = commands.length;
         commands = Arrays.copyOf(commands, len + 1);
         commands[len] = command;
+        indexFilters();
     }
 
     /**
@@ -160,15 +249,62 @@ public class ChainBase<C extends Context> implements Chain<C> {
         // Freeze the configuration of the command list
         frozen = true;
 
+        if (timeout <= 0) {
+            return executeCommands(context, checkDeadline);
+        }
+        final Deadline previous =
+                Deadline.narrow(context, Deadline.after(timeout, TimeUnit.MILLISECONDS));
+        try {
+            return executeCommands(context, true);
+        } finally {
+            Deadline.restore(context, previous);
+        }
+    }
+
+    /**
+     * Execute the commands and postprocess the filters.
+     *
+     * @param context The {@link Context} to be processed by this
+     *  {@link Chain}
+     * @param check Is the deadline checked before each command?
+     *
+     * @return the result of the last executed command
+     *
+     * @throws Exception if thrown by one of the {@link Command}s
+     *         in this {@link Chain} but not handled by a
+     *         {@code postprocess()} method of a {@link Filter}
+     */
+    private boolean executeCommands(C context, boolean check) throws Exception {
+        final Command<C>[] cmds = commands;
+        if (lastFilter < 0 && !check) {
+            // Without filters nothing is postprocessed
+            for (Command<C> command : cmds) {
+                if (command.execute(context)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         // Execute the commands in this list until one returns true
         // or throws an exception
         boolean saveResult = false;
         Exception saveException = null;
         int i = 0;
-        int n = commands.length;
+        int n = cmds.length;
         for (i = 0; i < n; i++) {
+            if (check) {
+                try {
+                    Deadline.check(context);
+                } catch (DeadlineExceededException e) {
+                    // Skip the remaining commands
+                    saveException = e;
+                    i--;
+                    break;
+                }
+            }
             try {
-                saveResult = commands[i].execute(context);
+                saveResult = cmds[i].execute(context);
                 if (saveResult) {
                     break;
                 }
@@ -184,13 +320,11 @@ public class ChainBase<C extends Context> implements Chain<C> {
         }
         boolean handled = false;
         boolean result = false;
-        for (int j = i; j >= 0; j--) {
-            Command<C> command = commands[j];
-            if (command instanceof Filter) {
+        for (int j = Math.min(i, lastFilter); j >= 0; j--) {
+            Filter<C> filter = filters[j];
+            if (filter != null) {
                 try {
-                    result =
-                        ((Filter<C>) command).postprocess(context,
-                                                          saveException);
+                    result = filter.postprocess(context, saveException);
                     if (result) {
                         handled = true;
                     }
@@ -225,6 +359,24 @@ public class ChainBase<C extends Context> implements Chain<C> {
         return frozen;
     }
 
+    // -------------------------------------------------------- Private Methods
+
+    /**
+     * Index the {@link Filter}s of the configured {@link Command}s, so that
+     * the execution does not need to check the type of each command.
+     */
+    @SuppressWarnings("unchecked")
+    private void indexFilters() {
+        filters = new Filter[commands.length];
+        lastFilter = -1;
+        for (int i = 0; i < commands.length; i++) {
+            if (commands[i] instanceof Filter) {
+                filters[i] = (Filter<C>) commands[i];
+                lastFilter = i;
+            }
+        }
+    }
+
     // -------------------------------------------------------- Package Methods
 
     /**
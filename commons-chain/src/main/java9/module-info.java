@@ -21,9 +21,13 @@ module org.apache.commons.chain {
 
     requires org.slf4j;
     requires transitive commons.digester;
+    requires commons.beanutils;
+    requires java.management;
 
     exports org.apache.commons.chain;
     exports org.apache.commons.chain.config;
     exports org.apache.commons.chain.generic;
     exports org.apache.commons.chain.impl;
+
+    uses org.apache.commons.chain.config.CatalogInitializer;
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.beanutils.ConvertUtils;
+import org.apache.commons.beanutils.Converter;
+import org.apache.commons.chain.generic.LookupCommand;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for the cached property binding of {@link BindingPlan}.
+ */
+public class BindingPlanTestCase {
+
+    // ------------------------------------------------------------ Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public BindingPlanTestCase() {
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test that the plan of a class is computed once.
+     */
+    @Test
+    public void testForClass() {
+        assertSame(BindingPlan.forClass(TestCommand.class), BindingPlan.forClass(TestCommand.class));
+    }
+
+    /**
+     * Test binding of string properties.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testBindString() throws Exception {
+        TestCommand command = new TestCommand();
+        BindingPlan.forClass(TestCommand.class).bind(command, "foo", "Foo Value");
+        assertEquals("Foo Value", command.getFoo());
+        assertNull(command.getBar());
+    }
+
+    /**
+     * Test binding of converted properties and that unknown
+     * properties are ignored.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testBindConverted() throws Exception {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("name", "Foo");
+        values.put("optional", "true");
+        values.put("ignoreExecuteResult", "false");
+        values.put("unknown", "ignored");
+
+        LookupCommand<?> command = new LookupCommand<>();
+        BindingPlan.forClass(LookupCommand.class).bind(command, values);
+        assertEquals("Foo", command.getName());
+        assertTrue(command.isOptional());
+        assertFalse(command.isIgnoreExecuteResult());
+    }
+
+    /**
+     * Test that read-only properties are ignored.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testBindReadOnly() throws Exception {
+        TestCommand command = new TestCommand();
+        BindingPlan.forClass(TestCommand.class).bind(command, "className", TestCommand.class.getName());
+        BindingPlan.forClass(TestCommand.class).bind(command, "class", "ignored");
+        assertNull(command.getFoo());
+    }
+
+    /**
+     * Test that converters registered after the plan has been created
+     * are used.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testBindRegisteredConverter() throws Exception {
+        LookupCommand<?> command = new LookupCommand<>();
+        BindingPlan plan = BindingPlan.forClass(LookupCommand.class);
+        plan.bind(command, "optional", "false");
+        assertFalse(command.isOptional());
+
+        Converter previous = ConvertUtils.lookup(boolean.class);
+        ConvertUtils.register(new Converter() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T convert(Class<T> type, Object value) {
+                return (T) Boolean.valueOf("ja".equals(value));
+            }
+        }, boolean.class);
+        try {
+            plan.bind(command, "optional", "ja");
+            assertTrue(command.isOptional());
+        } finally {
+            ConvertUtils.register(previous, boolean.class);
+        }
+    }
+}
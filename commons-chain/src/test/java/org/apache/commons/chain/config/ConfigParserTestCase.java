@@ -23,6 +23,7 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.InputStream;
 import java.util.Iterator;
 
 import org.apache.commons.chain.Catalog;
@@ -311,6 +312,29 @@ public class ConfigParserTestCase {
         checkCommandCount(0);
     }
 
+    /**
+     * Test the report of a parsed configuration resource.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testReport() throws Exception {
+        ConfigReport report = new ConfigReport();
+        parser.setReport(report);
+        load(DEFAULT_XML);
+        checkCommandCount(17);
+
+        assertEquals(1, report.getEntries().size());
+        ConfigReport.Entry entry = report.getEntries().get(0);
+        assertEquals(getClass().getResource(DEFAULT_XML).toExternalForm(), entry.getSource());
+        try (InputStream is = getClass().getResourceAsStream(DEFAULT_XML)) {
+            assertEquals(is.readAllBytes().length, entry.getBytes());
+        }
+        assertEquals(17, entry.getRegisteredCommands());
+        assertTrue(entry.getNanos() > 0);
+        assertEquals(entry.getNanos(), report.getTotalNanos());
+    }
+
     // --------------------------------------------------------- Private Methods
 
     /**
@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Command;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.impl.ChainBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case identical to {@link ConfigParserTestCase} except
+ * that the commands are created lazily.
+ */
+public class LazyConfigParserTestCase extends ConfigParserTestCase {
+
+    // ------------------------------------------------------------ Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public LazyConfigParserTestCase() {
+    }
+
+    // ---------------------------------------------------- Overall Test Methods
+
+    /**
+     * Set up instance variables required by this test case.
+     */
+    @BeforeEach
+    @Override
+    public void init() {
+        super.init();
+        ((ConfigRuleSet) parser.getRuleSet()).setLazy(true);
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test that the commands are created once on first lookup, including
+     * elements defined with the {@code define} element.
+     *
+     * @throws Exception any error
+     */
+    @Test
+    public void testLazyDefine() throws Exception {
+        assertTrue(((ConfigRuleSet) parser.getRuleSet()).isLazy());
+        CatalogFactory.clear();
+        parser.parse(getClass().getResource("/org/apache/commons/chain/config/test-config-2.xml"));
+        catalog = CatalogFactory.getInstance().getCatalog("foo");
+        checkCommandCount(17);
+
+        Command<Context> command = catalog.getCommand("Execute2a");
+        assertInstanceOf(ChainBase.class, command);
+        assertSame(command, catalog.getCommand("Execute2a"));
+        assertTrue(command.execute(context));
+        checkExecuteLog("1/2/3");
+
+        TestCommand tcommand = catalog.getCommand("Configurable");
+        assertEquals("Foo Value", tcommand.getFoo());
+    }
+}
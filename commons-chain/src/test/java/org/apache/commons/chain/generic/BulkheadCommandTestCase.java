@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import org.apache.commons.chain.Catalog;
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.Deadline;
+import org.apache.commons.chain.impl.CatalogBase;
+import org.apache.commons.chain.impl.ContextBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for the {@code BulkheadCommand} class.
+ */
+public class BulkheadCommandTestCase {
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public BulkheadCommandTestCase() {
+    }
+
+    // ---------------------------------------------------- Instance Variables
+
+    /**
+     * The instance of {@link Catalog} to use when looking up commands
+     */
+    protected Catalog<Context> catalog;
+
+    /**
+     * The {@link BulkheadCommand} instance under test.
+     */
+    protected BulkheadCommand<Context> command;
+
+    /**
+     * Releases the delegate.
+     */
+    protected CountDownLatch release;
+
+    /**
+     * The executor running the concurrent calls.
+     */
+    protected ExecutorService callers;
+
+    // -------------------------------------------------- Overall Test Methods
+
+    /**
+     * Set up instance variables required by this test case.
+     */
+    @BeforeEach
+    public void init() {
+        catalog = new CatalogBase<>();
+        CatalogFactory.getInstance().setCatalog(catalog);
+        release = new CountDownLatch(1);
+        callers = Executors.newCachedThreadPool();
+        catalog.addCommand("slow", context -> {
+            release.await();
+            context.put("thread", Thread.currentThread().getName());
+            return true;
+        });
+        catalog.addCommand("busy", context -> {
+            context.put("busy", Boolean.TRUE);
+            return true;
+        });
+        command = new BulkheadCommand<>();
+        command.setName("slow");
+        command.setMaxConcurrentCalls(2);
+    }
+
+    /**
+     * Tear down instance variables required by this test case.
+     */
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        command.shutdown();
+        catalog = null;
+        CatalogFactory.clear();
+        command = null;
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test the semaphore mode with queueing and rejection.
+     */
+    @Test
+    public void testSemaphore() throws Exception {
+        command.setMaxQueued(1);
+        final List<Future<Boolean>> results = submit(3);
+        await(command::getActiveCount, 2);
+        await(command::getQueuedCount, 1);
+
+        assertThrows(RejectedExecutionException.class, () -> command.execute(new ContextBase()));
+        assertEquals(1, command.getRejectedCount());
+
+        release.countDown();
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(0, command.getActiveCount());
+        assertEquals(0, command.getQueuedCount());
+    }
+
+    /**
+     * Test the maximum wait time.
+     */
+    @Test
+    public void testMaxWait() throws Exception {
+        command.setMaxQueued(1);
+        command.setMaxWait(20);
+        submit(2);
+        await(command::getActiveCount, 2);
+
+        assertThrows(RejectedExecutionException.class, () -> command.execute(new ContextBase()));
+        assertEquals(1, command.getRejectedCount());
+    }
+
+    /**
+     * Test the fallback and caller runs policies.
+     */
+    @Test
+    public void testPolicies() throws Exception {
+        command.setRejectionPolicy("fallback");
+        command.setFallbackName("busy");
+        submit(2);
+        await(command::getActiveCount, 2);
+
+        final Context context = new ContextBase();
+        assertTrue(command.execute(context));
+        assertEquals(Boolean.TRUE, context.get("busy"));
+
+        command.setRejectionPolicy("callerRuns");
+        final Future<Boolean> result = callers.submit(() -> command.execute(new ContextBase()));
+        await(() -> (int) command.getRejectedCount(), 2);
+        release.countDown();
+        assertTrue(result.get(10, TimeUnit.SECONDS));
+        assertEquals(2, command.getRejectedCount());
+
+        assertThrows(IllegalArgumentException.class, () -> command.setRejectionPolicy("drop"));
+    }
+
+    /**
+     * Test the executor mode.
+     */
+    @Test
+    public void testExecutor() throws Exception {
+        command.setMode("executor");
+        command.setMaxQueued(1);
+        final List<Future<Boolean>> results = submit(3);
+        await(command::getActiveCount, 2);
+        await(command::getQueuedCount, 1);
+
+        assertThrows(RejectedExecutionException.class, () -> command.execute(new ContextBase()));
+
+        release.countDown();
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        }
+
+        final Context context = new ContextBase();
+        assertTrue(command.execute(context));
+        assertNull(context.get("thread"));
+
+        command.setOutputKeys("thread");
+        assertTrue(command.execute(context));
+        assertTrue(((String) context.get("thread")).startsWith("chain-bulkhead-"));
+        assertNotEquals(Thread.currentThread().getName(), context.get("thread"));
+    }
+
+    /**
+     * Test the maximum wait time and the deadline in executor mode.
+     */
+    @Test
+    public void testExecutorWait() throws Exception {
+        command.setMode("executor");
+        command.setMaxWait(20);
+        command.setRejectionPolicy("fallback");
+        command.setFallbackName("busy");
+
+        final Context context = new ContextBase();
+        assertTrue(command.execute(context));
+        assertEquals(Boolean.TRUE, context.get("busy"));
+        assertEquals(1, command.getRejectedCount());
+        await(command::getActiveCount, 0);
+        assertNull(context.get("thread"));
+
+        command.setMaxWait(0);
+        final Context limited = new ContextBase();
+        Deadline.narrow(limited, Deadline.after(20, TimeUnit.MILLISECONDS));
+        assertTrue(command.execute(limited));
+        assertEquals(Boolean.TRUE, limited.get("busy"));
+        assertEquals(2, command.getRejectedCount());
+        await(command::getActiveCount, 0);
+    }
+
+    /**
+     * Test that a delegate outliving the maximum wait time in executor
+     * mode is neither executed again by the caller runs policy nor
+     * modifies the context.
+     */
+    @Test
+    public void testExecutorWaitCallerRuns() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        catalog.addCommand("stubborn", context -> {
+            calls.incrementAndGet();
+            boolean interrupted = false;
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            context.put("thread", Thread.currentThread().getName());
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        });
+        command.setName("stubborn");
+        command.setMode("executor");
+        command.setMaxWait(20);
+        command.setRejectionPolicy("callerRuns");
+        command.setOutputKeys("thread");
+
+        final Context context = new ContextBase();
+        assertThrows(RejectedExecutionException.class, () -> command.execute(context));
+        assertEquals(1, command.getRejectedCount());
+        release.countDown();
+        await(command::getActiveCount, 0);
+        assertEquals(1, calls.get());
+        assertNull(context.get("thread"));
+    }
+
+    // -------------------------------------------------------- Support Methods
+
+    /**
+     * Submit concurrent calls.
+     *
+     * @param count the number of calls
+     *
+     * @return the results of the calls
+     */
+    private List<Future<Boolean>> submit(int count) {
+        final List<Future<Boolean>> ret = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ret.add(callers.submit(() -> command.execute(new ContextBase())));
+        }
+        return ret;
+    }
+
+    /**
+     * Wait until a gauge has the expected value.
+     *
+     * @param gauge the gauge
+     * @param expected the expected value
+     */
+    private static void await(IntSupplier gauge, int expected) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (gauge.getAsInt() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, gauge.getAsInt());
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.chain.Catalog;
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.impl.CatalogBase;
+import org.apache.commons.chain.impl.ContextBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for the {@code CachingCommand} class.
+ */
+public class CachingCommandTestCase {
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public CachingCommandTestCase() {
+    }
+
+    // ---------------------------------------------------- Instance Variables
+
+    /**
+     * The instance of {@link Catalog} to use when looking up commands
+     */
+    protected Catalog<Context> catalog;
+
+    /**
+     * The {@link CachingCommand} instance under test.
+     */
+    protected CachingCommand<Context> command;
+
+    /**
+     * The number of executions of the delegate.
+     */
+    protected AtomicInteger executions;
+
+    // -------------------------------------------------- Overall Test Methods
+
+    /**
+     * Set up instance variables required by this test case.
+     */
+    @BeforeEach
+    public void init() {
+        catalog = new CatalogBase<>();
+        CatalogFactory.getInstance().setCatalog(catalog);
+        executions = new AtomicInteger();
+        catalog.addCommand("square", context -> {
+            executions.incrementAndGet();
+            final int value = (Integer) context.get("value");
+            context.put("square", value * value);
+            context.put("weight", value);
+            return value < 0;
+        });
+        command = new CachingCommand<>();
+        command.setName("square");
+        command.setKeys("value");
+        command.setOutputKeys("square");
+    }
+
+    /**
+     * Tear down instance variables required by this test case.
+     */
+    @AfterEach
+    public void tearDown() {
+        catalog = null;
+        CatalogFactory.clear();
+        command = null;
+        executions = null;
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test that a hit replays the output and the result.
+     */
+    @Test
+    public void testHit() throws Exception {
+        assertTrue(command.execute(context(-3)));
+        final Context context = context(-3);
+        assertTrue(command.execute(context));
+        assertEquals(9, context.get("square"));
+        assertEquals(1, executions.get());
+
+        assertFalse(command.execute(context(4)));
+        assertFalse(command.execute(context(4)));
+        assertEquals(2, executions.get());
+
+        assertEquals(2, command.getHitCount());
+        assertEquals(2, command.getMissCount());
+        assertEquals(2, command.getSize());
+    }
+
+    /**
+     * Test that exceptions are not cached.
+     */
+    @Test
+    public void testException() throws Exception {
+        assertThrows(NullPointerException.class, () -> command.execute(new ContextBase()));
+        assertThrows(NullPointerException.class, () -> command.execute(new ContextBase()));
+        assertEquals(2, executions.get());
+        assertEquals(0, command.getSize());
+    }
+
+    /**
+     * Test eviction of the least recently used entry.
+     */
+    @Test
+    public void testMaximumSize() throws Exception {
+        command.setMaximumSize(2);
+        command.execute(context(1));
+        command.execute(context(2));
+        command.execute(context(1));
+        command.execute(context(3));
+
+        assertEquals(2, command.getSize());
+        assertEquals(1, command.getEvictionCount());
+        command.execute(context(1));
+        assertEquals(3, executions.get());
+        command.execute(context(2));
+        assertEquals(4, executions.get());
+    }
+
+    /**
+     * Test that a rarely requested entry doesn't evict a frequently
+     * requested one.
+     */
+    @Test
+    public void testAdmission() throws Exception {
+        command.setMaximumSize(1);
+        for (int i = 0; i < 5; i++) {
+            command.execute(context(1));
+        }
+        command.execute(context(2));
+        command.execute(context(1));
+
+        assertEquals(2, executions.get());
+        assertEquals(0, command.getEvictionCount());
+    }
+
+    /**
+     * Test the weight bound.
+     */
+    @Test
+    public void testMaximumWeight() throws Exception {
+        command.setWeightKey("weight");
+        command.setMaximumWeight(5);
+        command.execute(context(2));
+        command.execute(context(3));
+        command.execute(context(6));
+        assertEquals(2, command.getSize());
+
+        command.execute(context(4));
+        assertEquals(1, command.getSize());
+        assertEquals(2, command.getEvictionCount());
+    }
+
+    /**
+     * Test the expiry of entries.
+     */
+    @Test
+    public void testTimeToLive() throws Exception {
+        command.setTimeToLive(20);
+        command.execute(context(1));
+        command.execute(context(1));
+        assertEquals(1, executions.get());
+
+        Thread.sleep(50);
+        command.execute(context(1));
+        assertEquals(2, executions.get());
+        assertEquals(0, command.getEvictionCount());
+    }
+
+    /**
+     * Test a directly set delegate and clearing the cache.
+     */
+    @Test
+    public void testDelegate() throws Exception {
+        command.setName(null);
+        command.setDelegate(catalog.getCommand("square"));
+        command.execute(context(1));
+        command.clear();
+        command.execute(context(1));
+        assertEquals(2, executions.get());
+    }
+
+    /**
+     * Test concurrent hits and misses.
+     */
+    @Test
+    public void testConcurrent() throws Exception {
+        command.setMaximumSize(8);
+        final int threads = 4;
+        final int requests = 2000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < requests; i++) {
+                        final Context context = context(i % 16);
+                        command.execute(context);
+                        assertEquals(i % 16 * (i % 16), context.get("square"));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * requests, command.getHitCount() + command.getMissCount());
+        assertEquals(executions.get(), command.getMissCount());
+        assertTrue(command.getSize() <= 8);
+    }
+
+    // -------------------------------------------------------- Support Methods
+
+    /**
+     * Create a context with the specified value.
+     *
+     * @param value the value to square
+     *
+     * @return the context
+     */
+    private static Context context(int value) {
+        final Context context = new ContextBase();
+        context.put("value", value);
+        return context;
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.chain.Catalog;
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.generic.CircuitBreakerFilter.State;
+import org.apache.commons.chain.impl.CatalogBase;
+import org.apache.commons.chain.impl.ChainBase;
+import org.apache.commons.chain.impl.ContextBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for the {@code CircuitBreakerFilter} class.
+ */
+public class CircuitBreakerFilterTestCase {
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public CircuitBreakerFilterTestCase() {
+    }
+
+    // ---------------------------------------------------- Instance Variables
+
+    /**
+     * The instance of {@link Catalog} to use when looking up commands
+     */
+    protected Catalog<Context> catalog;
+
+    /**
+     * The {@link CircuitBreakerFilter} instance under test.
+     */
+    protected CircuitBreakerFilter<Context> breaker;
+
+    /**
+     * The {@link Context} instance on which to execute the chain.
+     */
+    protected Context context = null;
+
+    /**
+     * Should the downstream command fail?
+     */
+    protected AtomicBoolean failing;
+
+    /**
+     * The number of executions of the downstream command.
+     */
+    protected AtomicInteger executions;
+
+    // -------------------------------------------------- Overall Test Methods
+
+    /**
+     * Set up instance variables required by this test case.
+     */
+    @BeforeEach
+    public void init() {
+        catalog = new CatalogBase<>();
+        CatalogFactory.getInstance().setCatalog(catalog);
+        context = new ContextBase();
+        failing = new AtomicBoolean(true);
+        executions = new AtomicInteger();
+        catalog.addCommand("remote", ctx -> {
+            executions.incrementAndGet();
+            if (failing.get()) {
+                throw new IllegalStateException("unavailable");
+            }
+            return true;
+        });
+        catalog.addCommand("fallback", ctx -> {
+            ctx.put("fallback", Boolean.TRUE);
+            return true;
+        });
+
+        breaker = new CircuitBreakerFilter<>();
+        breaker.setMinimumCalls(4);
+        breaker.setOpenDuration(100);
+    }
+
+    /**
+     * Tear down instance variables required by this test case.
+     */
+    @AfterEach
+    public void tearDown() {
+        catalog = null;
+        CatalogFactory.clear();
+        breaker = null;
+        context = null;
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test opening, half opening and closing around a delegate.
+     */
+    @Test
+    public void testDelegate() throws Exception {
+        breaker.setName("remote");
+        failCalls(4);
+        assertEquals(State.OPEN, breaker.getState());
+        assertEquals(100f, breaker.getFailureRate());
+
+        assertThrows(RejectedExecutionException.class, () -> breaker.execute(context));
+        assertEquals(4, executions.get());
+        assertEquals(1, breaker.getRejectedCount());
+
+        breaker.setFallbackName("fallback");
+        assertTrue(breaker.execute(context));
+        assertEquals(Boolean.TRUE, context.get("fallback"));
+        assertEquals(4, executions.get());
+
+        Thread.sleep(150);
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        failing.set(false);
+        assertTrue(breaker.execute(context));
+        assertEquals(State.CLOSED, breaker.getState());
+        assertEquals(-1f, breaker.getFailureRate());
+    }
+
+    /**
+     * Test that a failed trial call opens the circuit breaker again.
+     */
+    @Test
+    public void testHalfOpenFailure() throws Exception {
+        breaker.setName("remote");
+        failCalls(4);
+        Thread.sleep(150);
+
+        failCalls(1);
+        assertEquals(State.OPEN, breaker.getState());
+        assertThrows(RejectedExecutionException.class, () -> breaker.execute(context));
+        assertEquals(5, executions.get());
+    }
+
+    /**
+     * Test that the failure rate must reach the threshold.
+     */
+    @Test
+    public void testFailureRate() throws Exception {
+        breaker.setName("remote");
+        breaker.setFailureRateThreshold(60);
+        failCalls(1);
+        failing.set(false);
+        breaker.execute(context);
+        breaker.execute(context);
+        failing.set(true);
+        failCalls(1);
+        assertEquals(State.CLOSED, breaker.getState());
+        assertEquals(50f, breaker.getFailureRate());
+
+        failCalls(1);
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    /**
+     * Test opening on slow calls.
+     */
+    @Test
+    public void testSlowCalls() throws Exception {
+        breaker.setName("remote");
+        breaker.setSlowCallDuration(0);
+        failing.set(false);
+        for (int i = 0; i < 4; i++) {
+            breaker.execute(context);
+        }
+        assertEquals(100f, breaker.getSlowCallRate());
+        assertEquals(State.OPEN, breaker.getState());
+
+        breaker.reset();
+        assertEquals(State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getCallCount());
+    }
+
+    /**
+     * Test guarding the rest of a chain.
+     */
+    @Test
+    public void testFilter() throws Exception {
+        final ChainBase<Context> chain = new ChainBase<>();
+        chain.addCommand(breaker);
+        chain.addCommand(catalog.getCommand("remote"));
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> chain.execute(context));
+        }
+        assertEquals(State.OPEN, breaker.getState());
+        assertThrows(RejectedExecutionException.class, () -> chain.execute(context));
+        assertEquals(4, executions.get());
+    }
+
+    /**
+     * Test that a fallback command returning {@code false} stops the
+     * guarded chain.
+     */
+    @Test
+    public void testFilterFallback() throws Exception {
+        catalog.addCommand("continue", ctx -> {
+            ctx.put("fallback", Boolean.TRUE);
+            return false;
+        });
+        breaker.setFallbackName("continue");
+        final ChainBase<Context> chain = new ChainBase<>();
+        chain.addCommand(breaker);
+        chain.addCommand(catalog.getCommand("remote"));
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> chain.execute(context));
+        }
+        assertEquals(State.OPEN, breaker.getState());
+        assertTrue(chain.execute(context));
+        assertEquals(Boolean.TRUE, context.get("fallback"));
+        assertEquals(4, executions.get());
+    }
+
+    // -------------------------------------------------------- Support Methods
+
+    /**
+     * Execute failing calls.
+     *
+     * @param count the number of calls
+     */
+    private void failCalls(int count) {
+        for (int i = 0; i < count; i++) {
+            assertThrows(IllegalStateException.class, () -> breaker.execute(context));
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.Deadline;
+import org.apache.commons.chain.DeadlineExceededException;
+import org.apache.commons.chain.impl.ContextBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for the {@code ForEachCommand} class.
+ */
+public class ForEachCommandTestCase {
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public ForEachCommandTestCase() {
+    }
+
+    // ---------------------------------------------------- Instance Variables
+
+    /**
+     * The {@link ForEachCommand} instance under test.
+     */
+    protected ForEachCommand<Context> command;
+
+    /**
+     * The {@link Context} instance on which to execute the command.
+     */
+    protected Context context = null;
+
+    /**
+     * The names of the threads which executed the sub-command.
+     */
+    protected Set<String> threads;
+
+    // -------------------------------------------------- Overall Test Methods
+
+    /**
+     * Set up instance variables required by this test case.
+     */
+    @BeforeEach
+    public void init() {
+        context = new ContextBase();
+        context.put("factor", 10);
+        threads = ConcurrentHashMap.newKeySet();
+        command = new ForEachCommand<>();
+        command.setCollectionKey("items");
+        command.setElementKey("item");
+        command.setIndexKey("index");
+        command.setResultKey("price");
+        command.setOutputKey("prices");
+        command.setDelegate(ctx -> {
+            threads.add(Thread.currentThread().getName());
+            final int item = (Integer) ctx.get("item");
+            if (item < 0) {
+                throw new IllegalStateException("negative item");
+            }
+            ctx.put("price", item * (Integer) ctx.get("factor") + (Integer) ctx.get("index"));
+            return item == 5000;
+        });
+    }
+
+    /**
+     * Tear down instance variables required by this test case.
+     */
+    @AfterEach
+    public void tearDown() {
+        command.shutdown();
+        command = null;
+        context = null;
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test the sequential execution.
+     */
+    @Test
+    public void testSequential() throws Exception {
+        context.put("items", new int[] {1, 2, 3});
+        assertFalse(command.execute(context));
+        assertEquals(Arrays.asList(10, 21, 32), context.get("prices"));
+        assertFalse(context.containsKey("item"));
+        assertFalse(context.containsKey("price"));
+        assertEquals(Collections.singleton(Thread.currentThread().getName()), threads);
+
+        context.put("items", Arrays.asList(5000, 1));
+        command.setResultKey(null);
+        assertTrue(command.execute(context));
+        assertEquals(Arrays.asList(true, false), context.get("prices"));
+
+        context.remove("items");
+        assertFalse(command.execute(context));
+        assertEquals(Collections.emptyList(), context.get("prices"));
+
+        context.put("items", "text");
+        assertThrows(IllegalArgumentException.class, () -> command.execute(context));
+    }
+
+    /**
+     * Test the parallel execution.
+     */
+    @Test
+    public void testParallel() throws Exception {
+        final List<Integer> items = new ArrayList<>();
+        final List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(i);
+            expected.add(i * 10 + i);
+        }
+        context.put("items", items);
+        command.setParallelism(4);
+        command.setChunkSize(8);
+        assertFalse(command.execute(context));
+        assertEquals(expected, context.get("prices"));
+
+        items.set(42, 5000);
+        items.set(500, -1);
+        final Exception e = assertThrows(IllegalStateException.class, () -> command.execute(context));
+        assertEquals("negative item", e.getMessage());
+
+        command.setPool(ForkJoinPool.commonPool());
+        items.set(500, 500);
+        assertTrue(command.execute(context));
+        assertSame(ForkJoinPool.commonPool(), command.getPool());
+        command.shutdown();
+        assertSame(ForkJoinPool.commonPool(), command.getPool());
+    }
+
+    /**
+     * Test the deadline check and invalid properties.
+     */
+    @Test
+    public void testInvalid() {
+        context.put("items", Arrays.asList(1, 2));
+        Deadline.narrow(context, Deadline.after(0, TimeUnit.MILLISECONDS));
+        assertThrows(DeadlineExceededException.class, () -> command.execute(context));
+        assertNull(context.get("prices"));
+
+        assertThrows(IllegalArgumentException.class, () -> command.setParallelism(0));
+        assertThrows(IllegalArgumentException.class, () -> command.setChunkSize(0));
+    }
+
+    /**
+     * Test the creation of the child contexts for other types of contexts.
+     */
+    @Test
+    public void testContextType() throws Exception {
+        final Context special = new ContextBase() {
+            private static final long serialVersionUID = 1L;
+        };
+        special.put("factor", 10);
+        special.put("items", Arrays.asList(1, 2, 3));
+        command.setParallelism(2);
+        command.setChunkSize(1);
+        assertThrows(IllegalArgumentException.class, () -> command.execute(special));
+        assertTrue(threads.isEmpty());
+
+        final List<Map<String, Object>> copies = Collections.synchronizedList(new ArrayList<>());
+        command = new ForEachCommand<Context>() {
+            @Override
+            protected Context createContext(Context context, Map<String, Object> attributes,
+                    Object element, int index) {
+                copies.add(attributes);
+                return new ContextBase(attributes);
+            }
+        };
+        command.setCollectionKey("items");
+        command.setOutputKey("prices");
+        command.setParallelism(2);
+        command.setChunkSize(1);
+        command.setDelegate(ctx -> ctx.get("factor") == null);
+        assertFalse(command.execute(special));
+        assertEquals(Arrays.asList(false, false, false), special.get("prices"));
+        assertEquals(3, copies.size());
+        assertSame(copies.get(0), copies.get(1));
+        assertSame(copies.get(0), copies.get(2));
+        assertEquals(10, copies.get(0).get("factor"));
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.chain.Catalog;
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.impl.CatalogBase;
+import org.apache.commons.chain.impl.ContextBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for the {@code IfCommand} class and its expressions.
+ */
+public class IfCommandTestCase {
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public IfCommandTestCase() {
+    }
+
+    // ---------------------------------------------------- Instance Variables
+
+    /**
+     * The instance of {@link Catalog} to use when looking up commands
+     */
+    protected Catalog<Context> catalog;
+
+    /**
+     * The {@link IfCommand} instance under test.
+     */
+    protected IfCommand<Context> command;
+
+    /**
+     * The {@link Context} instance on which to execute the command.
+     */
+    protected Context context = null;
+
+    // -------------------------------------------------- Overall Test Methods
+
+    /**
+     * Set up instance variables required by this test case.
+     */
+    @BeforeEach
+    public void init() {
+        catalog = new CatalogBase<>();
+        CatalogFactory.getInstance().setCatalog(catalog);
+        catalog.addCommand("then", ctx -> {
+            ctx.put("branch", "then");
+            return true;
+        });
+        catalog.addCommand("else", ctx -> {
+            ctx.put("branch", "else");
+            return false;
+        });
+        command = new IfCommand<>();
+        command.setName("then");
+        command.setFallbackName("else");
+        context = new ContextBase();
+    }
+
+    /**
+     * Tear down instance variables required by this test case.
+     */
+    @AfterEach
+    public void tearDown() {
+        catalog = null;
+        CatalogFactory.clear();
+        command = null;
+        context = null;
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test the selection of the branches.
+     */
+    @Test
+    public void testBranches() throws Exception {
+        command.setCondition("status == 'open' && total >= 100");
+        context.put("status", "open");
+        context.put("total", 150);
+        assertTrue(command.execute(context));
+        assertEquals("then", context.get("branch"));
+
+        context.put("total", "99.5");
+        assertFalse(command.execute(context));
+        assertEquals("else", context.get("branch"));
+
+        command.setFallbackName(null);
+        final IfCommand<Context> noElse = new IfCommand<>();
+        noElse.setName("then");
+        noElse.setCondition("missing");
+        context.remove("branch");
+        assertFalse(noElse.execute(context));
+        assertFalse(context.containsKey("branch"));
+    }
+
+    /**
+     * Test that the branches are looked up only once.
+     */
+    @Test
+    public void testDirectReference() throws Exception {
+        command.setCondition("true");
+        command.execute(context);
+        catalog.addCommand("then", ctx -> {
+            ctx.put("branch", "replaced");
+            return true;
+        });
+        command.execute(context);
+        assertEquals("then", context.get("branch"));
+    }
+
+    /**
+     * Test the evaluation of expressions.
+     */
+    @Test
+    public void testExpressions() {
+        context.put("a", 3);
+        context.put("b", 3L);
+        context.put("s", "text");
+        context.put("n", "12");
+        context.put("flag", Boolean.TRUE);
+        context.put("list", Arrays.asList(1, 2));
+        context.put("empty", Collections.emptyList());
+        context.put("order.id", "x-1");
+
+        assertTrue(test("a == b"));
+        assertTrue(test("a == 3.0"));
+        assertTrue(test("n > 9 && n <= 12"));
+        assertTrue(test("s != 'other' && s == \"text\""));
+        assertTrue(test("flag && list && !empty"));
+        assertTrue(test("!(a < 2) || missing"));
+        assertTrue(test("missing == null"));
+        assertTrue(test("order.id == 'x-1'"));
+        assertTrue(test("s < 'zzz'"));
+        assertTrue(test("-1 < 0"));
+        assertFalse(test("s > 1"));
+        assertFalse(test("s == 1"));
+        assertFalse(test("missing"));
+        assertFalse(test("0"));
+
+        assertThrows(IllegalArgumentException.class, () -> Expression.parse("a =="));
+        assertThrows(IllegalArgumentException.class, () -> Expression.parse("(a"));
+        assertThrows(IllegalArgumentException.class, () -> Expression.parse("'open"));
+        assertThrows(IllegalArgumentException.class, () -> Expression.parse("a b"));
+        assertThrows(IllegalArgumentException.class, () -> command.setCondition("a ="));
+        assertEquals("a == b", Expression.parse("a == b").toString());
+    }
+
+    /**
+     * Test the comparison of numbers of different types.
+     */
+    @Test
+    public void testNumbers() {
+        context.put("i", 7);
+        context.put("l", Long.MAX_VALUE);
+        context.put("d", 7.5);
+        context.put("f", -0.0f);
+        context.put("big", new BigDecimal("7.50"));
+        context.put("nan", Double.NaN);
+
+        assertTrue(test("i == 7 && i < 8 && i >= 7.0"));
+        assertTrue(test("l > 9007199254740993 && l == 9223372036854775807"));
+        assertTrue(test("d > i && d == 7.5 && d == big && d < 9223372036854775808"));
+        assertTrue(test("f == 0 && f >= 0.0"));
+        assertTrue(test("big > i && big == '7.5'"));
+        assertFalse(test("nan == nan || nan > 0 || nan < 0"));
+        assertFalse(test("l == 9223372036854775806"));
+
+        assertEquals(42L, Expression.parse("42").evaluate(context));
+        assertEquals(new BigDecimal("4.20"), Expression.parse("4.20").evaluate(context));
+        assertEquals(new BigDecimal("9223372036854775808"),
+                Expression.parse("9223372036854775808").evaluate(context));
+    }
+
+    // -------------------------------------------------------- Support Methods
+
+    /**
+     * Evaluate a condition on the context.
+     *
+     * @param condition the condition
+     *
+     * @return the truth value of the condition
+     */
+    private boolean test(String condition) {
+        return Expression.parse(condition).test(context);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.Deadline;
+import org.apache.commons.chain.DeadlineExceededException;
+import org.apache.commons.chain.impl.ContextBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for the {@code RetryCommand} class.
+ */
+public class RetryCommandTestCase {
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public RetryCommandTestCase() {
+    }
+
+    // ---------------------------------------------------- Instance Variables
+
+    /**
+     * The {@link RetryCommand} instance under test.
+     */
+    protected RetryCommand<Context> command;
+
+    /**
+     * The {@link Context} instance on which to execute the command.
+     */
+    protected Context context = null;
+
+    /**
+     * The number of failures before the delegate succeeds.
+     */
+    protected AtomicInteger failures;
+
+    /**
+     * The number of executions of the delegate.
+     */
+    protected AtomicInteger executions;
+
+    // -------------------------------------------------- Overall Test Methods
+
+    /**
+     * Set up instance variables required by this test case.
+     */
+    @BeforeEach
+    public void init() {
+        context = new ContextBase();
+        failures = new AtomicInteger();
+        executions = new AtomicInteger();
+        command = new RetryCommand<>();
+        command.setInitialDelay(1);
+        command.setAttemptsKey("attempts");
+        command.setDelegate(ctx -> {
+            if (executions.incrementAndGet() <= failures.get()) {
+                throw new IllegalStateException("transient");
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Tear down instance variables required by this test case.
+     */
+    @AfterEach
+    public void tearDown() {
+        command = null;
+        context = null;
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test recovering from transient failures.
+     */
+    @Test
+    public void testRecover() throws Exception {
+        failures.set(2);
+        assertTrue(command.execute(context));
+        assertEquals(3, context.get("attempts"));
+        assertEquals(2, command.getRetryCount());
+        assertEquals(1, command.getRecoveredCount());
+        assertEquals(0, command.getExhaustedCount());
+    }
+
+    /**
+     * Test exhausting the attempts.
+     */
+    @Test
+    public void testExhausted() throws Exception {
+        failures.set(5);
+        assertThrows(IllegalStateException.class, () -> command.execute(context));
+        assertEquals(3, executions.get());
+        assertEquals(2, command.getRetryCount());
+        assertEquals(1, command.getExhaustedCount());
+    }
+
+    /**
+     * Test that only the configured exceptions are retried.
+     */
+    @Test
+    public void testRetryOn() throws Exception {
+        command.setRetryOn("java.io.IOException, java.util.NoSuchElementException");
+        assertEquals("java.io.IOException,java.util.NoSuchElementException", command.getRetryOn());
+        failures.set(1);
+        assertThrows(IllegalStateException.class, () -> command.execute(context));
+        assertEquals(1, executions.get());
+        assertEquals(0, command.getRetryCount());
+
+        assertThrows(IllegalArgumentException.class, () -> command.setRetryOn("java.lang.String"));
+        assertThrows(IllegalArgumentException.class, () -> command.setRetryOn("no.such.Exception"));
+    }
+
+    /**
+     * Test that a retry must not exceed the deadline.
+     */
+    @Test
+    public void testDeadline() throws Exception {
+        command.setInitialDelay(10000);
+        context.put(Deadline.KEY, Deadline.after(5, TimeUnit.SECONDS));
+        failures.set(1);
+        assertThrows(IllegalStateException.class, () -> command.execute(context));
+        assertEquals(1, executions.get());
+        assertEquals(1, command.getExhaustedCount());
+    }
+
+    /**
+     * Test that an interruption is never retried and the interrupt flag
+     * is restored.
+     */
+    @Test
+    public void testInterrupted() throws Exception {
+        command.setDelegate(ctx -> {
+            executions.incrementAndGet();
+            throw new InterruptedException();
+        });
+        assertThrows(InterruptedException.class, () -> command.execute(context));
+        assertTrue(Thread.interrupted());
+        assertEquals(1, executions.get());
+        assertEquals(0, command.getRetryCount());
+    }
+
+    /**
+     * Test that an exceeded deadline is never retried, even if its type
+     * is configured.
+     */
+    @Test
+    public void testDeadlineExceeded() throws Exception {
+        command.setRetryOn("java.util.concurrent.TimeoutException");
+        command.setDelegate(ctx -> {
+            executions.incrementAndGet();
+            throw new DeadlineExceededException("expired");
+        });
+        assertThrows(DeadlineExceededException.class, () -> command.execute(context));
+        assertEquals(1, executions.get());
+        assertEquals(0, command.getRetryCount());
+        assertEquals(0, command.getExhaustedCount());
+    }
+
+    /**
+     * Test scheduling the retries.
+     */
+    @Test
+    public void testAsync() throws Exception {
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            failures.set(2);
+            assertTrue(command.executeAsync(context, scheduler).get(10, TimeUnit.SECONDS));
+            assertEquals(3, executions.get());
+
+            failures.set(10);
+            final ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> command.executeAsync(context, scheduler).get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals(6, executions.get());
+            assertEquals(4, command.getRetryCount());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.Deadline;
+import org.apache.commons.chain.DeadlineExceededException;
+import org.apache.commons.chain.impl.ContextBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for the {@code SingleFlightCommand} class.
+ */
+public class SingleFlightCommandTestCase {
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public SingleFlightCommandTestCase() {
+    }
+
+    // ---------------------------------------------------- Instance Variables
+
+    /**
+     * The {@link SingleFlightCommand} instance under test.
+     */
+    protected SingleFlightCommand<Context> command;
+
+    /**
+     * The number of executions of the delegate.
+     */
+    protected AtomicInteger executions;
+
+    /**
+     * Counted down when the delegate has been entered.
+     */
+    protected CountDownLatch entered;
+
+    /**
+     * Releases the delegate.
+     */
+    protected CountDownLatch release;
+
+    /**
+     * The executor running the concurrent executions.
+     */
+    protected ExecutorService executor;
+
+    // -------------------------------------------------- Overall Test Methods
+
+    /**
+     * Set up instance variables required by this test case.
+     */
+    @BeforeEach
+    public void init() {
+        executions = new AtomicInteger();
+        entered = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        executor = Executors.newCachedThreadPool();
+        command = new SingleFlightCommand<>();
+        command.setKeys("id");
+        command.setOutputKeys("result");
+        command.setDelegate(context -> {
+            executions.incrementAndGet();
+            entered.countDown();
+            release.await();
+            if (context.get("id") == null) {
+                throw new IllegalStateException("no id");
+            }
+            context.put("result", "value-" + context.get("id"));
+            return true;
+        });
+    }
+
+    /**
+     * Tear down instance variables required by this test case.
+     */
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        executor = null;
+        command = null;
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test that concurrent executions with the same key share one
+     * execution of the delegate.
+     */
+    @Test
+    public void testCoalesce() throws Exception {
+        final List<Context> contexts = new ArrayList<>();
+        final List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final Context context = new ContextBase();
+            context.put("id", "a");
+            contexts.add(context);
+            results.add(executor.submit(() -> command.execute(context)));
+            if (i == 0) {
+                assertTrue(entered.await(10, TimeUnit.SECONDS));
+            }
+        }
+        awaitShared(4);
+        assertEquals(1, command.getInFlightCount());
+        release.countDown();
+
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        }
+        for (Context context : contexts) {
+            assertEquals("value-a", context.get("result"));
+        }
+        assertEquals(1, executions.get());
+        assertEquals(0, command.getInFlightCount());
+
+        final Context context = new ContextBase();
+        context.put("id", "a");
+        assertTrue(command.execute(context));
+        assertEquals(2, executions.get());
+    }
+
+    /**
+     * Test that all coalesced executions throw the exception.
+     */
+    @Test
+    public void testException() throws Exception {
+        final List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(executor.submit(() -> command.execute(new ContextBase())));
+            if (i == 0) {
+                assertTrue(entered.await(10, TimeUnit.SECONDS));
+            }
+        }
+        awaitShared(2);
+        release.countDown();
+
+        Throwable first = null;
+        for (Future<Boolean> result : results) {
+            final ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> result.get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            if (first == null) {
+                first = e.getCause();
+            }
+            assertSame(first, e.getCause());
+        }
+        assertEquals(1, executions.get());
+    }
+
+    /**
+     * Test that a waiting execution honours the deadline of its context.
+     */
+    @Test
+    public void testDeadline() throws Exception {
+        final Future<Boolean> first = executor.submit(() -> {
+            final Context context = new ContextBase();
+            context.put("id", "a");
+            return command.execute(context);
+        });
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+        final Context context = new ContextBase();
+        context.put("id", "a");
+        Deadline.narrow(context, Deadline.after(20, TimeUnit.MILLISECONDS));
+        assertThrows(DeadlineExceededException.class, () -> command.execute(context));
+        assertNull(context.get("result"));
+
+        release.countDown();
+        assertTrue(first.get(10, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+    }
+
+    /**
+     * Test that a re-entrant execution with the same key executes the
+     * delegate instead of waiting for itself.
+     */
+    @Test
+    public void testReentrant() throws Exception {
+        final SingleFlightCommand<Context> reentrant = new SingleFlightCommand<>();
+        reentrant.setKeys("id");
+        reentrant.setDelegate(context -> context.put("nested", Boolean.TRUE) != null
+                || reentrant.execute(context));
+
+        final Context context = new ContextBase();
+        context.put("id", "a");
+        final Future<Boolean> result = executor.submit(() -> reentrant.execute(context));
+        assertTrue(result.get(10, TimeUnit.SECONDS));
+        assertEquals(2, reentrant.getExecutionCount());
+        assertEquals(0, reentrant.getSharedCount());
+        assertEquals(0, reentrant.getInFlightCount());
+    }
+
+    // -------------------------------------------------------- Support Methods
+
+    /**
+     * Wait until the specified number of executions wait for the running
+     * execution.
+     *
+     * @param count the number of waiting executions
+     */
+    private void awaitShared(int count) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (command.getSharedCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(count, command.getSharedCount());
+    }
+}
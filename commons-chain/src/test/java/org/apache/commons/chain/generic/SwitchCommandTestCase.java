@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.commons.chain.Catalog;
+import org.apache.commons.chain.CatalogFactory;
+import org.apache.commons.chain.Command;
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.impl.CatalogBase;
+import org.apache.commons.chain.impl.ContextBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for the {@code SwitchCommand} class.
+ */
+public class SwitchCommandTestCase {
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public SwitchCommandTestCase() {
+    }
+
+    // ---------------------------------------------------- Instance Variables
+
+    /**
+     * The instance of {@link Catalog} to use when looking up commands
+     */
+    protected Catalog<Context> catalog;
+
+    /**
+     * The {@link SwitchCommand} instance under test.
+     */
+    protected SwitchCommand<Context> command;
+
+    /**
+     * The {@link Context} instance on which to execute the command.
+     */
+    protected Context context = null;
+
+    // -------------------------------------------------- Overall Test Methods
+
+    /**
+     * Set up instance variables required by this test case.
+     */
+    @BeforeEach
+    public void init() {
+        catalog = new CatalogBase<>();
+        CatalogFactory.getInstance().setCatalog(catalog);
+        catalog.addCommand("retailOrder", branch("retail"));
+        catalog.addCommand("b2bOrder", branch("b2b"));
+        catalog.addCommand("unknownOrder", branch("unknown"));
+        command = new SwitchCommand<>();
+        command.setExpression("type");
+        command.setCases("retail=retailOrder, b2b = b2bOrder");
+        context = new ContextBase();
+    }
+
+    /**
+     * Tear down instance variables required by this test case.
+     */
+    @AfterEach
+    public void tearDown() {
+        catalog = null;
+        CatalogFactory.clear();
+        command = null;
+        context = null;
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test the selection of the cases.
+     */
+    @Test
+    public void testCases() throws Exception {
+        assertEquals("retail=retailOrder, b2b=b2bOrder", command.getCases());
+        context.put("type", "b2b");
+        assertTrue(command.execute(context));
+        assertEquals("b2b", context.get("branch"));
+
+        context.put("type", "other");
+        context.remove("branch");
+        assertFalse(command.execute(context));
+        assertNull(context.get("branch"));
+
+        command.setFallbackName("unknownOrder");
+        assertTrue(command.execute(context));
+        assertEquals("unknown", context.get("branch"));
+    }
+
+    /**
+     * Test cases with directly set commands and computed values.
+     */
+    @Test
+    public void testAddCase() throws Exception {
+        command.setExpression("count > 10");
+        command.setCases(null);
+        command.addCase("true", branch("large"));
+        command.addCase("false", branch("small"));
+
+        context.put("count", 11);
+        command.execute(context);
+        assertEquals("large", context.get("branch"));
+        context.put("count", 10);
+        command.execute(context);
+        assertEquals("small", context.get("branch"));
+    }
+
+    /**
+     * Test invalid configurations.
+     */
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> command.setCases("retail"));
+        assertThrows(IllegalArgumentException.class, () -> command.setExpression("type =="));
+
+        command.setCases("retail=missing");
+        context.put("type", "retail");
+        assertThrows(IllegalArgumentException.class, () -> command.execute(context));
+
+        final SwitchCommand<Context> empty = new SwitchCommand<>();
+        assertThrows(IllegalStateException.class, () -> empty.execute(context));
+    }
+
+    // -------------------------------------------------------- Support Methods
+
+    /**
+     * Create a command recording the branch.
+     *
+     * @param name the name of the branch
+     *
+     * @return the command
+     */
+    private static Command<Context> branch(String name) {
+        return ctx -> {
+            ctx.put("branch", name);
+            return true;
+        };
+    }
+}
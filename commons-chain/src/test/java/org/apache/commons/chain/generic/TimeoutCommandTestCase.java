@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.chain.generic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.chain.Context;
+import org.apache.commons.chain.Deadline;
+import org.apache.commons.chain.DeadlineExceededException;
+import org.apache.commons.chain.impl.ContextBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test case for the {@code TimeoutCommand} class.
+ */
+public class TimeoutCommandTestCase {
+
+    // ---------------------------------------------------------- Constructors
+
+    /**
+     * The Default-Constructor for this class.
+     */
+    public TimeoutCommandTestCase() {
+    }
+
+    // ---------------------------------------------------- Instance Variables
+
+    /**
+     * The {@link TimeoutCommand} instance under test.
+     */
+    protected TimeoutCommand<Context> command;
+
+    /**
+     * The {@link Context} instance on which to execute the command.
+     */
+    protected Context context = null;
+
+    /**
+     * Counted down when the delegate has been interrupted.
+     */
+    protected CountDownLatch interrupted;
+
+    /**
+     * Counted down when a blocked delegate has finished.
+     */
+    protected CountDownLatch finished;
+
+    // -------------------------------------------------- Overall Test Methods
+
+    /**
+     * Set up instance variables required by this test case.
+     */
+    @BeforeEach
+    public void init() {
+        context = new ContextBase();
+        interrupted = new CountDownLatch(1);
+        finished = new CountDownLatch(1);
+        command = new TimeoutCommand<>();
+        command.setDelegate(ctx -> {
+            ctx.put("deadline", Deadline.get(ctx));
+            ctx.put("thread", Thread.currentThread().getName());
+            final CountDownLatch block = (CountDownLatch) ctx.get("block");
+            if (block != null) {
+                block.await();
+                ctx.put("late", Boolean.TRUE);
+                finished.countDown();
+            }
+            final Long sleep = (Long) ctx.get("sleep");
+            if (sleep != null) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            }
+            return true;
+        });
+        command.setOutputKeys("deadline, thread");
+    }
+
+    /**
+     * Tear down instance variables required by this test case.
+     */
+    @AfterEach
+    public void tearDown() {
+        command.shutdown();
+        command = null;
+        context = null;
+    }
+
+    // ------------------------------------------------ Individual Test Methods
+
+    /**
+     * Test a delegate finishing in time.
+     */
+    @Test
+    public void testInTime() throws Exception {
+        command.setTimeout(10000);
+        assertTrue(command.execute(context));
+        assertTrue(((Deadline) context.get("deadline")).timeRemaining(TimeUnit.SECONDS) > 0);
+        assertTrue(((String) context.get("thread")).startsWith("chain-timeout-"));
+        assertNull(context.get(Deadline.KEY));
+    }
+
+    /**
+     * Test a delegate running out of time.
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        command.setTimeout(20);
+        context.put("sleep", 10000L);
+        assertThrows(DeadlineExceededException.class, () -> command.execute(context));
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        assertEquals(1, command.getTimeoutCount());
+    }
+
+    /**
+     * Test that an abandoned delegate neither changes the context nor
+     * holds more than the threads of the pool.
+     */
+    @Test
+    public void testAbandoned() throws Exception {
+        final CountDownLatch block = new CountDownLatch(1);
+        command.setTimeout(20);
+        command.setInterrupt(false);
+        command.setMaxThreads(1);
+        context.put("block", block);
+        assertThrows(DeadlineExceededException.class, () -> command.execute(context));
+        assertThrows(RejectedExecutionException.class, () -> command.execute(context));
+
+        block.countDown();
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertNull(context.get("thread"));
+        assertNull(context.get("late"));
+        assertEquals(1, command.getTimeoutCount());
+    }
+
+    /**
+     * Test that only a plain {@code ContextBase} is copied.
+     */
+    @Test
+    public void testContextType() throws Exception {
+        command.setTimeout(10000);
+        final Context other = new ContextBase() {
+            private static final long serialVersionUID = 1L;
+        };
+        assertThrows(IllegalArgumentException.class, () -> command.execute(other));
+    }
+
+    /**
+     * Test that the deadline of the context narrows the budget.
+     */
+    @Test
+    public void testDeadline() throws Exception {
+        final Deadline deadline = Deadline.after(20, TimeUnit.MILLISECONDS);
+        context.put(Deadline.KEY, deadline);
+        command.setTimeout(10000);
+        context.put("sleep", 10000L);
+        assertThrows(DeadlineExceededException.class, () -> command.execute(context));
+        assertSame(deadline, context.get(Deadline.KEY));
+
+        assertThrows(DeadlineExceededException.class, () -> command.execute(context));
+        assertEquals(1, command.getTimeoutCount());
+    }
+
+    /**
+     * Test that a huge budget doesn't overflow the deadline.
+     */
+    @Test
+    public void testHugeTimeout() throws Exception {
+        command.setTimeout(Long.MAX_VALUE);
+        assertTrue(command.execute(context));
+        assertTrue(((Deadline) context.get("deadline")).timeRemaining(TimeUnit.DAYS) > 0);
+
+        final Deadline huge = Deadline.after(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        assertFalse(huge.isExpired());
+        assertTrue(huge.compareTo(Deadline.after(1, TimeUnit.DAYS)) > 0);
+    }
+
+    /**
+     * Test a delegate without budget.
+     */
+    @Test
+    public void testNoBudget() throws Exception {
+        assertTrue(command.execute(context));
+        assertEquals(Thread.currentThread().getName(), context.get("thread"));
+    }
+}
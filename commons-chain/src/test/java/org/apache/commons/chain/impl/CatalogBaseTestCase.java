@@ -20,8 +20,10 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.chain.Catalog;
 import org.apache.commons.chain.Command;
@@ -123,6 +125,35 @@ public class CatalogBaseTestCase {
         assertInstanceOf(ChainBase.class, command);
     }
 
+    /**
+     * Test getting lazily added commands
+     */
+    @Test
+    public void testGetLazyCommand() {
+        AtomicInteger created = new AtomicInteger();
+        catalog.addLazyCommand("Lazy", () -> {
+            created.incrementAndGet();
+            return new NonDelegatingCommand("");
+        });
+        catalog.addCommand("AddingCommand", new AddingCommand("", null));
+        assertEquals(0, created.get());
+
+        checkCommandCount(2);
+        assertEquals(1, created.get());
+
+        Command<Context> command = catalog.getCommand("Lazy");
+        assertInstanceOf(NonDelegatingCommand.class, command);
+        assertSame(command, catalog.getCommand("Lazy"));
+        assertEquals(1, created.get());
+        checkCommandCount(2);
+
+        // replacing a lazy command
+        catalog.addLazyCommand("Lazy", () -> new DelegatingCommand(""));
+        catalog.addCommand("Lazy", new ExceptionCommand(""));
+        assertInstanceOf(ExceptionCommand.class, catalog.getCommand("Lazy"));
+        checkCommandCount(2);
+    }
+
     // The getNames() method is implicitly tested by checkCommandCount()
 
     /**
@@ -19,12 +19,19 @@ package org.apache.commons.chain.impl;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.commons.chain.Chain;
 import org.apache.commons.chain.Command;
 import org.apache.commons.chain.Context;
+import org.apache.commons.chain.Deadline;
+import org.apache.commons.chain.DeadlineExceededException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -347,6 +354,56 @@ public class ChainBaseTestCase {
         checkExecuteLog("1/2/b/a");
     }
 
+    /**
+     * Test execution of a chain with filters before and after a command
+     * that should return {@code true}
+     */
+    @Test
+    public void testExecute5() throws Exception {
+        chain.addCommand(new DelegatingCommand("1"));
+        chain.addCommand(new DelegatingFilter("2", "b"));
+        chain.addCommand(new DelegatingCommand("3"));
+        chain.addCommand(new NonDelegatingCommand("4"));
+        chain.addCommand(new DelegatingFilter("5", "e"));
+        assertTrue(chain.execute(context), "Chain returned true");
+        checkExecuteLog("1/2/3/4/b");
+    }
+
+    /**
+     * Test the timeout of a chain
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        ((ChainBase<Context>) chain).setTimeout(20);
+        chain.addCommand(new DelegatingFilter("1", "a"));
+        chain.addCommand(ctx -> {
+            Thread.sleep(50);
+            return false;
+        });
+        chain.addCommand(new NonDelegatingCommand("3"));
+
+        assertThrows(DeadlineExceededException.class, () -> chain.execute(context));
+        checkExecuteLog("1/a");
+        assertNull(context.get(Deadline.KEY), "Deadline restored");
+    }
+
+    /**
+     * Test checking the deadline of the context
+     */
+    @Test
+    public void testCheckDeadline() throws Exception {
+        final Deadline deadline = Deadline.after(-1, TimeUnit.MILLISECONDS);
+        context.put(Deadline.KEY, deadline);
+        chain.addCommand(new DelegatingCommand("1"));
+        chain.execute(context);
+        checkExecuteLog("1");
+
+        ((ChainBase<Context>) chain).setCheckDeadline(true);
+        assertThrows(DeadlineExceededException.class, () -> chain.execute(context));
+        checkExecuteLog("1");
+        assertSame(deadline, context.get(Deadline.KEY));
+    }
+
     /**
      * Test state of newly created instance
      */